@@ -0,0 +1,77 @@
+package ch.epfl.javelo.data;
+
+/**
+ * Représente le stockage des arêtes du graphe JaVelo, auquel Graph délègue
+ * l'accès aux arêtes quelle que soit la manière dont elles sont chargées.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+interface EdgeStorage {
+
+    /**
+     * Retourne vrai si et seulement si l'arête d'identité donnée va dans le sens
+     * inverse de la voie OSM dont elle provient.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return vrai si et seulement si l'arête d'identité donnée va dans le sens
+     * inverse de la voie OSM dont elle provient
+     */
+    boolean isInverted(int edgeId);
+
+    /**
+     * Retourne l'identité du noeud destination de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return l'identité du noeud destination de l'arête d'identité donnée
+     */
+    int targetNodeId(int edgeId);
+
+    /**
+     * Retourne la longueur, en mètres, de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return la longueur, en mètres, de l'arête d'identité donnée
+     */
+    double length(int edgeId);
+
+    /**
+     * Retourne le dénivelé positif, en mètres, de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return le dénivelé positif, en mètres, de l'arête d'identité donnée
+     */
+    double elevationGain(int edgeId);
+
+    /**
+     * Retourne vrai si et seulement si l'arête d'identité donnée possède un profil.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return vrai si et seulement si l'arête d'identité donnée possède un profil
+     */
+    boolean hasProfile(int edgeId);
+
+    /**
+     * Retourne le tableau des échantillons du profil de l'arête d'identité donnée,
+     * qui est vide si l'arête ne possède pas de profil.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return le tableau des échantillons du profil de l'arête d'identité donnée
+     */
+    float[] profileSamples(int edgeId);
+
+    /**
+     * Retourne l'identité de l'ensemble d'attributs attaché à l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return l'identité de l'ensemble d'attributs attaché à l'arête d'identité donnée
+     */
+    int attributesIndex(int edgeId);
+}
@@ -6,11 +6,14 @@ import ch.epfl.javelo.projection.PointCh;
 import java.io.IOException;
 import java.nio.*;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.DoubleUnaryOperator;
 
+import static java.nio.file.StandardOpenOption.*;
+
 /**
  * Représente le graphe JaVelo.
  *
@@ -18,10 +21,38 @@ import java.util.function.DoubleUnaryOperator;
  * @author Nathanaël Girod (329987)
  */
 public final  class Graph {
-    private final GraphNodes nodes;
+    static final String IN_EDGES_FILE_NAME = "in_edges.bin";
+    static final String WIDE_NODES_FILE_NAME = "nodes_wide.bin";
+    // Nombre maximal de profils décodés conservés par le graphe
+    private static final int PROFILE_CACHE_SIZE = 1 << 14;
+    private static final DoubleUnaryOperator NO_PROFILE = Functions.constant(Double.NaN);
+    private final NodeStorage nodes;
     private final GraphSectors sectors;
-    private final GraphEdges edges;
+    private final EdgeStorage edges;
     private final List<AttributeSet> attributeSets;
+    // Index des arêtes entrantes, construit à la première utilisation s'il
+    // n'a pas été chargé depuis le fichier in_edges.bin
+    private volatile GraphInEdges inEdges;
+    private final ProfileCache profiles = new ProfileCache(PROFILE_CACHE_SIZE);
+
+    /**
+     * Représente la manière dont loadFrom stocke les noeuds et les arêtes du
+     * graphe.
+     */
+    public enum Storage {
+        /**
+         * Les fichiers sont projetés en mémoire et lus au travers de mémoires
+         * tampon à chaque accès.
+         */
+        MAPPED,
+        /**
+         * Les noeuds et les arêtes sont décodés en parallèle, au chargement,
+         * dans des tableaux de types primitifs, ce qui accélère leurs accès au
+         * prix d'un chargement plus long et d'une plus grande occupation de la
+         * mémoire.
+         */
+        HEAP
+    }
 
     /**
      * Construit le graphe avec les noeuds, secteurs, arêtes et ensembles
@@ -34,15 +65,43 @@ public final  class Graph {
      */
     public Graph (GraphNodes nodes, GraphSectors sectors, GraphEdges edges,
                   List<AttributeSet> attributeSets) {
+        this(nodes, sectors, edges, attributeSets, null);
+    }
+
+    /**
+     * Construit le graphe avec les noeuds, secteurs, arêtes, ensembles
+     * d'attributs et index des arêtes entrantes donnés.
+     *
+     * @param nodes les noeuds du graphe
+     * @param sectors les secteurs du graphe
+     * @param edges les arêtes du graphe
+     * @param attributeSets un ensembles d'attributs donnés
+     * @param inEdges l'index des arêtes entrantes, ou null s'il doit être
+     * construit à sa première utilisation
+     */
+    public Graph (GraphNodes nodes, GraphSectors sectors, GraphEdges edges,
+                  List<AttributeSet> attributeSets, GraphInEdges inEdges) {
+        this((NodeStorage) nodes, sectors, (EdgeStorage) edges, attributeSets, inEdges);
+    }
+
+    // Construit le graphe à partir de noeuds et d'arêtes stockés de manière
+    // quelconque
+    private Graph (NodeStorage nodes, GraphSectors sectors, EdgeStorage edges,
+                   List<AttributeSet> attributeSets, GraphInEdges inEdges) {
         this.nodes = nodes;
         this.sectors = sectors;
         this.edges = edges;
         this.attributeSets = List.copyOf(attributeSets);
+        this.inEdges = inEdges;
     }
 
     /**
      * Retourne le graphe JaVelo obtenu à partir des fichiers se trouvant dans
-     * le répertoire donné.
+     * le répertoire donné. Le fichier in_edges.bin, contenant l'index des
+     * arêtes entrantes, est facultatif : s'il n'existe pas ou est obsolète,
+     * l'index est construit à sa première utilisation. Si le fichier nodes_wide.bin
+     * existe, les noeuds sont chargés au format large depuis ce fichier
+     * plutôt que depuis nodes.bin.
      *
      * @param basePath le chemin du répertoire où se trouvent les fichiers
      *
@@ -53,17 +112,28 @@ public final  class Graph {
      * fichiers attendu n'existe pas
      */
     public static Graph loadFrom(Path basePath) throws IOException {
+        return loadFrom(basePath, Storage.MAPPED);
+    }
 
-        Path nodesPath = basePath.resolve("nodes.bin");
-        IntBuffer nodesBuffer = mappedBuffer(nodesPath).asIntBuffer();
-
-        GraphNodes nodes = new GraphNodes(nodesBuffer);
-
-
-        Path sectorsPath = basePath.resolve("sectors.bin");
-        ByteBuffer sectorsBuffer = mappedBuffer(sectorsPath);
+    /**
+     * Retourne le graphe JaVelo obtenu à partir des fichiers se trouvant dans
+     * le répertoire donné, comme loadFrom(Path), dont les noeuds et les arêtes
+     * sont stockés de la manière donnée.
+     *
+     * @param basePath le chemin du répertoire où se trouvent les fichiers
+     * @param storage la manière de stocker les noeuds et les arêtes
+     *
+     * @return le graphe JaVelo obtenu à partir des fichiers se trouvant dans
+     * le répertoire donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si l'un des
+     * fichiers attendu n'existe pas
+     */
+    public static Graph loadFrom(Path basePath, Storage storage) throws IOException {
+        boolean wide = Files.exists(basePath.resolve(WIDE_NODES_FILE_NAME));
+        IntBuffer nodesBuffer = mappedBuffer(nodesPath(basePath, wide)).asIntBuffer();
 
-        GraphSectors sectors = new GraphSectors(sectorsBuffer);
+        GraphNodes nodes = new GraphNodes(nodesBuffer, wide);
 
 
         Path edgesPath = basePath.resolve("edges.bin");
@@ -77,6 +147,50 @@ public final  class Graph {
 
         GraphEdges edges = new GraphEdges(edgesBuffer, profileIds ,elevations);
 
+        return switch (storage) {
+            case MAPPED -> load(basePath, nodes, edges);
+            case HEAP -> load(basePath, HeapGraphNodes.copyOf(nodes), HeapGraphEdges.copyOf(edges));
+        };
+    }
+
+    /**
+     * Retourne le graphe JaVelo obtenu à partir des fichiers se trouvant dans
+     * le répertoire donné, comme loadFrom(Path), mais dont les noeuds et les
+     * arêtes sont projetés en mémoire dans l'arène donnée et adressés sur 64
+     * bits, ce qui permet de charger des fichiers de plus de 2 Go. Le graphe
+     * ne peut plus être utilisé une fois l'arène fermée.
+     *
+     * @param basePath le chemin du répertoire où se trouvent les fichiers
+     * @param arena l'arène à laquelle appartiennent les fichiers projetés
+     *
+     * @return le graphe JaVelo obtenu à partir des fichiers se trouvant dans
+     * le répertoire donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si l'un des
+     * fichiers attendu n'existe pas
+     * @throws IllegalStateException si l'arène a été fermée
+     */
+    public static Graph loadFrom(Path basePath, GraphArena arena) throws IOException {
+        boolean wide = Files.exists(basePath.resolve(WIDE_NODES_FILE_NAME));
+        SegmentGraphNodes nodes =
+                new SegmentGraphNodes(arena.map(nodesPath(basePath, wide)), wide);
+        SegmentGraphEdges edges = new SegmentGraphEdges(
+                arena.map(basePath.resolve("edges.bin")),
+                arena.map(basePath.resolve("profile_ids.bin")),
+                arena.map(basePath.resolve("elevations.bin")));
+        return load(basePath, nodes, edges);
+    }
+
+    // Retourne le graphe formé des noeuds et arêtes donnés ainsi que des
+    // secteurs, ensembles d'attributs et index des arêtes entrantes chargés
+    // depuis le répertoire basePath
+    private static Graph load(Path basePath, NodeStorage nodes, EdgeStorage edges)
+            throws IOException {
+        Path sectorsPath = basePath.resolve("sectors.bin");
+        ByteBuffer sectorsBuffer = mappedBuffer(sectorsPath);
+
+        GraphSectors sectors = new GraphSectors(sectorsBuffer);
+
 
         Path attributesPath = basePath.resolve("attributes.bin");
         LongBuffer attributes = mappedBuffer(attributesPath).asLongBuffer();
@@ -90,7 +204,77 @@ public final  class Graph {
             attributeSets.add(new AttributeSet(l));
         }
 
-        return new Graph(nodes, sectors, edges, attributeSets);
+        return new Graph(nodes, sectors, edges, attributeSets, loadInEdges(basePath, nodes));
+    }
+
+    // Retourne l'index des arêtes entrantes stocké dans le répertoire donné,
+    // ou null s'il n'existe pas ou est obsolète, auquel cas il est construit
+    // en mémoire lors de sa première utilisation.
+    private static GraphInEdges loadInEdges(Path basePath, NodeStorage nodes)
+            throws IOException {
+        Path inEdgesPath = basePath.resolve(IN_EDGES_FILE_NAME);
+        if (!Files.exists(inEdgesPath))
+            return null;
+        // Le fichier profile_ids.bin contient une valeur de type int par arête
+        long edgeCount = Files.size(basePath.resolve("profile_ids.bin")) / Integer.BYTES;
+        try {
+            return GraphInEdges.loadFrom(inEdgesPath, GraphFingerprint.of(basePath),
+                    nodes.count(), Math.toIntExact(edgeCount));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Retourne le chemin du fichier des noeuds, au format large ou non
+    private static Path nodesPath(Path basePath, boolean wide) {
+        return basePath.resolve(wide ? WIDE_NODES_FILE_NAME : "nodes.bin");
+    }
+
+    /**
+     * Écrit l'index des arêtes entrantes du graphe dans le fichier in_edges.bin
+     * du répertoire donné, afin que loadFrom puisse l'y charger par la suite ;
+     * l'empreinte du graphe y est stockée, de sorte que l'index soit ignoré
+     * si les fichiers du graphe sont remplacés.
+     *
+     * @param basePath le chemin du répertoire où se trouvent les fichiers
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeInEdges(Path basePath) throws IOException {
+        inEdges().writeTo(basePath.resolve(IN_EDGES_FILE_NAME), GraphFingerprint.of(basePath));
+    }
+
+    /**
+     * Écrit les noeuds du graphe au format large dans le fichier
+     * nodes_wide.bin du répertoire donné, afin que loadFrom les y charge par
+     * la suite.
+     *
+     * @param basePath le chemin du répertoire où se trouvent les fichiers
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeWideNodes(Path basePath) throws IOException {
+        IntBuffer wideNodes = GraphNodes.wideCopyOf(nodes).buffer();
+        ByteBuffer bytes = ByteBuffer.allocate(wideNodes.capacity() * Integer.BYTES);
+        bytes.asIntBuffer().put(wideNodes.duplicate().clear());
+        try (FileChannel channel = FileChannel.open(basePath.resolve(WIDE_NODES_FILE_NAME),
+                CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+    }
+
+    // Retourne l'index des arêtes entrantes, en le construisant si nécessaire
+    private GraphInEdges inEdges() {
+        GraphInEdges index = inEdges;
+        if (index == null) {
+            synchronized (this) {
+                index = inEdges;
+                if (index == null)
+                    inEdges = index = GraphInEdges.build(nodes, edges);
+            }
+        }
+        return index;
     }
 
     private static MappedByteBuffer mappedBuffer(Path filePath) throws IOException {
@@ -142,6 +326,45 @@ public final  class Graph {
         return nodes.edgeId(nodeId, edgeIndex);
     }
 
+    /**
+     * Retourne le nombre d'arêtes entrant dans le noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le nombre d'arêtes entrant dans le noeud d'identité donnée
+     */
+    public int nodeInDegree(int nodeId) {
+        return inEdges().inDegree(nodeId);
+    }
+
+    /**
+     * Retourne l'identité de la edgeIndex-ième arête entrant dans le noeud
+     * d'identité nodeId.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice d'une des arêtes entrantes du noeud
+     *
+     * @return l'identité de la edgeIndex-ième arête entrant dans le noeud
+     * d'identité nodeId
+     */
+    public int nodeInEdgeId(int nodeId, int edgeIndex) {
+        return inEdges().edgeId(nodeId, edgeIndex);
+    }
+
+    /**
+     * Retourne l'identité du noeud de départ de la edgeIndex-ième arête
+     * entrant dans le noeud d'identité nodeId.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice d'une des arêtes entrantes du noeud
+     *
+     * @return l'identité du noeud de départ de la edgeIndex-ième arête
+     * entrant dans le noeud d'identité nodeId
+     */
+    public int nodeInEdgeSourceNodeId(int nodeId, int edgeIndex) {
+        return inEdges().sourceNodeId(nodeId, edgeIndex);
+    }
+
     /**
      * Retourne l'identité du noeud se trouvant le plus proche du point donné,
      * à la distance maximale donnée (en mètres), ou -1 si aucun noeud ne
@@ -211,6 +434,39 @@ public final  class Graph {
         return attributeSets.get(attributeSetId);
     }
 
+    /**
+     * Retourne l'identité de l'ensemble des attributs OSM attachés à l'arête
+     * d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return l'identité de l'ensemble des attributs OSM attachés à l'arête
+     * d'identité donnée
+     */
+    public int edgeAttributesIndex(int edgeId) {
+        return edges.attributesIndex(edgeId);
+    }
+
+    /**
+     * Retourne le nombre d'ensembles d'attributs distincts du graphe.
+     *
+     * @return le nombre d'ensembles d'attributs distincts du graphe
+     */
+    public int attributeSetCount() {
+        return attributeSets.size();
+    }
+
+    /**
+     * Retourne l'ensemble d'attributs d'identité donnée.
+     *
+     * @param attributeSetId l'identité de l'ensemble d'attributs
+     *
+     * @return l'ensemble d'attributs d'identité donnée
+     */
+    public AttributeSet attributeSet(int attributeSetId) {
+        return attributeSets.get(attributeSetId);
+    }
+
     /**
      * Retourne la longueur, en mètres, de l'arête d'identité donnée.
      *
@@ -236,7 +492,9 @@ public final  class Graph {
     /**
      * Retourne le profil en long de l'arête d'identité donnée, sous la forme
      * d'une fonction; si l'arête ne possède pas de profil, alors cette fonction
-     * doit retourner Double.NaN pour n'importe quel argument.
+     * doit retourner Double.NaN pour n'importe quel argument. Les profils les
+     * plus récemment demandés sont conservés, de sorte que les demandes
+     * répétées d'un même profil ne le décodent qu'une fois.
      *
      * @param edgeId l'identité de l'arête
      *
@@ -245,9 +503,13 @@ public final  class Graph {
      * doit retourner Double.NaN pour n'importe quel argument
      */
     public DoubleUnaryOperator edgeProfile(int edgeId) {
-        float[] samples = edges.profileSamples(edgeId);
-        return edges.hasProfile(edgeId) ?
-                Functions.sampled(samples, edgeLength(edgeId))
-                : Functions.constant(Double.NaN);
+        if (!edges.hasProfile(edgeId))
+            return NO_PROFILE;
+        DoubleUnaryOperator profile = profiles.get(edgeId);
+        if (profile == null) {
+            profile = Functions.sampled(edges.profileSamples(edgeId), edgeLength(edgeId));
+            profiles.put(edgeId, profile);
+        }
+        return profile;
     }
 }
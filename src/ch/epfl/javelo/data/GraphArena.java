@@ -0,0 +1,71 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Représente une arène partagée, propriétaire des fichiers d'un ou plusieurs
+ * graphes JaVelo projetés en mémoire par Graph.loadFrom(Path, GraphArena).
+ * <p>
+ * Les graphes chargés dans une arène peuvent être utilisés par plusieurs
+ * fils à la fois, tant que l'arène est ouverte. Sa fermeture abandonne les
+ * fichiers projetés de tous ses graphes, dont toute lecture ultérieure, dans
+ * n'importe quel fil, lève IndexOutOfBoundsException. Une lecture concurrente
+ * à la fermeture retourne la valeur lue ou lève cette exception, mais ne peut
+ * jamais accéder à de la mémoire libérée.
+ * <p>
+ * La fermeture ne libère pas immédiatement la mémoire projetée, Java 17
+ * n'offrant aucun moyen sûr de le faire : elle est libérée par le
+ * ramasse-miettes une fois que plus rien ne la référence.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class GraphArena implements AutoCloseable {
+    private final List<MappedSegment> segments = new ArrayList<>();
+    private boolean alive = true;
+
+    /**
+     * Retourne vrai si et seulement si l'arène n'a pas encore été fermée.
+     *
+     * @return vrai si et seulement si l'arène n'a pas encore été fermée
+     */
+    public synchronized boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Projette en mémoire le fichier donné, qui appartient dès lors à l'arène.
+     *
+     * @param path le chemin du fichier
+     *
+     * @return le segment contenant la totalité du fichier donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     * @throws IllegalStateException si l'arène a été fermée
+     */
+    synchronized MappedSegment map(Path path) throws IOException {
+        if (!alive)
+            throw new IllegalStateException("arena already closed");
+        MappedSegment segment = MappedSegment.map(path);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Ferme l'arène en abandonnant la mémoire projetée de tous ses fichiers,
+     * qui est libérée par le ramasse-miettes. Ne fait rien si l'arène a déjà
+     * été fermée.
+     */
+    @Override
+    public synchronized void close() {
+        if (!alive)
+            return;
+        alive = false;
+        for (MappedSegment segment : segments)
+            segment.release();
+        segments.clear();
+    }
+}
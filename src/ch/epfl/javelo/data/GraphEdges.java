@@ -24,7 +24,8 @@ import java.util.List;
  * @param elevations mémoire tampon contenant la totalité des échantillons des
  * profils, compressés ou non
  */
-public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuffer elevations) {
+public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuffer elevations)
+        implements EdgeStorage {
 
     private static final int OFFSET_TARGET_NODE_ID = 0;
     private static final int OFFSET_LENGTH = OFFSET_TARGET_NODE_ID + Integer.BYTES;
@@ -42,7 +43,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * inverse de la voie OSM dont elle provient
      */
     public boolean isInverted(int edgeId) {
-        return edgesBuffer.get(edgeId * BYTES_FOR_EDGES + OFFSET_TARGET_NODE_ID) < 0;
+        return edgesBuffer.get(offset(edgeId) + OFFSET_TARGET_NODE_ID) < 0;
     }
 
     /**
@@ -54,7 +55,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      */
     public int targetNodeId(int edgeId) {
         int idWithEdgeDirection = edgesBuffer.getInt(
-                edgeId * BYTES_FOR_EDGES + OFFSET_TARGET_NODE_ID);
+                offset(edgeId) + OFFSET_TARGET_NODE_ID);
         return isInverted(edgeId) ? ~idWithEdgeDirection : idWithEdgeDirection;
     }
 
@@ -67,7 +68,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      */
     public double length(int edgeId) {
         int length = Short.toUnsignedInt(
-                edgesBuffer.getShort(BYTES_FOR_EDGES * edgeId + OFFSET_LENGTH));
+                edgesBuffer.getShort(offset(edgeId) + OFFSET_LENGTH));
         return Q28_4.asDouble(length);
     }
 
@@ -80,7 +81,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      */
     public double elevationGain(int edgeId) {
         int elevationGain = Short.toUnsignedInt(
-                edgesBuffer.getShort(BYTES_FOR_EDGES * edgeId + OFFSET_ELEVATION_GAIN));
+                edgesBuffer.getShort(offset(edgeId) + OFFSET_ELEVATION_GAIN));
         return Q28_4.asDouble(elevationGain);
     }
 
@@ -92,10 +93,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return vrai si et seulement si l'arête d'identité donnée possède un profil
      */
     public boolean hasProfile(int edgeId) {
-        int startOfRange = 30;
-        int rangeLength = 2;
-        return Bits.extractSigned(profileIds.get(edgeId), startOfRange, rangeLength)
-                != ProfileTypes.NO_PROFILE.ordinal();
+        return profileType(profileIds.get(edgeId)) != ProfileTypes.NO_PROFILE;
     }
     // Type énuméré représentant les différents types de profil
     private enum ProfileTypes {
@@ -106,6 +104,10 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
     }
     // Liste contenant les différents types de profil
     private final static List<ProfileTypes> allProfileTypes = List.of(ProfileTypes.values());
+    // Logarithme en base 2 du nombre de différences par valeur de type short,
+    // pour chaque type de profil compressé
+    private static final int Q44_SHIFT = 1;
+    private static final int Q04_SHIFT = 2;
 
 
     /**
@@ -118,71 +120,95 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * qui est vide si l'arête ne possède pas de profil
      */
     public float[] profileSamples(int edgeId) {
-        if (!hasProfile(edgeId))
-            return new float[]{};
+        return decodeProfile(elevations, profileIds.get(edgeId),
+                sampleCount(Short.toUnsignedInt(
+                        edgesBuffer.getShort(offset(edgeId) + OFFSET_LENGTH))),
+                isInverted(edgeId));
+    }
 
-        float[] samples = new float[numberOfSamplesInProfile(edgeId)];
-        ProfileTypes profileType = profileType(edgeId);
-        float firstUncompressedSample = Q28_4.asFloat(Short.toUnsignedInt(
-                elevations.get(firstProfileId(edgeId))));
-        samples[0] = firstUncompressedSample;
+    /**
+     * Retourne le tableau des échantillons du profil décrit par la valeur
+     * donnée, au format du fichier profile_ids.bin, qui est vide si cette
+     * valeur dénote l'absence de profil. Seules les valeurs de type short du
+     * profil sont lues, leur nombre découlant de celui des échantillons, et
+     * l'altitude est cumulée sous forme entière. Cette méthode est partagée
+     * par tous les stockages des arêtes.
+     *
+     * @param elevations la mémoire tampon contenant la totalité des
+     * échantillons des profils
+     * @param profileId le type et l'index du premier échantillon du profil
+     * @param sampleCount le nombre d'échantillons du profil
+     * @param inverted vrai si et seulement si l'arête va dans le sens inverse
+     * de la voie OSM dont elle provient
+     *
+     * @return le tableau des échantillons du profil décrit par la valeur donnée
+     */
+    static float[] decodeProfile(ShortBuffer elevations, int profileId, int sampleCount,
+                                 boolean inverted) {
+        ProfileTypes profileType = profileType(profileId);
+        if (profileType == ProfileTypes.NO_PROFILE)
+            return new float[]{};
 
+        float[] samples = new float[sampleCount];
+        int firstSampleIndex = firstProfileId(profileId);
         switch (profileType) {
-            case UNCOMPRESSED -> extractSamplesUncompressed(edgeId, samples);
-            case COMPRESSED_Q44 -> extractSamplesCompressed(edgeId, Short.SIZE / 2,
-                    samples);
-            case COMPRESSED_Q04 -> extractSamplesCompressed(edgeId, Short.SIZE / 4,
-                    samples);
+            case UNCOMPRESSED -> decodeUncompressed(elevations, firstSampleIndex, samples);
+            case COMPRESSED_Q44 -> decodeCompressed(elevations, firstSampleIndex,
+                    Q44_SHIFT, samples);
+            case COMPRESSED_Q04 -> decodeCompressed(elevations, firstSampleIndex,
+                    Q04_SHIFT, samples);
         }
 
-        if (isInverted(edgeId))
+        if (inverted)
             reverse(samples);
         return samples;
     }
 
-    private void extractSamplesUncompressed(int edgeId, float[] samples) {
-        int sampleIndex = 1;
-        for (int i = 1; i < elevations.capacity() - 1; i++) {
-            int elevationsIndex = firstProfileId(edgeId) + i ;
-            int sample = Short.toUnsignedInt(elevations.get(elevationsIndex));
-            if (sampleIndex >= samples.length)
-                break;
-            samples[sampleIndex] = Q28_4.asFloat(sample);
-            sampleIndex++;
-        }
+    /**
+     * Retourne le nombre d'échantillons du profil d'une arête de longueur
+     * donnée.
+     *
+     * @param length la longueur de l'arête, au format Q28.4
+     *
+     * @return le nombre d'échantillons du profil d'une arête de longueur donnée
+     */
+    static int sampleCount(int length) {
+        int twoToQ28_4 = Q28_4.ofInt(2);
+        return 1 + Math2.ceilDiv(length, twoToQ28_4);
     }
-    private void extractSamplesCompressed(int edgeId, int sampleRangeLength,float[] samples) {
-        int samplesPerShort = Short.SIZE / sampleRangeLength;
-        int samplesIndex = 1;
-        boolean isSamplesFull = false;
-
-        for (int i = 1; i < elevations().capacity() - 1; ++i) {
-            if(isSamplesFull)
-                break;
-            int start = Short.SIZE  - sampleRangeLength;
-            int elevationsIndex = firstProfileId(edgeId) + i ;
-            int s = Short.toUnsignedInt(elevations.get(elevationsIndex));
-
-            for (int j = 0; j < samplesPerShort; ++j) {
-                if (samplesIndex > samples.length - 1) {
-                    isSamplesFull = true;
-                    break;
-                }
-
-                int sample = Bits.extractSigned(s, start, sampleRangeLength);
-                float difference = Q28_4.asFloat(sample);
-                int indexOfPreviousSample = samplesIndex - 1;
-                samples[samplesIndex] = difference + samples[indexOfPreviousSample];
-                start -= sampleRangeLength;
-                samplesIndex++;
-            }
 
-        }
+    // Décode les échantillons non compressés du profil commençant à l'index
+    // firstSampleIndex
+    private static void decodeUncompressed(ShortBuffer elevations, int firstSampleIndex,
+                                           float[] samples) {
+        for (int i = 0; i < samples.length; i++)
+            samples[i] = Q28_4.asFloat(Short.toUnsignedInt(elevations.get(firstSampleIndex + i)));
+    }
 
+    // Décode les échantillons compressés du profil commençant à l'index
+    // firstSampleIndex, chaque valeur de type short contenant 2^shift
+    // différences
+    private static void decodeCompressed(ShortBuffer elevations, int firstSampleIndex,
+                                         int shift, float[] samples) {
+        int samplesPerShort = 1 << shift;
+        int sampleRangeLength = Short.SIZE >> shift;
+        // L'altitude est cumulée au format Q28.4, de manière exacte
+        int elevation = Short.toUnsignedInt(elevations.get(firstSampleIndex));
+        samples[0] = Q28_4.asFloat(elevation);
+        for (int i = 1; i < samples.length; i++) {
+            int position = (i - 1) & (samplesPerShort - 1);
+            // Place la différence dans les bits de poids fort, puis l'étend
+            // en conservant son signe
+            int difference = elevations.get(firstSampleIndex + 1 + ((i - 1) >> shift))
+                    << (Short.SIZE + sampleRangeLength * position)
+                    >> (Integer.SIZE - sampleRangeLength);
+            elevation += difference;
+            samples[i] = Q28_4.asFloat(elevation);
+        }
     }
 
     //Inverse les éléments du tableau passé en argument
-    private void reverse(float[] arr) {
+    private static void reverse(float[] arr) {
         float temp;
         for (int i = 0; i < arr.length / 2; i++) {
             temp = arr[i];
@@ -191,31 +217,31 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
         }
     }
 
-    // Retourne le type de profil de l'arête d'identité edgeId
-    private ProfileTypes profileType(int edgeId) {
+    // Retourne le type du profil décrit par la valeur profileId
+    private static ProfileTypes profileType(int profileId) {
         int profileTypeValueStartOfRange = 30;
         int profileTypeValueRangeLength = 2;
-        int profileTypeValue = Bits.extractUnsigned(profileIds.get(edgeId),
+        int profileTypeValue = Bits.extractUnsigned(profileId,
                 profileTypeValueStartOfRange,
                 profileTypeValueRangeLength);
         return allProfileTypes.get(profileTypeValue);
     }
 
-    // Retourne l'identité du premier profil de l'arête d'identité edgeId
-    private int firstProfileId(int edgeId) {
+    // Retourne l'index du premier échantillon du profil décrit par la valeur
+    // profileId
+    private static int firstProfileId(int profileId) {
         int firstProfileIdStartOfRange = 0;
         int firstProfileIdRangeLength = 29;
-        return Bits.extractUnsigned(profileIds.get(edgeId),
+        return Bits.extractUnsigned(profileId,
                 firstProfileIdStartOfRange,
                 firstProfileIdRangeLength);
     }
 
-    // Retourne le nombre d'échantillons du profil de l'arête d'identité edgeId
-    private int numberOfSamplesInProfile(int edgeId) {
-        int lengthToQ28_4 = Short.toUnsignedInt(
-                edgesBuffer.getShort(BYTES_FOR_EDGES * edgeId + OFFSET_LENGTH));
-        int twoToQ28_4 = Q28_4.ofInt(2);
-        return 1 + Math2.ceilDiv(lengthToQ28_4, twoToQ28_4);
+    // Retourne la position de l'arête d'identité edgeId dans la mémoire
+    // tampon, calculée sur 64 bits afin qu'un dépassement lève une exception
+    // plutôt que de désigner une autre arête
+    private static int offset(int edgeId) {
+        return Math.toIntExact((long) BYTES_FOR_EDGES * edgeId);
     }
 
     /**
@@ -227,6 +253,6 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      */
     public int attributesIndex(int edgeId) {
         return Short.toUnsignedInt(
-                edgesBuffer.getShort(edgeId * BYTES_FOR_EDGES + OFFSET_ATTRIBUTES_INDEX));
+                edgesBuffer.getShort(offset(edgeId) + OFFSET_ATTRIBUTES_INDEX));
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Classe utilitaire, finale et non-instanciable, calculant l'empreinte d'un
+ * graphe JaVelo et d'une fonction de coût, stockée dans l'en-tête des
+ * fichiers dérivés du graphe pour reconnaître ceux qui sont obsolètes.
+ * <p>
+ * L'empreinte est calculée à partir de l'identité de la fonction de coût et
+ * de la taille et de la date de modification des fichiers du graphe, de
+ * sorte qu'elle change lorsque ceux-ci sont remplacés, p. ex. après une
+ * renumérotation des noeuds.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class GraphFingerprint {
+    private static final List<String> GRAPH_FILE_NAMES = List.of(
+            "nodes.bin", Graph.WIDE_NODES_FILE_NAME, "edges.bin", "profile_ids.bin",
+            "elevations.bin", "attributes.bin");
+
+    private GraphFingerprint() {}
+
+    /**
+     * Retourne l'empreinte du graphe stocké dans le répertoire donné, pour
+     * les fichiers qui n'en dépendent qu'à travers lui, p. ex. in_edges.bin.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     *
+     * @return l'empreinte du graphe
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public static long of(Path basePath) throws IOException {
+        return of(basePath, "");
+    }
+
+    /**
+     * Retourne l'empreinte du graphe stocké dans le répertoire donné et de la
+     * fonction de coût d'identité donnée.
+     * <p>
+     * L'identité doit changer lorsque la définition de la fonction de coût
+     * change, p. ex. en y incluant un numéro de version.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     * @param costFunctionIdentity l'identité de la fonction de coût
+     *
+     * @return l'empreinte du graphe et de la fonction de coût
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public static long of(Path basePath, String costFunctionIdentity) throws IOException {
+        long fingerprint = costFunctionIdentity.hashCode();
+        for (String fileName : GRAPH_FILE_NAMES) {
+            Path filePath = basePath.resolve(fileName);
+            boolean exists = Files.exists(filePath);
+            fingerprint = 31 * fingerprint + (exists ? Files.size(filePath) : -1);
+            fingerprint = 31 * fingerprint
+                    + (exists ? Files.getLastModifiedTime(filePath).toMillis() : -1);
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,192 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Représente l'index des arêtes entrant dans chaque noeud du graphe JaVelo,
+ * c.-à-d. la structure d'adjacence inverse de celle de GraphNodes.
+ * <p>
+ * Le fichier in_edges.bin commence par un en-tête — version du format (int),
+ * empreinte du graphe (long, voir GraphFingerprint), nombre de noeuds (int),
+ * nombre d'arêtes (int) — qui permet de refuser un index obsolète au
+ * chargement. Il contient ensuite nodeCount + 1 valeurs de type int donnant,
+ * pour chaque noeud, l'index de sa première arête entrante (la dernière
+ * valeur étant le nombre total d'arêtes), suivies de deux valeurs de type int
+ * par arête entrante : l'identité de l'arête et celle de son noeud de départ.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param firstInEdges la mémoire tampon contenant, pour chaque noeud, l'index
+ * de sa première arête entrante
+ * @param inEdges la mémoire tampon contenant, pour chaque arête entrante,
+ * son identité et celle de son noeud de départ
+ */
+public record GraphInEdges(IntBuffer firstInEdges, IntBuffer inEdges) {
+    private static final int OFFSET_EDGE_ID = 0;
+    private static final int OFFSET_SOURCE_NODE_ID = OFFSET_EDGE_ID + 1;
+    private static final int IN_EDGE_INTS = OFFSET_SOURCE_NODE_ID + 1;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_NODE_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+    private static final int OFFSET_EDGE_COUNT = OFFSET_NODE_COUNT + Integer.BYTES;
+
+    /**
+     * Construit en mémoire l'index des arêtes entrantes des noeuds donnés.
+     *
+     * @param nodes les noeuds du graphe
+     * @param edges les arêtes du graphe
+     *
+     * @return l'index des arêtes entrantes des noeuds donnés
+     */
+    public static GraphInEdges of(GraphNodes nodes, GraphEdges edges) {
+        return build(nodes, edges);
+    }
+
+    /**
+     * Construit en mémoire l'index des arêtes entrantes des noeuds donnés,
+     * quel que soit leur stockage.
+     *
+     * @param nodes les noeuds du graphe
+     * @param edges les arêtes du graphe
+     *
+     * @return l'index des arêtes entrantes des noeuds donnés
+     */
+    static GraphInEdges build(NodeStorage nodes, EdgeStorage edges) {
+        int nodeCount = nodes.count();
+        int[] firstInEdges = new int[nodeCount + 1];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            for (int i = 0; i < nodes.outDegree(nodeId); i++)
+                firstInEdges[edges.targetNodeId(nodes.edgeId(nodeId, i)) + 1] += 1;
+        }
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            firstInEdges[nodeId + 1] += firstInEdges[nodeId];
+
+        int[] inEdges = new int[IN_EDGE_INTS * firstInEdges[nodeCount]];
+        int[] nextInEdge = firstInEdges.clone();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            for (int i = 0; i < nodes.outDegree(nodeId); i++) {
+                int edgeId = nodes.edgeId(nodeId, i);
+                int index = IN_EDGE_INTS * nextInEdge[edges.targetNodeId(edgeId)]++;
+                inEdges[index + OFFSET_EDGE_ID] = edgeId;
+                inEdges[index + OFFSET_SOURCE_NODE_ID] = nodeId;
+            }
+        }
+        return new GraphInEdges(IntBuffer.wrap(firstInEdges), IntBuffer.wrap(inEdges));
+    }
+
+    /**
+     * Retourne l'index des arêtes entrantes stocké dans le fichier donné,
+     * projeté en mémoire, qui doit avoir été calculé pour le graphe
+     * d'empreinte, de nombre de noeuds et de nombre d'arêtes donnés.
+     *
+     * @param filePath le chemin du fichier
+     * @param fingerprint l'empreinte du graphe (voir GraphFingerprint)
+     * @param nodeCount le nombre de noeuds du graphe
+     * @param edgeCount le nombre d'arêtes du graphe
+     *
+     * @return l'index des arêtes entrantes stocké dans le fichier donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si le
+     * fichier n'existe pas, ou si l'index est obsolète, c.-à-d. que sa
+     * version, son empreinte, son nombre de noeuds ou d'arêtes, ou la taille
+     * du fichier diffère
+     */
+    public static GraphInEdges loadFrom(Path filePath, long fingerprint,
+                                        int nodeCount, int edgeCount) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        long firstInEdgesInts = nodeCount + 1L;
+        if (buffer.capacity() != HEADER_BYTES
+                + (firstInEdgesInts + (long) IN_EDGE_INTS * edgeCount) * Integer.BYTES
+                || buffer.getInt(0) != FORMAT_VERSION
+                || buffer.getLong(OFFSET_FINGERPRINT) != fingerprint
+                || buffer.getInt(OFFSET_NODE_COUNT) != nodeCount
+                || buffer.getInt(OFFSET_EDGE_COUNT) != edgeCount)
+            throw new IOException("stale in-edges index " + filePath);
+        IntBuffer ints = buffer.position(HEADER_BYTES).asIntBuffer();
+        GraphInEdges inEdges = new GraphInEdges(ints.slice(0, nodeCount + 1),
+                ints.slice(nodeCount + 1, IN_EDGE_INTS * edgeCount));
+        if (inEdges.firstInEdges.get(0) != 0 || inEdges.firstInEdges.get(nodeCount) != edgeCount)
+            throw new IOException("stale in-edges index " + filePath);
+        return inEdges;
+    }
+
+    /**
+     * Écrit l'index dans le fichier donné, au format du fichier in_edges.bin.
+     *
+     * @param filePath le chemin du fichier
+     * @param fingerprint l'empreinte du graphe pour lequel l'index a été
+     * calculé (voir GraphFingerprint)
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path filePath, long fingerprint) throws IOException {
+        int nodeCount = firstInEdges.capacity() - 1;
+        int edgeCount = inEdges.capacity() / IN_EDGE_INTS;
+        int ints = firstInEdges.capacity() + inEdges.capacity();
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + ints * Integer.BYTES)
+                .putInt(FORMAT_VERSION)
+                .putLong(fingerprint)
+                .putInt(nodeCount)
+                .putInt(edgeCount);
+        bytes.asIntBuffer()
+                .put(firstInEdges.duplicate().clear())
+                .put(inEdges.duplicate().clear());
+        bytes.clear();
+        try (FileChannel channel = FileChannel.open(filePath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+    }
+
+    /**
+     * Retourne le nombre d'arêtes entrant dans le noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le nombre d'arêtes entrant dans le noeud d'identité donnée
+     */
+    public int inDegree(int nodeId) {
+        return firstInEdges.get(nodeId + 1) - firstInEdges.get(nodeId);
+    }
+
+    /**
+     * Retourne l'identité de la edgeIndex-ième arête entrant dans le noeud
+     * d'identité nodeId.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice de l'arête entrante
+     *
+     * @return l'identité de la edgeIndex-ième arête entrant dans le noeud
+     * d'identité nodeId
+     */
+    public int edgeId(int nodeId, int edgeIndex) {
+        return inEdges.get(IN_EDGE_INTS * (firstInEdges.get(nodeId) + edgeIndex)
+                + OFFSET_EDGE_ID);
+    }
+
+    /**
+     * Retourne l'identité du noeud de départ de la edgeIndex-ième arête
+     * entrant dans le noeud d'identité nodeId.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice de l'arête entrante
+     *
+     * @return l'identité du noeud de départ de la edgeIndex-ième arête entrant
+     * dans le noeud d'identité nodeId
+     */
+    public int sourceNodeId(int nodeId, int edgeIndex) {
+        return inEdges.get(IN_EDGE_INTS * (firstInEdges.get(nodeId) + edgeIndex)
+                + OFFSET_SOURCE_NODE_ID);
+    }
+}
@@ -8,21 +8,71 @@ import static ch.epfl.javelo.Q28_4.asDouble;
 
 /**
  * Représente le tableau de tous les noeuds du graphe Javelo.
+ * <p>
+ * Dans le format compact, celui du fichier nodes.bin, chaque noeud est
+ * représenté par trois valeurs de type int qui sont, dans l'ordre, sa
+ * coordonnée E, sa coordonnée N et le nombre d'arêtes sortantes du noeud
+ * (sur 4 bits) suivi de l'index de la 1ère d'entre-elles (sur 28 bits), ce
+ * qui limite le graphe à 2^28 arêtes et chaque noeud à 15 arêtes sortantes.
+ * Dans le format large, celui du fichier nodes_wide.bin destiné aux graphes
+ * plus grands, chaque noeud est représenté par quatre valeurs de type int :
+ * ses coordonnées E et N, l'index de sa 1ère arête sortante et le nombre de
+ * ses arêtes sortantes.
  *
  * @author Tanguy Dieudonné (326618)
  * @author Nathanaël Girod (329987)
  *
- * @param buffer l'IntBuffer (mémoire tampon) stockant chaque noeud représenté
- * par trois valeurs de type int qui sont, dans l'ordre, sa coordonnée E, sa
- * coordonnées N et le nombre d'arêtes sortantes du noeud et l'index de la 1ère
- * d'entre-elles.
+ * @param buffer l'IntBuffer (mémoire tampon) stockant les noeuds
+ * @param wide vrai si et seulement si les noeuds sont au format large
  */
-public record GraphNodes(IntBuffer buffer) {
+public record GraphNodes(IntBuffer buffer, boolean wide) implements NodeStorage {
     private static final int OFFSET_E = 0;
     private static final int OFFSET_N = OFFSET_E + 1;
     private static final int OFFSET_OUT_EDGES = OFFSET_N + 1;
     private static final int NODE_INTS = OFFSET_OUT_EDGES + 1;
     private static final int OFFSET_INDEX = 28;
+    private static final int OFFSET_WIDE_DEGREE = OFFSET_OUT_EDGES + 1;
+    private static final int WIDE_NODE_INTS = OFFSET_WIDE_DEGREE + 1;
+
+    /**
+     * Construit le tableau des noeuds au format compact stockés dans la
+     * mémoire tampon donnée.
+     *
+     * @param buffer l'IntBuffer (mémoire tampon) stockant les noeuds au
+     * format compact
+     */
+    public GraphNodes(IntBuffer buffer) {
+        this(buffer, false);
+    }
+
+    /**
+     * Retourne le tableau des mêmes noeuds au format large, stocké en
+     * mémoire.
+     *
+     * @return le tableau des mêmes noeuds au format large
+     */
+    public GraphNodes toWide() {
+        return wide ? this : wideCopyOf(this);
+    }
+
+    /**
+     * Retourne une copie en mémoire, au format large, des noeuds donnés.
+     *
+     * @param nodes les noeuds à copier
+     *
+     * @return une copie en mémoire, au format large, des noeuds donnés
+     */
+    static GraphNodes wideCopyOf(NodeStorage nodes) {
+        IntBuffer wideBuffer = IntBuffer.allocate(WIDE_NODE_INTS * nodes.count());
+        for (int nodeId = 0; nodeId < nodes.count(); nodeId++) {
+            int index = WIDE_NODE_INTS * nodeId;
+            wideBuffer.put(index + OFFSET_E, (int) Math.scalb(nodes.nodeE(nodeId), 4));
+            wideBuffer.put(index + OFFSET_N, (int) Math.scalb(nodes.nodeN(nodeId), 4));
+            wideBuffer.put(index + OFFSET_OUT_EDGES, nodes.edgeId(nodeId, 0));
+            wideBuffer.put(index + OFFSET_WIDE_DEGREE, nodes.outDegree(nodeId));
+        }
+        return new GraphNodes(wideBuffer, true);
+    }
 
     /**
      * Retourne le nombre total de noeuds.
@@ -30,7 +80,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return un entier correspond au nombre total de noeuds dans la mémoire tampon
      */
     public int count() {
-        return buffer.capacity() / NODE_INTS;
+        return buffer.capacity() / nodeInts();
     }
 
     /**
@@ -41,7 +91,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return la coordonnée E du noeud d'identité donnée
      */
     public double nodeE(int nodeId) {
-        return asDouble(buffer.get(NODE_INTS * nodeId + OFFSET_E));
+        return asDouble(buffer.get(nodeInts() * nodeId + OFFSET_E));
     }
 
     /**
@@ -52,7 +102,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return la coordonnée N du noeud d'identité donnée
      */
     public double nodeN(int nodeId) {
-        return asDouble(buffer.get(NODE_INTS * nodeId + OFFSET_N));
+        return asDouble(buffer.get(nodeInts() * nodeId + OFFSET_N));
     }
 
     /**
@@ -63,7 +113,9 @@ public record GraphNodes(IntBuffer buffer) {
      * @return le nombre d'arêtes sortant du noeud d'identité donnée
      */
     public int outDegree(int nodeId) {
-        return buffer.get(NODE_INTS * nodeId + OFFSET_OUT_EDGES) >>> OFFSET_INDEX;
+        return wide
+                ? buffer.get(WIDE_NODE_INTS * nodeId + OFFSET_WIDE_DEGREE)
+                : buffer.get(NODE_INTS * nodeId + OFFSET_OUT_EDGES) >>> OFFSET_INDEX;
     }
 
     /**
@@ -75,9 +127,15 @@ public record GraphNodes(IntBuffer buffer) {
      * @return l'identité de la edgeIndex-ième arête sortant du noeud d'identité nodeId
      */
     public int edgeId(int nodeId, int edgeIndex) {
+        if (wide)
+            return buffer.get(WIDE_NODE_INTS * nodeId + OFFSET_OUT_EDGES) + edgeIndex;
         return Bits.extractUnsigned(
                 buffer.get(NODE_INTS * nodeId + OFFSET_OUT_EDGES),OFFSET_E, OFFSET_INDEX)
                 + edgeIndex;
     }
 
+    // Retourne le nombre de valeurs de type int représentant chaque noeud
+    private int nodeInts() {
+        return wide ? WIDE_NODE_INTS : NODE_INTS;
+    }
 }
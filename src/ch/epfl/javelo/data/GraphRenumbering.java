@@ -0,0 +1,280 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Outil hors ligne renumérotant les noeuds et les arêtes d'un graphe JaVelo
+ * afin d'améliorer la localité des accès mémoire lors des recherches
+ * d'itinéraire.
+ * <p>
+ * Les noeuds sont triés selon leur position le long d'une courbe de Hilbert
+ * couvrant la grille des secteurs, de sorte que des noeuds proches dans
+ * l'espace aient généralement des identités proches. Chaque secteur
+ * correspondant à un bloc aligné de la courbe, ses noeuds restent contigus,
+ * comme l'exige le fichier sectors.bin. Les arêtes sont ensuite numérotées
+ * dans l'ordre des nouveaux noeuds, les arêtes sortant d'un même noeud
+ * conservant leur ordre relatif.
+ * <p>
+ * Les fichiers nodes.bin, edges.bin, profile_ids.bin, sectors.bin et, s'il
+ * existe, nodes_osmid.bin sont réécrits ; elevations.bin et attributes.bin,
+ * qui ne sont pas indexés par noeud ni par arête, sont copiés tels quels.
+ * L'index des arêtes entrantes (in_edges.bin) et les noeuds au format large
+ * (nodes_wide.bin) sont recalculés s'ils existaient, tandis que les autres
+ * fichiers dérivés (points de repère, composantes, hiérarchie de
+ * contraction, coûts compilés) ne sont pas copiés et doivent être
+ * recalculés. Le graphe source doit posséder le fichier nodes.bin, au
+ * format compact.
+ * <p>
+ * Usage : GraphRenumbering [répertoire source] [répertoire destination]
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class GraphRenumbering {
+    private static final int NODE_INTS = 3;
+    private static final int OFFSET_E = 0;
+    private static final int OFFSET_N = OFFSET_E + 1;
+    private static final int OFFSET_OUT_EDGES = OFFSET_N + 1;
+    private static final int EDGE_BYTES = 10;
+    private static final int SECTOR_BYTES = Integer.BYTES + Short.BYTES;
+    private static final int SECTOR_COUNT =
+            GraphSectors.SUBDIVISIONS_PER_SIDE * GraphSectors.SUBDIVISIONS_PER_SIDE;
+    // Nombre de cellules de la courbe sur chaque côté d'un secteur
+    private static final int CELLS_PER_SECTOR_SIDE = 512;
+    private static final int HILBERT_SIDE =
+            GraphSectors.SUBDIVISIONS_PER_SIDE * CELLS_PER_SECTOR_SIDE;
+    private static final int NODE_ID_BITS = 28;
+    private static final List<String> COPIED_FILES = List.of("elevations.bin", "attributes.bin");
+
+    private GraphRenumbering() {}
+
+    public static void main(String[] args) throws IOException {
+        Preconditions.checkArgument(args.length == 2);
+        long t0 = System.nanoTime();
+        int[] newNodeIds = renumber(Path.of(args[0]), Path.of(args[1]));
+        System.out.printf("%d noeuds renumérotés en %.1f s%n",
+                newNodeIds.length, (System.nanoTime() - t0) / 1e9);
+    }
+
+    /**
+     * Renumérote les noeuds et les arêtes du graphe se trouvant dans le
+     * répertoire source, et écrit le graphe obtenu dans le répertoire
+     * destination, qui est créé si nécessaire.
+     *
+     * @param sourcePath le répertoire contenant le graphe à renuméroter
+     * @param targetPath le répertoire dans lequel écrire le graphe renuméroté
+     *
+     * @return un tableau donnant, pour chaque ancienne identité de noeud, sa
+     * nouvelle identité
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si l'un des
+     * fichiers attendu n'existe pas
+     * @throws IllegalArgumentException si les deux répertoires sont identiques
+     */
+    public static int[] renumber(Path sourcePath, Path targetPath) throws IOException {
+        Files.createDirectories(targetPath);
+        Preconditions.checkArgument(!Files.isSameFile(sourcePath, targetPath));
+
+        IntBuffer nodes = read(sourcePath.resolve("nodes.bin")).asIntBuffer();
+        ByteBuffer sectors = read(sourcePath.resolve("sectors.bin"));
+        ByteBuffer edges = read(sourcePath.resolve("edges.bin"));
+        IntBuffer profileIds = read(sourcePath.resolve("profile_ids.bin")).asIntBuffer();
+        int nodeCount = nodes.capacity() / NODE_INTS;
+        Preconditions.checkArgument(nodeCount < 1 << NODE_ID_BITS);
+
+        int[] sectorOfNode = sectorOfNodes(nodes, sectors);
+        int[] order = hilbertOrder(nodes, sectorOfNode);
+        int[] newNodeIds = new int[nodeCount];
+        for (int newId = 0; newId < nodeCount; newId++)
+            newNodeIds[order[newId]] = newId;
+
+        IntBuffer newNodes = IntBuffer.allocate(nodes.capacity());
+        ByteBuffer newEdges = ByteBuffer.allocate(edges.capacity());
+        IntBuffer newProfileIds = IntBuffer.allocate(profileIds.capacity());
+        int newEdgeId = 0;
+        for (int newId = 0; newId < nodeCount; newId++) {
+            int oldId = order[newId];
+            int outEdges = nodes.get(NODE_INTS * oldId + OFFSET_OUT_EDGES);
+            int degree = outEdges >>> NODE_ID_BITS;
+            int firstEdgeId = outEdges & ((1 << NODE_ID_BITS) - 1);
+
+            newNodes.put(NODE_INTS * newId + OFFSET_E, nodes.get(NODE_INTS * oldId + OFFSET_E));
+            newNodes.put(NODE_INTS * newId + OFFSET_N, nodes.get(NODE_INTS * oldId + OFFSET_N));
+            newNodes.put(NODE_INTS * newId + OFFSET_OUT_EDGES,
+                    (degree << NODE_ID_BITS) | newEdgeId);
+
+            for (int i = 0; i < degree; i++, newEdgeId++) {
+                int oldEdgeId = firstEdgeId + i;
+                newEdges.put(EDGE_BYTES * newEdgeId, edges, EDGE_BYTES * oldEdgeId, EDGE_BYTES);
+                int target = edges.getInt(EDGE_BYTES * oldEdgeId);
+                // Le sens de l'arête est conservé par le complément
+                newEdges.putInt(EDGE_BYTES * newEdgeId,
+                        target < 0 ? ~newNodeIds[~target] : newNodeIds[target]);
+                newProfileIds.put(newEdgeId, profileIds.get(oldEdgeId));
+            }
+        }
+
+        // Les noeuds d'un secteur étant contigus, le premier d'entre eux est
+        // celui de plus petite nouvelle identité
+        int[] sectorStarts = new int[SECTOR_COUNT];
+        int[] sectorSizes = new int[SECTOR_COUNT];
+        for (int newId = nodeCount - 1; newId >= 0; newId--) {
+            int sector = sectorOfNode[order[newId]];
+            sectorStarts[sector] = newId;
+            sectorSizes[sector] += 1;
+        }
+        ByteBuffer newSectors = ByteBuffer.allocate(SECTOR_COUNT * SECTOR_BYTES);
+        for (int sector = 0; sector < SECTOR_COUNT; sector++) {
+            newSectors.putInt(SECTOR_BYTES * sector, sectorStarts[sector]);
+            newSectors.putShort(SECTOR_BYTES * sector + Integer.BYTES, (short) sectorSizes[sector]);
+        }
+
+        write(targetPath.resolve("nodes.bin"), newNodes);
+        write(targetPath.resolve("edges.bin"), newEdges);
+        write(targetPath.resolve("profile_ids.bin"), newProfileIds);
+        write(targetPath.resolve("sectors.bin"), newSectors);
+
+        Path osmIdsPath = sourcePath.resolve("nodes_osmid.bin");
+        if (Files.exists(osmIdsPath)) {
+            ByteBuffer osmIds = read(osmIdsPath);
+            ByteBuffer newOsmIds = ByteBuffer.allocate(osmIds.capacity());
+            for (int newId = 0; newId < nodeCount; newId++)
+                newOsmIds.putLong(Long.BYTES * newId, osmIds.getLong(Long.BYTES * order[newId]));
+            write(targetPath.resolve("nodes_osmid.bin"), newOsmIds);
+        }
+
+        for (String fileName : COPIED_FILES)
+            Files.copy(sourcePath.resolve(fileName), targetPath.resolve(fileName), REPLACE_EXISTING);
+
+        Files.deleteIfExists(targetPath.resolve(Graph.IN_EDGES_FILE_NAME));
+        Files.deleteIfExists(targetPath.resolve(Graph.WIDE_NODES_FILE_NAME));
+        boolean inEdges = Files.exists(sourcePath.resolve(Graph.IN_EDGES_FILE_NAME));
+        boolean wideNodes = Files.exists(sourcePath.resolve(Graph.WIDE_NODES_FILE_NAME));
+        if (inEdges || wideNodes) {
+            Graph graph = Graph.loadFrom(targetPath);
+            // Le fichier des noeuds larges fait partie de l'empreinte stockée
+            // dans celui des arêtes entrantes, et doit donc être écrit avant.
+            if (wideNodes) graph.writeWideNodes(targetPath);
+            if (inEdges) graph.writeInEdges(targetPath);
+        }
+        return newNodeIds;
+    }
+
+    // Retourne l'index du secteur contenant chaque noeud, tel que donné par
+    // le fichier des secteurs ou, à défaut, par la position du noeud.
+    private static int[] sectorOfNodes(IntBuffer nodes, ByteBuffer sectors) {
+        int[] sectorOfNode = new int[nodes.capacity() / NODE_INTS];
+        Arrays.fill(sectorOfNode, -1);
+        for (int sector = 0; sector < sectors.capacity() / SECTOR_BYTES; sector++) {
+            int start = sectors.getInt(SECTOR_BYTES * sector);
+            int size = Short.toUnsignedInt(sectors.getShort(SECTOR_BYTES * sector + Integer.BYTES));
+            Arrays.fill(sectorOfNode, start, start + size, sector);
+        }
+        for (int nodeId = 0; nodeId < sectorOfNode.length; nodeId++) {
+            if (sectorOfNode[nodeId] < 0)
+                sectorOfNode[nodeId] = GraphSectors.sectorIndex(point(nodes, nodeId));
+        }
+        return sectorOfNode;
+    }
+
+    // Retourne les anciennes identités des noeuds, triées selon leur index
+    // sur la courbe de Hilbert puis selon leur ancienne identité.
+    private static int[] hilbertOrder(IntBuffer nodes, int[] sectorOfNode) {
+        double sectorWidth = SwissBounds.WIDTH / GraphSectors.SUBDIVISIONS_PER_SIDE;
+        double sectorHeight = SwissBounds.HEIGHT / GraphSectors.SUBDIVISIONS_PER_SIDE;
+        long[] keys = new long[sectorOfNode.length];
+        for (int nodeId = 0; nodeId < keys.length; nodeId++) {
+            PointCh point = point(nodes, nodeId);
+            int sectorX = sectorOfNode[nodeId] % GraphSectors.SUBDIVISIONS_PER_SIDE;
+            int sectorY = sectorOfNode[nodeId] / GraphSectors.SUBDIVISIONS_PER_SIDE;
+            // La cellule est bornée à son secteur, afin que les noeuds d'un
+            // même secteur restent contigus
+            int x = sectorX * CELLS_PER_SECTOR_SIDE + Math2.clamp(0,
+                    (int) ((point.e() - SwissBounds.MIN_E) / sectorWidth * CELLS_PER_SECTOR_SIDE
+                            - sectorX * CELLS_PER_SECTOR_SIDE),
+                    CELLS_PER_SECTOR_SIDE - 1);
+            int y = sectorY * CELLS_PER_SECTOR_SIDE + Math2.clamp(0,
+                    (int) ((point.n() - SwissBounds.MIN_N) / sectorHeight * CELLS_PER_SECTOR_SIDE
+                            - sectorY * CELLS_PER_SECTOR_SIDE),
+                    CELLS_PER_SECTOR_SIDE - 1);
+            keys[nodeId] = (hilbertIndex(x, y) << NODE_ID_BITS) | nodeId;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            order[i] = (int) (keys[i] & ((1 << NODE_ID_BITS) - 1));
+        return order;
+    }
+
+    /**
+     * Retourne l'index de la cellule de coordonnées données le long de la
+     * courbe de Hilbert couvrant une grille de 65536 cellules de côté.
+     *
+     * @param x la coordonnée x de la cellule, entre 0 (inclus) et 65536
+     * (exclus)
+     * @param y la coordonnée y de la cellule, entre 0 (inclus) et 65536
+     * (exclus)
+     *
+     * @return l'index de la cellule le long de la courbe de Hilbert
+     */
+    static long hilbertIndex(int x, int y) {
+        long index = 0;
+        for (int s = HILBERT_SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // Rotation du quadrant, afin que la courbe y soit continue
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_SIDE - 1 - x;
+                    y = HILBERT_SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return index;
+    }
+
+    private static PointCh point(IntBuffer nodes, int nodeId) {
+        return new PointCh(
+                Q28_4.asDouble(nodes.get(NODE_INTS * nodeId + OFFSET_E)),
+                Q28_4.asDouble(nodes.get(NODE_INTS * nodeId + OFFSET_N)));
+    }
+
+    private static ByteBuffer read(Path filePath) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(filePath));
+    }
+
+    private static void write(Path filePath, IntBuffer ints) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(ints.capacity() * Integer.BYTES);
+        bytes.asIntBuffer().put(ints.duplicate().clear());
+        write(filePath, bytes);
+    }
+
+    private static void write(Path filePath, ByteBuffer bytes) throws IOException {
+        ByteBuffer b = bytes.duplicate().clear();
+        try (FileChannel channel = FileChannel.open(filePath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (b.hasRemaining())
+                channel.write(b);
+        }
+    }
+}
@@ -20,7 +20,10 @@ import static java.lang.Short.toUnsignedInt;
  * des secteurs
  */
 public record GraphSectors(ByteBuffer buffer) {
-    private static final int SUBDIVISIONS_PER_SIDE = 128;
+    /**
+     * Nombre de secteurs sur chaque côté de la grille couvrant la Suisse.
+     */
+    public static final int SUBDIVISIONS_PER_SIDE = 128;
     private static final int SUBDIVISIONS_PER_SIDE_INDEX = SUBDIVISIONS_PER_SIDE - 1;
     private static final double SECTOR_WIDTH = SwissBounds.WIDTH / SUBDIVISIONS_PER_SIDE;
     private static final double SECTOR_HEIGHT = SwissBounds.HEIGHT / SUBDIVISIONS_PER_SIDE;
@@ -35,6 +38,25 @@ public record GraphSectors(ByteBuffer buffer) {
      */
     public record Sector(int startNodeId, int endNodeId) {}
 
+    /**
+     * Retourne l'index du secteur contenant le point donné, qui vaut
+     * x + 128 * y, où x et y sont les coordonnées du secteur dans la grille
+     * (0 correspondant à l'ouest et au sud).
+     *
+     * @param point le point
+     *
+     * @return l'index du secteur contenant le point donné
+     */
+    public static int sectorIndex(PointCh point) {
+        int x = Math2.clamp(0,
+                (int) ((point.e() - SwissBounds.MIN_E) / SECTOR_WIDTH),
+                SUBDIVISIONS_PER_SIDE_INDEX);
+        int y = Math2.clamp(0,
+                (int) ((point.n() - SwissBounds.MIN_N) / SECTOR_HEIGHT),
+                SUBDIVISIONS_PER_SIDE_INDEX);
+        return x + y * SUBDIVISIONS_PER_SIDE;
+    }
+
     /**
      * Retourne la liste de tous les secteurs ayant une intersection avec le carré
      * centré au point donné et de côté égal au double de la distance donnée.
@@ -0,0 +1,103 @@
+package ch.epfl.javelo.data;
+
+import java.nio.ShortBuffer;
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.Q28_4.asDouble;
+
+/**
+ * Représente le tableau de toutes les arêtes du graphe JaVelo, décodées dans
+ * des tableaux de types primitifs, un par attribut, afin qu'aucun accès ne
+ * passe par une mémoire tampon ni n'extraie de bits. Les échantillons des
+ * profils, rarement lus lors de la recherche d'itinéraires, restent dans
+ * leur mémoire tampon.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class HeapGraphEdges implements EdgeStorage {
+    private static final int PROFILE_TYPE_SHIFT = 30;
+
+    // Identité du noeud destination, complémentée si l'arête est inversée,
+    // comme dans le fichier edges.bin
+    private final int[] target;
+    private final char[] length;
+    private final char[] elevationGain;
+    private final char[] attributesIndex;
+    private final int[] profileIds;
+    private final ShortBuffer elevations;
+
+    private HeapGraphEdges(int[] target, char[] length, char[] elevationGain,
+                           char[] attributesIndex, int[] profileIds, ShortBuffer elevations) {
+        this.target = target;
+        this.length = length;
+        this.elevationGain = elevationGain;
+        this.attributesIndex = attributesIndex;
+        this.profileIds = profileIds;
+        this.elevations = elevations;
+    }
+
+    /**
+     * Retourne une copie en mémoire des arêtes données, décodées en parallèle,
+     * qui partage avec elles la mémoire tampon des échantillons des profils.
+     *
+     * @param edges les arêtes à copier
+     *
+     * @return une copie en mémoire des arêtes données
+     */
+    static HeapGraphEdges copyOf(GraphEdges edges) {
+        int count = edges.profileIds().capacity();
+        int[] target = new int[count];
+        char[] length = new char[count];
+        char[] elevationGain = new char[count];
+        char[] attributesIndex = new char[count];
+        int[] profileIds = new int[count];
+        IntStream.range(0, count).parallel().forEach(edgeId -> {
+            int targetNodeId = edges.targetNodeId(edgeId);
+            target[edgeId] = edges.isInverted(edgeId) ? ~targetNodeId : targetNodeId;
+            length[edgeId] = (char) Math.scalb(edges.length(edgeId), 4);
+            elevationGain[edgeId] = (char) Math.scalb(edges.elevationGain(edgeId), 4);
+            attributesIndex[edgeId] = (char) edges.attributesIndex(edgeId);
+            profileIds[edgeId] = edges.profileIds().get(edgeId);
+        });
+        return new HeapGraphEdges(target, length, elevationGain, attributesIndex, profileIds,
+                edges.elevations());
+    }
+
+    @Override
+    public boolean isInverted(int edgeId) {
+        return target[edgeId] < 0;
+    }
+
+    @Override
+    public int targetNodeId(int edgeId) {
+        int idWithEdgeDirection = target[edgeId];
+        return idWithEdgeDirection < 0 ? ~idWithEdgeDirection : idWithEdgeDirection;
+    }
+
+    @Override
+    public double length(int edgeId) {
+        return asDouble(length[edgeId]);
+    }
+
+    @Override
+    public double elevationGain(int edgeId) {
+        return asDouble(elevationGain[edgeId]);
+    }
+
+    @Override
+    public boolean hasProfile(int edgeId) {
+        return profileIds[edgeId] >>> PROFILE_TYPE_SHIFT != 0;
+    }
+
+    @Override
+    public float[] profileSamples(int edgeId) {
+        return GraphEdges.decodeProfile(elevations, profileIds[edgeId],
+                GraphEdges.sampleCount(length[edgeId]), isInverted(edgeId));
+    }
+
+    @Override
+    public int attributesIndex(int edgeId) {
+        return attributesIndex[edgeId];
+    }
+}
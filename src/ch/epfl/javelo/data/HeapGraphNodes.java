@@ -0,0 +1,81 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.util.stream.IntStream;
+
+import static ch.epfl.javelo.Q28_4.asDouble;
+
+/**
+ * Représente le tableau de tous les noeuds du graphe JaVelo, décodés dans des
+ * tableaux de types primitifs, un par attribut, afin qu'aucun accès ne passe
+ * par une mémoire tampon ni n'extraie de bits.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class HeapGraphNodes implements NodeStorage {
+    private final int[] nodeE;
+    private final int[] nodeN;
+    private final int[] firstEdge;
+    private final byte[] degree;
+
+    private HeapGraphNodes(int[] nodeE, int[] nodeN, int[] firstEdge, byte[] degree) {
+        this.nodeE = nodeE;
+        this.nodeN = nodeN;
+        this.firstEdge = firstEdge;
+        this.degree = degree;
+    }
+
+    /**
+     * Retourne une copie en mémoire des noeuds donnés, décodés en parallèle.
+     *
+     * @param nodes les noeuds à copier
+     *
+     * @return une copie en mémoire des noeuds donnés
+     *
+     * @throws IllegalArgumentException si l'un des noeuds a plus de 255 arêtes
+     * sortantes
+     */
+    static HeapGraphNodes copyOf(NodeStorage nodes) {
+        int count = nodes.count();
+        int[] nodeE = new int[count];
+        int[] nodeN = new int[count];
+        int[] firstEdge = new int[count];
+        byte[] degree = new byte[count];
+        IntStream.range(0, count).parallel().forEach(nodeId -> {
+            int outDegree = nodes.outDegree(nodeId);
+            Preconditions.checkArgument(outDegree <= 0xFF);
+            nodeE[nodeId] = (int) Math.scalb(nodes.nodeE(nodeId), 4);
+            nodeN[nodeId] = (int) Math.scalb(nodes.nodeN(nodeId), 4);
+            firstEdge[nodeId] = nodes.edgeId(nodeId, 0);
+            degree[nodeId] = (byte) outDegree;
+        });
+        return new HeapGraphNodes(nodeE, nodeN, firstEdge, degree);
+    }
+
+    @Override
+    public int count() {
+        return nodeE.length;
+    }
+
+    @Override
+    public double nodeE(int nodeId) {
+        return asDouble(nodeE[nodeId]);
+    }
+
+    @Override
+    public double nodeN(int nodeId) {
+        return asDouble(nodeN[nodeId]);
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        return Byte.toUnsignedInt(degree[nodeId]);
+    }
+
+    @Override
+    public int edgeId(int nodeId, int edgeIndex) {
+        return firstEdge[nodeId] + edgeIndex;
+    }
+}
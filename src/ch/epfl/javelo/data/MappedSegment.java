@@ -0,0 +1,168 @@
+package ch.epfl.javelo.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Représente le contenu d'un fichier projeté en mémoire et adressé au moyen
+ * de positions de type long, ce qui permet de lire des fichiers de plus de
+ * 2 Go, auxquels une seule mémoire tampon ne suffit pas.
+ * <p>
+ * Un fichier de plus de 2 Go est projeté en plusieurs tranches, la i-ème
+ * commençant à la position i·2^30 et s'étendant sur près de 2 Go, de sorte
+ * que toute valeur commençant dans les 2^30 premiers octets d'une tranche y
+ * soit entièrement contenue. Un fichier plus petit est projeté en une seule
+ * tranche.
+ * <p>
+ * Les valeurs sont lues au moyen des méthodes d'accès absolu de la mémoire
+ * tampon de leur tranche, dont la vérification de la position est la seule
+ * effectuée. Les segments sont créés et abandonnés par une GraphArena : un
+ * segment abandonné ne référence plus ses tranches, ce que tous les fils
+ * observent, et toute lecture ultérieure lève donc
+ * IndexOutOfBoundsException.
+ * <p>
+ * Java 17 n'offrant aucun moyen sûr de libérer explicitement une projection,
+ * l'abandon d'un segment ne libère pas immédiatement sa mémoire projetée :
+ * elle l'est par le ramasse-miettes une fois que plus rien ne la référence,
+ * ni une lecture en cours, ni une vue retournée par asShortBuffer. Une
+ * lecture concurrente à l'abandon du segment ne peut donc jamais accéder à de
+ * la mémoire libérée.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class MappedSegment {
+    private static final int CHUNK_SHIFT = 30;
+    private static final int SINGLE_CHUNK_SHIFT = Integer.SIZE - 1;
+    private static final ByteBuffer[] RELEASED = new ByteBuffer[0];
+
+    // Tranches du segment, remplacées par RELEASED lors de son abandon
+    private volatile ByteBuffer[] chunks;
+    private final int shift;
+    private final long mask;
+    private final long byteSize;
+
+    private MappedSegment(ByteBuffer[] chunks, int shift, long byteSize) {
+        this.chunks = chunks;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+        this.byteSize = byteSize;
+    }
+
+    /**
+     * Projette en mémoire, en lecture seule, la totalité du fichier donné.
+     *
+     * @param path le chemin du fichier
+     *
+     * @return le segment contenant la totalité du fichier donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    static MappedSegment map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            long byteSize = channel.size();
+            int shift = byteSize <= Integer.MAX_VALUE ? SINGLE_CHUNK_SHIFT : CHUNK_SHIFT;
+            int chunkCount = byteSize == 0 ? 1 : (int) ((byteSize - 1) >>> shift) + 1;
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << shift;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(byteSize - start, Integer.MAX_VALUE));
+            }
+            return new MappedSegment(chunks, shift, byteSize);
+        }
+    }
+
+    /**
+     * Retourne la taille du fichier projeté dans le segment, en octets.
+     *
+     * @return la taille du fichier projeté dans le segment, en octets
+     */
+    long byteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Retourne l'octet se trouvant à la position donnée.
+     *
+     * @param offset la position, en octets
+     *
+     * @return l'octet se trouvant à la position donnée
+     *
+     * @throws IndexOutOfBoundsException si la position est invalide ou si le
+     * segment a été abandonné
+     */
+    byte getByte(long offset) {
+        return chunk(offset).get(index(offset));
+    }
+
+    /**
+     * Retourne la valeur de type short commençant à la position donnée.
+     *
+     * @param offset la position, en octets
+     *
+     * @return la valeur de type short commençant à la position donnée
+     *
+     * @throws IndexOutOfBoundsException si la position est invalide ou si le
+     * segment a été abandonné
+     */
+    short getShort(long offset) {
+        return chunk(offset).getShort(index(offset));
+    }
+
+    /**
+     * Retourne la valeur de type int commençant à la position donnée.
+     *
+     * @param offset la position, en octets
+     *
+     * @return la valeur de type int commençant à la position donnée
+     *
+     * @throws IndexOutOfBoundsException si la position est invalide ou si le
+     * segment a été abandonné
+     */
+    int getInt(long offset) {
+        return chunk(offset).getInt(index(offset));
+    }
+
+    /**
+     * Retourne une vue, de type ShortBuffer, de la totalité du segment, qui
+     * doit tenir dans une seule tranche. La vue d'un segment abandonné est vide.
+     *
+     * @return une vue, de type ShortBuffer, de la totalité du segment
+     *
+     * @throws IllegalStateException si le segment fait plus de 2 Go
+     */
+    ShortBuffer asShortBuffer() {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks == RELEASED)
+            return ShortBuffer.allocate(0);
+        if (chunks.length != 1)
+            throw new IllegalStateException("segment larger than 2 GB");
+        return chunks[0].asShortBuffer();
+    }
+
+    /**
+     * Abandonne les tranches du segment, dont les lectures ultérieures, dans
+     * tous les fils, lèvent IndexOutOfBoundsException. La mémoire projetée
+     * n'est pas libérée immédiatement, mais par le ramasse-miettes une fois
+     * que plus rien ne la référence.
+     */
+    void release() {
+        chunks = RELEASED;
+    }
+
+    // Retourne la tranche contenant l'octet à la position offset ; la mémoire
+    // tampon de la tranche vérifie que la valeur lue n'en sort pas, ce qui
+    // suffit puisqu'une valeur commençant dans une tranche y est contenue.
+    private ByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> shift)];
+    }
+
+    // Retourne la position, dans sa tranche, de l'octet à la position offset
+    private int index(long offset) {
+        return (int) (offset & mask);
+    }
+}
@@ -0,0 +1,55 @@
+package ch.epfl.javelo.data;
+
+/**
+ * Représente le stockage des noeuds du graphe JaVelo, auquel Graph délègue
+ * l'accès aux noeuds quelle que soit la manière dont ils sont chargés.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+interface NodeStorage {
+
+    /**
+     * Retourne le nombre total de noeuds.
+     *
+     * @return le nombre total de noeuds
+     */
+    int count();
+
+    /**
+     * Retourne la coordonnée E du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return la coordonnée E du noeud d'identité donnée
+     */
+    double nodeE(int nodeId);
+
+    /**
+     * Retourne la coordonnée N du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return la coordonnée N du noeud d'identité donnée
+     */
+    double nodeN(int nodeId);
+
+    /**
+     * Retourne le nombre d'arêtes sortant du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le nombre d'arêtes sortant du noeud d'identité donnée
+     */
+    int outDegree(int nodeId);
+
+    /**
+     * Retourne l'identité de la edgeIndex-ième arête sortant du noeud d'identité nodeId.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice de l'arête
+     *
+     * @return l'identité de la edgeIndex-ième arête sortant du noeud d'identité nodeId
+     */
+    int edgeId(int nodeId, int edgeIndex);
+}
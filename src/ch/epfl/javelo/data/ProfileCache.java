@@ -0,0 +1,109 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Représente un cache borné des profils en long décodés des arêtes,
+ * identifiés par l'identité de leur arête. Lorsque le nombre maximal de
+ * profils est atteint, le profil le moins récemment utilisé est évincé.
+ * <p>
+ * Le cache est divisé en segments indépendants, chacun protégé par son propre
+ * verrou ; plusieurs fils d'exécution peuvent donc l'utiliser simultanément.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class ProfileCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+
+    /**
+     * Construit un cache vide contenant au plus environ le nombre de profils
+     * donné.
+     *
+     * @param maxEntries le nombre maximal de profils
+     *
+     * @throws IllegalArgumentException si le nombre maximal de profils n'est
+     * pas strictement positif
+     */
+    ProfileCache(int maxEntries) {
+        Preconditions.checkArgument(maxEntries > 0);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++)
+            segments[i] = new Segment(Math.max(1, maxEntries / SEGMENT_COUNT));
+    }
+
+    /**
+     * Retourne le profil de l'arête d'identité donnée, ou null s'il ne se
+     * trouve pas dans le cache.
+     *
+     * @param edgeId l'identité de l'arête
+     *
+     * @return le profil de l'arête d'identité donnée, ou null
+     */
+    DoubleUnaryOperator get(int edgeId) {
+        return segment(edgeId).get(edgeId);
+    }
+
+    /**
+     * Ajoute au cache le profil de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête
+     * @param profile le profil de l'arête
+     */
+    void put(int edgeId, DoubleUnaryOperator profile) {
+        segment(edgeId).put(edgeId, profile);
+    }
+
+    /**
+     * Retourne le nombre de profils contenus dans le cache.
+     *
+     * @return le nombre de profils contenus dans le cache
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    // Retourne le segment contenant le profil de l'arête d'identité edgeId
+    private Segment segment(int edgeId) {
+        return segments[edgeId & (SEGMENT_COUNT - 1)];
+    }
+
+    // Table associative synchronisée, ordonnée selon l'ordre d'accès, qui
+    // évince son entrée la moins récemment utilisée au-delà de maxEntries entrées
+    private static final class Segment {
+        private final Map<Integer, DoubleUnaryOperator> map =
+                new LinkedHashMap<>(16, .75f, true);
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized DoubleUnaryOperator get(int edgeId) {
+            return map.get(edgeId);
+        }
+
+        synchronized void put(int edgeId, DoubleUnaryOperator profile) {
+            map.put(edgeId, profile);
+            if (map.size() > maxEntries) {
+                Iterator<Integer> eldest = map.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Q28_4;
+
+/**
+ * Représente le tableau de toutes les arêtes du graphe JaVelo, au format
+ * décrit dans GraphEdges, stockées dans des segments adressés sur 64 bits.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param edgesSegment le segment contenant la valeur des attributs généraux
+ * des arêtes
+ * @param profileIds le segment contenant la valeur des attributs concernant
+ * le profil des arêtes
+ * @param elevations le segment contenant la totalité des échantillons des
+ * profils, dont l'index tient sur 29 bits et qui fait donc moins de 2 Go
+ */
+record SegmentGraphEdges(MappedSegment edgesSegment, MappedSegment profileIds,
+                         MappedSegment elevations) implements EdgeStorage {
+    private static final int OFFSET_TARGET_NODE_ID = 0;
+    private static final int OFFSET_LENGTH = OFFSET_TARGET_NODE_ID + Integer.BYTES;
+    private static final int OFFSET_ELEVATION_GAIN = OFFSET_LENGTH + Short.BYTES;
+    private static final int OFFSET_ATTRIBUTES_INDEX = OFFSET_ELEVATION_GAIN + Short.BYTES;
+    private static final int EDGE_BYTES = OFFSET_ATTRIBUTES_INDEX + Short.BYTES;
+    private static final int PROFILE_TYPE_SHIFT = 30;
+
+    @Override
+    public boolean isInverted(int edgeId) {
+        return edgesSegment.getInt(offset(edgeId) + OFFSET_TARGET_NODE_ID) < 0;
+    }
+
+    @Override
+    public int targetNodeId(int edgeId) {
+        int idWithEdgeDirection = edgesSegment.getInt(offset(edgeId) + OFFSET_TARGET_NODE_ID);
+        return idWithEdgeDirection < 0 ? ~idWithEdgeDirection : idWithEdgeDirection;
+    }
+
+    @Override
+    public double length(int edgeId) {
+        return Q28_4.asDouble(lengthQ28_4(edgeId));
+    }
+
+    @Override
+    public double elevationGain(int edgeId) {
+        return Q28_4.asDouble(Short.toUnsignedInt(
+                edgesSegment.getShort(offset(edgeId) + OFFSET_ELEVATION_GAIN)));
+    }
+
+    @Override
+    public boolean hasProfile(int edgeId) {
+        return profileId(edgeId) >>> PROFILE_TYPE_SHIFT != 0;
+    }
+
+    @Override
+    public float[] profileSamples(int edgeId) {
+        int profileId = profileId(edgeId);
+        if (profileId >>> PROFILE_TYPE_SHIFT == 0)
+            return new float[]{};
+        return GraphEdges.decodeProfile(elevations.asShortBuffer(), profileId,
+                GraphEdges.sampleCount(lengthQ28_4(edgeId)), isInverted(edgeId));
+    }
+
+    @Override
+    public int attributesIndex(int edgeId) {
+        return Short.toUnsignedInt(
+                edgesSegment.getShort(offset(edgeId) + OFFSET_ATTRIBUTES_INDEX));
+    }
+
+    // Retourne la longueur de l'arête d'identité edgeId, au format Q28.4
+    private int lengthQ28_4(int edgeId) {
+        return Short.toUnsignedInt(edgesSegment.getShort(offset(edgeId) + OFFSET_LENGTH));
+    }
+
+    // Retourne la valeur de profile_ids.bin attachée à l'arête d'identité edgeId
+    private int profileId(int edgeId) {
+        return profileIds.getInt((long) Integer.BYTES * edgeId);
+    }
+
+    // Retourne la position, en octets, de l'arête d'identité edgeId
+    private static long offset(int edgeId) {
+        return (long) EDGE_BYTES * edgeId;
+    }
+}
@@ -0,0 +1,76 @@
+package ch.epfl.javelo.data;
+
+import static ch.epfl.javelo.Q28_4.asDouble;
+
+/**
+ * Représente le tableau de tous les noeuds du graphe JaVelo, au format
+ * compact ou large décrit dans GraphNodes, stockés dans un segment adressé
+ * sur 64 bits.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class SegmentGraphNodes implements NodeStorage {
+    private static final int OFFSET_E = 0;
+    private static final int OFFSET_N = OFFSET_E + Integer.BYTES;
+    private static final int OFFSET_OUT_EDGES = OFFSET_N + Integer.BYTES;
+    private static final int NODE_BYTES = OFFSET_OUT_EDGES + Integer.BYTES;
+    private static final int OFFSET_WIDE_DEGREE = OFFSET_OUT_EDGES + Integer.BYTES;
+    private static final int WIDE_NODE_BYTES = OFFSET_WIDE_DEGREE + Integer.BYTES;
+    private static final int OFFSET_INDEX = 28;
+    private static final int INDEX_MASK = (1 << OFFSET_INDEX) - 1;
+
+    private final MappedSegment segment;
+    private final boolean wide;
+    private final int count;
+
+    /**
+     * Construit le tableau des noeuds stockés dans le segment donné.
+     *
+     * @param segment le segment stockant les noeuds
+     * @param wide vrai si et seulement si les noeuds sont au format large
+     */
+    SegmentGraphNodes(MappedSegment segment, boolean wide) {
+        this.segment = segment;
+        this.wide = wide;
+        this.count = Math.toIntExact(segment.byteSize() / nodeBytes());
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public double nodeE(int nodeId) {
+        return asDouble(segment.getInt(offset(nodeId) + OFFSET_E));
+    }
+
+    @Override
+    public double nodeN(int nodeId) {
+        return asDouble(segment.getInt(offset(nodeId) + OFFSET_N));
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        return wide
+                ? segment.getInt(offset(nodeId) + OFFSET_WIDE_DEGREE)
+                : segment.getInt(offset(nodeId) + OFFSET_OUT_EDGES) >>> OFFSET_INDEX;
+    }
+
+    @Override
+    public int edgeId(int nodeId, int edgeIndex) {
+        int outEdges = segment.getInt(offset(nodeId) + OFFSET_OUT_EDGES);
+        return (wide ? outEdges : outEdges & INDEX_MASK) + edgeIndex;
+    }
+
+    // Retourne la position, en octets, du noeud d'identité nodeId
+    private long offset(int nodeId) {
+        return (long) nodeBytes() * nodeId;
+    }
+
+    // Retourne le nombre d'octets représentant chaque noeud
+    private int nodeBytes() {
+        return wide ? WIDE_NODE_BYTES : NODE_BYTES;
+    }
+}
@@ -1,6 +1,7 @@
 package ch.epfl.javelo.gui;
 
 import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFingerprint;
 import ch.epfl.javelo.routing.*;
 import javafx.application.Application;
 import javafx.beans.binding.Bindings;
@@ -17,6 +18,7 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.function.Consumer;
 
@@ -29,8 +31,19 @@ import java.util.function.Consumer;
 public final class JaVelo extends Application {
     private static final int MIN_WIDTH = 800;
     private static final int MIN_HEIGHT = 600;
+    // Taille du cache d'itinéraires, en octets, et nom de son fichier, stocké
+    // dans le répertoire du graphe
+    private static final long ROUTE_CACHE_WEIGHT = 64L << 20;
+    private static final String ROUTE_CACHE_FILE_NAME = "routes.bin";
+    // Nom de la fonction de coût « city_bike », à changer avec sa définition,
+    // et son identité dans le cache
+    private static final String CITY_BIKE_COST_FUNCTION_NAME = "city_bike";
+    private static final int CITY_BIKE_COST_FUNCTION_ID = 0;
     private final BorderPane mainPane = new BorderPane();
     private final SplitPane mapAndProfilePane = new SplitPane();
+    private RouteCache routeCache;
+    private Path routeCachePath;
+    private long routeCacheFingerprint;
 
     /**
      * Méthode principale de l'application
@@ -46,7 +59,8 @@ public final class JaVelo extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
 
-        Graph graph = Graph.loadFrom(Path.of("javelo-data"));
+        Path graphBasePath = Path.of("javelo-data");
+        Graph graph = Graph.loadFrom(graphBasePath);
         String tileServerHost = "tile.openstreetmap.org";
         Path cacheBasePath = Path.of("osm-cache");
 
@@ -60,8 +74,19 @@ public final class JaVelo extends Application {
         Consumer<String> errorConsumer = errorManager::displayError;
 
         // Création du bean JavaFX de l'itinéraire
-        RouteBean routeBean =
-                new RouteBean(new RouteComputer(graph, new CityBikeCF(graph)));
+        CostFunction costFunction = CompiledCostFunction.loadOrCompile(graphBasePath,
+                graph, CITY_BIKE_COST_FUNCTION_NAME, new CityBikeCF(graph),
+                Runtime.getRuntime().availableProcessors());
+        // Les itinéraires calculés lors de l'exécution précédente sont
+        // rechargés, sauf si le graphe ou la fonction de coût a changé depuis
+        routeCache = new RouteCache(graph, ROUTE_CACHE_WEIGHT);
+        routeCachePath = graphBasePath.resolve(ROUTE_CACHE_FILE_NAME);
+        routeCacheFingerprint =
+                GraphFingerprint.of(graphBasePath, CITY_BIKE_COST_FUNCTION_NAME);
+        if (Files.exists(routeCachePath))
+            routeCache.loadFrom(routeCachePath, routeCacheFingerprint);
+        RouteBean routeBean = new RouteBean(new RouteComputer(graph, costFunction),
+                routeCache, CITY_BIKE_COST_FUNCTION_ID);
 
         // Création du gestionnaire de la carte annotée
         AnnotatedMapManager annotatedMapManager =
@@ -139,4 +164,20 @@ public final class JaVelo extends Application {
         primaryStage.setScene(new Scene(mainPane));
         primaryStage.show();
     }
-}
\ No newline at end of file
+
+    /**
+     * Méthode d'arrêt de l'application, qui sauvegarde si possible le cache
+     * d'itinéraires
+     */
+    @Override
+    public void stop() {
+        if (routeCache != null) {
+            try {
+                routeCache.writeTo(routeCachePath, routeCacheFingerprint);
+            } catch (IOException e) {
+                // Le cache n'est alors pas sauvegardé, p. ex. si le répertoire
+                // du graphe est en lecture seule
+            }
+        }
+    }
+}
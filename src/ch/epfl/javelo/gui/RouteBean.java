@@ -1,41 +1,112 @@
 package ch.epfl.javelo.gui;
 
 import ch.epfl.javelo.routing.*;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.util.Pair;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Classe finale du Bean JavaFX regroupant les propriétés relatives aux points de passage et à
  * l'itinéraire correspondant.
+ * <p>
+ * L'itinéraire et son profil sont calculés sur un fil d'exécution d'arrière-plan à chaque
+ * modification des points de passage, puis publiés sur le fil JavaFX. Une modification
+ * annule le calcul de l'itinéraire correspondant aux points de passage précédents, dont
+ * le résultat n'est jamais publié.
  *
  * @author Tanguy Dieudonné (326618)
  * @author Nathanaël Girod (329987)
  */
 public final class RouteBean {
-    private final RouteComputer routeComputer;
+    // Planificateur conservant les arbres de recherche des requêtes récentes,
+    // ce qui accélère le recalcul des segments voisins d'un point de passage
+    // déplacé.
+    private final IncrementalRouteComputer routeComputer;
     private final ObservableList<Waypoint> waypoints;
     private final ObjectProperty<Route> routeP;
     private final DoubleProperty highlightedPositionP; // la position mise en évidence
     private final ObjectProperty<ElevationProfile> elevationProfileP;
-    private static final int MAX_ENTRIES = 50;
+    private final Executor executor;
+    // Les trois attributs suivants ne sont accédés que depuis le fil JavaFX
+    // Points de passage correspondant à l'itinéraire publié
+    private List<Waypoint> routeWaypoints = List.of();
+    // Numéro de la dernière requête, seule à pouvoir être publiée
+    private long latestRequest;
+    private Future<?> pendingComputation;
+    // Taille par défaut du cache d'itinéraires, en octets
+    private static final long DEFAULT_CACHE_WEIGHT = 16L << 20;
     private static final double MAX_STEP_LENGTH = 5d;
-    // Le cache mémoire a une capacité de 50 routes
-    private final Map<Pair<Integer, Integer>, Route> cacheMemory =
-            new LinkedHashMap<>(MAX_ENTRIES, .75f, true);
+    // Réservoir de fils partagé par tous les beans pour le calcul des segments
+    private static final Executor SEGMENT_POOL = ForkJoinPool.commonPool();
+    // Cache des itinéraires simples, et identité de la fonction de coût du
+    // planificateur dans ce cache
+    private final RouteCache routeCache;
+    private final int costFunctionId;
 
     /**
-     * Unique constructeur servant à déterminer le meilleur itinéraire reliant
-     * deux points de passage.
+     * Constructeur servant à déterminer le meilleur itinéraire reliant
+     * deux points de passage, calculé sur un fil d'exécution d'arrière-plan
+     * propre au bean.
      *
      * @param routeComputer le calculateur d'itinéraire utilisé
      */
     public RouteBean(RouteComputer routeComputer) {
-        this.routeComputer = routeComputer;
+        this(routeComputer, new RouteCache(routeComputer.graph(), DEFAULT_CACHE_WEIGHT), 0);
+    }
+
+    /**
+     * Constructeur servant à déterminer le meilleur itinéraire reliant
+     * deux points de passage, calculé sur un fil d'exécution d'arrière-plan
+     * propre au bean, en utilisant le cache d'itinéraires donné.
+     *
+     * @param routeComputer le calculateur d'itinéraire utilisé
+     * @param routeCache le cache d'itinéraires
+     * @param costFunctionId l'identité, dans le cache, de la fonction de coût
+     * du calculateur
+     */
+    public RouteBean(RouteComputer routeComputer, RouteCache routeCache, int costFunctionId) {
+        this(routeComputer, routeCache, costFunctionId, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "javelo-route");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Constructeur servant à déterminer le meilleur itinéraire reliant
+     * deux points de passage, calculé au moyen de l'exécuteur donné.
+     *
+     * @param routeComputer le calculateur d'itinéraire utilisé
+     * @param executor l'exécuteur sur lequel l'itinéraire est calculé
+     */
+    public RouteBean(RouteComputer routeComputer, Executor executor) {
+        this(routeComputer, new RouteCache(routeComputer.graph(), DEFAULT_CACHE_WEIGHT), 0,
+                executor);
+    }
+
+    /**
+     * Constructeur servant à déterminer le meilleur itinéraire reliant
+     * deux points de passage, calculé au moyen de l'exécuteur donné, en
+     * utilisant le cache d'itinéraires donné.
+     *
+     * @param routeComputer le calculateur d'itinéraire utilisé
+     * @param routeCache le cache d'itinéraires
+     * @param costFunctionId l'identité, dans le cache, de la fonction de coût
+     * du calculateur
+     * @param executor l'exécuteur sur lequel l'itinéraire est calculé
+     */
+    public RouteBean(RouteComputer routeComputer, RouteCache routeCache, int costFunctionId,
+                     Executor executor) {
+        this.routeComputer = new IncrementalRouteComputer(routeComputer);
+        this.routeCache = routeCache;
+        this.costFunctionId = costFunctionId;
+        this.executor = executor;
         this.waypoints = FXCollections.observableArrayList();
         this.highlightedPositionP = new SimpleDoubleProperty();
         this.routeP = new SimpleObjectProperty<>();
@@ -128,9 +199,11 @@ public final class RouteBean {
      */
     public int indexOfNonEmptySegmentAt(double position) {
         int index = route().indexOfSegmentAt(position);
+        // Les points de passage de l'itinéraire publié peuvent différer des
+        // points de passage actuels si un calcul est en cours.
         for (int i = 0; i <= index; i++) {
-            int n1 = waypoints.get(i).closestNodeId();
-            int n2 = waypoints.get(i + 1).closestNodeId();
+            int n1 = routeWaypoints.get(i).closestNodeId();
+            int n2 = routeWaypoints.get(i + 1).closestNodeId();
             if (n1 == n2) index += 1;
         }
         return index;
@@ -138,60 +211,175 @@ public final class RouteBean {
 
     // Ajoute les listeners sur la liste observable des points de passage.
     private void addListeners() {
-        waypoints.addListener((ListChangeListener<Waypoint>) c -> {
-            Route itinerary = computeItinerary();
-            if (itinerary == null) {
-                routeP.set(null);
-                elevationProfileP.set(null);
-                return;
+        waypoints.addListener((ListChangeListener<Waypoint>) c -> requestItinerary());
+    }
+
+    // Annule le calcul en cours et lance, en arrière-plan, celui de
+    // l'itinéraire et du profil correspondant aux points de passage actuels.
+    private void requestItinerary() {
+        List<Waypoint> snapshot = List.copyOf(waypoints);
+        long request = ++latestRequest;
+        if (pendingComputation != null)
+            pendingComputation.cancel(true);
+
+        FutureTask<Void> computation = new FutureTask<>(() -> {
+            try {
+                Route itinerary = computeItinerary(snapshot);
+                checkCancelled();
+                ElevationProfile profile = itinerary == null
+                        ? null
+                        : ElevationProfileComputer.elevationProfile(itinerary, MAX_STEP_LENGTH);
+                Platform.runLater(() -> publish(request, snapshot, itinerary, profile));
+            } catch (CancellationException e) {
+                // Calcul remplacé par un plus récent, rien à publier
+            } catch (RuntimeException e) {
+                // L'exception est relancée sur le fil JavaFX, comme elle
+                // l'était lorsque le calcul y était effectué.
+                Platform.runLater(() -> {
+                    throw e;
+                });
             }
-            routeP.set(itinerary);
-            ElevationProfile profile =
-                    ElevationProfileComputer.elevationProfile(itinerary, MAX_STEP_LENGTH);
-            elevationProfileP.set(profile);
+            return null;
         });
+        pendingComputation = computation;
+        executor.execute(computation);
     }
 
-    // Crée la route correspondant à l'itinéraire.
-    private Route computeItinerary() {
-        List<Route> singleRoutes = new ArrayList<>();
+    // Publie l'itinéraire et le profil calculés, s'ils correspondent à la
+    // dernière requête.
+    private void publish(long request, List<Waypoint> snapshot,
+                         Route itinerary, ElevationProfile profile) {
+        if (request != latestRequest)
+            return;
+        pendingComputation = null;
+        routeWaypoints = snapshot;
+        routeP.set(itinerary);
+        elevationProfileP.set(profile);
+    }
 
-        for (int i = 0; i < waypoints.size() - 1; i++) {
-            int predecessorWaypointNodeId = waypoints.get(i).closestNodeId();
-            int successorWaypointNodeId = waypoints.get(i + 1).closestNodeId();
+    // Crée la route correspondant à l'itinéraire passant par les points de
+    // passage donnés ; lève CancellationException si le calcul est annulé.
+    private Route computeItinerary(List<Waypoint> waypoints) {
+        //S'il y a moins de deux points de passage, on retourne null
+        if (waypoints.size() < 2)
+            return null;
+        Route[] singleRoutes = new Route[waypoints.size() - 1];
+        List<Integer> uncachedSegments = new ArrayList<>();
+
+        for (int i = 0; i < singleRoutes.length; i++) {
+            checkCancelled();
+            NodePair pair = segment(waypoints, i);
             // Si les noeuds sont identiques, on ne fait pas de tentative de
             // calcul d'itinéraire
-            if (predecessorWaypointNodeId == successorWaypointNodeId)
+            if (pair.startNodeId() == pair.endNodeId())
                 return null;
-            Pair<Integer, Integer> pair = new Pair<>(predecessorWaypointNodeId,
-                    successorWaypointNodeId);
-
+            // Si le cache contient déjà une route entre les deux points, on
+            // l'ajoute directement aux segments de l'itinéraire multiple
+            singleRoutes[i] = routeCache.get(costFunctionId, pair.startNodeId(), pair.endNodeId());
+            if (singleRoutes[i] == null)
+                uncachedSegments.add(i);
+        }
 
-            // Si le cache mémoire  contient déjà une route entre les deux points,
-            // on l'ajoute directement aux segments de l'itinéraire multiple
-            if (cacheMemory.containsKey(pair)) {
-                singleRoutes.add(cacheMemory.get(pair));
-                continue;
-            }
-            Route singleRoute =
-                    routeComputer.bestRouteBetween(predecessorWaypointNodeId,
-                            successorWaypointNodeId);
+        // Un segment unique (cas d'un point de passage ajouté à une extrémité)
+        // est calculé directement, les autres en parallèle.
+        if (uncachedSegments.size() == 1) {
+            checkCancelled();
+            int i = uncachedSegments.get(0);
+            NodePair pair = segment(waypoints, i);
+            // La recherche est abandonnée dès que le calcul est annulé
+            Thread thread = Thread.currentThread();
+            singleRoutes[i] = routeComputer.bestRouteBetween(
+                    pair.startNodeId(), pair.endNodeId(), thread::isInterrupted);
             // Si un des itinéraires simples est null, on retourne null
-            if (singleRoute == null)
+            if (singleRoutes[i] == null)
                 return null;
+            cache(pair, singleRoutes[i]);
+        } else if (!uncachedSegments.isEmpty()
+                && !computeSegments(waypoints, uncachedSegments, singleRoutes)) {
+            return null;
+        }
+        return new MultiRoute(List.of(singleRoutes));
+    }
+
+    // Lève CancellationException si le calcul a été annulé, c.-à-d. si le fil
+    // qui l'effectue a été interrompu.
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException();
+    }
+
+    // Retourne le couple des noeuds du segment d'index donné.
+    private static NodePair segment(List<Waypoint> waypoints, int index) {
+        return new NodePair(waypoints.get(index).closestNodeId(),
+                waypoints.get(index + 1).closestNodeId());
+    }
+
+    // Ajoute l'itinéraire donné au cache, partagé entre les fils.
+    private void cache(NodePair pair, Route singleRoute) {
+        routeCache.put(costFunctionId, pair.startNodeId(), pair.endNodeId(), singleRoute);
+    }
 
-            singleRoutes.add(singleRoute);
+    // Segment calculé sur le réservoir de fils partagé, qui s'ajoute à la
+    // file completed dès qu'il est terminé.
+    private static final class SegmentTask extends FutureTask<Route> {
+        private final int index;
+        private final BlockingQueue<SegmentTask> completed;
 
-            // Si le cache mémoire est plein, alors on retire la route calculée
-            // le moins récemment
-            if (cacheMemory.size() >= MAX_ENTRIES)
-                cacheMemory.remove(cacheMemory.keySet().iterator().next());
-            // Ajout de la dernière route calculée au cache mémoire
-            cacheMemory.put(pair, singleRoute);
+        SegmentTask(Callable<Route> computation, int index, BlockingQueue<SegmentTask> completed) {
+            super(computation);
+            this.index = index;
+            this.completed = completed;
+        }
+
+        @Override
+        protected void done() {
+            completed.add(this);
+        }
+    }
+
+    // Calcule en parallèle les segments d'index donnés et les place dans
+    // singleRoutes ; retourne faux, en annulant les autres calculs, dès que
+    // l'un des segments n'existe pas. Les recherches en cours sont abandonnées
+    // au moyen d'un indicateur partagé plutôt qu'en interrompant les fils du
+    // réservoir, qui ne lui appartiennent pas.
+    private boolean computeSegments(List<Waypoint> waypoints, List<Integer> indices,
+                                    Route[] singleRoutes) {
+        BlockingQueue<SegmentTask> completed = new LinkedBlockingQueue<>();
+        List<SegmentTask> tasks = new ArrayList<>(indices.size());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try {
+            for (int i : indices) {
+                NodePair pair = segment(waypoints, i);
+                SegmentTask task = new SegmentTask(() -> {
+                    Route singleRoute = routeComputer.bestRouteBetween(
+                            pair.startNodeId(), pair.endNodeId(), cancelled::get);
+                    if (singleRoute != null)
+                        cache(pair, singleRoute);
+                    return singleRoute;
+                }, i, completed);
+                tasks.add(task);
+                SEGMENT_POOL.execute(task);
+            }
+            for (int n = 0; n < tasks.size(); n++) {
+                SegmentTask task = completed.take();
+                singleRoutes[task.index] = task.get();
+                // Si un des itinéraires simples est null, on retourne null
+                if (singleRoutes[task.index] == null)
+                    return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            // Le calcul de l'itinéraire a été annulé
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            cancelled.set(true);
+            for (SegmentTask task : tasks)
+                task.cancel(false);
         }
-        //S'il y a moins de deux points de passage, on retourne également null
-        if (singleRoutes.isEmpty())
-            return null;
-        return new MultiRoute(singleRoutes);
     }
-}
\ No newline at end of file
+}
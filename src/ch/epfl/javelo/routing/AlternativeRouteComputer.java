@@ -0,0 +1,317 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.*;
+
+/**
+ * Représente un planificateur d'itinéraires alternatifs, qui propose, en
+ * plus de l'itinéraire de coût minimal, quelques itinéraires différents et
+ * raisonnables allant du même départ à la même arrivée.
+ * <p>
+ * Les itinéraires alternatifs sont obtenus par la méthode des noeuds de
+ * passage : une recherche A* partant du départ et une recherche à rebours
+ * partant de l'arrivée sont prolongées jusqu'à ce que leurs priorités
+ * dépassent le coût optimal multiplié par l'allongement maximal, et chaque
+ * noeud visité par les deux recherches définit l'itinéraire formé du chemin
+ * de l'arbre partant du départ jusqu'à lui et de celui de l'arbre à rebours
+ * jusqu'à l'arrivée. Les noeuds dont ces itinéraires coïncident forment des
+ * plateaux : le long d'un plateau, l'itinéraire est localement optimal, et
+ * seuls ceux dont le plateau est assez long sont retenus, par ordre croissant
+ * de leur coût diminué de la longueur de leur plateau. Un itinéraire n'est
+ * accepté que si la part de sa longueur partagée avec les itinéraires déjà
+ * retenus est bornée.
+ * <p>
+ * Tous les itinéraires sont tirés des deux mêmes arbres de recherche, de
+ * sorte que leur calcul ne coûte qu'un petit facteur constant de plus que
+ * celui de l'itinéraire optimal.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class AlternativeRouteComputer {
+    private static final double DEFAULT_MAX_STRETCH = 1.25;
+    private static final double DEFAULT_MAX_OVERLAP = 0.6;
+    // Coût minimal du plateau d'un itinéraire alternatif, relativement au
+    // coût de l'itinéraire optimal
+    private static final double MIN_PLATEAU = 0.1;
+
+    private final RouteComputer routeComputer;
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final double maxStretch;
+    private final double maxOverlap;
+
+    /**
+     * Construit un planificateur d'itinéraires alternatifs utilisant le
+     * graphe, la fonction de coût, les points de repère et l'index des
+     * composantes du planificateur donné, dont les itinéraires coûtent au
+     * plus 1.25 fois l'itinéraire optimal et partagent au plus 60% de leur
+     * longueur avec ceux qui les précèdent.
+     *
+     * @param routeComputer le planificateur d'itinéraire
+     */
+    public AlternativeRouteComputer(RouteComputer routeComputer) {
+        this(routeComputer, DEFAULT_MAX_STRETCH, DEFAULT_MAX_OVERLAP);
+    }
+
+    /**
+     * Construit un planificateur d'itinéraires alternatifs utilisant le
+     * graphe, la fonction de coût, les points de repère et l'index des
+     * composantes du planificateur donné, dont les itinéraires coûtent au
+     * plus maxStretch fois l'itinéraire optimal et partagent au plus la
+     * fraction maxOverlap de leur longueur avec ceux qui les précèdent.
+     *
+     * @param routeComputer le planificateur d'itinéraire
+     * @param maxStretch l'allongement maximal, relativement au coût optimal
+     * @param maxOverlap la fraction maximale de la longueur d'un itinéraire
+     * partagée avec les itinéraires qui le précèdent
+     *
+     * @throws IllegalArgumentException si l'allongement maximal est inférieur
+     * à 1, ou si la fraction partagée n'est pas comprise entre 0 (inclus) et
+     * 1 (exclus)
+     */
+    public AlternativeRouteComputer(RouteComputer routeComputer,
+                                    double maxStretch, double maxOverlap) {
+        Preconditions.checkArgument(maxStretch >= 1 && 0 <= maxOverlap && maxOverlap < 1);
+        this.routeComputer = routeComputer;
+        this.graph = routeComputer.graph();
+        this.costFunction = routeComputer.costFunction();
+        this.maxStretch = maxStretch;
+        this.maxOverlap = maxOverlap;
+    }
+
+    /**
+     * Retourne au plus maxRoutes itinéraires allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, dont le premier est
+     * l'itinéraire de coût minimal et les suivants des itinéraires
+     * alternatifs, ou une liste vide si aucun itinéraire n'existe.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     * @param maxRoutes le nombre maximal d'itinéraires
+     *
+     * @return la liste des itinéraires, le premier étant de coût minimal
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques, ou si le nombre maximal d'itinéraires est inférieur à 1
+     */
+    public List<Route> routesBetween(int startNodeId, int endNodeId, int maxRoutes) {
+        Preconditions.checkArgument(startNodeId != endNodeId && maxRoutes >= 1);
+        if (!routeComputer.mayReach(startNodeId, endNodeId))
+            return List.of();
+
+        boolean local = graph.nodePoint(startNodeId).distanceTo(graph.nodePoint(endNodeId))
+                <= RouteComputer.LOCAL_SEARCH_MAX_DISTANCE;
+        SearchWorkspace workspace = routeComputer.workspace();
+        SearchState forward = workspace.state(local);
+        // La recherche n'est prolongée au-delà de l'arrivée que si des
+        // itinéraires alternatifs sont demandés
+        if (!searchForward(forward, startNodeId, endNodeId, maxRoutes == 1 ? 1 : maxStretch))
+            return List.of();
+
+        List<Route> routes = new ArrayList<>(maxRoutes);
+        routes.add(routeComputer.shortestItinerary(startNodeId, endNodeId, forward));
+        if (maxRoutes == 1)
+            return routes;
+
+        double bestCost = forward.cost(endNodeId);
+        SearchState backward = workspace.backwardState(local);
+        int[] candidates = searchBackward(backward, startNodeId, endNodeId,
+                maxStretch * bestCost, forward);
+        List<Plateau> plateaus = plateaus(candidates, startNodeId, endNodeId,
+                MIN_PLATEAU * bestCost, forward, backward);
+        plateaus.sort(Comparator.comparingDouble(p -> p.cost() - p.length()));
+
+        Set<Integer> usedEdgeIds = new HashSet<>(edgeIds(endNodeId, startNodeId,
+                endNodeId, forward, backward));
+        for (Plateau plateau : plateaus) {
+            if (routes.size() == maxRoutes)
+                break;
+
+            List<Integer> edgeIds = edgeIds(plateau.viaNodeId(), startNodeId, endNodeId,
+                    forward, backward);
+            if (edgeIds == null)
+                continue;
+            double length = 0, sharedLength = 0;
+            for (int edgeId : edgeIds) {
+                length += graph.edgeLength(edgeId);
+                if (usedEdgeIds.contains(edgeId))
+                    sharedLength += graph.edgeLength(edgeId);
+            }
+            if (sharedLength <= maxOverlap * length) {
+                routes.add(routeComputer.bidirectionalItinerary(startNodeId, endNodeId,
+                        plateau.viaNodeId(), forward, backward));
+                usedEdgeIds.addAll(edgeIds);
+            }
+        }
+        return routes;
+    }
+
+    // Plateau des deux arbres de recherche, représenté par l'un de ses noeuds,
+    // le coût de l'itinéraire passant par lui et sa longueur (en coût).
+    private record Plateau(int viaNodeId, double cost, double length) {}
+
+    // Recherche A* partant du départ, prolongée jusqu'à ce que la plus petite
+    // priorité dépasse le coût optimal multiplié par l'allongement donné.
+    // Retourne vrai si l'arrivée a été atteinte.
+    private boolean searchForward(SearchState forward, int startNodeId, int endNodeId,
+                                  double stretch) {
+        NodePriorityQueue queue = forward.queue();
+        PointCh endPoint = graph.nodePoint(endNodeId);
+        forward.update(startNodeId, 0f, 0);
+        queue.insertOrDecrease(startNodeId,
+                (float) routeComputer.lowerBound(startNodeId, endNodeId, endPoint));
+
+        double bound = Double.POSITIVE_INFINITY;
+        while (!queue.isEmpty() && queue.minKey() <= bound) {
+            int nodeId = queue.removeMin();
+            float nodeCost = forward.cost(nodeId);
+            forward.settle(nodeId);
+            if (nodeId == endNodeId)
+                bound = stretch * nodeCost;
+
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                double cost = nodeCost + graph.edgeLength(edgeId)
+                        * costFunction.costFactor(nodeId, edgeId);
+
+                if (cost < forward.cost(targetNodeId) && !forward.isSettled(targetNodeId)) {
+                    forward.update(targetNodeId, (float) cost,
+                            RouteComputer.packPredecessor(nodeId, i));
+                    queue.insertOrDecrease(targetNodeId, (float) (cost
+                            + routeComputer.lowerBound(targetNodeId, endNodeId, endPoint)));
+                }
+            }
+        }
+        return forward.isSettled(endNodeId);
+    }
+
+    // Recherche A* à rebours partant de l'arrivée, restreinte aux noeuds
+    // visités par la recherche partant du départ et prolongée jusqu'à ce que
+    // la plus petite priorité dépasse la borne donnée. Retourne les noeuds
+    // candidats, dont l'itinéraire passant par eux ne coûte pas plus que la
+    // borne.
+    private int[] searchBackward(SearchState backward, int startNodeId, int endNodeId,
+                                 double bound, SearchState forward) {
+        NodePriorityQueue queue = backward.queue();
+        backward.update(endNodeId, 0f, 0);
+        queue.insertOrDecrease(endNodeId, (float) routeComputer.lowerBound(startNodeId,
+                endNodeId, graph.nodePoint(endNodeId)));
+
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        while (!queue.isEmpty() && queue.minKey() <= bound) {
+            int nodeId = queue.removeMin();
+            float nodeCost = backward.cost(nodeId);
+            backward.settle(nodeId);
+            if ((double) forward.cost(nodeId) + nodeCost <= bound) {
+                if (candidateCount == candidates.length)
+                    candidates = Arrays.copyOf(candidates, 2 * candidateCount);
+                candidates[candidateCount++] = nodeId;
+            }
+
+            for (int i = 0; i < graph.nodeInDegree(nodeId); i++) {
+                int edgeId = graph.nodeInEdgeId(nodeId, i);
+                int sourceNodeId = graph.nodeInEdgeSourceNodeId(nodeId, i);
+                // Tout noeud d'un itinéraire ne dépassant pas la borne a été
+                // visité par la recherche partant du départ
+                if (!forward.isSettled(sourceNodeId))
+                    continue;
+                double cost = nodeCost + graph.edgeLength(edgeId)
+                        * costFunction.costFactor(sourceNodeId, edgeId);
+
+                if (cost < backward.cost(sourceNodeId) && !backward.isSettled(sourceNodeId)) {
+                    int edgeIndex = edgeId - graph.nodeOutEdgeId(sourceNodeId, 0);
+                    backward.update(sourceNodeId, (float) cost,
+                            RouteComputer.packPredecessor(nodeId, edgeIndex));
+                    queue.insertOrDecrease(sourceNodeId, (float) (cost + routeComputer
+                            .lowerBound(startNodeId, sourceNodeId, graph.nodePoint(sourceNodeId))));
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, candidateCount);
+    }
+
+    // Regroupe les noeuds candidats en plateaux, formés des noeuds reliés par
+    // des arêtes appartenant aux deux arbres de recherche, et retourne ceux
+    // dont la longueur atteint le minimum donné.
+    private List<Plateau> plateaus(int[] candidates, int startNodeId, int endNodeId,
+                                   double minLength, SearchState forward,
+                                   SearchState backward) {
+        Arrays.sort(candidates);
+        boolean[] visited = new boolean[candidates.length];
+        List<Plateau> plateaus = new ArrayList<>();
+        for (int c = 0; c < candidates.length; c++) {
+            if (visited[c])
+                continue;
+            int viaNodeId = candidates[c];
+            visited[c] = true;
+
+            // Extension du plateau vers le départ, puis vers l'arrivée
+            int firstNodeId = viaNodeId;
+            while (firstNodeId != startNodeId) {
+                long predecessor = forward.predecessor(firstNodeId);
+                int nodeId = RouteComputer.predecessorNodeId(predecessor);
+                if (!backward.isSettled(nodeId) || backward.predecessor(nodeId)
+                        != RouteComputer.packPredecessor(firstNodeId,
+                        RouteComputer.predecessorEdgeIndex(predecessor)))
+                    break;
+                markVisited(candidates, visited, nodeId);
+                firstNodeId = nodeId;
+            }
+            int lastNodeId = viaNodeId;
+            while (lastNodeId != endNodeId) {
+                long successor = backward.predecessor(lastNodeId);
+                int nodeId = RouteComputer.predecessorNodeId(successor);
+                if (!forward.isSettled(nodeId) || forward.predecessor(nodeId)
+                        != RouteComputer.packPredecessor(lastNodeId,
+                        RouteComputer.predecessorEdgeIndex(successor)))
+                    break;
+                markVisited(candidates, visited, nodeId);
+                lastNodeId = nodeId;
+            }
+
+            double length = (double) forward.cost(lastNodeId) - forward.cost(firstNodeId);
+            if (length >= minLength) {
+                plateaus.add(new Plateau(viaNodeId,
+                        (double) forward.cost(viaNodeId) + backward.cost(viaNodeId), length));
+            }
+        }
+        return plateaus;
+    }
+
+    private static void markVisited(int[] sortedCandidates, boolean[] visited, int nodeId) {
+        int index = Arrays.binarySearch(sortedCandidates, nodeId);
+        if (index >= 0)
+            visited[index] = true;
+    }
+
+    // Retourne les identités des arêtes de l'itinéraire passant par le noeud
+    // donné, ou null si cet itinéraire passe plus d'une fois par un même noeud.
+    private List<Integer> edgeIds(int viaNodeId, int startNodeId, int endNodeId,
+                                  SearchState forward, SearchState backward) {
+        List<Integer> edgeIds = new ArrayList<>();
+        Set<Integer> nodeIds = new HashSet<>();
+        nodeIds.add(viaNodeId);
+        for (int nodeId = viaNodeId; nodeId != startNodeId; ) {
+            long predecessor = forward.predecessor(nodeId);
+            nodeId = RouteComputer.predecessorNodeId(predecessor);
+            edgeIds.add(graph.nodeOutEdgeId(nodeId,
+                    RouteComputer.predecessorEdgeIndex(predecessor)));
+            nodeIds.add(nodeId);
+        }
+        for (int nodeId = viaNodeId; nodeId != endNodeId; ) {
+            long successor = backward.predecessor(nodeId);
+            edgeIds.add(graph.nodeOutEdgeId(nodeId,
+                    RouteComputer.predecessorEdgeIndex(successor)));
+            nodeId = RouteComputer.predecessorNodeId(successor);
+            if (!nodeIds.add(nodeId))
+                return null;
+        }
+        return edgeIds;
+    }
+}
@@ -0,0 +1,30 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+
+/**
+ * Enregistrement représentant le résultat d'une recherche d'itinéraire
+ * approchée, qui peut avoir été interrompue avant d'atteindre le noeud
+ * d'arrivée demandé, faute de budget.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param route l'itinéraire trouvé, ou null si la recherche a été
+ * interrompue avant d'avoir atteint un autre noeud que celui de départ
+ * @param reachedNodeId l'identité du noeud auquel se termine l'itinéraire,
+ * ou du noeud de départ si l'itinéraire est null
+ * @param complete vrai si et seulement si l'itinéraire se termine au noeud
+ * d'arrivée demandé
+ */
+public record ApproximateRoute(Route route, int reachedNodeId, boolean complete) {
+    /**
+     * Constructeur compact validant les arguments.
+     *
+     * @throws IllegalArgumentException si l'itinéraire est null alors qu'il
+     * est complet
+     */
+    public ApproximateRoute {
+        Preconditions.checkArgument(route != null || !complete);
+    }
+}
@@ -0,0 +1,48 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.AttributeSet;
+
+/**
+ * Représente une fonction de coût dont le facteur d'une arête ne dépend que
+ * de ses attributs OSM, de son sens par rapport à la voie OSM dont elle
+ * provient et de la classe de sa pente montante moyenne.
+ * <p>
+ * Une telle fonction peut être tabulée par AttributeCostTable.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public interface AttributeCostFunction extends CostFunction {
+
+    /**
+     * Retourne le nombre de classes de pente distinguées par la fonction.
+     *
+     * @return le nombre de classes de pente distinguées par la fonction
+     */
+    int slopeClassCount();
+
+    /**
+     * Retourne la classe, comprise entre 0 (inclus) et slopeClassCount()
+     * (exclus), de la pente montante moyenne donnée, qui peut valoir NaN pour
+     * une arête de longueur nulle.
+     *
+     * @param averageUpSlope la pente montante moyenne
+     *
+     * @return la classe de la pente montante moyenne donnée
+     */
+    int slopeClass(double averageUpSlope);
+
+    /**
+     * Retourne le facteur par lequel la longueur d'une arête ayant les
+     * attributs, le sens et la classe de pente donnés doit être multipliée.
+     *
+     * @param attributes les attributs OSM de l'arête
+     * @param inverted vrai ssi l'arête va dans le sens contraire de la voie
+     * OSM dont elle provient
+     * @param slopeClass la classe de la pente montante moyenne de l'arête
+     *
+     * @return le facteur par lequel la longueur de l'arête doit être
+     * multipliée
+     */
+    double costFactor(AttributeSet attributes, boolean inverted, int slopeClass);
+}
@@ -0,0 +1,62 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+/**
+ * Représente une fonction de coût tabulant une fonction de coût dépendant
+ * uniquement des attributs, du sens et de la pente des arêtes.
+ * <p>
+ * La table contient un facteur par ensemble d'attributs du graphe, sens et
+ * classe de pente ; sa taille ne dépend donc que du nombre d'ensembles
+ * d'attributs distincts, et non du nombre d'arêtes. Elle est entièrement
+ * remplie à la construction, puis n'est plus modifiée, de sorte que
+ * plusieurs fils d'exécution peuvent l'utiliser simultanément.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class AttributeCostTable implements CostFunction {
+    private static final int DIRECTIONS = 2;
+
+    private final Graph graph;
+    private final AttributeCostFunction costFunction;
+    private final int slopeClassCount;
+    // Facteurs indexés par (ensemble d'attributs, sens, classe de pente)
+    private final double[] costFactors;
+
+    /**
+     * Construit la table, entièrement remplie, de la fonction de coût donnée
+     * pour le graphe donné.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût à tabuler
+     */
+    public AttributeCostTable(Graph graph, AttributeCostFunction costFunction) {
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.slopeClassCount = costFunction.slopeClassCount();
+        this.costFactors = new double[graph.attributeSetCount() * DIRECTIONS * slopeClassCount];
+        for (int attributeSetId = 0; attributeSetId < graph.attributeSetCount(); attributeSetId++) {
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                for (int slopeClass = 0; slopeClass < slopeClassCount; slopeClass++) {
+                    costFactors[index(attributeSetId, direction, slopeClass)] =
+                            costFunction.costFactor(graph.attributeSet(attributeSetId),
+                                    direction == 1, slopeClass);
+                }
+            }
+        }
+    }
+
+    private int index(int attributeSetId, int direction, int slopeClass) {
+        return (attributeSetId * DIRECTIONS + direction) * slopeClassCount + slopeClass;
+    }
+
+    @Override
+    public double costFactor(int nodeId, int edgeId) {
+        boolean inverted = graph.edgeIsInverted(edgeId);
+        int slopeClass = costFunction.slopeClass(
+                graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId));
+        int attributeSetId = graph.edgeAttributesIndex(edgeId);
+        return costFactors[index(attributeSetId, inverted ? 1 : 0, slopeClass)];
+    }
+}
@@ -0,0 +1,168 @@
+package ch.epfl.javelo.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Représente un calculateur d'itinéraires par lots, qui répartit les
+ * requêtes d'un lot entre les fils d'exécution d'un exécuteur donné.
+ * <p>
+ * Toutes les requêtes partagent le même planificateur, et donc le même
+ * graphe ; chaque fil d'exécution réutilise son propre espace de travail
+ * d'une requête à l'autre. Un exécuteur à nombre de fils fixe est donc
+ * préférable à un exécuteur créant un nouveau fil par tâche, qui allouerait
+ * un nouvel espace de travail pour chaque requête.
+ * <p>
+ * Les itinéraires sont transmis, sur le fil d'exécution appelant, soit dans
+ * l'ordre des requêtes dès que tous ceux qui les précèdent sont connus, soit
+ * dans l'ordre dans lequel ils sont calculés. Un itinéraire inexistant est
+ * représenté par null.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class BatchRouter {
+    private final RouteComputer routeComputer;
+    private final Executor executor;
+
+    /**
+     * Construit un calculateur par lots utilisant le planificateur et
+     * l'exécuteur donnés ; l'exécuteur n'est pas arrêté par le calculateur.
+     *
+     * @param routeComputer le planificateur d'itinéraire
+     * @param executor l'exécuteur
+     */
+    public BatchRouter(RouteComputer routeComputer, Executor executor) {
+        this.routeComputer = routeComputer;
+        this.executor = executor;
+    }
+
+    /**
+     * Retourne la liste des meilleurs itinéraires entre les couples de
+     * noeuds donnés, dans le même ordre.
+     *
+     * @param pairs les couples de noeuds
+     *
+     * @return la liste des meilleurs itinéraires (ou null) entre les couples
+     * de noeuds donnés
+     *
+     * @throws IllegalArgumentException si les noeuds de départ et d'arrivée de
+     * l'un des couples sont identiques
+     */
+    public List<Route> bestRoutesBetween(List<NodePair> pairs) {
+        Route[] routes = new Route[pairs.size()];
+        forEachInOrder(pairs, (route, index) -> routes[index] = route);
+        // Arrays.asList, car List.of n'accepte pas null
+        return Arrays.asList(routes);
+    }
+
+    /**
+     * Calcule les meilleurs itinéraires entre les couples de noeuds donnés
+     * et les passe, accompagnés de l'index de leur couple, au consommateur
+     * donné, dans l'ordre des couples.
+     *
+     * @param pairs les couples de noeuds
+     * @param consumer le consommateur des itinéraires
+     *
+     * @throws IllegalArgumentException si les noeuds de départ et d'arrivée de
+     * l'un des couples sont identiques
+     */
+    public void forEachInOrder(List<NodePair> pairs, ObjIntConsumer<Route> consumer) {
+        List<RouteTask> tasks = submitAll(pairs, null);
+        try {
+            for (RouteTask task : tasks)
+                consumer.accept(get(task), task.index);
+        } finally {
+            cancelAll(tasks);
+        }
+    }
+
+    /**
+     * Calcule les meilleurs itinéraires entre les couples de noeuds donnés
+     * et les passe, accompagnés de l'index de leur couple, au consommateur
+     * donné, dans l'ordre dans lequel ils sont calculés.
+     *
+     * @param pairs les couples de noeuds
+     * @param consumer le consommateur des itinéraires
+     *
+     * @throws IllegalArgumentException si les noeuds de départ et d'arrivée de
+     * l'un des couples sont identiques
+     */
+    public void forEachAsCompleted(List<NodePair> pairs, ObjIntConsumer<Route> consumer) {
+        BlockingQueue<RouteTask> completed = new LinkedBlockingQueue<>();
+        List<RouteTask> tasks = submitAll(pairs, completed);
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                RouteTask task = take(completed);
+                consumer.accept(get(task), task.index);
+            }
+        } finally {
+            cancelAll(tasks);
+        }
+    }
+
+    // Tâche calculant l'itinéraire d'un couple, qui s'ajoute à la file
+    // completed (si elle existe) dès qu'elle est terminée.
+    private static final class RouteTask extends FutureTask<Route> {
+        private final int index;
+        private final BlockingQueue<RouteTask> completed;
+
+        RouteTask(Callable<Route> query, int index, BlockingQueue<RouteTask> completed) {
+            super(query);
+            this.index = index;
+            this.completed = completed;
+        }
+
+        @Override
+        protected void done() {
+            if (completed != null)
+                completed.add(this);
+        }
+    }
+
+    private List<RouteTask> submitAll(List<NodePair> pairs, BlockingQueue<RouteTask> completed) {
+        List<RouteTask> tasks = new ArrayList<>(pairs.size());
+        try {
+            for (NodePair pair : pairs) {
+                RouteTask task = new RouteTask(() -> routeComputer.bestRouteBetween(
+                        pair.startNodeId(), pair.endNodeId()), tasks.size(), completed);
+                tasks.add(task);
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            cancelAll(tasks);
+            throw e;
+        }
+        return tasks;
+    }
+
+    private static Route get(Future<Route> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static RouteTask take(BlockingQueue<RouteTask> completed) {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        }
+    }
+
+    private static void cancelAll(List<RouteTask> tasks) {
+        for (RouteTask task : tasks)
+            task.cancel(false);
+    }
+}
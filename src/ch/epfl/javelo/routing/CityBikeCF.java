@@ -16,7 +16,7 @@ import static ch.epfl.javelo.data.Attribute.*;
  *
  * @author M. Schinz
  */
-public record CityBikeCF(Graph graph) implements CostFunction {
+public record CityBikeCF(Graph graph) implements AttributeCostFunction {
     // Any kind of marked cycle route (international, national, regional or local)
     private static final AttributeSet CYCLE_ROUTE =
             AttributeSet.of(ICN_YES, NCN_YES, RCN_YES, LCN_YES);
@@ -67,15 +67,38 @@ public record CityBikeCF(Graph graph) implements CostFunction {
     private static final Optional<Boolean> FALSE = Optional.of(Boolean.FALSE);
     private static final Optional<Boolean> UNKNOWN = Optional.empty();
 
+    // Slope classes and the corresponding cost multipliers.
+    private static final double[] SLOPE_MULTIPLIERS = {1, 1.2, 1.4, 1.8, 2.6};
+
     @Override
     public double costFactor(int nodeId, int edgeId) {
-        var edgeAttributes = graph.edgeAttributes(edgeId);
+        var averageUpSlope = graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId);
+        return costFactor(graph.edgeAttributes(edgeId),
+                graph.edgeIsInverted(edgeId),
+                slopeClass(averageUpSlope));
+    }
+
+    @Override
+    public int slopeClassCount() {
+        return SLOPE_MULTIPLIERS.length;
+    }
 
+    @Override
+    public int slopeClass(double averageUpSlope) {
+        // NaN (zero-length edges) falls into the steepest class.
+        if (averageUpSlope < 0.01) return 0;
+        else if (averageUpSlope < 0.03) return 1;
+        else if (averageUpSlope < 0.05) return 2;
+        else if (averageUpSlope < 0.10) return 3;
+        else return 4;
+    }
+
+    @Override
+    public double costFactor(AttributeSet edgeAttributes, boolean isInverted, int slopeClass) {
         // Exclude motorways.
         if (edgeAttributes.contains(HIGHWAY_MOTORWAY)) return Double.POSITIVE_INFINITY;
 
         // Exclude forbidden one-way streets.
-        var isInverted = graph.edgeIsInverted(edgeId);
         var wrongOneWay = isInverted
                 ? edgeAttributes.intersects(ONEWAY_FORWARD)
                 : edgeAttributes.contains(ONEWAY_M1);
@@ -100,12 +123,7 @@ public record CityBikeCF(Graph graph) implements CostFunction {
                 ? 1d
                 : 0.05 + nonCycleRouteCostFactor(edgeAttributes);
 
-        var averageUpSlope = graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId);
-        if (averageUpSlope < 0.01) return flatCost;
-        else if (averageUpSlope < 0.03) return flatCost * 1.2;
-        else if (averageUpSlope < 0.05) return flatCost * 1.4;
-        else if (averageUpSlope < 0.10) return flatCost * 1.8;
-        else return flatCost * 2.6;
+        return flatCost * SLOPE_MULTIPLIERS[slopeClass];
     }
 
     private Optional<Boolean> isAccessibleByBike(AttributeSet edgeAttributes) {
@@ -0,0 +1,133 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Représente un planificateur d'itinéraire regroupant les requêtes
+ * identiques simultanées : lorsque plusieurs fils d'exécution demandent en
+ * même temps l'itinéraire entre les mêmes noeuds, seul le premier d'entre eux
+ * le calcule, au moyen du planificateur sous-jacent, et les autres attendent
+ * puis reçoivent le même itinéraire.
+ * <p>
+ * Une requête n'est regroupée qu'avec celles en cours au moment où elle est
+ * faite ; les itinéraires ne sont pas conservés une fois calculés. Le
+ * regroupement est donc complémentaire d'un cache d'itinéraires.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class CoalescingRouteComputer {
+    private final RouteComputer routeComputer;
+    // Calculs en cours, indexés par leurs noeuds de départ et d'arrivée
+    private final ConcurrentMap<Long, FutureTask<Route>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Construit un planificateur regroupant les requêtes faites au
+     * planificateur donné.
+     *
+     * @param routeComputer le planificateur d'itinéraire sous-jacent
+     */
+    public CoalescingRouteComputer(RouteComputer routeComputer) {
+        this.routeComputer = routeComputer;
+    }
+
+    /**
+     * Retourne l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe, en attendant le calcul d'une requête identique en cours le
+     * cas échéant.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     *
+     * @return l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques
+     * @throws CancellationException si le fil est interrompu pendant qu'il
+     * attend le calcul d'une autre requête
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId) {
+        Preconditions.checkArgument(startNodeId != endNodeId);
+        requests.increment();
+        long key = ((long) startNodeId << Integer.SIZE) | Integer.toUnsignedLong(endNodeId);
+
+        FutureTask<Route> task = new FutureTask<>(
+                () -> routeComputer.bestRouteBetween(startNodeId, endNodeId));
+        FutureTask<Route> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            coalesced.increment();
+            return get(existing);
+        }
+
+        computations.increment();
+        try {
+            task.run();
+        } finally {
+            // Les requêtes suivantes donneront lieu à un nouveau calcul
+            inFlight.remove(key, task);
+        }
+        return get(task);
+    }
+
+    /**
+     * Retourne le nombre total de requêtes reçues.
+     *
+     * @return le nombre total de requêtes reçues
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Retourne le nombre d'itinéraires calculés par le planificateur
+     * sous-jacent.
+     *
+     * @return le nombre d'itinéraires calculés
+     */
+    public long computationCount() {
+        return computations.sum();
+    }
+
+    /**
+     * Retourne le nombre de requêtes ayant reçu l'itinéraire calculé pour une
+     * requête identique simultanée.
+     *
+     * @return le nombre de requêtes regroupées avec une autre
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Retourne la proportion des requêtes reçues ayant été regroupées avec une
+     * autre, ou 0 si aucune requête n'a été reçue.
+     *
+     * @return la proportion des requêtes regroupées
+     */
+    public double coalescedRatio() {
+        long requestCount = requests.sum();
+        return requestCount == 0 ? 0 : (double) coalescedCount() / requestCount;
+    }
+
+    private static Route get(Future<Route> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
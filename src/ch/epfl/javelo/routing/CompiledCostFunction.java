@@ -0,0 +1,194 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Représente une fonction de coût « compilée », dont le facteur de chaque
+ * arête a été évalué une fois pour toutes et stocké dans une table.
+ * <p>
+ * Une arête n'ayant qu'un seul noeud de départ, le facteur d'une arête est
+ * évalué pour ce noeud-là ; la fonction compilée donne donc les mêmes
+ * facteurs que la fonction d'origine, arrondis au type float, pour tous les
+ * couples (noeud, arête) utilisés lors de la recherche d'itinéraire.
+ * <p>
+ * La table peut être stockée dans un fichier cost_<i>nom</i>.bin du
+ * répertoire du graphe, composé d'un en-tête — version du format (int),
+ * empreinte du graphe et de la fonction de coût (long), nombre d'arêtes
+ * (int) — suivi du facteur de chaque arête (float). L'empreinte, calculée
+ * par GraphFingerprint, change avec les fichiers du graphe, de sorte qu'une
+ * table obsolète est recompilée au chargement.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class CompiledCostFunction implements CostFunction {
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_EDGE_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+
+    private final FloatBuffer costFactors;
+
+    private CompiledCostFunction(FloatBuffer costFactors) {
+        this.costFactors = costFactors;
+    }
+
+    /**
+     * Compile en mémoire la fonction de coût donnée pour toutes les arêtes du
+     * graphe donné, en utilisant le nombre de fils d'exécution donné.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût à compiler
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @return la fonction de coût compilée
+     *
+     * @throws IllegalArgumentException si le nombre de fils est inférieur à 1
+     */
+    public static CompiledCostFunction of(Graph graph, CostFunction costFunction, int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1);
+        return new CompiledCostFunction(
+                FloatBuffer.wrap(compile(graph, costFunction, parallelism)));
+    }
+
+    /**
+     * Retourne la fonction de coût compilée stockée dans le fichier
+     * cost_<i>name</i>.bin du répertoire donné si elle est à jour ; sinon,
+     * compile la fonction de coût donnée et l'écrit dans ce fichier avant de
+     * la retourner. La table d'un fichier à jour est projetée en mémoire.
+     * Si le fichier ne peut pas être écrit, p. ex. parce que le répertoire est
+     * en lecture seule, la fonction compilée est retournée sans être stockée.
+     * <p>
+     * Le nom doit changer lorsque la définition de la fonction de coût
+     * change, p. ex. en y incluant un numéro de version.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     * @param graph le graphe stocké dans ce répertoire
+     * @param name le nom de la fonction de coût
+     * @param costFunction la fonction de coût à compiler si nécessaire
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @return la fonction de coût compilée
+     *
+     * @throws IllegalArgumentException si le nom est vide ou si le nombre de
+     * fils est inférieur à 1
+     * @throws IOException en cas d'erreur d'entrée/sortie lors de la lecture
+     */
+    public static CompiledCostFunction loadOrCompile(Path basePath, Graph graph, String name,
+                                                     CostFunction costFunction, int parallelism)
+            throws IOException {
+        Preconditions.checkArgument(!name.isEmpty() && parallelism >= 1);
+        Path filePath = basePath.resolve("cost_" + name + ".bin");
+        long fingerprint = GraphFingerprint.of(basePath, costFunction.getClass().getName());
+        int edgeCount = edgeCount(graph);
+
+        if (Files.exists(filePath)) {
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(filePath)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.capacity() == HEADER_BYTES + edgeCount * Float.BYTES
+                    && buffer.getInt(0) == FORMAT_VERSION
+                    && buffer.getLong(OFFSET_FINGERPRINT) == fingerprint
+                    && buffer.getInt(OFFSET_EDGE_COUNT) == edgeCount)
+                return new CompiledCostFunction(
+                        buffer.slice(HEADER_BYTES, edgeCount * Float.BYTES).asFloatBuffer());
+        }
+
+        float[] costFactors = compile(graph, costFunction, parallelism);
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + edgeCount * Float.BYTES);
+        bytes.putInt(FORMAT_VERSION).putLong(fingerprint).putInt(edgeCount);
+        bytes.asFloatBuffer().put(costFactors);
+        bytes.clear();
+        try {
+            write(filePath, bytes);
+        } catch (IOException e) {
+            // La table n'est alors que conservée en mémoire
+        }
+        return new CompiledCostFunction(FloatBuffer.wrap(costFactors));
+    }
+
+    // Écrit le contenu de la mémoire tampon dans le fichier donné, en passant
+    // par un fichier temporaire que l'on renomme ensuite, de manière à ce
+    // qu'un autre processus ne lise jamais un fichier partiel.
+    private static void write(Path filePath, ByteBuffer bytes) throws IOException {
+        Path tmpPath = Files.createTempFile(
+                filePath.toAbsolutePath().getParent(), "cost_", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpPath, WRITE, TRUNCATE_EXISTING)) {
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+            Files.move(tmpPath, filePath, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    // Évalue la fonction de coût pour chaque arête, depuis son noeud de départ.
+    private static float[] compile(Graph graph, CostFunction costFunction, int parallelism) {
+        float[] costFactors = new float[edgeCount(graph)];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, graph.nodeCount()).parallel().forEach(nodeId -> {
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    costFactors[edgeId] = (float) costFunction.costFactor(nodeId, edgeId);
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+        return costFactors;
+    }
+
+    // Retourne le nombre d'arêtes du graphe, c.-à-d. la plus grande identité
+    // d'arête plus un.
+    private static int edgeCount(Graph graph) {
+        int edgeCount = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            int degree = graph.nodeOutDegree(nodeId);
+            if (degree > 0)
+                edgeCount = Math.max(edgeCount, graph.nodeOutEdgeId(nodeId, degree - 1) + 1);
+        }
+        return edgeCount;
+    }
+
+    /**
+     * Retourne le facteur compilé de l'arête d'identité donnée ; l'identité du
+     * noeud est ignorée.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeId l'identité de l'arête
+     *
+     * @return le facteur compilé de l'arête d'identité donnée
+     */
+    @Override
+    public double costFactor(int nodeId, int edgeId) {
+        return costFactors.get(edgeId);
+    }
+
+    /**
+     * Retourne le nombre d'arêtes dont le facteur a été compilé.
+     *
+     * @return le nombre d'arêtes dont le facteur a été compilé
+     */
+    public int edgeCount() {
+        return costFactors.capacity();
+    }
+}
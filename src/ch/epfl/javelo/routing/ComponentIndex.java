@@ -0,0 +1,335 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Représente l'index des composantes connexes du graphe JaVelo, restreint
+ * aux arêtes de coût fini pour une fonction de coût donnée.
+ * <p>
+ * Chaque noeud possède l'identité de sa composante faiblement connexe et
+ * celle de sa composante fortement connexe au sein de celle-ci. Les
+ * composantes fortement connexes d'une composante faiblement connexe sont
+ * numérotées dans un ordre topologique de leur graphe quotient : toute arête
+ * reliant deux composantes fortement connexes distinctes va d'une composante
+ * d'identité plus petite à une composante d'identité plus grande. Dès lors,
+ * aucun itinéraire ne peut mener d'un noeud à un autre lorsque leurs
+ * composantes faiblement connexes diffèrent, ou lorsque la composante
+ * fortement connexe du premier a une identité supérieure à celle du second.
+ * <p>
+ * Le fichier components.bin commence par un en-tête — version du format
+ * (int), empreinte du graphe et de la fonction de coût (long, voir
+ * GraphFingerprint), nombre de noeuds (int) — qui permet de refuser un index
+ * obsolète au chargement. Il contient ensuite l'identité de la composante
+ * faiblement connexe de chaque noeud (int), suivie de celle de sa
+ * composante fortement connexe (int).
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param weakComponents la mémoire tampon contenant l'identité de la
+ * composante faiblement connexe de chaque noeud
+ * @param strongComponents la mémoire tampon contenant l'identité de la
+ * composante fortement connexe de chaque noeud
+ */
+public record ComponentIndex(IntBuffer weakComponents, IntBuffer strongComponents) {
+    private static final String FILE_NAME = "components.bin";
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_NODE_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+
+    /**
+     * Construit l'index des composantes du graphe donné, restreint aux arêtes
+     * de coût fini pour la fonction de coût donnée, en utilisant le nombre de
+     * fils d'exécution donné.
+     * <p>
+     * Les composantes faiblement connexes sont calculées en parallèle sur
+     * l'ensemble des arêtes, puis les composantes fortement connexes de
+     * chacune d'elles sont calculées en parallèle les unes des autres.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @return l'index des composantes du graphe
+     *
+     * @throws IllegalArgumentException si le nombre de fils est inférieur à 1
+     */
+    public static ComponentIndex of(Graph graph, CostFunction costFunction, int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1);
+        int nodeCount = graph.nodeCount();
+        int[] weak = new int[nodeCount];
+        int[] strong = new int[nodeCount];
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> {
+                int weakCount = weakComponents(graph, costFunction, weak);
+
+                // Noeuds de chaque composante faiblement connexe, regroupés
+                int[] firstNode = new int[weakCount + 1];
+                for (int component : weak)
+                    firstNode[component + 1] += 1;
+                for (int c = 0; c < weakCount; c++)
+                    firstNode[c + 1] += firstNode[c];
+                int[] nodes = new int[nodeCount];
+                int[] next = firstNode.clone();
+                for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+                    nodes[next[weak[nodeId]]++] = nodeId;
+
+                int[] index = new int[nodeCount];
+                int[] lowLink = new int[nodeCount];
+                boolean[] onStack = new boolean[nodeCount];
+                Arrays.fill(index, -1);
+                IntStream.range(0, weakCount).parallel().forEach(c -> strongComponents(
+                        graph, costFunction, nodes, firstNode[c], firstNode[c + 1],
+                        index, lowLink, onStack, strong));
+            }).join();
+        } finally {
+            pool.shutdown();
+        }
+        return new ComponentIndex(IntBuffer.wrap(weak), IntBuffer.wrap(strong));
+    }
+
+    // Calcule les composantes faiblement connexes au moyen d'une structure
+    // union-find partagée entre les fils, dont les racines sont liées par
+    // compareAndSet ; stocke dans weak l'identité (dense) de la composante de
+    // chaque noeud et retourne le nombre de composantes.
+    private static int weakComponents(Graph graph, CostFunction costFunction, int[] weak) {
+        int nodeCount = graph.nodeCount();
+        AtomicIntegerArray parents = new AtomicIntegerArray(nodeCount);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            parents.set(nodeId, nodeId);
+
+        IntStream.range(0, nodeCount).parallel().forEach(nodeId -> {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                if (costFunction.costFactor(nodeId, edgeId) != Double.POSITIVE_INFINITY)
+                    union(parents, nodeId, graph.edgeTargetNodeId(edgeId));
+            }
+        });
+
+        int count = 0;
+        int[] componentOfRoot = new int[nodeCount];
+        Arrays.fill(componentOfRoot, -1);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            int root = find(parents, nodeId);
+            if (componentOfRoot[root] == -1)
+                componentOfRoot[root] = count++;
+            weak[nodeId] = componentOfRoot[root];
+        }
+        return count;
+    }
+
+    private static int find(AtomicIntegerArray parents, int nodeId) {
+        int parent = parents.get(nodeId);
+        while (parent != nodeId) {
+            // Raccourcissement du chemin par moitié, sans danger en parallèle
+            // puisqu'il ne fait que remplacer un parent par un ancêtre.
+            int grandParent = parents.get(parent);
+            parents.compareAndSet(nodeId, parent, grandParent);
+            nodeId = grandParent;
+            parent = parents.get(nodeId);
+        }
+        return nodeId;
+    }
+
+    private static void union(AtomicIntegerArray parents, int a, int b) {
+        while (true) {
+            int rootA = find(parents, a);
+            int rootB = find(parents, b);
+            if (rootA == rootB) return;
+            // La racine d'identité la plus grande est liée à l'autre
+            int high = Math.max(rootA, rootB), low = Math.min(rootA, rootB);
+            if (parents.compareAndSet(high, high, low)) return;
+        }
+    }
+
+    // Calcule, par l'algorithme de Tarjan (itératif), les composantes
+    // fortement connexes des noeuds nodes[from..to[, qui forment une
+    // composante faiblement connexe, et les numérote dans l'ordre topologique.
+    // Les tableaux indexés par noeud sont partagés entre les composantes, qui
+    // sont disjointes.
+    private static void strongComponents(Graph graph, CostFunction costFunction,
+                                         int[] nodes, int from, int to,
+                                         int[] index, int[] lowLink, boolean[] onStack,
+                                         int[] strong) {
+        int size = to - from;
+        int[] callStack = new int[size];
+        int[] edgePositions = new int[size];
+        int[] componentStack = new int[size];
+        int nextIndex = 0, completed = 0;
+
+        for (int n = from; n < to; n++) {
+            if (index[nodes[n]] != -1) continue;
+            int callDepth = 0, componentDepth = 0;
+            int root = nodes[n];
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[componentDepth++] = root;
+            onStack[root] = true;
+            callStack[callDepth] = root;
+            edgePositions[callDepth++] = 0;
+
+            while (callDepth > 0) {
+                int nodeId = callStack[callDepth - 1];
+                int position = edgePositions[callDepth - 1];
+                if (position < graph.nodeOutDegree(nodeId)) {
+                    edgePositions[callDepth - 1] += 1;
+                    int edgeId = graph.nodeOutEdgeId(nodeId, position);
+                    if (costFunction.costFactor(nodeId, edgeId) == Double.POSITIVE_INFINITY)
+                        continue;
+                    int target = graph.edgeTargetNodeId(edgeId);
+                    if (index[target] == -1) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        componentStack[componentDepth++] = target;
+                        onStack[target] = true;
+                        callStack[callDepth] = target;
+                        edgePositions[callDepth++] = 0;
+                    } else if (onStack[target]) {
+                        lowLink[nodeId] = Math.min(lowLink[nodeId], index[target]);
+                    }
+                } else {
+                    callDepth -= 1;
+                    if (lowLink[nodeId] == index[nodeId]) {
+                        int member;
+                        do {
+                            member = componentStack[--componentDepth];
+                            onStack[member] = false;
+                            strong[member] = completed;
+                        } while (member != nodeId);
+                        completed += 1;
+                    }
+                    if (callDepth > 0) {
+                        int caller = callStack[callDepth - 1];
+                        lowLink[caller] = Math.min(lowLink[caller], lowLink[nodeId]);
+                    }
+                }
+            }
+        }
+        // Tarjan termine les composantes dans l'ordre topologique inverse
+        for (int n = from; n < to; n++)
+            strong[nodes[n]] = completed - 1 - strong[nodes[n]];
+    }
+
+    /**
+     * Retourne l'index des composantes stocké dans le fichier components.bin
+     * du répertoire du graphe donné, projeté en mémoire, qui doit avoir été
+     * calculé pour ce graphe et pour la fonction de coût d'identité donnée.
+     *
+     * @param basePath le chemin du répertoire du graphe, où se trouve le fichier
+     * @param graph le graphe stocké dans ce répertoire
+     * @param costFunctionIdentity l'identité de la fonction de coût
+     *
+     * @return l'index des composantes stocké dans le répertoire donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si le
+     * fichier n'existe pas, ou si l'index est obsolète, c.-à-d. que sa
+     * version, son empreinte ou son nombre de noeuds diffère
+     */
+    public static ComponentIndex loadFrom(Path basePath, Graph graph, String costFunctionIdentity)
+            throws IOException {
+        long fingerprint = GraphFingerprint.of(basePath, costFunctionIdentity);
+        int nodeCount = graph.nodeCount();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(basePath.resolve(FILE_NAME))) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() != HEADER_BYTES + 2L * nodeCount * Integer.BYTES
+                || buffer.getInt(0) != FORMAT_VERSION
+                || buffer.getLong(OFFSET_FINGERPRINT) != fingerprint
+                || buffer.getInt(OFFSET_NODE_COUNT) != nodeCount)
+            throw new IOException("stale component index " + basePath.resolve(FILE_NAME));
+        IntBuffer components = buffer.position(HEADER_BYTES).asIntBuffer();
+        return new ComponentIndex(components.slice(0, nodeCount),
+                components.slice(nodeCount, nodeCount));
+    }
+
+    /**
+     * Écrit l'index dans le fichier components.bin du répertoire du graphe
+     * pour lequel il a été calculé.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     * @param costFunctionIdentity l'identité de la fonction de coût avec
+     * laquelle l'index a été calculé
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path basePath, String costFunctionIdentity) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + 2 * nodeCount() * Integer.BYTES)
+                .putInt(FORMAT_VERSION)
+                .putLong(GraphFingerprint.of(basePath, costFunctionIdentity))
+                .putInt(nodeCount());
+        bytes.asIntBuffer()
+                .put(weakComponents.duplicate().clear())
+                .put(strongComponents.duplicate().clear());
+        bytes.clear();
+        try (FileChannel channel = FileChannel.open(basePath.resolve(FILE_NAME),
+                CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+    }
+
+    /**
+     * Retourne le nombre de noeuds de l'index.
+     *
+     * @return le nombre de noeuds de l'index
+     */
+    public int nodeCount() {
+        return weakComponents.capacity();
+    }
+
+    /**
+     * Retourne l'identité de la composante faiblement connexe du noeud
+     * d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return l'identité de la composante faiblement connexe du noeud
+     */
+    public int weakComponent(int nodeId) {
+        return weakComponents.get(nodeId);
+    }
+
+    /**
+     * Retourne l'identité, au sein de sa composante faiblement connexe, de la
+     * composante fortement connexe du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return l'identité de la composante fortement connexe du noeud
+     */
+    public int strongComponent(int nodeId) {
+        return strongComponents.get(nodeId);
+    }
+
+    /**
+     * Retourne faux si aucun itinéraire de coût fini ne peut mener du noeud
+     * d'identité fromNodeId au noeud d'identité toNodeId ; vrai sinon, ce qui
+     * ne garantit toutefois l'existence d'un tel itinéraire que si les deux
+     * noeuds appartiennent à la même composante fortement connexe.
+     *
+     * @param fromNodeId l'identité du noeud de départ
+     * @param toNodeId l'identité du noeud d'arrivée
+     *
+     * @return faux si aucun itinéraire ne peut mener d'un noeud à l'autre
+     */
+    public boolean mayReach(int fromNodeId, int toNodeId) {
+        return weakComponent(fromNodeId) == weakComponent(toNodeId)
+                && strongComponent(fromNodeId) <= strongComponent(toNodeId);
+    }
+}
@@ -0,0 +1,291 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Représente une hiérarchie de contraction (« contraction hierarchy ») du
+ * graphe JaVelo pour une fonction de coût donnée, telle que produite par
+ * ContractionHierarchyBuilder.
+ * <p>
+ * La hiérarchie est composée du rang de chaque noeud et d'un ensemble d'arcs
+ * pondérés : les arêtes du graphe de coût fini, et les raccourcis ajoutés
+ * lors de la contraction. Un raccourci remplace la suite de ses deux arcs
+ * enfants ; un arc original désigne directement une arête du graphe.
+ * <p>
+ * Sur disque, la hiérarchie occupe deux fichiers : ch_ranks.bin, contenant
+ * le rang de chaque noeud (int), et ch_arcs.bin, contenant pour chaque arc
+ * cinq valeurs de type int : noeud de départ, noeud d'arrivée, poids (bits
+ * d'un float), premier enfant (ou identité de l'arête pour un arc original)
+ * et second enfant (ou -1 pour un arc original). Chacun commence par un
+ * en-tête — version du format (int), empreinte du graphe et de la fonction
+ * de coût (long, voir GraphFingerprint), nombre de noeuds (int) — qui permet
+ * de refuser une hiérarchie obsolète au chargement.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class ContractionHierarchy {
+    /**
+     * Valeur du second enfant d'un arc original, c.-à-d. qui n'est pas un raccourci.
+     */
+    static final int ORIGINAL_ARC = -1;
+
+    private static final String RANKS_FILE_NAME = "ch_ranks.bin";
+    private static final String ARCS_FILE_NAME = "ch_arcs.bin";
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_NODE_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+    private static final int OFFSET_FROM = 0;
+    private static final int OFFSET_TO = OFFSET_FROM + 1;
+    private static final int OFFSET_WEIGHT = OFFSET_TO + 1;
+    private static final int OFFSET_CHILD_1 = OFFSET_WEIGHT + 1;
+    private static final int OFFSET_CHILD_2 = OFFSET_CHILD_1 + 1;
+    private static final int ARC_INTS = OFFSET_CHILD_2 + 1;
+
+    private final int[] ranks;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final float[] arcWeight;
+    private final int[] arcChild1;
+    private final int[] arcChild2;
+
+    // Arcs montants sortant de chaque noeud, et arcs montants (parcourus à
+    // rebours) entrant dans chaque noeud, sous forme d'index compressés.
+    private final int[] firstUpwardOutArc;
+    private final int[] upwardOutArcs;
+    private final int[] firstUpwardInArc;
+    private final int[] upwardInArcs;
+
+    /**
+     * Construit la hiérarchie de rangs et d'arcs donnés ; les tableaux ne
+     * sont pas copiés.
+     *
+     * @param ranks le rang de chaque noeud
+     * @param arcFrom le noeud de départ de chaque arc
+     * @param arcTo le noeud d'arrivée de chaque arc
+     * @param arcWeight le poids de chaque arc
+     * @param arcChild1 le premier enfant de chaque arc, ou l'identité de
+     * l'arête pour un arc original
+     * @param arcChild2 le second enfant de chaque arc, ou ORIGINAL_ARC
+     */
+    ContractionHierarchy(int[] ranks, int[] arcFrom, int[] arcTo, float[] arcWeight,
+                         int[] arcChild1, int[] arcChild2) {
+        this.ranks = ranks;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcWeight = arcWeight;
+        this.arcChild1 = arcChild1;
+        this.arcChild2 = arcChild2;
+
+        int nodeCount = ranks.length;
+        firstUpwardOutArc = new int[nodeCount + 1];
+        firstUpwardInArc = new int[nodeCount + 1];
+        for (int arcId = 0; arcId < arcFrom.length; arcId++) {
+            if (ranks[arcTo[arcId]] > ranks[arcFrom[arcId]])
+                firstUpwardOutArc[arcFrom[arcId] + 1] += 1;
+            else
+                firstUpwardInArc[arcTo[arcId] + 1] += 1;
+        }
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            firstUpwardOutArc[nodeId + 1] += firstUpwardOutArc[nodeId];
+            firstUpwardInArc[nodeId + 1] += firstUpwardInArc[nodeId];
+        }
+        upwardOutArcs = new int[firstUpwardOutArc[nodeCount]];
+        upwardInArcs = new int[firstUpwardInArc[nodeCount]];
+        int[] nextOut = firstUpwardOutArc.clone();
+        int[] nextIn = firstUpwardInArc.clone();
+        for (int arcId = 0; arcId < arcFrom.length; arcId++) {
+            if (ranks[arcTo[arcId]] > ranks[arcFrom[arcId]])
+                upwardOutArcs[nextOut[arcFrom[arcId]]++] = arcId;
+            else
+                upwardInArcs[nextIn[arcTo[arcId]]++] = arcId;
+        }
+    }
+
+    /**
+     * Retourne la hiérarchie stockée dans les fichiers ch_ranks.bin et
+     * ch_arcs.bin du répertoire du graphe donné, qui doit avoir été calculée
+     * pour ce graphe et pour la fonction de coût d'identité donnée.
+     *
+     * @param basePath le chemin du répertoire du graphe, où se trouvent les
+     * fichiers
+     * @param graph le graphe stocké dans ce répertoire
+     * @param costFunctionIdentity l'identité de la fonction de coût
+     *
+     * @return la hiérarchie stockée dans le répertoire donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si l'un des
+     * fichiers attendu n'existe pas, ou si la hiérarchie est obsolète, c.-à-d.
+     * que sa version, son empreinte ou son nombre de noeuds diffère
+     */
+    public static ContractionHierarchy loadFrom(Path basePath, Graph graph,
+                                                String costFunctionIdentity)
+            throws IOException {
+        long fingerprint = GraphFingerprint.of(basePath, costFunctionIdentity);
+        int nodeCount = graph.nodeCount();
+
+        IntBuffer ranksBuffer = checkedContent(
+                basePath.resolve(RANKS_FILE_NAME), fingerprint, nodeCount).asIntBuffer();
+        if (ranksBuffer.capacity() != nodeCount)
+            throw new IOException("invalid " + RANKS_FILE_NAME);
+        int[] ranks = new int[nodeCount];
+        ranksBuffer.get(ranks);
+
+        IntBuffer arcs = checkedContent(
+                basePath.resolve(ARCS_FILE_NAME), fingerprint, nodeCount).asIntBuffer();
+        int arcCount = arcs.capacity() / ARC_INTS;
+        int[] arcFrom = new int[arcCount], arcTo = new int[arcCount];
+        int[] arcChild1 = new int[arcCount], arcChild2 = new int[arcCount];
+        float[] arcWeight = new float[arcCount];
+        for (int arcId = 0; arcId < arcCount; arcId++) {
+            int index = ARC_INTS * arcId;
+            arcFrom[arcId] = arcs.get(index + OFFSET_FROM);
+            arcTo[arcId] = arcs.get(index + OFFSET_TO);
+            arcWeight[arcId] = Float.intBitsToFloat(arcs.get(index + OFFSET_WEIGHT));
+            arcChild1[arcId] = arcs.get(index + OFFSET_CHILD_1);
+            arcChild2[arcId] = arcs.get(index + OFFSET_CHILD_2);
+        }
+        return new ContractionHierarchy(ranks, arcFrom, arcTo, arcWeight, arcChild1, arcChild2);
+    }
+
+    // Retourne le contenu, hors en-tête, du fichier donné projeté en mémoire,
+    // ou lève IOException si son en-tête ne correspond pas à l'empreinte et au
+    // nombre de noeuds donnés
+    private static ByteBuffer checkedContent(Path filePath, long fingerprint, int nodeCount)
+            throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != FORMAT_VERSION
+                || buffer.getLong(OFFSET_FINGERPRINT) != fingerprint
+                || buffer.getInt(OFFSET_NODE_COUNT) != nodeCount)
+            throw new IOException("stale contraction hierarchy file " + filePath);
+        return buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+    }
+
+    /**
+     * Écrit la hiérarchie dans les fichiers ch_ranks.bin et ch_arcs.bin du
+     * répertoire du graphe pour lequel elle a été calculée.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     * @param costFunctionIdentity l'identité de la fonction de coût avec
+     * laquelle la hiérarchie a été calculée
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path basePath, String costFunctionIdentity) throws IOException {
+        long fingerprint = GraphFingerprint.of(basePath, costFunctionIdentity);
+
+        ByteBuffer ranksBytes = header(fingerprint, ranks.length * Integer.BYTES);
+        ranksBytes.asIntBuffer().put(ranks);
+        write(basePath.resolve(RANKS_FILE_NAME), ranksBytes.clear());
+
+        ByteBuffer arcsBytes = header(fingerprint, arcCount() * ARC_INTS * Integer.BYTES);
+        IntBuffer arcs = arcsBytes.asIntBuffer();
+        for (int arcId = 0; arcId < arcCount(); arcId++) {
+            arcs.put(arcFrom[arcId])
+                    .put(arcTo[arcId])
+                    .put(Float.floatToIntBits(arcWeight[arcId]))
+                    .put(arcChild1[arcId])
+                    .put(arcChild2[arcId]);
+        }
+        write(basePath.resolve(ARCS_FILE_NAME), arcsBytes.clear());
+    }
+
+    // Retourne une mémoire tampon pouvant contenir l'en-tête et le nombre
+    // d'octets donné, dont l'en-tête est écrit et la position placée après lui
+    private ByteBuffer header(long fingerprint, int contentBytes) {
+        return ByteBuffer.allocate(HEADER_BYTES + contentBytes)
+                .putInt(FORMAT_VERSION)
+                .putLong(fingerprint)
+                .putInt(nodeCount());
+    }
+
+    private static void write(Path filePath, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+    }
+
+    /**
+     * Retourne le nombre de noeuds de la hiérarchie.
+     *
+     * @return le nombre de noeuds de la hiérarchie
+     */
+    public int nodeCount() {
+        return ranks.length;
+    }
+
+    /**
+     * Retourne le nombre total d'arcs (originaux et raccourcis) de la hiérarchie.
+     *
+     * @return le nombre total d'arcs de la hiérarchie
+     */
+    public int arcCount() {
+        return arcFrom.length;
+    }
+
+    /**
+     * Retourne le rang du noeud d'identité donnée, c.-à-d. sa position dans
+     * l'ordre de contraction.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le rang du noeud d'identité donnée
+     */
+    public int rank(int nodeId) {
+        return ranks[nodeId];
+    }
+
+    // Accès aux arcs montants de chaque noeud et aux attributs des arcs,
+    // utilisés par ContractionHierarchyRouteComputer.
+
+    int upwardOutDegree(int nodeId) {
+        return firstUpwardOutArc[nodeId + 1] - firstUpwardOutArc[nodeId];
+    }
+
+    int upwardOutArcId(int nodeId, int arcIndex) {
+        return upwardOutArcs[firstUpwardOutArc[nodeId] + arcIndex];
+    }
+
+    int upwardInDegree(int nodeId) {
+        return firstUpwardInArc[nodeId + 1] - firstUpwardInArc[nodeId];
+    }
+
+    int upwardInArcId(int nodeId, int arcIndex) {
+        return upwardInArcs[firstUpwardInArc[nodeId] + arcIndex];
+    }
+
+    int arcFrom(int arcId) {
+        return arcFrom[arcId];
+    }
+
+    int arcTo(int arcId) {
+        return arcTo[arcId];
+    }
+
+    float arcWeight(int arcId) {
+        return arcWeight[arcId];
+    }
+
+    int arcChild1(int arcId) {
+        return arcChild1[arcId];
+    }
+
+    int arcChild2(int arcId) {
+        return arcChild2[arcId];
+    }
+}
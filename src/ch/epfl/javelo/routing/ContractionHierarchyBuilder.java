@@ -0,0 +1,377 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Construit la hiérarchie de contraction du graphe JaVelo pour une fonction
+ * de coût donnée.
+ * <p>
+ * Les noeuds sont contractés par vagues : à chaque vague, on choisit un
+ * ensemble indépendant de noeuds dont la priorité (différence d'arcs,
+ * corrigée par le nombre de voisins déjà contractés) est minimale parmi
+ * leurs voisins, puis on calcule en parallèle les raccourcis nécessaires à
+ * leur contraction. Les recherches de témoins ignorent les noeuds de la
+ * vague courante, de sorte que les raccourcis calculés en parallèle sont
+ * corrects quel que soit l'ordre dans lequel ils sont ajoutés.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class ContractionHierarchyBuilder {
+    // Nombre maximal de noeuds visités par une recherche de témoins lors de la
+    // contraction, et lors de la seule estimation de la priorité ; au-delà,
+    // le raccourci est ajouté, ce qui est toujours correct.
+    private static final int MAX_WITNESS_SETTLED_NODES = 100;
+    private static final int MAX_ESTIMATION_SETTLED_NODES = 50;
+    private static final int INITIAL_ADJACENCY_CAPACITY = 4;
+
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final int parallelism;
+
+    // Arcs (originaux puis raccourcis)
+    private int arcCount;
+    private int[] arcFrom, arcTo, arcChild1, arcChild2;
+    private float[] arcWeight;
+
+    // Arcs sortant de et entrant dans chaque noeud
+    private final int[][] outArcs, inArcs;
+    private final int[] outDegree, inDegree;
+
+    private final boolean[] contracted;
+    private final boolean[] inCurrentWave;
+    private final int[] contractedNeighbors;
+    private final int[] priorities;
+    private final int[] levels;
+    private final int[] ranks;
+
+    private final ThreadLocal<SearchState> witnessStates;
+
+    /**
+     * Construit un constructeur de hiérarchie pour le graphe et la fonction
+     * de coût donnés, utilisant le nombre de fils d'exécution donné.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @throws IllegalArgumentException si le nombre de fils est inférieur à 1
+     */
+    public ContractionHierarchyBuilder(Graph graph, CostFunction costFunction, int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1);
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.parallelism = parallelism;
+
+        int nodeCount = graph.nodeCount();
+        outArcs = new int[nodeCount][];
+        inArcs = new int[nodeCount][];
+        outDegree = new int[nodeCount];
+        inDegree = new int[nodeCount];
+        contracted = new boolean[nodeCount];
+        inCurrentWave = new boolean[nodeCount];
+        contractedNeighbors = new int[nodeCount];
+        priorities = new int[nodeCount];
+        levels = new int[nodeCount];
+        ranks = new int[nodeCount];
+        witnessStates = ThreadLocal.withInitial(() -> new DenseSearchState(nodeCount));
+    }
+
+    /**
+     * Construit et retourne la hiérarchie de contraction.
+     *
+     * @return la hiérarchie de contraction du graphe
+     */
+    public ContractionHierarchy build() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(this::contractAll).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ContractionHierarchy contractAll() {
+        int nodeCount = graph.nodeCount();
+        addOriginalArcs();
+
+        int[] remaining = IntStream.range(0, nodeCount).toArray();
+        IntStream.of(remaining).parallel()
+                .forEach(nodeId -> priorities[nodeId] = priority(nodeId));
+
+        int nextRank = 0;
+        while (remaining.length > 0) {
+            int[] wave = IntStream.of(remaining).parallel()
+                    .filter(this::isLocalMinimum)
+                    .toArray();
+            for (int nodeId : wave)
+                inCurrentWave[nodeId] = true;
+
+            Shortcuts[] shortcuts = IntStream.of(wave).parallel()
+                    .mapToObj(nodeId -> shortcuts(nodeId, true))
+                    .toArray(Shortcuts[]::new);
+
+            for (int i = 0; i < wave.length; i++) {
+                int nodeId = wave[i];
+                contracted[nodeId] = true;
+                inCurrentWave[nodeId] = false;
+                ranks[nodeId] = nextRank++;
+                shortcuts[i].addTo(this);
+            }
+
+            // Seuls les voisins des noeuds contractés voient leur priorité changer
+            int[] neighbors = IntStream.of(wave)
+                    .flatMap(this::liveNeighbors)
+                    .toArray();
+            for (int neighbor : neighbors)
+                contractedNeighbors[neighbor] += 1;
+            for (int nodeId : wave)
+                for (int neighbor : liveNeighbors(nodeId).toArray())
+                    levels[neighbor] = Math.max(levels[neighbor], levels[nodeId] + 1);
+            int[] distinctNeighbors = IntStream.of(neighbors).distinct().toArray();
+            for (int neighbor : distinctNeighbors)
+                removeContractedArcs(neighbor);
+            IntStream.of(distinctNeighbors).parallel()
+                    .forEach(nodeId -> priorities[nodeId] = priority(nodeId));
+
+            remaining = IntStream.of(remaining).filter(n -> !contracted[n]).toArray();
+        }
+
+        return new ContractionHierarchy(ranks,
+                Arrays.copyOf(arcFrom, arcCount), Arrays.copyOf(arcTo, arcCount),
+                Arrays.copyOf(arcWeight, arcCount),
+                Arrays.copyOf(arcChild1, arcCount), Arrays.copyOf(arcChild2, arcCount));
+    }
+
+    // Ajoute un arc pour chaque arête de coût fini du graphe.
+    private void addOriginalArcs() {
+        int capacity = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++)
+            capacity += graph.nodeOutDegree(nodeId);
+        arcFrom = new int[capacity];
+        arcTo = new int[capacity];
+        arcChild1 = new int[capacity];
+        arcChild2 = new int[capacity];
+        arcWeight = new float[capacity];
+
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                double weight = graph.edgeLength(edgeId)
+                        * costFunction.costFactor(nodeId, edgeId);
+                if (targetNodeId == nodeId || weight == Double.POSITIVE_INFINITY)
+                    continue;
+                addArc(nodeId, targetNodeId, (float) weight,
+                        edgeId, ContractionHierarchy.ORIGINAL_ARC);
+            }
+        }
+    }
+
+    private void addArc(int from, int to, float weight, int child1, int child2) {
+        if (arcCount == arcFrom.length) {
+            int capacity = Math.max(16, 2 * arcCount);
+            arcFrom = Arrays.copyOf(arcFrom, capacity);
+            arcTo = Arrays.copyOf(arcTo, capacity);
+            arcChild1 = Arrays.copyOf(arcChild1, capacity);
+            arcChild2 = Arrays.copyOf(arcChild2, capacity);
+            arcWeight = Arrays.copyOf(arcWeight, capacity);
+        }
+        int arcId = arcCount++;
+        arcFrom[arcId] = from;
+        arcTo[arcId] = to;
+        arcWeight[arcId] = weight;
+        arcChild1[arcId] = child1;
+        arcChild2[arcId] = child2;
+        append(outArcs, outDegree, from, arcId);
+        append(inArcs, inDegree, to, arcId);
+    }
+
+    // Ajoute un raccourci, à moins qu'un arc au moins aussi court ne relie
+    // déjà les deux mêmes noeuds ; un arc parallèle plus long est retiré des
+    // listes d'adjacence (mais conservé, car il peut être l'enfant d'un autre
+    // raccourci).
+    private void addShortcut(int from, int to, float weight, int inArcId, int outArcId) {
+        for (int i = 0; i < outDegree[from]; i++) {
+            int arcId = outArcs[from][i];
+            if (arcTo[arcId] != to)
+                continue;
+            if (arcWeight[arcId] <= weight)
+                return;
+            remove(outArcs, outDegree, from, arcId);
+            remove(inArcs, inDegree, to, arcId);
+            break;
+        }
+        addArc(from, to, weight, inArcId, outArcId);
+    }
+
+    // Retire des listes d'adjacence du noeud donné les arcs le reliant à des
+    // noeuds contractés, qui ne seront plus jamais parcourus.
+    private void removeContractedArcs(int nodeId) {
+        for (int i = outDegree[nodeId] - 1; i >= 0; i--) {
+            int arcId = outArcs[nodeId][i];
+            if (contracted[arcTo[arcId]])
+                remove(outArcs, outDegree, nodeId, arcId);
+        }
+        for (int i = inDegree[nodeId] - 1; i >= 0; i--) {
+            int arcId = inArcs[nodeId][i];
+            if (contracted[arcFrom[arcId]])
+                remove(inArcs, inDegree, nodeId, arcId);
+        }
+    }
+
+    private static void remove(int[][] adjacency, int[] degrees, int nodeId, int arcId) {
+        int[] arcs = adjacency[nodeId];
+        for (int i = 0; i < degrees[nodeId]; i++) {
+            if (arcs[i] == arcId) {
+                arcs[i] = arcs[--degrees[nodeId]];
+                return;
+            }
+        }
+    }
+
+    private static void append(int[][] adjacency, int[] degrees, int nodeId, int arcId) {
+        int[] arcs = adjacency[nodeId];
+        if (arcs == null)
+            arcs = adjacency[nodeId] = new int[INITIAL_ADJACENCY_CAPACITY];
+        else if (degrees[nodeId] == arcs.length)
+            arcs = adjacency[nodeId] = Arrays.copyOf(arcs, 2 * arcs.length);
+        arcs[degrees[nodeId]++] = arcId;
+    }
+
+    // Retourne vrai ssi le noeud donné est ignoré par les recherches.
+    private boolean isRemoved(int nodeId, boolean excludeWave) {
+        return contracted[nodeId] || (excludeWave && inCurrentWave[nodeId]);
+    }
+
+    // Retourne vrai ssi la priorité du noeud donné est strictement inférieure
+    // à celle de tous ses voisins non contractés (à identité près).
+    private boolean isLocalMinimum(int nodeId) {
+        return liveNeighbors(nodeId).allMatch(neighbor ->
+                priorities[nodeId] < priorities[neighbor]
+                        || (priorities[nodeId] == priorities[neighbor] && nodeId < neighbor));
+    }
+
+    private IntStream liveNeighbors(int nodeId) {
+        IntStream out = IntStream.range(0, outDegree[nodeId])
+                .map(i -> arcTo[outArcs[nodeId][i]]);
+        IntStream in = IntStream.range(0, inDegree[nodeId])
+                .map(i -> arcFrom[inArcs[nodeId][i]]);
+        return IntStream.concat(out, in)
+                .filter(neighbor -> neighbor != nodeId && !contracted[neighbor]);
+    }
+
+    private int priority(int nodeId) {
+        int removedArcs = 0;
+        for (int i = 0; i < outDegree[nodeId]; i++)
+            if (!contracted[arcTo[outArcs[nodeId][i]]]) removedArcs += 1;
+        for (int i = 0; i < inDegree[nodeId]; i++)
+            if (!contracted[arcFrom[inArcs[nodeId][i]]]) removedArcs += 1;
+        return 2 * (shortcuts(nodeId, false).count - removedArcs) + contractedNeighbors[nodeId] + levels[nodeId];
+    }
+
+    // Calcule les raccourcis nécessaires à la contraction du noeud donné ;
+    // ne modifie pas le graphe, et peut donc être appelée en parallèle.
+    private Shortcuts shortcuts(int nodeId, boolean excludeWave) {
+        Shortcuts shortcuts = new Shortcuts();
+        SearchState state = witnessStates.get();
+
+        for (int i = 0; i < inDegree[nodeId]; i++) {
+            int inArcId = inArcs[nodeId][i];
+            int from = arcFrom[inArcId];
+            if (from == nodeId || isRemoved(from, excludeWave))
+                continue;
+
+            // Un coût maximal nul ne signifie pas l'absence de cible : les
+            // arêtes de longueur nulle donnent des paires de coût nul.
+            boolean hasTarget = false;
+            float maxCost = 0;
+            for (int j = 0; j < outDegree[nodeId]; j++) {
+                int outArcId = outArcs[nodeId][j];
+                int to = arcTo[outArcId];
+                if (to != from && !isRemoved(to, excludeWave)) {
+                    hasTarget = true;
+                    maxCost = Math.max(maxCost, arcWeight[inArcId] + arcWeight[outArcId]);
+                }
+            }
+            if (!hasTarget)
+                continue;
+
+            witnessSearch(state, from, nodeId, maxCost, excludeWave,
+                    excludeWave ? MAX_WITNESS_SETTLED_NODES : MAX_ESTIMATION_SETTLED_NODES);
+
+            for (int j = 0; j < outDegree[nodeId]; j++) {
+                int outArcId = outArcs[nodeId][j];
+                int to = arcTo[outArcId];
+                if (to == from || isRemoved(to, excludeWave))
+                    continue;
+                float viaCost = arcWeight[inArcId] + arcWeight[outArcId];
+                if (state.cost(to) > viaCost)
+                    shortcuts.add(inArcId, outArcId, viaCost);
+            }
+        }
+        return shortcuts;
+    }
+
+    // Dijkstra local depuis le noeud from, évitant le noeud contracté et
+    // limité en coût et en nombre de noeuds visités.
+    private void witnessSearch(SearchState state, int from, int avoidedNodeId,
+                               float maxCost, boolean excludeWave, int maxSettledNodes) {
+        state.reset();
+        NodePriorityQueue queue = state.queue();
+        state.update(from, 0f, 0);
+        queue.insertOrDecrease(from, 0f);
+        int settledNodes = 0;
+        while (!queue.isEmpty() && settledNodes < maxSettledNodes) {
+            if (queue.minKey() > maxCost)
+                break;
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+            settledNodes += 1;
+            for (int i = 0; i < outDegree[nodeId]; i++) {
+                int arcId = outArcs[nodeId][i];
+                int to = arcTo[arcId];
+                if (to == avoidedNodeId || isRemoved(to, excludeWave) || state.isSettled(to))
+                    continue;
+                float cost = nodeCost + arcWeight[arcId];
+                if (cost < state.cost(to)) {
+                    state.update(to, cost, 0);
+                    queue.insertOrDecrease(to, cost);
+                }
+            }
+        }
+    }
+
+    // Raccourcis nécessaires à la contraction d'un noeud.
+    private static final class Shortcuts {
+        private int count;
+        private int[] inArcIds = new int[INITIAL_ADJACENCY_CAPACITY];
+        private int[] outArcIds = new int[INITIAL_ADJACENCY_CAPACITY];
+        private float[] weights = new float[INITIAL_ADJACENCY_CAPACITY];
+
+        void add(int inArcId, int outArcId, float weight) {
+            if (count == inArcIds.length) {
+                inArcIds = Arrays.copyOf(inArcIds, 2 * count);
+                outArcIds = Arrays.copyOf(outArcIds, 2 * count);
+                weights = Arrays.copyOf(weights, 2 * count);
+            }
+            inArcIds[count] = inArcId;
+            outArcIds[count] = outArcId;
+            weights[count] = weight;
+            count += 1;
+        }
+
+        void addTo(ContractionHierarchyBuilder builder) {
+            for (int i = 0; i < count; i++) {
+                builder.addShortcut(builder.arcFrom[inArcIds[i]], builder.arcTo[outArcIds[i]],
+                        weights[i], inArcIds[i], outArcIds[i]);
+            }
+        }
+    }
+}
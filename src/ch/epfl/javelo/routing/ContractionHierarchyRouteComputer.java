@@ -0,0 +1,152 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.epfl.javelo.routing.Edge.of;
+
+/**
+ * Représente un planificateur d'itinéraire utilisant une hiérarchie de
+ * contraction précalculée, bien plus rapide que RouteComputer sur de longues
+ * distances.
+ * <p>
+ * Une requête effectue deux recherches de Dijkstra ne parcourant que des arcs
+ * montants (vers des noeuds de rang supérieur) : l'une depuis le départ,
+ * l'autre à rebours depuis l'arrivée. Les raccourcis de l'itinéraire trouvé
+ * sont ensuite dépliés en arêtes du graphe.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class ContractionHierarchyRouteComputer {
+    private final Graph graph;
+    private final ContractionHierarchy hierarchy;
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    /**
+     * Construit un planificateur d'itinéraire pour le graphe et la hiérarchie
+     * de contraction donnés ; la fonction de coût est celle ayant servi à
+     * construire la hiérarchie.
+     *
+     * @param graph le graphe
+     * @param hierarchy la hiérarchie de contraction du graphe
+     *
+     * @throws IllegalArgumentException si la hiérarchie n'a pas le même nombre
+     * de noeuds que le graphe
+     */
+    public ContractionHierarchyRouteComputer(Graph graph, ContractionHierarchy hierarchy) {
+        Preconditions.checkArgument(graph.nodeCount() == hierarchy.nodeCount());
+        this.graph = graph;
+        this.hierarchy = hierarchy;
+        this.workspaces = ThreadLocal.withInitial(
+                () -> new SearchWorkspace(graph.nodeCount()));
+    }
+
+    /**
+     * Retourne l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     *
+     * @return l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId) {
+        Preconditions.checkArgument(startNodeId != endNodeId);
+
+        // Les recherches dans la hiérarchie n'explorent que peu de noeuds :
+        // on utilise toujours des états creux.
+        SearchWorkspace workspace = workspaces.get();
+        SearchState forward = workspace.state(true);
+        SearchState backward = workspace.backwardState(true);
+        NodePriorityQueue forwardQueue = forward.queue();
+        NodePriorityQueue backwardQueue = backward.queue();
+
+        forward.update(startNodeId, 0f, -1);
+        forwardQueue.insertOrDecrease(startNodeId, 0f);
+        backward.update(endNodeId, 0f, -1);
+        backwardQueue.insertOrDecrease(endNodeId, 0f);
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meetingNodeId = -1;
+
+        // Chaque recherche s'arrête dès que sa plus petite priorité dépasse le
+        // coût du meilleur chemin trouvé.
+        while (true) {
+            boolean forwardActive = !forwardQueue.isEmpty() && forwardQueue.minKey() < bestCost;
+            boolean backwardActive = !backwardQueue.isEmpty() && backwardQueue.minKey() < bestCost;
+            if (!forwardActive && !backwardActive)
+                break;
+
+            boolean isForward = forwardActive
+                    && (!backwardActive || forwardQueue.minKey() <= backwardQueue.minKey());
+            SearchState state = isForward ? forward : backward;
+            SearchState otherState = isForward ? backward : forward;
+
+            int nodeId = state.queue().removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+
+            double pathCost = (double) nodeCost + otherState.cost(nodeId);
+            if (pathCost < bestCost) {
+                bestCost = pathCost;
+                meetingNodeId = nodeId;
+            }
+
+            int degree = isForward
+                    ? hierarchy.upwardOutDegree(nodeId)
+                    : hierarchy.upwardInDegree(nodeId);
+            for (int i = 0; i < degree; i++) {
+                int arcId = isForward
+                        ? hierarchy.upwardOutArcId(nodeId, i)
+                        : hierarchy.upwardInArcId(nodeId, i);
+                int neighborId = isForward ? hierarchy.arcTo(arcId) : hierarchy.arcFrom(arcId);
+                float cost = nodeCost + hierarchy.arcWeight(arcId);
+                if (cost < state.cost(neighborId) && !state.isSettled(neighborId)) {
+                    state.update(neighborId, cost, arcId);
+                    state.queue().insertOrDecrease(neighborId, cost);
+                }
+            }
+        }
+
+        if (meetingNodeId == -1)
+            return null;
+
+        List<Edge> itinerary = new ArrayList<>();
+        // Arcs de la recherche avant, du noeud de rencontre vers le départ
+        List<Integer> forwardArcs = new ArrayList<>();
+        for (int nodeId = meetingNodeId; nodeId != startNodeId; ) {
+            int arcId = (int) forward.predecessor(nodeId);
+            forwardArcs.add(arcId);
+            nodeId = hierarchy.arcFrom(arcId);
+        }
+        for (int i = forwardArcs.size() - 1; i >= 0; i--)
+            unpack(forwardArcs.get(i), itinerary);
+        for (int nodeId = meetingNodeId; nodeId != endNodeId; ) {
+            int arcId = (int) backward.predecessor(nodeId);
+            unpack(arcId, itinerary);
+            nodeId = hierarchy.arcTo(arcId);
+        }
+        return new SingleRoute(itinerary);
+    }
+
+    // Ajoute à la liste donnée les arêtes du graphe remplacées par l'arc donné.
+    private void unpack(int arcId, List<Edge> itinerary) {
+        if (hierarchy.arcChild2(arcId) == ContractionHierarchy.ORIGINAL_ARC) {
+            itinerary.add(of(graph, hierarchy.arcChild1(arcId),
+                    hierarchy.arcFrom(arcId), hierarchy.arcTo(arcId)));
+        } else {
+            unpack(hierarchy.arcChild1(arcId), itinerary);
+            unpack(hierarchy.arcChild2(arcId), itinerary);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Enregistrement représentant les matrices des coûts et des longueurs des
+ * meilleurs itinéraires entre des noeuds de départ (lignes) et des noeuds
+ * d'arrivée (colonnes). Les deux valeurs valent Float.POSITIVE_INFINITY
+ * lorsqu'aucun itinéraire n'existe.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param costs le coût total de chaque meilleur itinéraire
+ * @param lengths la longueur, en mètres, de chaque meilleur itinéraire
+ */
+public record CostMatrix(float[][] costs, float[][] lengths) {
+}
@@ -0,0 +1,135 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Représente un calculateur de matrices de coûts entre des ensembles de
+ * noeuds.
+ * <p>
+ * Chaque ligne de la matrice est obtenue par une unique recherche de Dijkstra
+ * depuis son noeud de départ, qui s'arrête dès que tous les noeuds d'arrivée
+ * ont été atteints ; la longueur de chaque itinéraire est ensuite obtenue en
+ * remontant ses prédécesseurs, sans construire d'objet Route. Les lignes sont
+ * calculées en parallèle.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class CostMatrixComputer {
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final int parallelism;
+
+    /**
+     * Construit un calculateur de matrices pour le graphe et la fonction de
+     * coût donnés, utilisant le nombre de fils d'exécution donné.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @throws IllegalArgumentException si le nombre de fils est inférieur à 1
+     */
+    public CostMatrixComputer(Graph graph, CostFunction costFunction, int parallelism) {
+        Preconditions.checkArgument(parallelism >= 1);
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Retourne les matrices des coûts et des longueurs des meilleurs
+     * itinéraires allant de chacun des noeuds de départ donnés à chacun des
+     * noeuds d'arrivée donnés ; le coût et la longueur d'un itinéraire allant
+     * d'un noeud à lui-même sont nuls.
+     *
+     * @param sourceNodeIds les identités des noeuds de départ
+     * @param targetNodeIds les identités des noeuds d'arrivée
+     *
+     * @return les matrices des coûts et des longueurs, ayant une ligne par
+     * noeud de départ et une colonne par noeud d'arrivée
+     */
+    public CostMatrix compute(int[] sourceNodeIds, int[] targetNodeIds) {
+        float[][] costs = new float[sourceNodeIds.length][targetNodeIds.length];
+        float[][] lengths = new float[sourceNodeIds.length][targetNodeIds.length];
+
+        boolean[] isTarget = new boolean[graph.nodeCount()];
+        int distinctTargets = 0;
+        for (int targetNodeId : targetNodeIds) {
+            if (!isTarget[targetNodeId]) distinctTargets += 1;
+            isTarget[targetNodeId] = true;
+        }
+        int targetCount = distinctTargets;
+
+        // Chaque fil traite une tranche des noeuds de départ avec son propre
+        // état de recherche.
+        int chunks = Math.min(parallelism, Math.max(1, sourceNodeIds.length));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                SearchState state = new DenseSearchState(graph.nodeCount());
+                for (int i = chunk; i < sourceNodeIds.length; i += chunks) {
+                    search(state, sourceNodeIds[i], isTarget, targetCount);
+                    for (int j = 0; j < targetNodeIds.length; j++) {
+                        costs[i][j] = state.cost(targetNodeIds[j]);
+                        lengths[i][j] = length(state, sourceNodeIds[i], targetNodeIds[j]);
+                    }
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+        return new CostMatrix(costs, lengths);
+    }
+
+    // Effectue une recherche de Dijkstra depuis le noeud donné, jusqu'à ce
+    // que le nombre donné de noeuds d'arrivée aient été atteints.
+    private void search(SearchState state, int sourceNodeId, boolean[] isTarget, int targetCount) {
+        state.reset();
+        NodePriorityQueue queue = state.queue();
+        state.update(sourceNodeId, 0f, 0);
+        queue.insertOrDecrease(sourceNodeId, 0f);
+        int remainingTargets = targetCount;
+
+        while (!queue.isEmpty() && remainingTargets > 0) {
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+            if (isTarget[nodeId]) remainingTargets -= 1;
+
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                double cost = nodeCost + graph.edgeLength(edgeId)
+                        * costFunction.costFactor(nodeId, edgeId);
+                if (cost < state.cost(targetNodeId) && !state.isSettled(targetNodeId)) {
+                    state.update(targetNodeId, (float) cost,
+                            RouteComputer.packPredecessor(nodeId, i));
+                    queue.insertOrDecrease(targetNodeId, (float) cost);
+                }
+            }
+        }
+    }
+
+    // Retourne la longueur de l'itinéraire trouvé par la recherche, en
+    // remontant les prédécesseurs du noeud d'arrivée.
+    private float length(SearchState state, int sourceNodeId, int targetNodeId) {
+        if (!state.isSettled(targetNodeId))
+            return Float.POSITIVE_INFINITY;
+        double length = 0;
+        int nodeId = targetNodeId;
+        while (nodeId != sourceNodeId) {
+            long predecessor = state.predecessor(nodeId);
+            int fromNodeId = RouteComputer.predecessorNodeId(predecessor);
+            int edgeId = graph.nodeOutEdgeId(fromNodeId,
+                    RouteComputer.predecessorEdgeIndex(predecessor));
+            length += graph.edgeLength(edgeId);
+            nodeId = fromNodeId;
+        }
+        return (float) length;
+    }
+}
@@ -0,0 +1,83 @@
+package ch.epfl.javelo.routing;
+
+import java.util.Arrays;
+
+/**
+ * Représente un état de recherche stocké dans des tableaux indexés par
+ * l'identité des noeuds, adapté aux recherches explorant une grande partie
+ * du graphe.
+ * <p>
+ * Chaque entrée est estampillée par la génération de la recherche qui l'a
+ * écrite : une entrée d'une génération antérieure est considérée comme vide,
+ * ce qui évite de réinitialiser les tableaux entre deux recherches.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class DenseSearchState extends SearchState {
+    private final float[] costs;
+    private final long[] predecessors;
+    private final int[] positions;
+    private final int[] generations;
+    private int generation = 1;
+
+    /**
+     * Construit un état de recherche pour un graphe ayant le nombre de noeuds
+     * donné.
+     *
+     * @param nodeCount le nombre de noeuds du graphe
+     */
+    DenseSearchState(int nodeCount) {
+        this.costs = new float[nodeCount];
+        this.predecessors = new long[nodeCount];
+        this.positions = new int[nodeCount];
+        this.generations = new int[nodeCount];
+    }
+
+    @Override
+    void nextGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            // Les estampilles vont déborder : on les efface réellement.
+            Arrays.fill(generations, 0);
+            generation = 0;
+        }
+        generation += 1;
+    }
+
+    @Override
+    float cost(int nodeId) {
+        return generations[nodeId] == generation ? costs[nodeId] : UNREACHED;
+    }
+
+    @Override
+    long predecessor(int nodeId) {
+        return predecessors[nodeId];
+    }
+
+    @Override
+    void update(int nodeId, float cost, long predecessor) {
+        touch(nodeId);
+        costs[nodeId] = cost;
+        predecessors[nodeId] = predecessor;
+    }
+
+    @Override
+    int queuePosition(int nodeId) {
+        return generations[nodeId] == generation ? positions[nodeId] : NOT_IN_QUEUE;
+    }
+
+    @Override
+    void setQueuePosition(int nodeId, int position) {
+        touch(nodeId);
+        positions[nodeId] = position;
+    }
+
+    // Rend l'entrée du noeud donné valide pour la génération courante.
+    private void touch(int nodeId) {
+        if (generations[nodeId] != generation) {
+            generations[nodeId] = generation;
+            costs[nodeId] = UNREACHED;
+            positions[nodeId] = NOT_IN_QUEUE;
+        }
+    }
+}
@@ -25,7 +25,9 @@ public record Edge(int fromNodeId, int toNodeId, PointCh fromPoint, PointCh toPo
     /**
      * Retourne une instance de Edge dont les attributs fromNodeId et toNodeId
      * sont ceux donnés, les deux autres étant ceux de l'arête d'identité edgeId
-     * dans le graphe.
+     * dans le graphe. Le profil de l'arête n'est décodé qu'à sa première
+     * utilisation, de sorte que la construction d'un itinéraire dont
+     * l'altitude n'est pas consultée ne décode aucun profil.
      *
      * @param graph le graphe
      * @param edgeId l'identité de l'arête dont on veut récupérer les attributs
@@ -39,7 +41,7 @@ public record Edge(int fromNodeId, int toNodeId, PointCh fromPoint, PointCh toPo
     public static Edge of(Graph graph, int edgeId, int fromNodeId, int toNodeId) {
         return new Edge(fromNodeId, toNodeId,
                 graph.nodePoint(fromNodeId), graph.nodePoint(toNodeId),
-                graph.edgeLength(edgeId), graph.edgeProfile(edgeId));
+                graph.edgeLength(edgeId), new LazyProfile(graph, edgeId));
     }
 
     /**
@@ -81,4 +83,40 @@ public record Edge(int fromNodeId, int toNodeId, PointCh fromPoint, PointCh toPo
     public double elevationAt(double position) {
         return profile.applyAsDouble(position);
     }
+
+    // Profil en long d'une arête du graphe, obtenu du graphe à sa première
+    // utilisation puis conservé. Deux profils de la même arête d'un même
+    // graphe sont égaux.
+    private static final class LazyProfile implements DoubleUnaryOperator {
+        private final Graph graph;
+        private final int edgeId;
+        // Les profils du graphe étant immuables, une course entre deux fils
+        // ne peut que les amener à l'obtenir chacun
+        private DoubleUnaryOperator profile;
+
+        LazyProfile(Graph graph, int edgeId) {
+            this.graph = graph;
+            this.edgeId = edgeId;
+        }
+
+        @Override
+        public double applyAsDouble(double operand) {
+            DoubleUnaryOperator resolved = profile;
+            if (resolved == null)
+                profile = resolved = graph.edgeProfile(edgeId);
+            return resolved.applyAsDouble(operand);
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            return that instanceof LazyProfile thatProfile
+                    && graph == thatProfile.graph
+                    && edgeId == thatProfile.edgeId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(graph) + edgeId;
+        }
+    }
 }
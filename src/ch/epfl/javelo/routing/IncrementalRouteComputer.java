@@ -0,0 +1,344 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Représente un planificateur d'itinéraire incrémental, qui conserve les
+ * arbres de recherche de ses requêtes récentes afin de répondre rapidement à
+ * des requêtes proches, comme celles effectuées lorsqu'un point de passage
+ * est déplacé.
+ * <p>
+ * Un arbre de recherche est soit un arbre partant d'un noeud de départ, soit
+ * un arbre à rebours partant d'un noeud d'arrivée. Une requête dont le noeud
+ * de départ (resp. d'arrivée) est la racine d'un arbre conservé reprend la
+ * recherche A* de cet arbre là où elle s'était arrêtée : puisque
+ * l'heuristique est cohérente, le coût des noeuds visités par une recherche
+ * précédente, même vers une autre cible, est définitif ; seules les
+ * priorités des noeuds découverts doivent être recalculées pour la nouvelle
+ * cible. Lorsqu'aucun arbre ne convient, un nouvel arbre est créé à partir du
+ * noeud d'arrivée si ce dernier termine une requête récente, et à partir du
+ * noeud de départ sinon, en remplacement de l'arbre utilisé le moins
+ * récemment.
+ * <p>
+ * Seules les requêtes locales, dont les noeuds sont proches à vol d'oiseau,
+ * utilisent un arbre conservé, et le nombre de noeuds visités par un arbre
+ * est borné : un arbre qui atteint cette borne est écarté, et la requête qui
+ * l'a atteinte, comme toute requête non locale, est confiée au planificateur
+ * d'itinéraire donné, dont l'état de recherche et le mode sont adaptés aux
+ * longues recherches. La mémoire occupée par les arbres conservés est donc
+ * bornée.
+ * <p>
+ * Cette classe peut être utilisée par plusieurs fils d'exécution : seules
+ * les requêtes utilisant le même arbre sont traitées les unes après les
+ * autres. Un arbre écarté de la liste pendant qu'une requête l'utilise n'est
+ * pas réutilisé par une autre.
+ * <p>
+ * Une recherche peut être abandonnée en cours de route ; l'arbre qu'elle
+ * utilisait reste alors valide, et une requête ultérieure reprend la
+ * recherche là où elle a été abandonnée.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class IncrementalRouteComputer {
+    private static final int DEFAULT_MAX_TREES = 8;
+    private static final int DEFAULT_MAX_TREE_SIZE = 1 << 15;
+    private static final int NO_NODE = -1;
+    // Masque du nombre de noeuds visités entre deux vérifications d'abandon
+    private static final int CANCELLATION_CHECK_MASK = 0xFF;
+
+    private final RouteComputer routeComputer;
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final int maxTrees;
+    // Nombre maximal de noeuds visités par un arbre conservé
+    private final int maxTreeSize;
+    // Arbres conservés, du plus récemment au moins récemment utilisé
+    private final List<SearchTree> trees;
+    // Noeuds d'arrivée des dernières requêtes (tampon circulaire)
+    private final int[] recentEndNodeIds;
+    private int nextRecentEnd;
+
+    /**
+     * Construit un planificateur incrémental utilisant le graphe, la fonction
+     * de coût, les points de repère et l'index des composantes du
+     * planificateur donné, et conservant au plus 8 arbres de recherche de
+     * 32768 noeuds visités chacun.
+     *
+     * @param routeComputer le planificateur d'itinéraire
+     */
+    public IncrementalRouteComputer(RouteComputer routeComputer) {
+        this(routeComputer, DEFAULT_MAX_TREES);
+    }
+
+    /**
+     * Construit un planificateur incrémental utilisant le graphe, la fonction
+     * de coût, les points de repère et l'index des composantes du
+     * planificateur donné, et conservant au plus le nombre donné d'arbres de
+     * recherche de 32768 noeuds visités chacun.
+     *
+     * @param routeComputer le planificateur d'itinéraire
+     * @param maxTrees le nombre maximal d'arbres conservés
+     *
+     * @throws IllegalArgumentException si le nombre d'arbres est inférieur à 1
+     */
+    public IncrementalRouteComputer(RouteComputer routeComputer, int maxTrees) {
+        this(routeComputer, maxTrees, DEFAULT_MAX_TREE_SIZE);
+    }
+
+    // Construit un planificateur incrémental conservant au plus maxTrees
+    // arbres de recherche de maxTreeSize noeuds visités chacun.
+    IncrementalRouteComputer(RouteComputer routeComputer, int maxTrees, int maxTreeSize) {
+        Preconditions.checkArgument(maxTrees >= 1 && maxTreeSize >= 1);
+        this.routeComputer = routeComputer;
+        this.graph = routeComputer.graph();
+        this.costFunction = routeComputer.costFunction();
+        this.maxTrees = maxTrees;
+        this.maxTreeSize = maxTreeSize;
+        this.trees = new ArrayList<>(maxTrees);
+        this.recentEndNodeIds = new int[maxTrees];
+        Arrays.fill(recentEndNodeIds, NO_NODE);
+    }
+
+    /**
+     * Retourne l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     *
+     * @return l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId) {
+        return bestRouteBetween(startNodeId, endNodeId, () -> false);
+    }
+
+    /**
+     * Retourne l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe, en abandonnant la recherche dès que la condition d'abandon
+     * donnée est vraie, p. ex. parce que le résultat n'est plus attendu.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     * @param cancelled la condition d'abandon, évaluée régulièrement pendant
+     * la recherche
+     *
+     * @return l'itinéraire de coût total minimal allant du noeud d'identité
+     * startNodeId au noeud d'identité endNodeId, ou null si aucun itinéraire
+     * n'existe
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques
+     * @throws CancellationException si la recherche a été abandonnée
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId, BooleanSupplier cancelled) {
+        Preconditions.checkArgument(startNodeId != endNodeId);
+        if (!routeComputer.mayReach(startNodeId, endNodeId))
+            return null;
+        if (graph.nodePoint(startNodeId).distanceTo(graph.nodePoint(endNodeId))
+                > RouteComputer.LOCAL_SEARCH_MAX_DISTANCE)
+            return routeComputer.bestRouteBetween(startNodeId, endNodeId, cancelled);
+
+        SearchTree tree = treeFor(startNodeId, endNodeId);
+        synchronized (tree) {
+            if (!tree.isFull()) {
+                Route route = tree.backward
+                        ? searchBackward(tree, startNodeId, cancelled)
+                        : searchForward(tree, endNodeId, cancelled);
+                if (!tree.isFull())
+                    return route;
+                discard(tree);
+                if (route != null)
+                    return route;
+            }
+        }
+        return routeComputer.bestRouteBetween(startNodeId, endNodeId, cancelled);
+    }
+
+    // Retourne le nombre total de noeuds visités par les arbres conservés.
+    int retainedNodeCount() {
+        List<SearchTree> retainedTrees;
+        synchronized (this) {
+            retainedTrees = List.copyOf(trees);
+        }
+        int count = 0;
+        for (SearchTree tree : retainedTrees) {
+            synchronized (tree) {
+                count += tree.settledCount;
+            }
+        }
+        return count;
+    }
+
+    // Retourne l'arbre à utiliser pour la requête donnée, en le créant si
+    // nécessaire, et mémorise son noeud d'arrivée.
+    private synchronized SearchTree treeFor(int startNodeId, int endNodeId) {
+        SearchTree tree = findTree(startNodeId, false);
+        if (tree == null)
+            tree = findTree(endNodeId, true);
+        if (tree == null)
+            tree = newTree(startNodeId, endNodeId);
+
+        boolean recent = false;
+        for (int nodeId : recentEndNodeIds)
+            recent |= nodeId == endNodeId;
+        if (!recent) {
+            recentEndNodeIds[nextRecentEnd] = endNodeId;
+            nextRecentEnd = (nextRecentEnd + 1) % recentEndNodeIds.length;
+        }
+        return tree;
+    }
+
+    // Arbre de recherche conservé, partant de sa racine (à rebours si
+    // backward est vrai) et dirigé vers sa dernière cible, qui n'est modifiée
+    // que par le fil détenant le verrou de l'arbre.
+    private final class SearchTree {
+        private final SearchState state = new SparseSearchState();
+        private final int rootNodeId;
+        private final boolean backward;
+        private int targetNodeId = NO_NODE;
+        private int settledCount;
+
+        SearchTree(int rootNodeId, boolean backward) {
+            this.rootNodeId = rootNodeId;
+            this.backward = backward;
+            state.update(rootNodeId, 0f, 0);
+            state.queue().insertOrDecrease(rootNodeId, 0f);
+        }
+
+        // Retourne vrai ssi l'arbre a visité le nombre maximal de noeuds.
+        boolean isFull() {
+            return settledCount >= maxTreeSize;
+        }
+    }
+
+    // Écarte l'arbre donné de la liste des arbres conservés.
+    private synchronized void discard(SearchTree tree) {
+        trees.remove(tree);
+    }
+
+    // Retourne l'arbre de racine et de sens donnés, en le plaçant en tête de
+    // la liste, ou null s'il n'existe pas.
+    private SearchTree findTree(int rootNodeId, boolean backward) {
+        for (int i = 0; i < trees.size(); i++) {
+            SearchTree tree = trees.get(i);
+            if (tree.rootNodeId == rootNodeId && tree.backward == backward) {
+                trees.add(0, trees.remove(i));
+                return tree;
+            }
+        }
+        return null;
+    }
+
+    // Crée un arbre partant du noeud d'arrivée si ce dernier termine une
+    // requête récente, et du noeud de départ sinon, en écartant l'arbre le
+    // moins récemment utilisé si la liste est pleine.
+    private SearchTree newTree(int startNodeId, int endNodeId) {
+        boolean backward = false;
+        for (int nodeId : recentEndNodeIds)
+            backward |= nodeId == endNodeId;
+
+        if (trees.size() == maxTrees)
+            trees.remove(trees.size() - 1);
+        SearchTree tree = new SearchTree(backward ? endNodeId : startNodeId, backward);
+        trees.add(0, tree);
+        return tree;
+    }
+
+    // Lève CancellationException si la condition d'abandon est vraie, en ne
+    // l'évaluant qu'une fois tous les CANCELLATION_CHECK_MASK + 1 noeuds
+    // visités ; l'arbre, entre deux noeuds visités, reste valide.
+    private static void checkCancelled(int settledCount, BooleanSupplier cancelled) {
+        if ((settledCount & CANCELLATION_CHECK_MASK) == 0 && cancelled.getAsBoolean())
+            throw new CancellationException();
+    }
+
+    private Route searchForward(SearchTree tree, int endNodeId, BooleanSupplier cancelled) {
+        SearchState state = tree.state;
+        NodePriorityQueue queue = state.queue();
+        PointCh endPoint = graph.nodePoint(endNodeId);
+        if (tree.targetNodeId != endNodeId && !state.isSettled(endNodeId)) {
+            queue.replaceKeys(nodeId -> state.cost(nodeId)
+                    + routeComputer.lowerBound(nodeId, endNodeId, endPoint));
+            tree.targetNodeId = endNodeId;
+        }
+
+        for (int settledCount = 0; !state.isSettled(endNodeId) && !queue.isEmpty()
+                && !tree.isFull(); settledCount++) {
+            checkCancelled(settledCount, cancelled);
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+            tree.settledCount += 1;
+
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                double cost = nodeCost + graph.edgeLength(edgeId)
+                        * costFunction.costFactor(nodeId, edgeId);
+
+                if (cost < state.cost(targetNodeId) && !state.isSettled(targetNodeId)) {
+                    state.update(targetNodeId, (float) cost,
+                            RouteComputer.packPredecessor(nodeId, i));
+                    queue.insertOrDecrease(targetNodeId, (float) (cost
+                            + routeComputer.lowerBound(targetNodeId, endNodeId, endPoint)));
+                }
+            }
+        }
+        return state.isSettled(endNodeId)
+                ? routeComputer.shortestItinerary(tree.rootNodeId, endNodeId, state)
+                : null;
+    }
+
+    private Route searchBackward(SearchTree tree, int startNodeId, BooleanSupplier cancelled) {
+        SearchState state = tree.state;
+        NodePriorityQueue queue = state.queue();
+        if (tree.targetNodeId != startNodeId && !state.isSettled(startNodeId)) {
+            queue.replaceKeys(nodeId -> state.cost(nodeId)
+                    + routeComputer.lowerBound(startNodeId, nodeId, graph.nodePoint(nodeId)));
+            tree.targetNodeId = startNodeId;
+        }
+
+        for (int settledCount = 0; !state.isSettled(startNodeId) && !queue.isEmpty()
+                && !tree.isFull(); settledCount++) {
+            checkCancelled(settledCount, cancelled);
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+            tree.settledCount += 1;
+
+            for (int i = 0; i < graph.nodeInDegree(nodeId); i++) {
+                int edgeId = graph.nodeInEdgeId(nodeId, i);
+                int sourceNodeId = graph.nodeInEdgeSourceNodeId(nodeId, i);
+                double cost = nodeCost + graph.edgeLength(edgeId)
+                        * costFunction.costFactor(sourceNodeId, edgeId);
+
+                if (cost < state.cost(sourceNodeId) && !state.isSettled(sourceNodeId)) {
+                    int edgeIndex = edgeId - graph.nodeOutEdgeId(sourceNodeId, 0);
+                    state.update(sourceNodeId, (float) cost,
+                            RouteComputer.packPredecessor(nodeId, edgeIndex));
+                    queue.insertOrDecrease(sourceNodeId, (float) (cost + routeComputer
+                            .lowerBound(startNodeId, sourceNodeId, graph.nodePoint(sourceNodeId))));
+                }
+            }
+        }
+        return state.isSettled(startNodeId)
+                ? routeComputer.backwardItinerary(startNodeId, tree.rootNodeId, state)
+                : null;
+    }
+}
@@ -0,0 +1,31 @@
+package ch.epfl.javelo.routing;
+
+import java.util.BitSet;
+
+/**
+ * Enregistrement représentant une isochrone, c.-à-d. l'ensemble des noeuds
+ * atteignables depuis un noeud de départ sans dépasser une borne donnée.
+ * <p>
+ * Les noeuds sont donnés dans l'ordre croissant de leur coût. La trame des
+ * secteurs contient l'index (au sens de GraphSectors.sectorIndex) de chaque
+ * secteur contenant au moins un noeud atteint.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param sourceNodeId l'identité du noeud de départ
+ * @param nodeIds l'identité de chaque noeud atteint
+ * @param costs le coût (ou la longueur, selon la borne) de chaque noeud atteint
+ * @param sectors la trame des secteurs contenant un noeud atteint
+ */
+public record Isochrone(int sourceNodeId, int[] nodeIds, float[] costs, BitSet sectors) {
+
+    /**
+     * Retourne le nombre de noeuds atteints.
+     *
+     * @return le nombre de noeuds atteints
+     */
+    public int size() {
+        return nodeIds.length;
+    }
+}
@@ -0,0 +1,152 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphSectors;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Représente un calculateur d'isochrones, c.-à-d. des noeuds atteignables
+ * depuis un noeud donné sans dépasser un coût ou une longueur donnés.
+ * <p>
+ * Chaque isochrone est calculée par une recherche de Dijkstra bornée, qui
+ * utilise l'espace de travail propre au fil d'exécution appelant ; le
+ * calculateur peut donc être utilisé simultanément par plusieurs fils.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class IsochroneComputer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    /**
+     * Construit un calculateur d'isochrones pour le graphe et la fonction de
+     * coût donnés.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     */
+    public IsochroneComputer(Graph graph, CostFunction costFunction) {
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.workspaces = ThreadLocal.withInitial(
+                () -> new SearchWorkspace(graph.nodeCount()));
+    }
+
+    /**
+     * Retourne l'isochrone des noeuds atteignables depuis le noeud donné pour
+     * un coût total inférieur ou égal au coût donné.
+     *
+     * @param sourceNodeId l'identité du noeud de départ
+     * @param maxCost le coût maximal
+     *
+     * @return l'isochrone des noeuds atteignables pour le coût donné
+     *
+     * @throws IllegalArgumentException si le coût maximal est négatif
+     */
+    public Isochrone isochrone(int sourceNodeId, double maxCost) {
+        Preconditions.checkArgument(maxCost >= 0);
+        return search(sourceNodeId, maxCost, true);
+    }
+
+    /**
+     * Retourne l'isochrone des noeuds atteignables depuis le noeud donné par
+     * un itinéraire d'une longueur inférieure ou égale à la longueur donnée,
+     * n'empruntant que des arêtes de coût fini ; les coûts de l'isochrone
+     * sont alors des longueurs.
+     *
+     * @param sourceNodeId l'identité du noeud de départ
+     * @param maxLength la longueur maximale, en mètres
+     *
+     * @return l'isochrone des noeuds atteignables pour la longueur donnée
+     *
+     * @throws IllegalArgumentException si la longueur maximale est négative
+     */
+    public Isochrone isochroneByLength(int sourceNodeId, double maxLength) {
+        Preconditions.checkArgument(maxLength >= 0);
+        return search(sourceNodeId, maxLength, false);
+    }
+
+    /**
+     * Retourne les isochrones, pour le coût donné, de chacun des noeuds
+     * donnés, calculées en parallèle avec le nombre de fils d'exécution donné.
+     *
+     * @param sourceNodeIds les identités des noeuds de départ
+     * @param maxCost le coût maximal
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @return les isochrones des noeuds donnés, dans le même ordre
+     *
+     * @throws IllegalArgumentException si le coût maximal est négatif ou si le
+     * nombre de fils est inférieur à 1
+     */
+    public List<Isochrone> isochrones(int[] sourceNodeIds, double maxCost, int parallelism) {
+        Preconditions.checkArgument(maxCost >= 0 && parallelism >= 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> IntStream.of(sourceNodeIds).parallel()
+                    .mapToObj(nodeId -> search(nodeId, maxCost, true))
+                    .toList()).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Recherche de Dijkstra bornée, pondérée par le coût (byCost) ou par la
+    // longueur des arêtes de coût fini.
+    private Isochrone search(int sourceNodeId, double bound, boolean byCost) {
+        // Le coût d'un itinéraire étant au moins égal à sa longueur, une
+        // borne faible garantit une recherche locale.
+        SearchState state = workspaces.get()
+                .state(bound <= RouteComputer.LOCAL_SEARCH_MAX_DISTANCE);
+        NodePriorityQueue queue = state.queue();
+        state.update(sourceNodeId, 0f, 0);
+        queue.insertOrDecrease(sourceNodeId, 0f);
+
+        int[] nodeIds = new int[INITIAL_CAPACITY];
+        float[] costs = new float[INITIAL_CAPACITY];
+        int size = 0;
+        BitSet sectors = new BitSet();
+
+        while (!queue.isEmpty()) {
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+
+            if (size == nodeIds.length) {
+                nodeIds = Arrays.copyOf(nodeIds, 2 * size);
+                costs = Arrays.copyOf(costs, 2 * size);
+            }
+            nodeIds[size] = nodeId;
+            costs[size] = nodeCost;
+            size += 1;
+            sectors.set(GraphSectors.sectorIndex(graph.nodePoint(nodeId)));
+
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                double costFactor = costFunction.costFactor(nodeId, edgeId);
+                if (!byCost)
+                    costFactor = costFactor == Double.POSITIVE_INFINITY ? costFactor : 1;
+                double cost = nodeCost + graph.edgeLength(edgeId) * costFactor;
+
+                if (cost <= bound && cost < state.cost(targetNodeId)
+                        && !state.isSettled(targetNodeId)) {
+                    state.update(targetNodeId, (float) cost, 0);
+                    queue.insertOrDecrease(targetNodeId, (float) cost);
+                }
+            }
+        }
+        return new Isochrone(sourceNodeId, Arrays.copyOf(nodeIds, size),
+                Arrays.copyOf(costs, size), sectors);
+    }
+}
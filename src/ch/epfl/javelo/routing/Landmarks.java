@@ -0,0 +1,352 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphFingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Représente un ensemble de points de repère (« landmarks ») du graphe JaVelo
+ * et les tables de coûts associées, permettant de calculer des bornes
+ * inférieures du coût d'un itinéraire grâce à l'inégalité triangulaire
+ * (méthode ALT).
+ * <p>
+ * Pour chaque noeud et chaque point de repère, les tables donnent le coût
+ * minimal du point de repère au noeud et celui du noeud au point de repère,
+ * pour la fonction de coût utilisée lors de leur calcul ; ils sont stockés
+ * noeud par noeud, de manière à ce que les valeurs nécessaires au calcul de
+ * la borne d'un noeud soient contiguës.
+ * <p>
+ * Le fichier landmarks.bin commence par un en-tête — version du format
+ * (int), empreinte du graphe et de la fonction de coût (long, voir
+ * GraphFingerprint), nombre de noeuds (int), nombre de points de repère
+ * (int) — qui permet de refuser des points de repère obsolètes au
+ * chargement. Il contient ensuite l'identité de chacun d'eux (int), puis les
+ * deux tables de coûts (float), d'abord celle des coûts depuis les points de
+ * repère, puis celle des coûts vers eux.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param nodeIds la mémoire tampon contenant l'identité des points de repère
+ * @param costsFrom la mémoire tampon contenant, pour chaque noeud, le coût
+ * minimal de chaque point de repère à lui
+ * @param costsTo la mémoire tampon contenant, pour chaque noeud, le coût
+ * minimal de lui à chaque point de repère
+ */
+public record Landmarks(IntBuffer nodeIds, FloatBuffer costsFrom, FloatBuffer costsTo) {
+    private static final String FILE_NAME = "landmarks.bin";
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_NODE_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+    private static final int OFFSET_COUNT = OFFSET_NODE_COUNT + Integer.BYTES;
+    private static final int WRITE_CHUNK_BYTES = 1 << 20;
+    // Proportion minimale des noeuds que doit atteindre la recherche depuis le
+    // noeud servant à choisir le premier point de repère.
+    private static final int MIN_REACHED_NODES_DIVISOR = 2;
+    private static final int SEED_CANDIDATES = 8;
+
+    /**
+     * Choisit le nombre donné de points de repère dans le graphe et calcule
+     * leurs tables de coûts pour la fonction de coût donnée, en utilisant le
+     * nombre de fils d'exécution donné.
+     * <p>
+     * Les points de repère sont choisis de proche en proche, chacun étant le
+     * noeud dont le coût depuis le plus proche des points déjà choisis est
+     * maximal ; les tables des coûts vers les points de repère sont calculées
+     * en parallèle, au fur et à mesure de ce choix.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param count le nombre de points de repère
+     * @param parallelism le nombre de fils d'exécution
+     *
+     * @return les points de repère choisis et leurs tables de coûts
+     *
+     * @throws IllegalArgumentException si le nombre de points de repère ou de
+     * fils d'exécution est inférieur à 1, ou si le nombre de points de repère
+     * est supérieur au nombre de noeuds du graphe
+     */
+    public static Landmarks of(Graph graph, CostFunction costFunction, int count, int parallelism) {
+        int nodeCount = graph.nodeCount();
+        Preconditions.checkArgument(count >= 1 && count <= nodeCount && parallelism >= 1);
+
+        float[] costsFrom = new float[count * nodeCount];
+        float[] costsTo = new float[count * nodeCount];
+        int[] nodeIds = new int[count];
+        // Coût depuis le plus proche des points de repère déjà choisis
+        float[] closestCost = new float[nodeCount];
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            SearchState state = new DenseSearchState(nodeCount);
+            costsFromSeed(graph, costFunction, state, closestCost);
+
+            List<Future<?>> backwardSearches = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                int landmark = farthestNode(closestCost);
+                nodeIds[k] = landmark;
+                int index = k;
+                backwardSearches.add(executor.submit(() -> dijkstra(graph, costFunction,
+                        new DenseSearchState(nodeCount), landmark, false, costsTo, index, count)));
+
+                dijkstra(graph, costFunction, state, landmark, true, costsFrom, k, count);
+                for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                    float cost = costsFrom[nodeId * count + k];
+                    closestCost[nodeId] = k == 0 ? cost : Math.min(closestCost[nodeId], cost);
+                }
+            }
+            for (Future<?> search : backwardSearches)
+                search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return new Landmarks(IntBuffer.wrap(nodeIds),
+                FloatBuffer.wrap(costsFrom), FloatBuffer.wrap(costsTo));
+    }
+
+    // Remplit le tableau donné avec les coûts depuis un noeud atteignant une
+    // bonne partie du graphe, de manière à ce que le premier point de repère
+    // ne soit pas choisi dans une petite composante isolée.
+    private static void costsFromSeed(Graph graph, CostFunction costFunction,
+                                      SearchState state, float[] costs) {
+        int nodeCount = graph.nodeCount();
+        int bestReached = -1;
+        for (int i = 0; i < SEED_CANDIDATES; i++) {
+            float[] candidateCosts = new float[nodeCount];
+            int reached = dijkstra(graph, costFunction, state,
+                    (int) ((long) i * nodeCount / SEED_CANDIDATES), true, candidateCosts, 0, 1);
+            if (reached > bestReached) {
+                bestReached = reached;
+                System.arraycopy(candidateCosts, 0, costs, 0, nodeCount);
+            }
+            if (reached >= nodeCount / MIN_REACHED_NODES_DIVISOR)
+                return;
+        }
+    }
+
+    // Retourne l'identité du noeud de coût fini maximal.
+    private static int farthestNode(float[] costs) {
+        int farthest = 0;
+        for (int nodeId = 1; nodeId < costs.length; nodeId++) {
+            if (costs[nodeId] != Float.POSITIVE_INFINITY
+                    && (costs[farthest] == Float.POSITIVE_INFINITY || costs[nodeId] > costs[farthest]))
+                farthest = nodeId;
+        }
+        return farthest;
+    }
+
+    // Calcule les coûts minimaux depuis (forward) ou vers (!forward) le noeud
+    // donné et les stocke dans la colonne index de la table donnée, ayant le
+    // nombre de colonnes donné ; retourne le nombre de noeuds atteints.
+    private static int dijkstra(Graph graph, CostFunction costFunction, SearchState state,
+                                int sourceNodeId, boolean forward,
+                                float[] table, int index, int columns) {
+        state.reset();
+        NodePriorityQueue queue = state.queue();
+        state.update(sourceNodeId, 0f, 0);
+        queue.insertOrDecrease(sourceNodeId, 0f);
+        int reached = 0;
+
+        while (!queue.isEmpty()) {
+            int nodeId = queue.removeMin();
+            float nodeCost = state.cost(nodeId);
+            state.settle(nodeId);
+            reached += 1;
+
+            int degree = forward ? graph.nodeOutDegree(nodeId) : graph.nodeInDegree(nodeId);
+            for (int i = 0; i < degree; i++) {
+                int edgeId, otherNodeId;
+                double costFactor;
+                if (forward) {
+                    edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    otherNodeId = graph.edgeTargetNodeId(edgeId);
+                    costFactor = costFunction.costFactor(nodeId, edgeId);
+                } else {
+                    edgeId = graph.nodeInEdgeId(nodeId, i);
+                    otherNodeId = graph.nodeInEdgeSourceNodeId(nodeId, i);
+                    costFactor = costFunction.costFactor(otherNodeId, edgeId);
+                }
+                double cost = nodeCost + graph.edgeLength(edgeId) * costFactor;
+                if (cost < state.cost(otherNodeId) && !state.isSettled(otherNodeId)) {
+                    state.update(otherNodeId, (float) cost, 0);
+                    queue.insertOrDecrease(otherNodeId, (float) cost);
+                }
+            }
+        }
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++)
+            table[nodeId * columns + index] = state.cost(nodeId);
+        return reached;
+    }
+
+    /**
+     * Retourne les points de repère stockés dans le fichier landmarks.bin du
+     * répertoire du graphe donné, qui doivent avoir été calculés pour ce
+     * graphe et pour la fonction de coût d'identité donnée ; les tables de
+     * coûts sont projetées en mémoire.
+     *
+     * @param basePath le chemin du répertoire du graphe, où se trouve le fichier
+     * @param graph le graphe stocké dans ce répertoire
+     * @param costFunctionIdentity l'identité de la fonction de coût
+     *
+     * @return les points de repère stockés dans le répertoire donné
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si le
+     * fichier n'existe pas, ou si les points de repère sont obsolètes, c.-à-d.
+     * que leur version, leur empreinte, leur nombre de noeuds ou la taille du
+     * fichier diffère
+     */
+    public static Landmarks loadFrom(Path basePath, Graph graph, String costFunctionIdentity)
+            throws IOException {
+        long fingerprint = GraphFingerprint.of(basePath, costFunctionIdentity);
+        int nodeCount = graph.nodeCount();
+        Path filePath = basePath.resolve(FILE_NAME);
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("stale landmarks " + filePath);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int count = header.getInt(OFFSET_COUNT);
+            long idsBytes = (long) count * Integer.BYTES;
+            long tableBytes = (long) count * nodeCount * Float.BYTES;
+            if (count < 1 || count > nodeCount
+                    || channel.size() != HEADER_BYTES + idsBytes + 2 * tableBytes
+                    || header.getInt(0) != FORMAT_VERSION
+                    || header.getLong(OFFSET_FINGERPRINT) != fingerprint
+                    || header.getInt(OFFSET_NODE_COUNT) != nodeCount)
+                throw new IOException("stale landmarks " + filePath);
+
+            // Chaque table est projetée séparément, leur taille totale pouvant
+            // dépasser celle d'une seule projection.
+            FileChannel.MapMode mode = FileChannel.MapMode.READ_ONLY;
+            long firstTable = HEADER_BYTES + idsBytes;
+            return new Landmarks(
+                    channel.map(mode, HEADER_BYTES, idsBytes).asIntBuffer(),
+                    channel.map(mode, firstTable, tableBytes).asFloatBuffer(),
+                    channel.map(mode, firstTable + tableBytes, tableBytes).asFloatBuffer());
+        }
+    }
+
+    /**
+     * Écrit les points de repère dans le fichier landmarks.bin du répertoire
+     * du graphe pour lequel ils ont été calculés.
+     *
+     * @param basePath le chemin du répertoire du graphe
+     * @param costFunctionIdentity l'identité de la fonction de coût avec
+     * laquelle les points de repère ont été calculés
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path basePath, String costFunctionIdentity) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + count() * Integer.BYTES)
+                .putInt(FORMAT_VERSION)
+                .putLong(GraphFingerprint.of(basePath, costFunctionIdentity))
+                .putInt(nodeCount())
+                .putInt(count());
+        header.asIntBuffer().put(nodeIds.duplicate().clear());
+        header.clear();
+        try (FileChannel channel = FileChannel.open(basePath.resolve(FILE_NAME),
+                CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            // Les tables, dont la taille totale peut dépasser celle d'un
+            // tableau, sont écrites par blocs.
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_BYTES);
+            writeTable(channel, costsFrom, chunk);
+            writeTable(channel, costsTo, chunk);
+        }
+    }
+
+    private static void writeTable(FileChannel channel, FloatBuffer table, ByteBuffer chunk)
+            throws IOException {
+        FloatBuffer remaining = table.duplicate().clear();
+        while (remaining.hasRemaining()) {
+            int floatsCount = Math.min(chunk.capacity() / Float.BYTES, remaining.remaining());
+            chunk.clear();
+            chunk.asFloatBuffer().put(remaining.slice(remaining.position(), floatsCount));
+            remaining.position(remaining.position() + floatsCount);
+            chunk.limit(floatsCount * Float.BYTES);
+            while (chunk.hasRemaining())
+                channel.write(chunk);
+        }
+    }
+
+    /**
+     * Retourne le nombre de noeuds couverts par les tables de coûts.
+     *
+     * @return le nombre de noeuds couverts par les tables de coûts
+     */
+    public int nodeCount() {
+        return costsFrom.capacity() / count();
+    }
+
+    /**
+     * Retourne le nombre de points de repère.
+     *
+     * @return le nombre de points de repère
+     */
+    public int count() {
+        return nodeIds.capacity();
+    }
+
+    /**
+     * Retourne l'identité du landmarkIndex-ième point de repère.
+     *
+     * @param landmarkIndex l'indice du point de repère
+     *
+     * @return l'identité du landmarkIndex-ième point de repère
+     */
+    public int nodeId(int landmarkIndex) {
+        return nodeIds.get(landmarkIndex);
+    }
+
+    /**
+     * Retourne une borne inférieure du coût minimal d'un itinéraire allant du
+     * noeud d'identité fromNodeId au noeud d'identité toNodeId, obtenue par
+     * l'inégalité triangulaire ; elle vaut 0 si aucun point de repère ne
+     * permet de borner ce coût.
+     *
+     * @param fromNodeId l'identité du noeud de départ
+     * @param toNodeId l'identité du noeud d'arrivée
+     *
+     * @return une borne inférieure du coût minimal d'un itinéraire allant du
+     * noeud d'identité fromNodeId au noeud d'identité toNodeId
+     */
+    public double lowerBound(int fromNodeId, int toNodeId) {
+        int count = count();
+        int from = fromNodeId * count;
+        int to = toNodeId * count;
+        double bound = 0;
+        for (int k = 0; k < count; k++) {
+            // c(L, to) - c(L, from) et c(from, L) - c(to, L) sont des bornes
+            // inférieures de c(from, to) ; une borne infinie ou indéterminée
+            // (noeuds non atteints) est ignorée.
+            double viaFrom = (double) costsFrom.get(to + k) - costsFrom.get(from + k);
+            double viaTo = (double) costsTo.get(from + k) - costsTo.get(to + k);
+            if (viaFrom > bound && viaFrom != Double.POSITIVE_INFINITY)
+                bound = viaFrom;
+            if (viaTo > bound && viaTo != Double.POSITIVE_INFINITY)
+                bound = viaTo;
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,14 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Enregistrement représentant un couple de noeuds de départ et d'arrivée
+ * d'une requête d'itinéraire.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param startNodeId l'identité du noeud de départ
+ * @param endNodeId l'identité du noeud d'arrivée
+ */
+public record NodePair(int startNodeId, int endNodeId) {
+}
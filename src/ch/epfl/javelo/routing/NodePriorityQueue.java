@@ -0,0 +1,187 @@
+package ch.epfl.javelo.routing;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Représente une file de priorité (tas binaire minimum) de noeuds du graphe,
+ * stockée dans des tableaux de types primitifs afin qu'aucun objet ne soit
+ * alloué lors de l'insertion ou de l'extraction d'un noeud.
+ * <p>
+ * La position de chaque noeud dans le tas est mémorisée dans l'état de
+ * recherche associé, ce qui permet de diminuer la priorité d'un noeud déjà
+ * présent plutôt que de l'insérer une seconde fois.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class NodePriorityQueue {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] nodeIds;
+    private float[] keys;
+    private final SearchState positions;
+    private int size;
+
+    /**
+     * Construit une file de priorité vide, stockant la position de ses noeuds
+     * dans l'état de recherche donné.
+     *
+     * @param positions l'état de recherche mémorisant la position des noeuds
+     */
+    NodePriorityQueue(SearchState positions) {
+        this.nodeIds = new int[INITIAL_CAPACITY];
+        this.keys = new float[INITIAL_CAPACITY];
+        this.positions = positions;
+    }
+
+    /**
+     * Retourne vrai ssi la file est vide.
+     *
+     * @return vrai ssi la file est vide
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retourne le nombre de noeuds contenus dans la file.
+     *
+     * @return le nombre de noeuds contenus dans la file
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retourne vrai ssi le noeud d'identité donnée se trouve dans la file.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return vrai ssi le noeud d'identité donnée se trouve dans la file
+     */
+    boolean contains(int nodeId) {
+        return positions.queuePosition(nodeId) >= 0;
+    }
+
+    /**
+     * Retourne la plus petite priorité de la file.
+     *
+     * @return la plus petite priorité de la file
+     *
+     * @throws IllegalStateException si la file est vide
+     */
+    float minKey() {
+        if (size == 0) throw new IllegalStateException();
+        return keys[0];
+    }
+
+    /**
+     * Ajoute le noeud d'identité donnée à la file avec la priorité donnée, ou
+     * diminue sa priorité s'il s'y trouve déjà avec une priorité plus élevée.
+     *
+     * @param nodeId l'identité du noeud
+     * @param key la priorité du noeud
+     */
+    void insertOrDecrease(int nodeId, float key) {
+        int position = positions.queuePosition(nodeId);
+        if (position < 0) {
+            if (size == nodeIds.length) grow();
+            position = size++;
+        } else if (key >= keys[position]) {
+            return;
+        }
+        siftUp(position, nodeId, key);
+    }
+
+    /**
+     * Retire de la file le noeud de plus petite priorité et retourne son identité.
+     *
+     * @return l'identité du noeud de plus petite priorité
+     *
+     * @throws IllegalStateException si la file est vide
+     */
+    int removeMin() {
+        if (size == 0) throw new IllegalStateException();
+        int minNodeId = nodeIds[0];
+        positions.setQueuePosition(minNodeId, SearchState.NOT_IN_QUEUE);
+        size -= 1;
+        if (size > 0)
+            siftDown(0, nodeIds[size], keys[size]);
+        return minNodeId;
+    }
+
+    /**
+     * Remplace la priorité de chacun des noeuds de la file par celle que lui
+     * associe la fonction donnée, puis rétablit l'ordre du tas, en un temps
+     * proportionnel au nombre de noeuds qu'elle contient.
+     *
+     * @param keyFunction la fonction associant sa nouvelle priorité à
+     * l'identité d'un noeud
+     */
+    void replaceKeys(IntToDoubleFunction keyFunction) {
+        for (int i = 0; i < size; i++)
+            keys[i] = (float) keyFunction.applyAsDouble(nodeIds[i]);
+        for (int i = (size >>> 1) - 1; i >= 0; i--)
+            siftDown(i, nodeIds[i], keys[i]);
+    }
+
+    /**
+     * Vide la file, en un temps proportionnel au nombre de noeuds qu'elle contient.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++)
+            positions.setQueuePosition(nodeIds[i], SearchState.NOT_IN_QUEUE);
+        size = 0;
+    }
+
+    /**
+     * Vide la file en temps constant, sans mettre à jour la position des
+     * noeuds qu'elle contient ; n'est correcte que si ces positions sont
+     * invalidées par ailleurs, comme lors de la réinitialisation de l'état
+     * de recherche associé.
+     */
+    void discard() {
+        size = 0;
+    }
+
+    // Fait remonter le noeud donné depuis la position donnée jusqu'à sa place.
+    private void siftUp(int position, int nodeId, float key) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+            place(position, nodeIds[parent], keys[parent]);
+            position = parent;
+        }
+        place(position, nodeId, key);
+    }
+
+    // Fait descendre le noeud donné depuis la position donnée jusqu'à sa place.
+    private void siftDown(int position, int nodeId, float key) {
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child])
+                child = right;
+            if (key <= keys[child])
+                break;
+            place(position, nodeIds[child], keys[child]);
+            position = child;
+        }
+        place(position, nodeId, key);
+    }
+
+    private void place(int position, int nodeId, float key) {
+        nodeIds[position] = nodeId;
+        keys[position] = key;
+        positions.setQueuePosition(nodeId, position);
+    }
+
+    // Double la capacité des tableaux du tas.
+    private void grow() {
+        nodeIds = Arrays.copyOf(nodeIds, 2 * nodeIds.length);
+        keys = Arrays.copyOf(keys, nodeIds.length);
+    }
+}
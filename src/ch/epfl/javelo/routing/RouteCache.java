@@ -0,0 +1,497 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Représente un cache d'itinéraires simples, identifiés par leurs noeuds de
+ * départ et d'arrivée et par l'identité (choisie par l'appelant) de la
+ * fonction de coût ayant servi à les calculer.
+ * <p>
+ * Un itinéraire n'est pas stocké sous forme d'objets, mais de la suite des
+ * identités de ses arêtes, à partir de laquelle il est reconstitué à chaque
+ * accès. Le cache est borné par une estimation de la mémoire occupée par ces
+ * suites plutôt que par leur nombre ; lorsque cette borne est dépassée, des
+ * itinéraires sont évincés selon l'algorithme de l'horloge, qui épargne ceux
+ * ayant été lus depuis son dernier passage.
+ * <p>
+ * Le cache est divisé en segments indépendants, chacun protégé par son propre
+ * verrou et doté d'une table de hachage à adressage ouvert dont les clés sont
+ * des entiers de type long ; plusieurs fils d'exécution peuvent donc
+ * l'utiliser simultanément. Il peut être écrit dans un fichier puis rechargé,
+ * à condition que l'empreinte du graphe et des fonctions de coût (voir
+ * GraphFingerprint), donnée par l'appelant, n'ait pas changé entre-temps.
+ * <p>
+ * Dans le fichier, on trouve la version du format (int), l'empreinte (long)
+ * et le nombre d'itinéraires (int), puis, pour chaque itinéraire, l'identité
+ * de la fonction de coût, les identités des noeuds de départ et d'arrivée,
+ * le nombre d'arêtes et les identités de celles-ci (int).
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public final class RouteCache {
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final int OFFSET_FINGERPRINT = Integer.BYTES;
+    private static final int OFFSET_ENTRY_COUNT = OFFSET_FINGERPRINT + Long.BYTES;
+    private static final int ENTRY_HEADER_INTS = 4;
+    private static final int SEGMENT_COUNT = 16;
+    // Estimation de la mémoire occupée par un itinéraire, hors identités de
+    // ses arêtes : emplacement dans la table et en-tête du tableau.
+    private static final int ENTRY_OVERHEAD_BYTES = 40;
+
+    private final Graph graph;
+    private final long maxWeight;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Construit un cache vide pour le graphe donné, occupant au plus environ
+     * le nombre d'octets donné.
+     *
+     * @param graph le graphe
+     * @param maxWeight le nombre maximal d'octets occupés par les itinéraires
+     *
+     * @throws IllegalArgumentException si le nombre d'octets n'est pas
+     * strictement positif
+     */
+    public RouteCache(Graph graph, long maxWeight) {
+        Preconditions.checkArgument(maxWeight > 0);
+        this.graph = graph;
+        this.maxWeight = maxWeight;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++)
+            segments[i] = new Segment(Math.max(1, maxWeight / SEGMENT_COUNT));
+    }
+
+    /**
+     * Retourne l'itinéraire allant du noeud de départ au noeud d'arrivée
+     * donnés, calculé avec la fonction de coût d'identité donnée, ou null
+     * s'il ne se trouve pas dans le cache.
+     *
+     * @param costFunctionId l'identité de la fonction de coût
+     * @param startNodeId l'identité du noeud de départ
+     * @param endNodeId l'identité du noeud d'arrivée
+     *
+     * @return l'itinéraire, ou null s'il ne se trouve pas dans le cache
+     */
+    public Route get(int costFunctionId, int startNodeId, int endNodeId) {
+        long key = key(startNodeId, endNodeId);
+        int[] edgeIds = segment(key, costFunctionId).get(key, costFunctionId);
+        if (edgeIds == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return route(startNodeId, edgeIds);
+    }
+
+    /**
+     * Ajoute au cache l'itinéraire donné, allant du noeud de départ au noeud
+     * d'arrivée donnés et calculé avec la fonction de coût d'identité donnée,
+     * en remplaçant celui qui s'y trouvait éventuellement.
+     * <p>
+     * Les arêtes de l'itinéraire sont retrouvées dans le graphe d'après leurs
+     * noeuds et leur longueur.
+     *
+     * @param costFunctionId l'identité de la fonction de coût
+     * @param startNodeId l'identité du noeud de départ
+     * @param endNodeId l'identité du noeud d'arrivée
+     * @param route l'itinéraire
+     *
+     * @throws IllegalArgumentException si l'itinéraire ne va pas du noeud de
+     * départ au noeud d'arrivée, ou si l'une de ses arêtes n'appartient pas au
+     * graphe
+     */
+    public void put(int costFunctionId, int startNodeId, int endNodeId, Route route) {
+        List<Edge> edges = route.edges();
+        int[] edgeIds = new int[edges.size()];
+        int nodeId = startNodeId;
+        for (int i = 0; i < edgeIds.length; i++) {
+            Edge edge = edges.get(i);
+            Preconditions.checkArgument(edge.fromNodeId() == nodeId);
+            edgeIds[i] = edgeId(edge);
+            nodeId = edge.toNodeId();
+        }
+        Preconditions.checkArgument(nodeId == endNodeId);
+        long key = key(startNodeId, endNodeId);
+        segment(key, costFunctionId).put(key, costFunctionId, edgeIds);
+    }
+
+    /**
+     * Retourne le nombre d'itinéraires contenus dans le cache.
+     *
+     * @return le nombre d'itinéraires contenus dans le cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Retourne l'estimation du nombre d'octets occupés par les itinéraires du
+     * cache.
+     *
+     * @return l'estimation du nombre d'octets occupés par les itinéraires
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Retourne le nombre maximal d'octets occupés par les itinéraires.
+     *
+     * @return le nombre maximal d'octets occupés par les itinéraires
+     */
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Retourne le nombre d'appels à get ayant trouvé leur itinéraire.
+     *
+     * @return le nombre d'appels à get ayant trouvé leur itinéraire
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Retourne le nombre d'appels à get n'ayant pas trouvé leur itinéraire.
+     *
+     * @return le nombre d'appels à get n'ayant pas trouvé leur itinéraire
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Retourne le nombre d'itinéraires évincés du cache.
+     *
+     * @return le nombre d'itinéraires évincés du cache
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Écrit le contenu du cache dans le fichier donné, de manière atomique,
+     * avec l'empreinte donnée.
+     *
+     * @param filePath le chemin du fichier
+     * @param fingerprint l'empreinte du graphe et des fonctions de coût
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path filePath, long fingerprint) throws IOException {
+        List<int[]> entries = new ArrayList<>();
+        int intCount = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.edgeIds.length; slot++) {
+                    int[] edgeIds = segment.edgeIds[slot];
+                    if (edgeIds == null) continue;
+                    long key = segment.keys[slot];
+                    entries.add(new int[]{segment.costFunctionIds[slot],
+                            (int) (key >>> Integer.SIZE), (int) key});
+                    entries.add(edgeIds);
+                    intCount += ENTRY_HEADER_INTS + edgeIds.length;
+                }
+            }
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + intCount * Integer.BYTES)
+                .putInt(FORMAT_VERSION)
+                .putLong(fingerprint)
+                .putInt(entries.size() / 2);
+        IntBuffer ints = bytes.asIntBuffer();
+        bytes.clear();
+        for (int i = 0; i < entries.size(); i += 2) {
+            int[] edgeIds = entries.get(i + 1);
+            ints.put(entries.get(i)).put(edgeIds.length).put(edgeIds);
+        }
+        // On écrit dans un fichier temporaire que l'on renomme ensuite, de
+        // manière à ce qu'un autre processus ne lise jamais un fichier partiel.
+        Path directory = filePath.toAbsolutePath().getParent();
+        Path tmpPath = Files.createTempFile(directory, "routes", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpPath, WRITE, TRUNCATE_EXISTING)) {
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+            Files.move(tmpPath, filePath, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Ajoute au cache les itinéraires du fichier donné, en ignorant ceux qui
+     * ne forment pas un chemin du graphe allant de leur noeud de départ à leur
+     * noeud d'arrivée ; ignore le fichier entier si sa version ou son
+     * empreinte diffère, p. ex. parce que le graphe a été remplacé ou que
+     * l'une des fonctions de coût a changé.
+     *
+     * @param filePath le chemin du fichier
+     * @param fingerprint l'empreinte du graphe et des fonctions de coût
+     *
+     * @return le nombre d'itinéraires ajoutés au cache
+     *
+     * @throws IOException en cas d'erreur d'entrée/sortie, p. ex. si le
+     * fichier n'existe pas
+     */
+    public int loadFrom(Path filePath, long fingerprint) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != FORMAT_VERSION
+                || buffer.getLong(OFFSET_FINGERPRINT) != fingerprint)
+            return 0;
+
+        int entryCount = buffer.getInt(OFFSET_ENTRY_COUNT);
+        IntBuffer ints = buffer.position(HEADER_BYTES).asIntBuffer();
+        int position = 0;
+        int loaded = 0;
+        for (int i = 0; i < entryCount && position + ENTRY_HEADER_INTS <= ints.capacity(); i++) {
+            int costFunctionId = ints.get(position);
+            int startNodeId = ints.get(position + 1);
+            int endNodeId = ints.get(position + 2);
+            int edgeCount = ints.get(position + 3);
+            position += ENTRY_HEADER_INTS;
+            if (edgeCount < 0 || edgeCount > ints.capacity() - position)
+                break;
+            int[] edgeIds = new int[edgeCount];
+            ints.get(position, edgeIds);
+            position += edgeCount;
+
+            if (isPath(startNodeId, endNodeId, edgeIds)) {
+                long key = key(startNodeId, endNodeId);
+                segment(key, costFunctionId).put(key, costFunctionId, edgeIds);
+                loaded += 1;
+            }
+        }
+        return loaded;
+    }
+
+    // Retourne vrai ssi les arêtes données forment un chemin du graphe allant
+    // du noeud de départ au noeud d'arrivée.
+    private boolean isPath(int startNodeId, int endNodeId, int[] edgeIds) {
+        if (startNodeId < 0 || startNodeId >= graph.nodeCount())
+            return false;
+        int nodeId = startNodeId;
+        for (int edgeId : edgeIds) {
+            int degree = graph.nodeOutDegree(nodeId);
+            if (degree == 0) return false;
+            int firstEdgeId = graph.nodeOutEdgeId(nodeId, 0);
+            if (edgeId < firstEdgeId || edgeId >= firstEdgeId + degree) return false;
+            nodeId = graph.edgeTargetNodeId(edgeId);
+        }
+        return nodeId == endNodeId && edgeIds.length > 0;
+    }
+
+    // Reconstitue l'itinéraire formé des arêtes données.
+    private Route route(int startNodeId, int[] edgeIds) {
+        List<Edge> edges = new ArrayList<>(edgeIds.length);
+        int fromNodeId = startNodeId;
+        for (int edgeId : edgeIds) {
+            int toNodeId = graph.edgeTargetNodeId(edgeId);
+            edges.add(Edge.of(graph, edgeId, fromNodeId, toNodeId));
+            fromNodeId = toNodeId;
+        }
+        return new SingleRoute(edges);
+    }
+
+    // Retourne l'identité de l'arête sortant du noeud de départ de l'arête
+    // donnée qui mène à son noeud d'arrivée et a la même longueur.
+    private int edgeId(Edge edge) {
+        int fromNodeId = edge.fromNodeId();
+        for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++) {
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, i);
+            if (graph.edgeTargetNodeId(edgeId) == edge.toNodeId()
+                    && graph.edgeLength(edgeId) == edge.length())
+                return edgeId;
+        }
+        throw new IllegalArgumentException();
+    }
+
+    private static long key(int startNodeId, int endNodeId) {
+        return ((long) startNodeId << Integer.SIZE) | Integer.toUnsignedLong(endNodeId);
+    }
+
+    private static int hash(long key, int costFunctionId) {
+        long h = (key ^ ((long) costFunctionId << 17)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> Integer.SIZE));
+    }
+
+    private Segment segment(long key, int costFunctionId) {
+        return segments[(hash(key, costFunctionId) >>> 28) & (SEGMENT_COUNT - 1)];
+    }
+
+    // Segment du cache : table de hachage à adressage ouvert (sondage
+    // linéaire), dont les emplacements vides ont des arêtes nulles, et
+    // éviction par l'algorithme de l'horloge.
+    private final class Segment {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final long maxWeight;
+        private long[] keys;
+        private int[] costFunctionIds;
+        private int[][] edgeIds;
+        private boolean[] referenced;
+        private int size;
+        private long weight;
+        private int clockHand;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            allocate(INITIAL_CAPACITY);
+        }
+
+        synchronized int[] get(long key, int costFunctionId) {
+            int slot = find(key, costFunctionId);
+            if (slot < 0) return null;
+            referenced[slot] = true;
+            return edgeIds[slot];
+        }
+
+        synchronized void put(long key, int costFunctionId, int[] routeEdgeIds) {
+            int slot = find(key, costFunctionId);
+            if (slot >= 0) {
+                weight += weight(routeEdgeIds) - weight(edgeIds[slot]);
+                edgeIds[slot] = routeEdgeIds;
+            } else {
+                if (2 * (size + 1) > keys.length)
+                    grow();
+                slot = emptySlot(key, costFunctionId);
+                keys[slot] = key;
+                costFunctionIds[slot] = costFunctionId;
+                edgeIds[slot] = routeEdgeIds;
+                referenced[slot] = false;
+                size += 1;
+                weight += weight(routeEdgeIds);
+            }
+            evict(slot);
+        }
+
+        // Évince des itinéraires autres que celui de l'emplacement donné
+        // jusqu'à ce que la borne soit respectée.
+        private void evict(int protectedSlot) {
+            while (weight > maxWeight && size > 1) {
+                clockHand &= keys.length - 1;
+                int[] candidate = edgeIds[clockHand];
+                if (candidate == null || clockHand == protectedSlot) {
+                    clockHand += 1;
+                } else if (referenced[clockHand]) {
+                    referenced[clockHand] = false;
+                    clockHand += 1;
+                } else {
+                    weight -= weight(candidate);
+                    size -= 1;
+                    evictions.increment();
+                    // L'emplacement de l'itinéraire protégé peut être décalé
+                    protectedSlot = remove(clockHand, protectedSlot);
+                }
+            }
+        }
+
+        private int find(long key, int costFunctionId) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key, costFunctionId) & mask; edgeIds[slot] != null;
+                 slot = (slot + 1) & mask) {
+                if (keys[slot] == key && costFunctionIds[slot] == costFunctionId)
+                    return slot;
+            }
+            return -1;
+        }
+
+        private int emptySlot(long key, int costFunctionId) {
+            int mask = keys.length - 1;
+            int slot = hash(key, costFunctionId) & mask;
+            while (edgeIds[slot] != null)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        // Vide l'emplacement donné en y ramenant les entrées suivantes qui
+        // doivent l'être pour rester accessibles (suppression par décalage), et
+        // retourne le nouvel emplacement de l'entrée située en trackedSlot.
+        private int remove(int slot, int trackedSlot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; edgeIds[next] != null; next = (next + 1) & mask) {
+                int home = hash(keys[next], costFunctionIds[next]) & mask;
+                // L'entrée est déplacée si son emplacement d'origine ne se
+                // trouve pas (circulairement) entre le trou et elle.
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    costFunctionIds[hole] = costFunctionIds[next];
+                    edgeIds[hole] = edgeIds[next];
+                    referenced[hole] = referenced[next];
+                    if (trackedSlot == next) trackedSlot = hole;
+                    hole = next;
+                }
+            }
+            edgeIds[hole] = null;
+            return trackedSlot;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            costFunctionIds = new int[capacity];
+            edgeIds = new int[capacity][];
+            referenced = new boolean[capacity];
+        }
+
+        // Double la capacité de la table et y réinsère les entrées.
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCostFunctionIds = costFunctionIds;
+            int[][] oldEdgeIds = edgeIds;
+            boolean[] oldReferenced = referenced;
+            allocate(2 * oldKeys.length);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldEdgeIds[i] == null) continue;
+                int slot = emptySlot(oldKeys[i], oldCostFunctionIds[i]);
+                keys[slot] = oldKeys[i];
+                costFunctionIds[slot] = oldCostFunctionIds[i];
+                edgeIds[slot] = oldEdgeIds[i];
+                referenced[slot] = oldReferenced[i];
+            }
+        }
+
+        private static long weight(int[] edgeIds) {
+            return ENTRY_OVERHEAD_BYTES + (long) edgeIds.length * Integer.BYTES;
+        }
+    }
+}
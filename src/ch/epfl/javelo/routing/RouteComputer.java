@@ -1,11 +1,12 @@
 package ch.epfl.javelo.routing;
 
-import ch.epfl.javelo.Bits;
 import ch.epfl.javelo.Preconditions;
 import ch.epfl.javelo.data.Graph;
 import ch.epfl.javelo.projection.PointCh;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 import static ch.epfl.javelo.routing.Edge.of;
 
@@ -18,22 +19,166 @@ import static ch.epfl.javelo.routing.Edge.of;
 public final class RouteComputer {
     private final Graph graph;
     private final CostFunction costFunction;
-    private static final int START_POSITION = 0;
-    private static final int OFFSET_EDGE = 4 + START_POSITION;
-    private static final int NODE_BIT_RANGE_LENGTH = 28;
-    private static final float VISITED_NODE = Float.NEGATIVE_INFINITY;
-    private static final float UNVISITED_NODE = Float.POSITIVE_INFINITY;
+    // Distance à vol d'oiseau (en mètres) en deçà de laquelle une recherche
+    // est considérée comme locale et utilise un état de recherche creux.
+    static final double LOCAL_SEARCH_MAX_DISTANCE = 2_000;
+    private final SearchMode searchMode;
+    // Points de repère utilisés pour renforcer l'heuristique, ou null
+    private final Landmarks landmarks;
+    // Index des composantes permettant de rejeter les requêtes impossibles, ou null
+    private final ComponentIndex components;
+    private final ThreadLocal<SearchWorkspace> workspaces;
 
     /**
      * Construit un planificateur d'itinéraire pour le graphe et la fonction
-     * de coût donnés.
+     * de coût donnés, effectuant des recherches unidirectionnelles.
      *
      * @param graph le graphe
      * @param costFunction la fonction de coût
      */
     public RouteComputer(Graph graph, CostFunction costFunction) {
+        this(graph, costFunction, SearchMode.UNIDIRECTIONAL);
+    }
+
+    /**
+     * Construit un planificateur d'itinéraire pour le graphe, la fonction de
+     * coût et le mode de recherche donnés.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param searchMode le mode de recherche
+     */
+    public RouteComputer(Graph graph, CostFunction costFunction, SearchMode searchMode) {
+        this(graph, costFunction, searchMode, null);
+    }
+
+    /**
+     * Construit un planificateur d'itinéraire pour le graphe, la fonction de
+     * coût et le mode de recherche donnés, dont l'heuristique est la plus
+     * grande des bornes inférieures données par la distance à vol d'oiseau et
+     * par les points de repère donnés (méthode ALT).
+     * <p>
+     * Les tables des points de repère doivent avoir été calculées pour la
+     * même fonction de coût, faute de quoi les itinéraires retournés peuvent
+     * ne pas être optimaux.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param searchMode le mode de recherche
+     * @param landmarks les points de repère, ou null pour n'utiliser que la
+     * distance à vol d'oiseau
+     */
+    public RouteComputer(Graph graph, CostFunction costFunction, SearchMode searchMode,
+                         Landmarks landmarks) {
+        this(graph, costFunction, searchMode, landmarks, null);
+    }
+
+    /**
+     * Construit un planificateur d'itinéraire pour le graphe, la fonction de
+     * coût, le mode de recherche et les points de repère donnés, qui consulte
+     * l'index des composantes donné afin de retourner immédiatement null
+     * lorsqu'aucun itinéraire ne peut exister.
+     * <p>
+     * L'index des composantes doit avoir été calculé pour la même fonction
+     * de coût, faute de quoi des itinéraires existants peuvent être ignorés.
+     *
+     * @param graph le graphe
+     * @param costFunction la fonction de coût
+     * @param searchMode le mode de recherche
+     * @param landmarks les points de repère, ou null pour n'utiliser que la
+     * distance à vol d'oiseau
+     * @param components l'index des composantes, ou null
+     */
+    public RouteComputer(Graph graph, CostFunction costFunction, SearchMode searchMode,
+                         Landmarks landmarks, ComponentIndex components) {
         this.graph = graph;
         this.costFunction = costFunction;
+        this.searchMode = searchMode;
+        this.landmarks = landmarks;
+        this.components = components;
+        this.workspaces = ThreadLocal.withInitial(
+                () -> new SearchWorkspace(graph.nodeCount()));
+    }
+
+    /**
+     * Retourne le graphe du planificateur.
+     *
+     * @return le graphe du planificateur
+     */
+    public Graph graph() {
+        return graph;
+    }
+
+    /**
+     * Retourne la fonction de coût du planificateur.
+     *
+     * @return la fonction de coût du planificateur
+     */
+    CostFunction costFunction() {
+        return costFunction;
+    }
+
+    /**
+     * Retourne faux si l'index des composantes du planificateur, s'il en a
+     * un, garantit qu'aucun itinéraire ne mène d'un noeud à l'autre.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     *
+     * @return faux si aucun itinéraire ne peut mener d'un noeud à l'autre
+     */
+    boolean mayReach(int startNodeId, int endNodeId) {
+        return components == null || components.mayReach(startNodeId, endNodeId);
+    }
+
+    /**
+     * Retourne le prédécesseur empaqueté formé de l'identité du noeud donné
+     * et de l'indice donné d'une arête parmi celles sortant d'un noeud.
+     *
+     * @param nodeId l'identité du noeud
+     * @param edgeIndex l'indice de l'arête
+     *
+     * @return le prédécesseur empaqueté
+     */
+    static long packPredecessor(int nodeId, int edgeIndex) {
+        // On empaquette l'identité du noeud sur les 32 bits de poids le plus
+        // fort et l'indice de l'arête sur les 32 autres, de sorte qu'aucun
+        // des deux ne soit limité par la taille de l'autre.
+        return ((long) nodeId << Integer.SIZE) | Integer.toUnsignedLong(edgeIndex);
+    }
+
+    /**
+     * Retourne l'identité du noeud contenue dans le prédécesseur empaqueté
+     * donné.
+     *
+     * @param predecessor le prédécesseur empaqueté
+     *
+     * @return l'identité du noeud
+     */
+    static int predecessorNodeId(long predecessor) {
+        return (int) (predecessor >>> Integer.SIZE);
+    }
+
+    /**
+     * Retourne l'indice de l'arête contenu dans le prédécesseur empaqueté
+     * donné.
+     *
+     * @param predecessor le prédécesseur empaqueté
+     *
+     * @return l'indice de l'arête
+     */
+    static int predecessorEdgeIndex(long predecessor) {
+        return (int) predecessor;
+    }
+
+    /**
+     * Retourne l'espace de travail du fil d'exécution courant, dont les
+     * états de recherche sont réutilisés d'une requête à l'autre.
+     *
+     * @return l'espace de travail du fil d'exécution courant
+     */
+    SearchWorkspace workspace() {
+        return workspaces.get();
     }
 
     /**
@@ -52,76 +197,312 @@ public final class RouteComputer {
      * identiques
      */
     public Route bestRouteBetween(int startNodeId, int endNodeId) {
+        return bestRouteBetween(startNodeId, endNodeId, () -> false);
+    }
+
+    // Comme bestRouteBetween(int, int), mais lève CancellationException dès
+    // que la condition d'abandon donnée, évaluée tous les 256 noeuds visités,
+    // est vraie.
+    Route bestRouteBetween(int startNodeId, int endNodeId, BooleanSupplier cancelled) {
         Preconditions.checkArgument(startNodeId != endNodeId);
+        if (!mayReach(startNodeId, endNodeId))
+            return null;
+        return searchMode == SearchMode.BIDIRECTIONAL
+                ? bidirectionalBestRouteBetween(startNodeId, endNodeId, cancelled)
+                : unidirectionalBestRouteBetween(startNodeId, endNodeId, cancelled);
+    }
 
-        record WeightedNode(int nodeId, float distance) implements Comparable<WeightedNode> {
-            @Override
-            public int compareTo(WeightedNode that) {
-                return Float.compare(this.distance, that.distance);
-            }
-        }
-        
-        float[] distance = new float[graph.nodeCount()];
-        int[] predecessorsEdgeAndNode = new int[distance.length];
-        Arrays.fill(distance, UNVISITED_NODE);
+    /**
+     * Retourne un itinéraire allant du noeud d'identité startNodeId au noeud
+     * d'identité endNodeId, calculé par une recherche A* unidirectionnelle
+     * pondérée dont l'heuristique est multipliée par epsilon, ou null si aucun
+     * itinéraire n'existe.
+     * <p>
+     * Le coût de l'itinéraire retourné est au plus epsilon fois celui de
+     * l'itinéraire optimal, et la recherche visite d'autant moins de noeuds
+     * que epsilon est grand. Si le budget donné est épuisé avant que le noeud
+     * d'arrivée ne soit atteint, la recherche s'interrompt et retourne un
+     * résultat partiel, dont l'itinéraire mène au noeud visité le plus proche
+     * de l'arrivée (au sens de l'heuristique), ou est null si aucun autre
+     * noeud que celui de départ n'a été visité. Le mode de recherche passé au
+     * constructeur est ignoré.
+     *
+     * @param startNodeId noeud de départ
+     * @param endNodeId noeud d'arrivée
+     * @param epsilon le facteur multipliant l'heuristique
+     * @param budget le budget de la recherche
+     *
+     * @return un résultat complet dont l'itinéraire a un coût au plus epsilon
+     * fois le coût minimal, un résultat partiel si le budget est épuisé, ou
+     * null si aucun itinéraire n'existe
+     *
+     * @throws IllegalArgumentException si le noeud de départ et d'arrivée sont
+     * identiques, ou si epsilon est inférieur à 1
+     */
+    public ApproximateRoute approximateRouteBetween(int startNodeId, int endNodeId,
+                                                    double epsilon, SearchBudget budget) {
+        Preconditions.checkArgument(startNodeId != endNodeId && epsilon >= 1);
+        if (!mayReach(startNodeId, endNodeId))
+            return null;
+        return unidirectionalRouteBetween(startNodeId, endNodeId, epsilon, budget, () -> false);
+    }
+
+    private Route unidirectionalBestRouteBetween(int startNodeId, int endNodeId,
+                                                 BooleanSupplier cancelled) {
+        // Sans budget, la recherche n'est jamais interrompue
+        ApproximateRoute result = unidirectionalRouteBetween(
+                startNodeId, endNodeId, 1, SearchBudget.UNLIMITED, cancelled);
+        return result == null ? null : result.route();
+    }
+
+    // Recherche A* unidirectionnelle, dont l'heuristique est multipliée par
+    // epsilon, interrompue lorsque le budget donné est épuisé.
+    private ApproximateRoute unidirectionalRouteBetween(int startNodeId, int endNodeId,
+                                                        double epsilon, SearchBudget budget,
+                                                        BooleanSupplier cancelled) {
+        boolean timed = budget.maxNanos() != Long.MAX_VALUE;
+        long startTime = timed ? System.nanoTime() : 0;
         PointCh endPoint = graph.nodePoint(endNodeId);
-        distance[startNodeId] =  (float) endPoint.distanceTo(graph.nodePoint(startNodeId));
+        double straightDistance = endPoint.distanceTo(graph.nodePoint(startNodeId));
+
+        // L'état de recherche est propre au fil d'exécution et réutilisé d'une
+        // requête à l'autre : son coût ne dépend que des noeuds explorés.
+        SearchState state = workspaces.get()
+                .state(straightDistance <= LOCAL_SEARCH_MAX_DISTANCE);
+        NodePriorityQueue discoveredNodes = state.queue();
+        state.update(startNodeId, 0f, 0);
+        discoveredNodes.insertOrDecrease(startNodeId,
+                (float) (epsilon * lowerBound(startNodeId, endNodeId, endPoint)));
 
-        Queue<WeightedNode> discoveredNodes = new PriorityQueue<>();
-        discoveredNodes.add(new WeightedNode(startNodeId, distance[startNodeId]));
+        // Noeud visité dont l'heuristique est la plus petite, qui termine
+        // l'itinéraire partiel retourné si le budget est épuisé.
+        int closestNodeId = startNodeId;
+        double closestBound = Double.POSITIVE_INFINITY;
+        int settledCount = 0;
 
         while (!discoveredNodes.isEmpty()) {
-            WeightedNode node = discoveredNodes.remove();
-            int nodeId = node.nodeId();
-            if (distance[nodeId] == VISITED_NODE)
-                continue;
+            checkCancelled(settledCount, cancelled);
+            float key = discoveredNodes.minKey();
+            int nodeId = discoveredNodes.removeMin();
+
+            if (nodeId == endNodeId) {
+                return new ApproximateRoute(
+                        shortestItinerary(startNodeId, endNodeId, state), endNodeId, true);
+            }
 
-            if (nodeId == endNodeId)
-                return shortestItinerary(startNodeId, endNodeId,
-                        predecessorsEdgeAndNode);
+            float nodeDistance = state.cost(nodeId);
+            state.settle(nodeId);
+
+            double bound = (key - nodeDistance) / epsilon;
+            if (bound < closestBound) {
+                closestBound = bound;
+                closestNodeId = nodeId;
+            }
+            settledCount += 1;
+            // L'horloge n'est consultée que tous les 256 noeuds visités
+            if (settledCount >= budget.maxSettledNodes()
+                    || (timed && (settledCount & 0xFF) == 0
+                    && System.nanoTime() - startTime >= budget.maxNanos())) {
+                Route partialRoute = closestNodeId == startNodeId
+                        ? null
+                        : shortestItinerary(startNodeId, closestNodeId, state);
+                return new ApproximateRoute(partialRoute, closestNodeId, false);
+            }
 
             for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
                 int edgeId = graph.nodeOutEdgeId(nodeId, i);
                 int edgeTargetNodeId = graph.edgeTargetNodeId(edgeId);
 
                 double costFactor = costFunction.costFactor(nodeId, edgeId);
-                double distanceToEndPoint = endPoint.distanceTo(
-                        graph.nodePoint(edgeTargetNodeId));
-                double distanceToTargetNodeId = distance[nodeId]
+                double distanceToTargetNodeId = nodeDistance
                         + graph.edgeLength(edgeId) * costFactor;
 
-                if (distanceToTargetNodeId < distance[edgeTargetNodeId]) {
-                    // On empaquette dans un élément du tableau l'indice de l'arête
-                    // sur les 4 bits de poids le plus faible, et l'identité du
-                    // noeud sur les 28 autres bits.
-                    predecessorsEdgeAndNode[edgeTargetNodeId] =
-                            (nodeId << OFFSET_EDGE) | i;
-                    distance[edgeTargetNodeId] = (float) distanceToTargetNodeId;
-                    discoveredNodes.add(new WeightedNode(edgeTargetNodeId,
-                            (float) (distanceToTargetNodeId
-                                    + distanceToEndPoint)));
+                if (distanceToTargetNodeId < state.cost(edgeTargetNodeId)
+                        && !state.isSettled(edgeTargetNodeId)) {
+                    state.update(edgeTargetNodeId, (float) distanceToTargetNodeId,
+                            packPredecessor(nodeId, i));
+                    discoveredNodes.insertOrDecrease(edgeTargetNodeId,
+                            (float) (distanceToTargetNodeId + epsilon
+                                    * lowerBound(edgeTargetNodeId, endNodeId, endPoint)));
                 }
             }
-            distance[nodeId] = VISITED_NODE;
-
         }
         return null;
     }
 
-    // Reconstitue l'itinéraire à partir du tableau de prédecesseurs
-    private Route shortestItinerary(int startNodeId, int endNodeId, int[] predecessors) {
-        Deque<Edge> itinerary =  new ArrayDeque<>();
-        int toNodeId = endNodeId;
+    // Recherche A* bidirectionnelle. Les deux recherches utilisent la moyenne
+    // des potentiels « distance à l'arrivée » et « distance au départ », de
+    // manière à ce que leurs coûts réduits soient cohérents ; dès lors, on
+    // peut s'arrêter lorsque la somme des plus petites priorités des deux
+    // files dépasse le coût du meilleur chemin déjà trouvé.
+    private Route bidirectionalBestRouteBetween(int startNodeId, int endNodeId,
+                                                BooleanSupplier cancelled) {
+        PointCh startPoint = graph.nodePoint(startNodeId);
+        PointCh endPoint = graph.nodePoint(endNodeId);
+        boolean local = startPoint.distanceTo(endPoint) <= LOCAL_SEARCH_MAX_DISTANCE;
+
+        SearchWorkspace workspace = workspaces.get();
+        SearchState forward = workspace.state(local);
+        SearchState backward = workspace.backwardState(local);
+        NodePriorityQueue forwardQueue = forward.queue();
+        NodePriorityQueue backwardQueue = backward.queue();
+
+        forward.update(startNodeId, 0f, 0);
+        forwardQueue.insertOrDecrease(startNodeId,
+                (float) potential(startNodeId, startNodeId, endNodeId, startPoint, endPoint));
+        backward.update(endNodeId, 0f, 0);
+        backwardQueue.insertOrDecrease(endNodeId,
+                (float) -potential(endNodeId, startNodeId, endNodeId, startPoint, endPoint));
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meetingNodeId = -1;
+        int settledCount = 0;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if ((double) forwardQueue.minKey() + backwardQueue.minKey() >= bestCost)
+                break;
+            checkCancelled(settledCount++, cancelled);
+
+            if (forwardQueue.minKey() <= backwardQueue.minKey()) {
+                int nodeId = forwardQueue.removeMin();
+                float nodeCost = forward.cost(nodeId);
+                forward.settle(nodeId);
+
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                    double cost = nodeCost + graph.edgeLength(edgeId)
+                            * costFunction.costFactor(nodeId, edgeId);
+
+                    if (cost < forward.cost(targetNodeId) && !forward.isSettled(targetNodeId)) {
+                        forward.update(targetNodeId, (float) cost, packPredecessor(nodeId, i));
+                        forwardQueue.insertOrDecrease(targetNodeId,
+                                (float) (cost + potential(targetNodeId,
+                                        startNodeId, endNodeId, startPoint, endPoint)));
+                    }
+                    double pathCost = (double) forward.cost(targetNodeId) + backward.cost(targetNodeId);
+                    if (pathCost < bestCost) {
+                        bestCost = pathCost;
+                        meetingNodeId = targetNodeId;
+                    }
+                }
+            } else {
+                int nodeId = backwardQueue.removeMin();
+                float nodeCost = backward.cost(nodeId);
+                backward.settle(nodeId);
+
+                for (int i = 0; i < graph.nodeInDegree(nodeId); i++) {
+                    int edgeId = graph.nodeInEdgeId(nodeId, i);
+                    int sourceNodeId = graph.nodeInEdgeSourceNodeId(nodeId, i);
+                    double cost = nodeCost + graph.edgeLength(edgeId)
+                            * costFunction.costFactor(sourceNodeId, edgeId);
+
+                    if (cost < backward.cost(sourceNodeId) && !backward.isSettled(sourceNodeId)) {
+                        // Le prédécesseur à rebours d'un noeud est le noeud qui
+                        // le suit sur le chemin, et l'indice de l'arête parmi
+                        // les arêtes sortant du noeud lui-même.
+                        int edgeIndex = edgeId - graph.nodeOutEdgeId(sourceNodeId, 0);
+                        backward.update(sourceNodeId, (float) cost,
+                                packPredecessor(nodeId, edgeIndex));
+                        backwardQueue.insertOrDecrease(sourceNodeId,
+                                (float) (cost - potential(sourceNodeId,
+                                        startNodeId, endNodeId, startPoint, endPoint)));
+                    }
+                    double pathCost = (double) backward.cost(sourceNodeId) + forward.cost(sourceNodeId);
+                    if (pathCost < bestCost) {
+                        bestCost = pathCost;
+                        meetingNodeId = sourceNodeId;
+                    }
+                }
+            }
+        }
+
+        if (meetingNodeId == -1)
+            return null;
+        return bidirectionalItinerary(startNodeId, endNodeId, meetingNodeId,
+                forward, backward);
+    }
+
+    // Lève CancellationException si la condition d'abandon est vraie, en ne
+    // l'évaluant que tous les 256 noeuds visités.
+    private static void checkCancelled(int settledCount, BooleanSupplier cancelled) {
+        if ((settledCount & 0xFF) == 0 && cancelled.getAsBoolean())
+            throw new CancellationException();
+    }
+
+    // Retourne une borne inférieure du coût d'un itinéraire allant du noeud
+    // d'identité fromNodeId au noeud d'identité toNodeId, situé au point donné.
+    double lowerBound(int fromNodeId, int toNodeId, PointCh toPoint) {
+        double distance = toPoint.distanceTo(graph.nodePoint(fromNodeId));
+        return landmarks == null
+                ? distance
+                : Math.max(distance, landmarks.lowerBound(fromNodeId, toNodeId));
+    }
+
+    // Retourne le potentiel (moyen) du noeud donné, qui vaut la moitié de la
+    // différence entre la borne inférieure du coût jusqu'à l'arrivée et celle
+    // du coût depuis le départ.
+    private double potential(int nodeId, int startNodeId, int endNodeId,
+                             PointCh startPoint, PointCh endPoint) {
+        PointCh point = graph.nodePoint(nodeId);
+        double toEnd = endPoint.distanceTo(point);
+        double fromStart = startPoint.distanceTo(point);
+        if (landmarks != null) {
+            toEnd = Math.max(toEnd, landmarks.lowerBound(nodeId, endNodeId));
+            fromStart = Math.max(fromStart, landmarks.lowerBound(startNodeId, nodeId));
+        }
+        return (toEnd - fromStart) / 2;
+    }
+
+    // Reconstitue l'itinéraire à partir des prédecesseurs de l'état d'une
+    // recherche partant du noeud de départ.
+    Route shortestItinerary(int startNodeId, int endNodeId, SearchState state) {
+        Deque<Edge> itinerary = new ArrayDeque<>();
+        addForwardEdges(itinerary, startNodeId, endNodeId, state);
+        return new SingleRoute(List.copyOf(itinerary));
+    }
+
+    // Reconstitue l'itinéraire à partir des prédecesseurs de l'état d'une
+    // recherche à rebours partant du noeud d'arrivée.
+    Route backwardItinerary(int startNodeId, int endNodeId, SearchState backward) {
+        Deque<Edge> itinerary = new ArrayDeque<>();
+        addBackwardEdges(itinerary, startNodeId, endNodeId, backward);
+        return new SingleRoute(List.copyOf(itinerary));
+    }
+
+    // Reconstitue l'itinéraire passant par le noeud de rencontre des deux
+    // recherches d'une recherche bidirectionnelle.
+    Route bidirectionalItinerary(int startNodeId, int endNodeId, int meetingNodeId,
+                                         SearchState forward, SearchState backward) {
+        Deque<Edge> itinerary = new ArrayDeque<>();
+        addForwardEdges(itinerary, startNodeId, meetingNodeId, forward);
+        addBackwardEdges(itinerary, meetingNodeId, endNodeId, backward);
+        return new SingleRoute(List.copyOf(itinerary));
+    }
+
+    // Ajoute au début de l'itinéraire les arêtes menant du noeud de départ au
+    // noeud d'identité toNodeId, selon l'état de la recherche partant du départ.
+    private void addForwardEdges(Deque<Edge> itinerary, int startNodeId, int toNodeId,
+                                 SearchState forward) {
         while (toNodeId != startNodeId) {
-            int edgeIdAndNodeId = predecessors[toNodeId];
-            int fromNodeId = Bits.extractUnsigned(edgeIdAndNodeId, OFFSET_EDGE,
-                    NODE_BIT_RANGE_LENGTH);
-            int edgeId = graph.nodeOutEdgeId(
-                    fromNodeId,
-                    Bits.extractUnsigned(edgeIdAndNodeId, START_POSITION, OFFSET_EDGE));
+            long predecessor = forward.predecessor(toNodeId);
+            int fromNodeId = predecessorNodeId(predecessor);
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, predecessorEdgeIndex(predecessor));
             itinerary.offerFirst(of(graph, edgeId, fromNodeId, toNodeId));
             toNodeId = fromNodeId;
         }
-        return new SingleRoute(List.copyOf(itinerary));
     }
-}
\ No newline at end of file
+
+    // Ajoute à la fin de l'itinéraire les arêtes menant du noeud d'identité
+    // fromNodeId au noeud d'arrivée, selon l'état de la recherche à rebours.
+    private void addBackwardEdges(Deque<Edge> itinerary, int fromNodeId, int endNodeId,
+                                  SearchState backward) {
+        while (fromNodeId != endNodeId) {
+            long successor = backward.predecessor(fromNodeId);
+            int nextNodeId = predecessorNodeId(successor);
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, predecessorEdgeIndex(successor));
+            itinerary.offerLast(of(graph, edgeId, fromNodeId, nextNodeId));
+            fromNodeId = nextNodeId;
+        }
+    }
+}
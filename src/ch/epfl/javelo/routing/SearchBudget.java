@@ -0,0 +1,62 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.time.Duration;
+
+/**
+ * Enregistrement représentant le budget alloué à une recherche
+ * d'itinéraire approchée, exprimé en nombre maximal de noeuds visités et en
+ * durée maximale.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ *
+ * @param maxSettledNodes le nombre maximal de noeuds visités
+ * @param maxNanos la durée maximale, en nanosecondes
+ */
+public record SearchBudget(int maxSettledNodes, long maxNanos) {
+    /**
+     * Le budget illimité.
+     */
+    public static final SearchBudget UNLIMITED =
+            new SearchBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * Constructeur compact validant les arguments.
+     *
+     * @throws IllegalArgumentException si le nombre de noeuds ou la durée ne
+     * sont pas strictement positifs
+     */
+    public SearchBudget {
+        Preconditions.checkArgument(maxSettledNodes > 0 && maxNanos > 0);
+    }
+
+    /**
+     * Retourne un budget limitant uniquement le nombre de noeuds visités.
+     *
+     * @param maxSettledNodes le nombre maximal de noeuds visités
+     *
+     * @return un budget limitant le nombre de noeuds visités
+     *
+     * @throws IllegalArgumentException si le nombre n'est pas strictement
+     * positif
+     */
+    public static SearchBudget ofSettledNodes(int maxSettledNodes) {
+        return new SearchBudget(maxSettledNodes, Long.MAX_VALUE);
+    }
+
+    /**
+     * Retourne un budget limitant uniquement la durée de la recherche.
+     *
+     * @param maxDuration la durée maximale
+     *
+     * @return un budget limitant la durée de la recherche
+     *
+     * @throws IllegalArgumentException si la durée n'est pas strictement
+     * positive
+     */
+    public static SearchBudget ofDuration(Duration maxDuration) {
+        return new SearchBudget(Integer.MAX_VALUE, maxDuration.toNanos());
+    }
+}
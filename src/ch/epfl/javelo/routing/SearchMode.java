@@ -0,0 +1,22 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Type énuméré représentant les modes de recherche d'itinéraire offerts par
+ * RouteComputer.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+public enum SearchMode {
+    /**
+     * Recherche A* partant uniquement du noeud de départ.
+     */
+    UNIDIRECTIONAL,
+
+    /**
+     * Recherche A* simultanée depuis le noeud de départ et, à rebours, depuis
+     * le noeud d'arrivée ; elle s'arrête lorsque les deux fronts se rejoignent
+     * et que plus aucun chemin meilleur ne peut être trouvé.
+     */
+    BIDIRECTIONAL
+}
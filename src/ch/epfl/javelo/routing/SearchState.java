@@ -0,0 +1,121 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Représente l'état d'une recherche de plus court chemin : le coût et le
+ * prédécesseur de chaque noeud atteint, sa position dans la file de priorité
+ * des noeuds découverts, ainsi que cette file elle-même.
+ * <p>
+ * Un état est destiné à être réutilisé d'une recherche à l'autre : la méthode
+ * reset le réinitialise en un temps indépendant de la taille du graphe.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+abstract class SearchState {
+    /**
+     * Position d'un noeud ne se trouvant pas dans la file de priorité.
+     */
+    static final int NOT_IN_QUEUE = -1;
+
+    /**
+     * Position d'un noeud dont le coût est définitif.
+     */
+    static final int SETTLED = -2;
+
+    /**
+     * Coût d'un noeud qui n'a pas encore été atteint.
+     */
+    static final float UNREACHED = Float.POSITIVE_INFINITY;
+
+    private final NodePriorityQueue queue = new NodePriorityQueue(this);
+
+    /**
+     * Retourne la file de priorité des noeuds découverts.
+     *
+     * @return la file de priorité des noeuds découverts
+     */
+    final NodePriorityQueue queue() {
+        return queue;
+    }
+
+    /**
+     * Réinitialise l'état, de manière à ce qu'aucun noeud ne soit atteint et
+     * que la file de priorité soit vide.
+     */
+    final void reset() {
+        queue.discard();
+        nextGeneration();
+    }
+
+    /**
+     * Invalide l'ensemble des valeurs stockées.
+     */
+    abstract void nextGeneration();
+
+    /**
+     * Retourne le coût du noeud d'identité donnée, ou UNREACHED s'il n'a pas
+     * encore été atteint.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le coût du noeud d'identité donnée, ou UNREACHED
+     */
+    abstract float cost(int nodeId);
+
+    /**
+     * Retourne le prédécesseur (empaqueté) du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return le prédécesseur (empaqueté) du noeud d'identité donnée
+     */
+    abstract long predecessor(int nodeId);
+
+    /**
+     * Modifie le coût et le prédécesseur du noeud d'identité donnée.
+     *
+     * @param nodeId l'identité du noeud
+     * @param cost le nouveau coût du noeud
+     * @param predecessor le nouveau prédécesseur (empaqueté) du noeud
+     */
+    abstract void update(int nodeId, float cost, long predecessor);
+
+    /**
+     * Retourne la position du noeud d'identité donnée dans la file de
+     * priorité, NOT_IN_QUEUE ou SETTLED.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return la position du noeud d'identité donnée dans la file de priorité,
+     * NOT_IN_QUEUE ou SETTLED
+     */
+    abstract int queuePosition(int nodeId);
+
+    /**
+     * Modifie la position du noeud d'identité donnée dans la file de priorité.
+     *
+     * @param nodeId l'identité du noeud
+     * @param position la nouvelle position, NOT_IN_QUEUE ou SETTLED
+     */
+    abstract void setQueuePosition(int nodeId, int position);
+
+    /**
+     * Retourne vrai ssi le coût du noeud d'identité donnée est définitif.
+     *
+     * @param nodeId l'identité du noeud
+     *
+     * @return vrai ssi le coût du noeud d'identité donnée est définitif
+     */
+    final boolean isSettled(int nodeId) {
+        return queuePosition(nodeId) == SETTLED;
+    }
+
+    /**
+     * Marque le coût du noeud d'identité donnée comme définitif.
+     *
+     * @param nodeId l'identité du noeud
+     */
+    final void settle(int nodeId) {
+        setQueuePosition(nodeId, SETTLED);
+    }
+}
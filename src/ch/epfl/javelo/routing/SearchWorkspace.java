@@ -0,0 +1,69 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Représente l'espace de travail réutilisable d'un fil d'exécution effectuant
+ * des recherches de plus court chemin dans un graphe donné.
+ * <p>
+ * Pour chacune des deux directions de recherche (depuis le départ et, à
+ * rebours, depuis l'arrivée), l'espace de travail possède un état dense,
+ * dont les tableaux (de la taille du graphe) ne sont alloués qu'à sa première
+ * utilisation, et un état creux destiné aux recherches locales. Aucun d'eux
+ * n'est réinitialisé en un temps proportionnel à la taille du graphe.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class SearchWorkspace {
+    private final int nodeCount;
+    private final DenseSearchState[] denseStates = new DenseSearchState[2];
+    private final SparseSearchState[] sparseStates = new SparseSearchState[2];
+
+    /**
+     * Construit un espace de travail pour un graphe ayant le nombre de noeuds
+     * donné.
+     *
+     * @param nodeCount le nombre de noeuds du graphe
+     */
+    SearchWorkspace(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Retourne un état de recherche réinitialisé pour une recherche partant
+     * du noeud de départ, creux si la recherche est locale et dense sinon.
+     *
+     * @param local vrai ssi la recherche ne devrait explorer que peu de noeuds
+     *
+     * @return un état de recherche réinitialisé
+     */
+    SearchState state(boolean local) {
+        return state(0, local);
+    }
+
+    /**
+     * Retourne un état de recherche réinitialisé pour une recherche à rebours
+     * depuis le noeud d'arrivée, distinct de celui retourné par state.
+     *
+     * @param local vrai ssi la recherche ne devrait explorer que peu de noeuds
+     *
+     * @return un état de recherche réinitialisé
+     */
+    SearchState backwardState(boolean local) {
+        return state(1, local);
+    }
+
+    private SearchState state(int direction, boolean local) {
+        SearchState state;
+        if (local) {
+            if (sparseStates[direction] == null)
+                sparseStates[direction] = new SparseSearchState();
+            state = sparseStates[direction];
+        } else {
+            if (denseStates[direction] == null)
+                denseStates[direction] = new DenseSearchState(nodeCount);
+            state = denseStates[direction];
+        }
+        state.reset();
+        return state;
+    }
+}
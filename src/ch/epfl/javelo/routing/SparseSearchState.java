@@ -0,0 +1,135 @@
+package ch.epfl.javelo.routing;
+
+/**
+ * Représente un état de recherche stocké dans une table de hachage à
+ * adressage ouvert (sondage linéaire) de types primitifs, dont la taille est
+ * proportionnelle au nombre de noeuds atteints et non à celle du graphe. Il
+ * est adapté aux recherches locales, n'explorant que peu de noeuds.
+ *
+ * @author Tanguy Dieudonné (326618)
+ * @author Nathanaël Girod (329987)
+ */
+final class SparseSearchState extends SearchState {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private int[] nodeIds;
+    private float[] costs;
+    private long[] predecessors;
+    private int[] positions;
+    private int[] generations;
+    private int generation = 1;
+    private int size;
+    private int mask;
+    private int shift;
+
+    /**
+     * Construit un état de recherche vide.
+     */
+    SparseSearchState() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    void nextGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            allocate(INITIAL_CAPACITY);
+            generation = 0;
+        }
+        generation += 1;
+        size = 0;
+    }
+
+    @Override
+    float cost(int nodeId) {
+        int slot = find(nodeId);
+        return slot < 0 ? UNREACHED : costs[slot];
+    }
+
+    @Override
+    long predecessor(int nodeId) {
+        int slot = find(nodeId);
+        return slot < 0 ? 0 : predecessors[slot];
+    }
+
+    @Override
+    void update(int nodeId, float cost, long predecessor) {
+        int slot = findOrInsert(nodeId);
+        costs[slot] = cost;
+        predecessors[slot] = predecessor;
+    }
+
+    @Override
+    int queuePosition(int nodeId) {
+        int slot = find(nodeId);
+        return slot < 0 ? NOT_IN_QUEUE : positions[slot];
+    }
+
+    @Override
+    void setQueuePosition(int nodeId, int position) {
+        positions[findOrInsert(nodeId)] = position;
+    }
+
+    // Retourne l'emplacement du noeud donné, ou -1 s'il n'est pas dans la table.
+    private int find(int nodeId) {
+        for (int slot = hash(nodeId); generations[slot] == generation;
+             slot = (slot + 1) & mask) {
+            if (nodeIds[slot] == nodeId)
+                return slot;
+        }
+        return -1;
+    }
+
+    // Retourne l'emplacement du noeud donné, en l'ajoutant à la table s'il
+    // ne s'y trouve pas encore.
+    private int findOrInsert(int nodeId) {
+        int slot = hash(nodeId);
+        while (generations[slot] == generation) {
+            if (nodeIds[slot] == nodeId)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        // La table est maintenue au plus à moitié pleine.
+        if (2 * (size + 1) > nodeIds.length) {
+            grow();
+            return findOrInsert(nodeId);
+        }
+        size += 1;
+        generations[slot] = generation;
+        nodeIds[slot] = nodeId;
+        costs[slot] = UNREACHED;
+        positions[slot] = NOT_IN_QUEUE;
+        return slot;
+    }
+
+    private int hash(int nodeId) {
+        return (nodeId * HASH_MULTIPLIER) >>> shift;
+    }
+
+    private void allocate(int capacity) {
+        nodeIds = new int[capacity];
+        costs = new float[capacity];
+        predecessors = new long[capacity];
+        positions = new int[capacity];
+        generations = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    // Double la capacité de la table et y réinsère les entrées valides.
+    private void grow() {
+        int[] oldNodeIds = nodeIds, oldPositions = positions, oldGenerations = generations;
+        long[] oldPredecessors = predecessors;
+        float[] oldCosts = costs;
+        allocate(2 * oldNodeIds.length);
+        size = 0;
+        for (int i = 0; i < oldNodeIds.length; i++) {
+            if (oldGenerations[i] != generation)
+                continue;
+            int slot = findOrInsert(oldNodeIds[i]);
+            costs[slot] = oldCosts[i];
+            predecessors[slot] = oldPredecessors[i];
+            positions[slot] = oldPositions[i];
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphArenaTest {
+
+    static void assertSameGraph(Graph expected, Graph actual) {
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        for (int nodeId = 0; nodeId < expected.nodeCount(); nodeId++) {
+            assertEquals(expected.nodePoint(nodeId), actual.nodePoint(nodeId));
+            assertEquals(expected.nodeOutDegree(nodeId), actual.nodeOutDegree(nodeId));
+            assertEquals(expected.nodeInDegree(nodeId), actual.nodeInDegree(nodeId));
+            for (int i = 0; i < expected.nodeOutDegree(nodeId); i++) {
+                int edgeId = expected.nodeOutEdgeId(nodeId, i);
+                assertEquals(edgeId, actual.nodeOutEdgeId(nodeId, i));
+                assertEquals(expected.edgeTargetNodeId(edgeId), actual.edgeTargetNodeId(edgeId));
+                assertEquals(expected.edgeIsInverted(edgeId), actual.edgeIsInverted(edgeId));
+                assertEquals(expected.edgeLength(edgeId), actual.edgeLength(edgeId));
+                assertEquals(expected.edgeElevationGain(edgeId), actual.edgeElevationGain(edgeId));
+                assertEquals(expected.edgeAttributes(edgeId), actual.edgeAttributes(edgeId));
+                for (double x = 0; x <= expected.edgeLength(edgeId); x += 0.5)
+                    assertEquals(expected.edgeProfile(edgeId).applyAsDouble(x),
+                            actual.edgeProfile(edgeId).applyAsDouble(x));
+            }
+        }
+    }
+
+    @Test
+    void loadFromArenaGivesTheSameGraphAsLoadFrom() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-arena");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        try (GraphArena arena = new GraphArena()) {
+            assertSameGraph(Graph.loadFrom(basePath), Graph.loadFrom(basePath, arena));
+        }
+    }
+
+    @Test
+    void loadFromArenaReadsWideNodes() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-arena");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        Graph graph = Graph.loadFrom(basePath);
+        graph.writeWideNodes(basePath);
+        try (GraphArena arena = new GraphArena()) {
+            assertSameGraph(graph, Graph.loadFrom(basePath, arena));
+        }
+    }
+
+    @Test
+    void closingTheArenaReleasesItsGraphs() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-arena");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        GraphArena arena = new GraphArena();
+        Graph graph = Graph.loadFrom(basePath, arena);
+        assertTrue(arena.isAlive());
+        graph.nodePoint(0);
+
+        arena.close();
+        assertFalse(arena.isAlive());
+        assertThrows(IndexOutOfBoundsException.class, () -> graph.nodePoint(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> graph.edgeLength(0));
+        assertThrows(IllegalStateException.class, () -> Graph.loadFrom(basePath, arena));
+        arena.close();
+    }
+}
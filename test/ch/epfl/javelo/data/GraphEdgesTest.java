@@ -7,7 +7,10 @@ import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.Arrays;
+import java.util.random.RandomGenerator;
 
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GraphEdgesTest {
@@ -450,4 +453,75 @@ public class GraphEdgesTest {
         assertArrayEquals(expectedSamples, result);
     }
 
+    @Test
+    void profileSamplesWorksWhenTheProfileEndsTheBuffer() {
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(30);
+        for (int edgeId = 0; edgeId < 3; edgeId++) {
+            edgesBuffer.putInt(10 * edgeId, edgeId);
+            // Longueur : 8 m, soit 5 échantillons
+            edgesBuffer.putShort(10 * edgeId + 4, (short) 0x8_0);
+        }
+        IntBuffer profileIds = IntBuffer.wrap(new int[]{
+                (1 << 30) | 1, (2 << 30) | 2, (3 << 30) | 3
+        });
+        // Chaque profil se termine à la fin de la mémoire tampon
+        ShortBuffer uncompressed = ShortBuffer.wrap(new short[]{
+                0, 0x10, 0x20, 0x30, 0x40, 0x50
+        });
+        ShortBuffer q44 = ShortBuffer.wrap(new short[]{
+                0, 0, 0x10, 0x01FF, 0x1020
+        });
+        ShortBuffer q04 = ShortBuffer.wrap(new short[]{
+                0, 0, 0, 0x10, 0x1F12
+        });
+
+        assertArrayEquals(new float[]{1, 2, 3, 4, 5},
+                new GraphEdges(edgesBuffer, profileIds, uncompressed).profileSamples(0));
+        assertArrayEquals(new float[]{1, 1.0625f, 1, 2, 4},
+                new GraphEdges(edgesBuffer, profileIds, q44).profileSamples(1));
+        assertArrayEquals(new float[]{1, 1.0625f, 1, 1.0625f, 1.1875f},
+                new GraphEdges(edgesBuffer, profileIds, q04).profileSamples(2));
+    }
+
+    @Test
+    void profileSamplesAgreesWithBitByBitDecodingOnRandomProfiles() {
+        RandomGenerator rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; i++) {
+            int type = 1 + rng.nextInt(3);
+            int lengthQ28_4 = rng.nextInt(1 << 12);
+            int sampleCount = 1 + (lengthQ28_4 + 31) / 32;
+            int bits = type == 1 ? 16 : type == 2 ? 8 : 4;
+            int shortCount = 1 + ((sampleCount - 1) * bits + 15) / 16;
+            short[] shorts = new short[1 + shortCount];
+            for (int j = 1; j < shorts.length; j++)
+                shorts[j] = (short) rng.nextInt(1 << 16);
+
+            float[] expected = new float[sampleCount];
+            expected[0] = Short.toUnsignedInt(shorts[1]) / 16f;
+            for (int j = 1; j < sampleCount; j++) {
+                int bitIndex = (j - 1) * bits;
+                int s = Short.toUnsignedInt(shorts[2 + bitIndex / 16]);
+                int value = (s >> (16 - bits - bitIndex % 16)) & ((1 << bits) - 1);
+                expected[j] = type == 1
+                        ? value / 16f
+                        : expected[j - 1] + (value << (32 - bits) >> (32 - bits)) / 16f;
+            }
+
+            ByteBuffer edgesBuffer = ByteBuffer.allocate(10);
+            boolean inverted = rng.nextBoolean();
+            edgesBuffer.putInt(0, inverted ? ~7 : 7);
+            edgesBuffer.putShort(4, (short) lengthQ28_4);
+            GraphEdges edges = new GraphEdges(edgesBuffer,
+                    IntBuffer.wrap(new int[]{(type << 30) | 1}), ShortBuffer.wrap(shorts));
+            float[] actual = edges.profileSamples(0);
+            if (inverted) {
+                for (int j = 0; j < sampleCount / 2; j++) {
+                    float t = actual[j];
+                    actual[j] = actual[sampleCount - 1 - j];
+                    actual[sampleCount - 1 - j] = t;
+                }
+            }
+            assertArrayEquals(expected, actual);
+        }
+    }
 }
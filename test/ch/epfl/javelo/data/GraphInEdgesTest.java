@@ -0,0 +1,121 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphInEdgesTest {
+
+    // Graphe à trois noeuds : 0 -> 1 (arête 0), 0 -> 2 (arête 1),
+    // 1 -> 2 (arête 2), 2 -> 0 (arête 3, inversée)
+    private static GraphNodes nodes() {
+        return new GraphNodes(IntBuffer.wrap(new int[]{
+                0, 0, 2 << 28,
+                0, 0, (1 << 28) | 2,
+                0, 0, (1 << 28) | 3
+        }));
+    }
+
+    private static GraphEdges edges() {
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(4 * 10);
+        edgesBuffer.putInt(0, 1);
+        edgesBuffer.putInt(10, 2);
+        edgesBuffer.putInt(20, 2);
+        edgesBuffer.putInt(30, ~0);
+        return new GraphEdges(edgesBuffer, IntBuffer.allocate(4), ShortBuffer.allocate(0));
+    }
+
+    private static void checkIndex(GraphInEdges inEdges) {
+        assertEquals(1, inEdges.inDegree(0));
+        assertEquals(3, inEdges.edgeId(0, 0));
+        assertEquals(2, inEdges.sourceNodeId(0, 0));
+
+        assertEquals(1, inEdges.inDegree(1));
+        assertEquals(0, inEdges.edgeId(1, 0));
+        assertEquals(0, inEdges.sourceNodeId(1, 0));
+
+        assertEquals(2, inEdges.inDegree(2));
+        assertEquals(1, inEdges.edgeId(2, 0));
+        assertEquals(0, inEdges.sourceNodeId(2, 0));
+        assertEquals(2, inEdges.edgeId(2, 1));
+        assertEquals(1, inEdges.sourceNodeId(2, 1));
+    }
+
+    @Test
+    void ofBuildsTheReverseAdjacency() {
+        checkIndex(GraphInEdges.of(nodes(), edges()));
+    }
+
+    @Test
+    void writeToRoundTrips() throws IOException {
+        Path file = Files.createTempFile("in_edges", ".bin");
+        try {
+            GraphInEdges.of(nodes(), edges()).writeTo(file, 42);
+            checkIndex(GraphInEdges.loadFrom(file, 42, 3, 4));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void loadFromRejectsStaleIndexes() throws IOException {
+        Path file = Files.createTempFile("in_edges", ".bin");
+        try {
+            GraphInEdges.of(nodes(), edges()).writeTo(file, 42);
+            assertThrows(IOException.class, () -> GraphInEdges.loadFrom(file, 43, 3, 4));
+            assertThrows(IOException.class, () -> GraphInEdges.loadFrom(file, 42, 2, 4));
+            assertThrows(IOException.class, () -> GraphInEdges.loadFrom(file, 42, 3, 5));
+
+            // Fichier tronqué
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+            assertThrows(IOException.class, () -> GraphInEdges.loadFrom(file, 42, 3, 4));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void graphIgnoresInEdgesOfReplacedGraphFiles() throws IOException {
+        Path basePath = Files.createTempDirectory("in_edges");
+        GraphRenumberingTest.writeRandomGraph(basePath, new Random(1));
+        Graph.loadFrom(basePath).writeInEdges(basePath);
+
+        GraphRenumberingTest.writeRandomGraph(basePath, new Random(2));
+        Path nodesPath = basePath.resolve("nodes.bin");
+        Files.setLastModifiedTime(nodesPath, FileTime.fromMillis(
+                Files.getLastModifiedTime(nodesPath).toMillis() + 1_000));
+        Graph graph = Graph.loadFrom(basePath);
+        int inEdgesCount = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeInDegree(nodeId); i++) {
+                int edgeId = graph.nodeInEdgeId(nodeId, i);
+                assertEquals(nodeId, graph.edgeTargetNodeId(edgeId));
+                inEdgesCount += 1;
+            }
+        }
+        int outEdgesCount = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++)
+            outEdgesCount += graph.nodeOutDegree(nodeId);
+        assertEquals(outEdgesCount, inEdgesCount);
+    }
+
+    @Test
+    void graphBuildsInEdgesLazily() {
+        Graph graph = new Graph(nodes(), new GraphSectors(ByteBuffer.allocate(0)), edges(),
+                java.util.List.of());
+        assertEquals(2, graph.nodeInDegree(2));
+        assertEquals(2, graph.nodeInEdgeId(2, 1));
+        assertEquals(1, graph.nodeInEdgeSourceNodeId(2, 1));
+    }
+}
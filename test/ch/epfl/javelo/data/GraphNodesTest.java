@@ -5,8 +5,9 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.IntBuffer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GraphNodesTest {
 
@@ -84,4 +85,44 @@ public class GraphNodesTest {
         assertEquals(0x800_0010, ns.edgeId(2, 0));
         assertEquals(Integer.valueOf(Integer.toHexString(0x800_0010 + 1),16), ns.edgeId(2, 1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void wideNodesLiftTheCompactFormatLimits() {
+        IntBuffer b = IntBuffer.wrap(new int[]{
+                2_600_000 << 4,
+                1_200_000 << 4,
+                1 << 30,
+                40
+        });
+        GraphNodes ns = new GraphNodes(b, true);
+        assertEquals(1, ns.count());
+        assertEquals(2_600_000, ns.nodeE(0));
+        assertEquals(1_200_000, ns.nodeN(0));
+        assertEquals(40, ns.outDegree(0));
+        assertEquals((1 << 30) + 39, ns.edgeId(0, 39));
+    }
+
+    @Test
+    void toWidePreservesTheNodes() {
+        var rng = newRandom();
+        int count = RANDOM_ITERATIONS;
+        IntBuffer b = IntBuffer.allocate(3 * count);
+        for (int nodeId = 0; nodeId < count; nodeId++) {
+            b.put(3 * nodeId, (2_485_000 + rng.nextInt(349_000)) << 4);
+            b.put(3 * nodeId + 1, (1_075_000 + rng.nextInt(221_000)) << 4);
+            b.put(3 * nodeId + 2, (rng.nextInt(16) << 28) | rng.nextInt(1 << 28));
+        }
+        GraphNodes compact = new GraphNodes(b);
+        GraphNodes wide = compact.toWide();
+        assertTrue(wide.wide());
+        assertSame(wide, wide.toWide());
+        assertEquals(count, wide.count());
+        for (int nodeId = 0; nodeId < count; nodeId++) {
+            assertEquals(compact.nodeE(nodeId), wide.nodeE(nodeId));
+            assertEquals(compact.nodeN(nodeId), wide.nodeN(nodeId));
+            assertEquals(compact.outDegree(nodeId), wide.outDegree(nodeId));
+            assertEquals(compact.edgeId(nodeId, 0), wide.edgeId(nodeId, 0));
+            assertEquals(compact.edgeId(nodeId, 5), wide.edgeId(nodeId, 5));
+        }
+    }
+}
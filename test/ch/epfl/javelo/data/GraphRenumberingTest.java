@@ -0,0 +1,181 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphRenumberingTest {
+    private static final int NODE_COUNT = 2_000;
+    private static final int SECTOR_COUNT = 128 * 128;
+    // Longueur de chaque arête, en mètres, et nombre d'échantillons de son
+    // profil (non compressé)
+    private static final int EDGE_LENGTH = 4;
+    private static final int SAMPLES = 3;
+
+    // Écrit dans le répertoire donné un graphe aléatoire dont les noeuds,
+    // répartis sur quelques dizaines de secteurs, sont triés par secteur
+    // mais dans un ordre aléatoire au sein de chacun d'eux.
+    static void writeRandomGraph(Path basePath, RandomGenerator rng) throws IOException {
+        long[] keys = new long[NODE_COUNT];
+        PointCh[] points = new PointCh[NODE_COUNT];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            points[i] = new PointCh(
+                    Math.scalb(Math.floor(Math.scalb(SwissBounds.MIN_E + 10_000 + rng.nextDouble(20_000), 4)), -4),
+                    Math.scalb(Math.floor(Math.scalb(SwissBounds.MIN_N + 10_000 + rng.nextDouble(20_000), 4)), -4));
+            keys[i] = ((long) GraphSectors.sectorIndex(points[i]) << 40)
+                    | ((long) rng.nextInt(1 << 20) << 20) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] degrees = new int[NODE_COUNT];
+        int edgeCount = 0;
+        for (int i = 0; i < NODE_COUNT; i++) {
+            degrees[i] = rng.nextInt(5);
+            edgeCount += degrees[i];
+        }
+
+        ByteBuffer nodes = ByteBuffer.allocate(NODE_COUNT * 3 * Integer.BYTES);
+        ByteBuffer sectors = ByteBuffer.allocate(SECTOR_COUNT * 6);
+        ByteBuffer edges = ByteBuffer.allocate(edgeCount * 10);
+        ByteBuffer profileIds = ByteBuffer.allocate(edgeCount * Integer.BYTES);
+        ByteBuffer elevations = ByteBuffer.allocate(edgeCount * SAMPLES * Short.BYTES);
+        ByteBuffer attributes = ByteBuffer.allocate(4 * Long.BYTES);
+        ByteBuffer osmIds = ByteBuffer.allocate(NODE_COUNT * Long.BYTES);
+        int[] sectorSizes = new int[SECTOR_COUNT];
+        for (int nodeId = 0, edgeId = 0; nodeId < NODE_COUNT; nodeId++) {
+            PointCh point = points[(int) (keys[nodeId] & ((1 << 20) - 1))];
+            int sector = GraphSectors.sectorIndex(point);
+            if (sectorSizes[sector]++ == 0)
+                sectors.putInt(6 * sector, nodeId);
+            nodes.putInt(12 * nodeId, (int) Math.scalb(point.e(), 4));
+            nodes.putInt(12 * nodeId + 4, (int) Math.scalb(point.n(), 4));
+            nodes.putInt(12 * nodeId + 8, (degrees[nodeId] << 28) | edgeId);
+            osmIds.putLong(8 * nodeId, rng.nextLong());
+
+            for (int i = 0; i < degrees[nodeId]; i++, edgeId++) {
+                int target = rng.nextInt(NODE_COUNT);
+                edges.putInt(10 * edgeId, rng.nextBoolean() ? target : ~target);
+                edges.putShort(10 * edgeId + 4, (short) (EDGE_LENGTH << 4));
+                edges.putShort(10 * edgeId + 6, (short) rng.nextInt(1 << 10));
+                edges.putShort(10 * edgeId + 8, (short) rng.nextInt(4));
+                profileIds.putInt(4 * edgeId, (1 << 30) | (SAMPLES * edgeId));
+                for (int j = 0; j < SAMPLES; j++)
+                    elevations.putShort(2 * (SAMPLES * edgeId + j), (short) rng.nextInt(1 << 14));
+            }
+        }
+        for (int sector = 0; sector < SECTOR_COUNT; sector++)
+            sectors.putShort(6 * sector + 4, (short) sectorSizes[sector]);
+        for (int i = 0; i < 4; i++)
+            attributes.putLong(8 * i, 1L << i);
+
+        Files.write(basePath.resolve("nodes.bin"), nodes.array());
+        Files.write(basePath.resolve("sectors.bin"), sectors.array());
+        Files.write(basePath.resolve("edges.bin"), edges.array());
+        Files.write(basePath.resolve("profile_ids.bin"), profileIds.array());
+        Files.write(basePath.resolve("elevations.bin"), elevations.array());
+        Files.write(basePath.resolve("attributes.bin"), attributes.array());
+        Files.write(basePath.resolve("nodes_osmid.bin"), osmIds.array());
+    }
+
+    @Test
+    void renumberPreservesTheGraph() throws IOException {
+        Path sourcePath = Files.createTempDirectory("javelo-source");
+        Path targetPath = Files.createTempDirectory("javelo-target");
+        writeRandomGraph(sourcePath, newRandom());
+        Graph graph = Graph.loadFrom(sourcePath);
+        graph.writeInEdges(sourcePath);
+
+        int[] newNodeIds = GraphRenumbering.renumber(sourcePath, targetPath);
+        Graph renumbered = Graph.loadFrom(targetPath);
+
+        int[] sorted = newNodeIds.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < NODE_COUNT; i++)
+            assertEquals(i, sorted[i]);
+        assertEquals(NODE_COUNT, renumbered.nodeCount());
+
+        ByteBuffer osmIds = ByteBuffer.wrap(Files.readAllBytes(sourcePath.resolve("nodes_osmid.bin")));
+        ByteBuffer newOsmIds = ByteBuffer.wrap(Files.readAllBytes(targetPath.resolve("nodes_osmid.bin")));
+        for (int nodeId = 0; nodeId < NODE_COUNT; nodeId++) {
+            int newId = newNodeIds[nodeId];
+            assertEquals(graph.nodePoint(nodeId), renumbered.nodePoint(newId));
+            assertEquals(osmIds.getLong(8 * nodeId), newOsmIds.getLong(8 * newId));
+            assertEquals(graph.nodeOutDegree(nodeId), renumbered.nodeOutDegree(newId));
+            assertEquals(graph.nodeInDegree(nodeId), renumbered.nodeInDegree(newId));
+
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int newEdgeId = renumbered.nodeOutEdgeId(newId, i);
+                assertEquals(newNodeIds[graph.edgeTargetNodeId(edgeId)],
+                        renumbered.edgeTargetNodeId(newEdgeId));
+                assertEquals(graph.edgeIsInverted(edgeId), renumbered.edgeIsInverted(newEdgeId));
+                assertEquals(graph.edgeLength(edgeId), renumbered.edgeLength(newEdgeId));
+                assertEquals(graph.edgeElevationGain(edgeId),
+                        renumbered.edgeElevationGain(newEdgeId));
+                assertEquals(graph.edgeAttributes(edgeId), renumbered.edgeAttributes(newEdgeId));
+                for (int x = 0; x <= EDGE_LENGTH; x += 1)
+                    assertEquals(graph.edgeProfile(edgeId).applyAsDouble(x),
+                            renumbered.edgeProfile(newEdgeId).applyAsDouble(x));
+            }
+        }
+        assertTrue(Files.exists(targetPath.resolve("in_edges.bin")));
+    }
+
+    @Test
+    void renumberKeepsNodesOfASectorContiguous() throws IOException {
+        Path sourcePath = Files.createTempDirectory("javelo-source");
+        Path targetPath = Files.createTempDirectory("javelo-target");
+        writeRandomGraph(sourcePath, newRandom());
+        GraphRenumbering.renumber(sourcePath, targetPath);
+        Graph renumbered = Graph.loadFrom(targetPath);
+
+        ByteBuffer sectors = ByteBuffer.wrap(Files.readAllBytes(targetPath.resolve("sectors.bin")));
+        int covered = 0;
+        for (int sector = 0; sector < SECTOR_COUNT; sector++) {
+            int start = sectors.getInt(6 * sector);
+            int size = Short.toUnsignedInt(sectors.getShort(6 * sector + 4));
+            for (int nodeId = start; nodeId < start + size; nodeId++)
+                assertEquals(sector, GraphSectors.sectorIndex(renumbered.nodePoint(nodeId)));
+            covered += size;
+        }
+        assertEquals(NODE_COUNT, covered);
+        for (int nodeId = 0; nodeId < NODE_COUNT; nodeId++)
+            assertEquals(nodeId, renumbered.nodeClosestTo(renumbered.nodePoint(nodeId), 0.01));
+    }
+
+    @Test
+    void renumberFailsWhenSourceAndTargetAreTheSame() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-source");
+        writeRandomGraph(basePath, newRandom());
+        assertThrows(IllegalArgumentException.class,
+                () -> GraphRenumbering.renumber(basePath, basePath));
+    }
+
+    @Test
+    void hilbertIndexVisitsNeighbouringCellsInAlignedBlocks() {
+        int side = 64;
+        int[][] cells = new int[side * side][];
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                long index = GraphRenumbering.hilbertIndex(x, y);
+                assertTrue(0 <= index && index < cells.length);
+                assertNull(cells[(int) index]);
+                cells[(int) index] = new int[]{x, y};
+            }
+        }
+        for (int i = 1; i < cells.length; i++) {
+            assertEquals(1, Math.abs(cells[i][0] - cells[i - 1][0])
+                    + Math.abs(cells[i][1] - cells[i - 1][1]));
+        }
+    }
+}
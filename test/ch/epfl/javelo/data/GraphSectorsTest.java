@@ -87,4 +87,12 @@ public class GraphSectorsTest {
         assertArrayEquals(temoin.toArray(), test.toArray());
     }
 
+    @Test
+    public void sectorIndexWorksOnCornersAndInside() {
+        assertEquals(0, GraphSectors.sectorIndex(new PointCh(2_485_000, 1_075_000)));
+        assertEquals(128 * 128 - 1, GraphSectors.sectorIndex(new PointCh(2_834_000, 1_296_000)));
+        assertEquals(1 + 2 * 128, GraphSectors.sectorIndex(new PointCh(
+                2_485_000 + 1.5 * 349_000.0 / 128.0, 1_075_000 + 2.5 * 221_000.0 / 128.0)));
+    }
+
 }
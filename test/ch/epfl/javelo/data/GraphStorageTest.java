@@ -0,0 +1,73 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphStorageTest {
+
+    @Test
+    void heapStorageGivesTheSameGraphAsMappedStorage() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-heap");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        GraphArenaTest.assertSameGraph(Graph.loadFrom(basePath, Graph.Storage.MAPPED),
+                Graph.loadFrom(basePath, Graph.Storage.HEAP));
+    }
+
+    @Test
+    void heapStorageReadsWideNodes() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-heap");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        Graph graph = Graph.loadFrom(basePath);
+        graph.writeWideNodes(basePath);
+        GraphArenaTest.assertSameGraph(graph, Graph.loadFrom(basePath, Graph.Storage.HEAP));
+    }
+
+    @Test
+    void heapNodesKeepDegreesUpTo255() {
+        GraphNodes nodes = new GraphNodes(IntBuffer.wrap(new int[]{
+                0x2600_0000, 0x1200_0000, 7, 255
+        }), true);
+        HeapGraphNodes heapNodes = HeapGraphNodes.copyOf(nodes);
+        assertEquals(255, heapNodes.outDegree(0));
+        assertEquals(7 + 254, heapNodes.edgeId(0, 254));
+        assertEquals(nodes.nodeE(0), heapNodes.nodeE(0));
+
+        GraphNodes tooManyEdges = new GraphNodes(IntBuffer.wrap(new int[]{
+                0x2600_0000, 0x1200_0000, 7, 256
+        }), true);
+        assertThrows(IllegalArgumentException.class, () -> HeapGraphNodes.copyOf(tooManyEdges));
+    }
+
+    @Test
+    void heapEdgesWorkOnInvertedEdges() {
+        ByteBuffer edgesBuffer = ByteBuffer.wrap(new byte[]{
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xf5,
+                0x00, 0x30,
+                0x00, 0x18,
+                0x12, 0x34
+        });
+        IntBuffer profileIds = IntBuffer.wrap(new int[]{(1 << 30) | 1});
+        ShortBuffer elevations = ShortBuffer.wrap(new short[]{
+                (short) 0, (short) 0x180C, (short) 0x180E, (short) 0x1810, (short) 0
+        });
+        GraphEdges edges = new GraphEdges(edgesBuffer, profileIds, elevations);
+        HeapGraphEdges heapEdges = HeapGraphEdges.copyOf(edges);
+
+        assertTrue(heapEdges.isInverted(0));
+        assertEquals(10, heapEdges.targetNodeId(0));
+        assertEquals(3, heapEdges.length(0));
+        assertEquals(1.5, heapEdges.elevationGain(0));
+        assertEquals(0x1234, heapEdges.attributesIndex(0));
+        assertTrue(heapEdges.hasProfile(0));
+        assertArrayEquals(edges.profileSamples(0), heapEdges.profileSamples(0));
+    }
+}
@@ -0,0 +1,69 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSegmentTest {
+
+    @Test
+    void mappedSegmentReadsValuesBeyondTwoGigabytes() throws IOException {
+        // Fichier creux, qui n'occupe presque pas de place sur le disque
+        Path path = Files.createTempFile("javelo-segment", ".bin");
+        long size = 3L << 30;
+        long[] offsets = {0, (1L << 30) - 2, (1L << 31) - 1, (1L << 31) + 6, size - 4};
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+            for (int i = 0; i < offsets.length; i++) {
+                file.seek(offsets[i]);
+                file.writeInt(0xCAFE0000 | i);
+            }
+        }
+        try {
+            MappedSegment segment = MappedSegment.map(path);
+            assertEquals(size, segment.byteSize());
+            for (int i = 0; i < offsets.length; i++) {
+                assertEquals(0xCAFE0000 | i, segment.getInt(offsets[i]));
+                assertEquals((short) 0xCAFE, segment.getShort(offsets[i]));
+                assertEquals((byte) i, segment.getByte(offsets[i] + 3));
+            }
+            assertThrows(IllegalStateException.class, segment::asShortBuffer);
+            segment.release();
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void mappedSegmentReadsSmallFilesAsOneBuffer() throws IOException {
+        Path path = Files.createTempFile("javelo-segment", ".bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6}, StandardOpenOption.WRITE);
+        MappedSegment segment = MappedSegment.map(path);
+        assertEquals(6, segment.byteSize());
+        assertEquals(0x03040506, segment.getInt(2));
+        assertEquals(3, segment.asShortBuffer().capacity());
+        assertEquals(0x0102, segment.asShortBuffer().get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getInt(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getShort(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getByte(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getByte(-1));
+        segment.release();
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getInt(0));
+        assertEquals(0, segment.asShortBuffer().capacity());
+    }
+
+    @Test
+    void mappedSegmentHandlesEmptyFiles() throws IOException {
+        Path path = Files.createTempFile("javelo-segment", ".bin");
+        MappedSegment segment = MappedSegment.map(path);
+        assertEquals(0, segment.byteSize());
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.getByte(0));
+        segment.release();
+    }
+}
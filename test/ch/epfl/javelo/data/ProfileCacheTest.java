@@ -0,0 +1,70 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Functions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfileCacheTest {
+
+    @Test
+    void profileCacheEvictsTheLeastRecentlyUsedProfile() {
+        // Les arêtes dont l'identité est multiple de 16 partagent un segment
+        ProfileCache cache = new ProfileCache(2 * 16);
+        DoubleUnaryOperator p0 = Functions.constant(0);
+        DoubleUnaryOperator p1 = Functions.constant(1);
+        DoubleUnaryOperator p2 = Functions.constant(2);
+        cache.put(0, p0);
+        cache.put(16, p1);
+        assertSame(p0, cache.get(0));
+        cache.put(32, p2);
+
+        assertSame(p0, cache.get(0));
+        assertNull(cache.get(16));
+        assertSame(p2, cache.get(32));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void profileCacheIsBounded() {
+        ProfileCache cache = new ProfileCache(100);
+        for (int edgeId = 0; edgeId < 10_000; edgeId++)
+            cache.put(edgeId, Functions.constant(edgeId));
+        assertTrue(cache.size() <= 100);
+        assertNotNull(cache.get(9_999));
+    }
+
+    @Test
+    void profileCacheWorksConcurrently() {
+        ProfileCache cache = new ProfileCache(1_000);
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            int edgeId = i % 2_000;
+            DoubleUnaryOperator profile = cache.get(edgeId);
+            if (profile == null)
+                cache.put(edgeId, Functions.constant(edgeId));
+            else
+                assertEquals(edgeId, profile.applyAsDouble(0));
+        });
+        assertTrue(cache.size() <= 1_000);
+    }
+
+    @Test
+    void profileCacheFailsOnInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ProfileCache(0));
+    }
+
+    @Test
+    void edgeProfileReusesDecodedProfiles() throws IOException {
+        Path basePath = Files.createTempDirectory("javelo-profiles");
+        GraphRenumberingTest.writeRandomGraph(basePath, newRandom());
+        Graph graph = Graph.loadFrom(basePath);
+        assertSame(graph.edgeProfile(0), graph.edgeProfile(0));
+    }
+}
@@ -0,0 +1,142 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlternativeRouteComputerTest {
+
+    private static double cost(Graph graph, CostFunction cf, Route route) {
+        double cost = 0;
+        for (Edge edge : route.edges()) {
+            double edgeCost = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < graph.nodeOutDegree(edge.fromNodeId()); i++) {
+                int edgeId = graph.nodeOutEdgeId(edge.fromNodeId(), i);
+                if (graph.edgeTargetNodeId(edgeId) == edge.toNodeId())
+                    edgeCost = Math.min(edgeCost,
+                            graph.edgeLength(edgeId) * cf.costFactor(edge.fromNodeId(), edgeId));
+            }
+            cost += edgeCost;
+        }
+        return cost;
+    }
+
+    @Test
+    void routesBetweenFindsTheDetourAroundTheShortcut() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostFunction cf = (nodeId, edgeId) -> 1;
+        AlternativeRouteComputer arc = new AlternativeRouteComputer(new RouteComputer(graph, cf));
+
+        List<Route> routes = arc.routesBetween(1, 4, 3);
+        assertEquals(2, routes.size());
+        assertEquals(250, routes.get(0).length());
+        assertEquals(1, routes.get(0).edges().size());
+        assertEquals(300, routes.get(1).length());
+        assertEquals(List.of(1, 2, 3), routes.get(1).edges().stream()
+                .map(Edge::fromNodeId).toList());
+    }
+
+    @Test
+    void routesBetweenRespectsTheMaximalStretch() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostFunction cf = (nodeId, edgeId) -> 1;
+        AlternativeRouteComputer arc =
+                new AlternativeRouteComputer(new RouteComputer(graph, cf), 1.1, 0.6);
+
+        List<Route> routes = arc.routesBetween(1, 4, 3);
+        assertEquals(1, routes.size());
+        assertEquals(250, routes.get(0).length());
+    }
+
+    @Test
+    void routesBetweenReturnsOnlyTheBestRouteWhenAskedForOne() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostFunction cf = (nodeId, edgeId) -> 1;
+        AlternativeRouteComputer arc = new AlternativeRouteComputer(new RouteComputer(graph, cf));
+
+        assertEquals(1, arc.routesBetween(1, 4, 1).size());
+    }
+
+    @Test
+    void routesBetweenReturnsAnEmptyListWhenNoRouteExists() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        // Les arêtes 0 -> 5, 1 -> 4 et 2 -> 3 sont impraticables
+        CostFunction cf = (nodeId, edgeId) -> edgeId == 1 || edgeId == 4 || edgeId == 6
+                ? Double.POSITIVE_INFINITY
+                : 1;
+        AlternativeRouteComputer arc = new AlternativeRouteComputer(new RouteComputer(graph, cf));
+
+        assertEquals(List.of(), arc.routesBetween(0, 5, 3));
+    }
+
+    @Test
+    void routesBetweenFailsOnInvalidArguments() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostFunction cf = (nodeId, edgeId) -> 1;
+        RouteComputer rc = new RouteComputer(graph, cf);
+        AlternativeRouteComputer arc = new AlternativeRouteComputer(rc);
+
+        assertThrows(IllegalArgumentException.class, () -> arc.routesBetween(2, 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> arc.routesBetween(1, 4, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AlternativeRouteComputer(rc, 0.9, 0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AlternativeRouteComputer(rc, 1.2, 1));
+    }
+
+    @Test
+    void routesBetweenReturnsBoundedDiverseRoutesOnRandomQueries() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RandomGenerator rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS / 100; i++) {
+            double[] factors = new double[12];
+            for (int edgeId = 0; edgeId < factors.length; edgeId++)
+                factors[edgeId] = rng.nextInt(5) == 0 ? Double.POSITIVE_INFINITY : 1 + rng.nextDouble();
+            CostFunction cf = (nodeId, edgeId) -> factors[edgeId];
+            RouteComputer rc = new RouteComputer(graph, cf);
+            double maxStretch = 1 + rng.nextDouble();
+            double maxOverlap = rng.nextDouble();
+            AlternativeRouteComputer arc = new AlternativeRouteComputer(rc, maxStretch, maxOverlap);
+
+            int start = rng.nextInt(graph.nodeCount());
+            int end = rng.nextInt(graph.nodeCount());
+            if (start == end) continue;
+            Route best = rc.bestRouteBetween(start, end);
+            List<Route> routes = arc.routesBetween(start, end, 1 + rng.nextInt(4));
+            if (best == null) {
+                assertTrue(routes.isEmpty());
+                continue;
+            }
+            double bestCost = cost(graph, cf, best);
+            assertEquals(bestCost, cost(graph, cf, routes.get(0)), 1e-3);
+
+            Set<List<Integer>> usedEdges = new HashSet<>();
+            for (Route route : routes) {
+                assertEquals(graph.nodePoint(start), route.points().get(0));
+                assertEquals(graph.nodePoint(end), route.points().get(route.points().size() - 1));
+                assertTrue(cost(graph, cf, route) <= maxStretch * bestCost + 1e-3);
+
+                double shared = 0;
+                Set<Integer> nodeIds = new HashSet<>();
+                nodeIds.add(start);
+                for (Edge edge : route.edges()) {
+                    assertTrue(nodeIds.add(edge.toNodeId()));
+                    if (usedEdges.contains(List.of(edge.fromNodeId(), edge.toNodeId())))
+                        shared += edge.length();
+                }
+                if (route != routes.get(0))
+                    assertTrue(shared <= maxOverlap * route.length() + 1e-6);
+                for (Edge edge : route.edges())
+                    usedEdges.add(List.of(edge.fromNodeId(), edge.toNodeId()));
+            }
+        }
+    }
+}
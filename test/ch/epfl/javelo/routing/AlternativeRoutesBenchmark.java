@@ -0,0 +1,49 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compare la latence du calcul de k itinéraires par AlternativeRouteComputer
+ * à celle du calcul de l'itinéraire optimal par RouteComputer, sur des
+ * requêtes aléatoires, et donne le nombre moyen d'itinéraires obtenus ainsi
+ * que leur allongement moyen. Usage : AlternativeRoutesBenchmark [répertoire
+ * du graphe] [requêtes] [k]
+ */
+public final class AlternativeRoutesBenchmark {
+    private static final int WARMUP_QUERIES = 20;
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        RouteComputer rc = new RouteComputer(graph, new CityBikeCF(graph));
+        AlternativeRouteComputer arc = new AlternativeRouteComputer(rc);
+
+        int[][] pairs = RouteComputerBenchmark.randomPairs(graph, queries);
+        int[][] warmup = RouteComputerBenchmark.randomPairs(graph, WARMUP_QUERIES);
+        RouteComputerBenchmark.measure("bestRouteBetween", warmup, pairs,
+                p -> rc.bestRouteBetween(p[0], p[1]));
+        RouteComputerBenchmark.measure("routesBetween (k = " + k + ")", warmup, pairs,
+                p -> arc.routesBetween(p[0], p[1], k));
+
+        int found = 0, routeCount = 0;
+        double stretchSum = 0;
+        for (int[] p : pairs) {
+            List<Route> routes = arc.routesBetween(p[0], p[1], k);
+            if (routes.isEmpty()) continue;
+            found += 1;
+            routeCount += routes.size();
+            for (Route route : routes.subList(1, routes.size()))
+                stretchSum += route.length() / routes.get(0).length();
+        }
+        int alternatives = routeCount - found;
+        System.out.printf("%.2f itinéraires par requête, allongement moyen (en longueur) "
+                        + "des alternatives %.3f%n",
+                found == 0 ? 0 : (double) routeCount / found,
+                alternatives == 0 ? 1 : stretchSum / alternatives);
+    }
+}
@@ -0,0 +1,80 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compare la latence et la qualité (rapport des coûts) des itinéraires
+ * calculés par la recherche A* pondérée de RouteComputer, pour différentes
+ * valeurs de epsilon, à celles de la recherche exacte, sur des requêtes
+ * aléatoires. Usage : ApproximateRoutingBenchmark [répertoire du graphe]
+ * [requêtes]
+ */
+public final class ApproximateRoutingBenchmark {
+    private static final double[] EPSILONS = {1, 1.1, 1.25, 1.5, 2, 3};
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        CostFunction cf = new CityBikeCF(graph);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        int[][] pairs = RouteComputerBenchmark.randomPairs(graph, queries);
+
+        double[] exactCosts = new double[queries];
+        for (int i = 0; i < queries; i++)
+            exactCosts[i] = cost(graph, cf, rc.bestRouteBetween(pairs[i][0], pairs[i][1]));
+
+        for (double epsilon : EPSILONS) {
+            for (int[] p : RouteComputerBenchmark.randomPairs(graph, 20))
+                rc.approximateRouteBetween(p[0], p[1], epsilon, SearchBudget.UNLIMITED);
+
+            long[] nanos = new long[queries];
+            double[] ratios = new double[queries];
+            int found = 0;
+            for (int i = 0; i < queries; i++) {
+                long t0 = System.nanoTime();
+                ApproximateRoute result = rc.approximateRouteBetween(pairs[i][0], pairs[i][1],
+                        epsilon, SearchBudget.UNLIMITED);
+                nanos[i] = System.nanoTime() - t0;
+                if (result != null && exactCosts[i] > 0) {
+                    ratios[found++] = cost(graph, cf, result.route()) / exactCosts[i];
+                }
+            }
+            Arrays.sort(nanos);
+            double[] r = Arrays.copyOf(ratios, found);
+            Arrays.sort(r);
+            System.out.printf("epsilon %4.2f : p50 %7.2f ms  p99 %7.2f ms  "
+                            + "coût/optimal moy. %.4f  p99 %.4f  max %.4f%n",
+                    epsilon,
+                    nanos[queries / 2] / 1e6,
+                    nanos[(int) (queries * 0.99)] / 1e6,
+                    Arrays.stream(r).average().orElse(1),
+                    found == 0 ? 1 : r[(int) (found * 0.99)],
+                    found == 0 ? 1 : r[found - 1]);
+        }
+    }
+
+    // Retourne le coût de l'itinéraire donné, dont les arêtes sont retrouvées
+    // parmi les arêtes sortant de leur noeud de départ (celle de coût minimal
+    // en cas d'arêtes parallèles), ou l'infini s'il n'existe pas.
+    private static double cost(Graph graph, CostFunction cf, Route route) {
+        if (route == null) return Double.POSITIVE_INFINITY;
+        double cost = 0;
+        List<Edge> edges = route.edges();
+        for (Edge edge : edges) {
+            double edgeCost = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < graph.nodeOutDegree(edge.fromNodeId()); i++) {
+                int edgeId = graph.nodeOutEdgeId(edge.fromNodeId(), i);
+                if (graph.edgeTargetNodeId(edgeId) == edge.toNodeId())
+                    edgeCost = Math.min(edgeCost, graph.edgeLength(edgeId)
+                            * cf.costFactor(edge.fromNodeId(), edgeId));
+            }
+            cost += edgeCost;
+        }
+        return cost;
+    }
+}
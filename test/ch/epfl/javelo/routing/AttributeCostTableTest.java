@@ -0,0 +1,125 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttributeCostTableTest {
+    private static final int EDGE_COUNT = 2_000;
+    private static final int ATTRIBUTE_SET_COUNT = 50;
+
+    // Graphe formé d'une chaîne de noeuds, dont les arêtes ont des attributs,
+    // des sens et des pentes aléatoires.
+    private static Graph randomGraph() {
+        var rng = newRandom();
+        List<AttributeSet> attributeSets = new ArrayList<>();
+        attributeSets.add(AttributeSet.of(Attribute.HIGHWAY_MOTORWAY));
+        attributeSets.add(AttributeSet.of(Attribute.ONEWAY_YES, Attribute.HIGHWAY_RESIDENTIAL));
+        attributeSets.add(AttributeSet.of(Attribute.ONEWAY_M1, Attribute.CYCLEWAY_OPPOSITE));
+        while (attributeSets.size() < ATTRIBUTE_SET_COUNT)
+            attributeSets.add(new AttributeSet(rng.nextLong() >>> (64 - Attribute.COUNT)));
+
+        int nodeCount = EDGE_COUNT + 1;
+        IntBuffer nodes = IntBuffer.allocate(3 * nodeCount);
+        ByteBuffer edges = ByteBuffer.allocate(10 * EDGE_COUNT);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            nodes.put(3 * nodeId, (2_600_000 + nodeId) << 4);
+            nodes.put(3 * nodeId + 1, 1_200_000 << 4);
+            nodes.put(3 * nodeId + 2, nodeId < EDGE_COUNT ? (1 << 28) | nodeId : 0);
+        }
+        for (int edgeId = 0; edgeId < EDGE_COUNT; edgeId++) {
+            int target = edgeId + 1;
+            edges.putInt(10 * edgeId, rng.nextBoolean() ? ~target : target);
+            // Longueur nulle (pente indéterminée) pour quelques arêtes
+            int length = edgeId % 100 == 0 ? 0 : 1 + rng.nextInt(4_000);
+            edges.putShort(10 * edgeId + 4, (short) length);
+            edges.putShort(10 * edgeId + 6, (short) rng.nextInt(Math.max(1, length / 5)));
+            edges.putShort(10 * edgeId + 8, (short) rng.nextInt(ATTRIBUTE_SET_COUNT));
+        }
+        return new Graph(new GraphNodes(nodes), new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(edges, IntBuffer.allocate(EDGE_COUNT), ShortBuffer.allocate(0)),
+                attributeSets);
+    }
+
+    private static void assertSameFactors(Graph graph, CostFunction expected, CostFunction actual) {
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                assertEquals(expected.costFactor(nodeId, edgeId),
+                        actual.costFactor(nodeId, edgeId));
+            }
+        }
+    }
+
+    @Test
+    void tableGivesSameFactorsAsCityBikeCF() {
+        Graph graph = randomGraph();
+        CityBikeCF cf = new CityBikeCF(graph);
+        assertSameFactors(graph, cf, new AttributeCostTable(graph, cf));
+    }
+
+    @Test
+    void tableEvaluatesEachEntryOnceAtConstruction() {
+        Graph graph = randomGraph();
+        CityBikeCF cf = new CityBikeCF(graph);
+        Set<List<Object>> evaluated = new HashSet<>();
+        AttributeCostFunction countingCf = new AttributeCostFunction() {
+            @Override
+            public int slopeClassCount() {
+                return cf.slopeClassCount();
+            }
+
+            @Override
+            public int slopeClass(double averageUpSlope) {
+                return cf.slopeClass(averageUpSlope);
+            }
+
+            @Override
+            public double costFactor(AttributeSet attributes, boolean inverted, int slopeClass) {
+                assertTrue(evaluated.add(List.of(attributes, inverted, slopeClass)));
+                return cf.costFactor(attributes, inverted, slopeClass);
+            }
+
+            @Override
+            public double costFactor(int nodeId, int edgeId) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        AttributeCostTable table = new AttributeCostTable(graph, countingCf);
+        assertEquals(ATTRIBUTE_SET_COUNT * 2 * cf.slopeClassCount(), evaluated.size());
+        assertSameFactors(graph, cf, table);
+        assertEquals(ATTRIBUTE_SET_COUNT * 2 * cf.slopeClassCount(), evaluated.size());
+    }
+
+    @Test
+    void slopeClassesAreOrdered() {
+        CityBikeCF cf = new CityBikeCF(null);
+        assertEquals(5, cf.slopeClassCount());
+        assertEquals(0, cf.slopeClass(-0.2));
+        assertEquals(0, cf.slopeClass(0.005));
+        assertEquals(1, cf.slopeClass(0.01));
+        assertEquals(2, cf.slopeClass(0.04));
+        assertEquals(3, cf.slopeClass(0.07));
+        assertEquals(4, cf.slopeClass(0.3));
+        assertEquals(4, cf.slopeClass(Double.NaN));
+    }
+
+    @Test
+    void tableGivesSameFactorsAsCityBikeCFOnLausanne() throws IOException {
+        Graph graph = Graph.loadFrom(Path.of("lausanne"));
+        CityBikeCF cf = new CityBikeCF(graph);
+        assertSameFactors(graph, cf, new AttributeCostTable(graph, cf));
+    }
+}
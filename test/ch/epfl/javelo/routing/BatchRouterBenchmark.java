@@ -0,0 +1,55 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static ch.epfl.javelo.routing.RouteComputerBenchmark.randomPairs;
+
+/**
+ * Mesure le débit de BatchRouter pour un nombre de fils d'exécution allant
+ * de 1 au nombre de processeurs disponibles.
+ * Usage : BatchRouterBenchmark [répertoire du graphe] [requêtes]
+ */
+public final class BatchRouterBenchmark {
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        RouteComputer rc = new RouteComputer(graph, new CityBikeCF(graph));
+
+        List<NodePair> pairs = new ArrayList<>();
+        for (int[] p : randomPairs(graph, queries))
+            pairs.add(new NodePair(p[0], p[1]));
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        double singleThreadThroughput = 0;
+        for (int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                BatchRouter router = new BatchRouter(rc, executor);
+                // Préchauffage, qui crée aussi l'espace de travail de chaque fil
+                router.bestRoutesBetween(pairs.subList(0, Math.min(pairs.size(), 20 * threads)));
+
+                long t0 = System.nanoTime();
+                router.forEachAsCompleted(pairs, (route, index) -> { });
+                double seconds = (System.nanoTime() - t0) / 1e9;
+                double throughput = queries / seconds;
+                if (threads == 1) singleThreadThroughput = throughput;
+                System.out.printf("%3d fils : %8.1f requêtes/s  (x%.2f)%n",
+                        threads, throughput, throughput / singleThreadThroughput);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    // Double le nombre de fils, sans sauter le nombre de processeurs.
+    private static int nextThreadCount(int threads, int processors) {
+        return threads < processors && 2 * threads > processors ? processors : 2 * threads;
+    }
+}
@@ -0,0 +1,95 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRouterTest {
+    private static final CostFunction UNIT_COST = (nodeId, edgeId) -> 1;
+
+    private static List<NodePair> allPairs(Graph graph) {
+        List<NodePair> pairs = new ArrayList<>();
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start != end) pairs.add(new NodePair(start, end));
+            }
+        }
+        return pairs;
+    }
+
+    @Test
+    void bestRoutesBetweenReturnsRoutesInOrder() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, UNIT_COST);
+        List<NodePair> pairs = allPairs(graph);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Route> routes = new BatchRouter(rc, executor).bestRoutesBetween(pairs);
+            assertEquals(pairs.size(), routes.size());
+            for (int i = 0; i < pairs.size(); i++) {
+                Route expected = rc.bestRouteBetween(
+                        pairs.get(i).startNodeId(), pairs.get(i).endNodeId());
+                assertEquals(expected.points(), routes.get(i).points());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void forEachInOrderPassesIndicesInOrder() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        List<NodePair> pairs = allPairs(graph);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Integer> indices = new ArrayList<>();
+            new BatchRouter(new RouteComputer(graph, UNIT_COST), executor)
+                    .forEachInOrder(pairs, (route, index) -> indices.add(index));
+            for (int i = 0; i < pairs.size(); i++)
+                assertEquals(i, (int) indices.get(i));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void forEachAsCompletedPassesEveryRouteOnce() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, UNIT_COST);
+        List<NodePair> pairs = allPairs(graph);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            boolean[] seen = new boolean[pairs.size()];
+            new BatchRouter(rc, executor).forEachAsCompleted(pairs, (route, index) -> {
+                assertFalse(seen[index]);
+                seen[index] = true;
+                NodePair pair = pairs.get(index);
+                assertEquals(rc.bestRouteBetween(pair.startNodeId(), pair.endNodeId()).points(),
+                        route.points());
+            });
+            for (boolean s : seen)
+                assertTrue(s);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void bestRoutesBetweenPropagatesInvalidPairs() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BatchRouter router = new BatchRouter(new RouteComputer(graph, UNIT_COST), executor);
+            assertThrows(IllegalArgumentException.class, () ->
+                    router.bestRoutesBetween(List.of(new NodePair(0, 1), new NodePair(2, 2))));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
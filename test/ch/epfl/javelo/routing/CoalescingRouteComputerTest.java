@@ -0,0 +1,109 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingRouteComputerTest {
+    private static final int THREADS = 16;
+
+    @Test
+    void identicalConcurrentQueriesShareOneComputation() throws Exception {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        AtomicBoolean blocking = new AtomicBoolean(true);
+        CoalescingRouteComputer[] coalescer = new CoalescingRouteComputer[1];
+        // La fonction de coût retient le premier calcul jusqu'à ce que toutes
+        // les requêtes aient été reçues.
+        CostFunction cf = (nodeId, edgeId) -> {
+            while (blocking.get() && coalescer[0].requestCount() < THREADS)
+                Thread.onSpinWait();
+            blocking.set(false);
+            return 1;
+        };
+        coalescer[0] = new CoalescingRouteComputer(new RouteComputer(graph, cf));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Route>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++)
+                futures.add(executor.submit(() -> coalescer[0].bestRouteBetween(0, 3)));
+            Route first = futures.get(0).get(10, TimeUnit.SECONDS);
+            assertEquals(300, first.length());
+            for (Future<Route> future : futures)
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(THREADS, coalescer[0].requestCount());
+        assertEquals(1, coalescer[0].computationCount());
+        assertEquals(THREADS - 1, coalescer[0].coalescedCount());
+        assertEquals((THREADS - 1) / (double) THREADS, coalescer[0].coalescedRatio(), 1e-9);
+    }
+
+    @Test
+    void sequentialQueriesAreNotCoalesced() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CoalescingRouteComputer coalescer =
+                new CoalescingRouteComputer(new RouteComputer(graph, (nodeId, edgeId) -> 1));
+        assertEquals(0, coalescer.coalescedRatio());
+        coalescer.bestRouteBetween(0, 3);
+        coalescer.bestRouteBetween(0, 3);
+        assertEquals(2, coalescer.computationCount());
+        assertEquals(0, coalescer.coalescedCount());
+        assertThrows(IllegalArgumentException.class, () -> coalescer.bestRouteBetween(1, 1));
+    }
+
+    @Test
+    void coalescerWorksUnderStress() throws Exception {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        CoalescingRouteComputer coalescer = new CoalescingRouteComputer(rc);
+        int queriesPerThread = 5_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    RandomGenerator rng = RandomGenerator.of("L64X128MixRandom");
+                    start.await();
+                    for (int i = 0; i < queriesPerThread; i++) {
+                        // Peu de requêtes distinctes, afin qu'elles se recoupent
+                        int startNodeId = rng.nextInt(2);
+                        int endNodeId = 2 + rng.nextInt(4);
+                        Route route = coalescer.bestRouteBetween(startNodeId, endNodeId);
+                        assertEquals(rc.bestRouteBetween(startNodeId, endNodeId).points(),
+                                route.points());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals((long) THREADS * queriesPerThread, coalescer.requestCount());
+        assertEquals(coalescer.requestCount(),
+                coalescer.computationCount() + coalescer.coalescedCount());
+    }
+
+    @Test
+    void exceptionsArePropagatedToAllWaitingQueries() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CoalescingRouteComputer coalescer = new CoalescingRouteComputer(
+                new RouteComputer(graph, (nodeId, edgeId) -> {
+                    throw new IllegalStateException();
+                }));
+        assertThrows(IllegalStateException.class, () -> coalescer.bestRouteBetween(0, 3));
+        assertEquals(1, coalescer.computationCount());
+    }
+}
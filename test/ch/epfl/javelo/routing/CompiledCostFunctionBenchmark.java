@@ -0,0 +1,59 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ch.epfl.javelo.routing.RouteComputerBenchmark.measure;
+import static ch.epfl.javelo.routing.RouteComputerBenchmark.randomPairs;
+
+/**
+ * Mesure le temps de compilation et de chargement d'une fonction de coût
+ * compilée, et compare la latence des requêtes de RouteComputer avec
+ * CityBikeCF, avec sa version tabulée par ensemble d'attributs et avec sa
+ * version compilée.
+ * Usage : CompiledCostFunctionBenchmark [répertoire du graphe] [requêtes]
+ */
+public final class CompiledCostFunctionBenchmark {
+    private static final int WARMUP_QUERIES = 50;
+    private static final String NAME = "city_bike_benchmark";
+
+    public static void main(String[] args) throws IOException {
+        Path basePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        Graph graph = Graph.loadFrom(basePath);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        CostFunction cf = new CityBikeCF(graph);
+
+        long t0 = System.nanoTime();
+        CompiledCostFunction.of(graph, cf, 1);
+        long t1 = System.nanoTime();
+        CompiledCostFunction.of(graph, cf, parallelism);
+        long t2 = System.nanoTime();
+        Files.deleteIfExists(basePath.resolve("cost_" + NAME + ".bin"));
+        CompiledCostFunction.loadOrCompile(basePath, graph, NAME, cf, parallelism);
+        long t3 = System.nanoTime();
+        CompiledCostFunction compiled =
+                CompiledCostFunction.loadOrCompile(basePath, graph, NAME, cf, parallelism);
+        long t4 = System.nanoTime();
+        System.out.printf("Compilation : %.0f ms (1 thread), %.0f ms (%d threads)%n",
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6, parallelism);
+        System.out.printf("loadOrCompile : %.0f ms (compilation et écriture), %.1f ms (fichier à jour)%n",
+                (t3 - t2) / 1e6, (t4 - t3) / 1e6);
+
+        RouteComputer rc = new RouteComputer(graph, cf);
+        RouteComputer tableRc = new RouteComputer(graph, new AttributeCostTable(graph,
+                new CityBikeCF(graph)));
+        RouteComputer compiledRc = new RouteComputer(graph, compiled);
+        int[][] pairs = randomPairs(graph, queries);
+        int[][] warmup = randomPairs(graph, WARMUP_QUERIES);
+        measure("CityBikeCF", warmup, pairs,
+                p -> rc.bestRouteBetween(p[0], p[1]));
+        measure("AttributeCostTable", warmup, pairs,
+                p -> tableRc.bestRouteBetween(p[0], p[1]));
+        measure("CompiledCostFunction", warmup, pairs,
+                p -> compiledRc.bestRouteBetween(p[0], p[1]));
+    }
+}
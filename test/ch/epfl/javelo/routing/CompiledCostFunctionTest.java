@@ -0,0 +1,116 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledCostFunctionTest {
+    // Fonction de coût dépendant de l'arête, qui interdit l'arête 4 et compte
+    // le nombre de ses évaluations.
+    private static final class EdgeCostFunction implements CostFunction {
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        @Override
+        public double costFactor(int nodeId, int edgeId) {
+            evaluations.incrementAndGet();
+            return edgeId == 4 ? Double.POSITIVE_INFINITY : 1 + 0.25 * edgeId;
+        }
+    }
+
+    private static void assertSameFactors(Graph graph, CostFunction expected,
+                                          CostFunction actual) {
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                assertEquals(expected.costFactor(nodeId, edgeId),
+                        actual.costFactor(nodeId, edgeId));
+            }
+        }
+    }
+
+    @Test
+    void compiledFactorsEqualOriginalFactors() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        EdgeCostFunction cf = new EdgeCostFunction();
+        CompiledCostFunction compiled = CompiledCostFunction.of(graph, cf, 2);
+        assertEquals(12, compiled.edgeCount());
+        assertEquals(12, cf.evaluations.get());
+        assertSameFactors(graph, cf, compiled);
+    }
+
+    @Test
+    void ofThrowsOnInvalidParallelism() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledCostFunction.of(graph, new EdgeCostFunction(), 0));
+    }
+
+    @Test
+    void loadOrCompileReusesUpToDateFile() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Path directory = Files.createTempDirectory("compiled");
+        Files.write(directory.resolve("edges.bin"), new byte[]{1, 2, 3});
+
+        EdgeCostFunction cf = new EdgeCostFunction();
+        CompiledCostFunction.loadOrCompile(directory, graph, "test", cf, 1);
+        assertEquals(12, cf.evaluations.get());
+        assertTrue(Files.exists(directory.resolve("cost_test.bin")));
+
+        EdgeCostFunction reloadedCf = new EdgeCostFunction();
+        CompiledCostFunction loaded =
+                CompiledCostFunction.loadOrCompile(directory, graph, "test", reloadedCf, 1);
+        assertEquals(0, reloadedCf.evaluations.get());
+        assertSameFactors(graph, cf, loaded);
+    }
+
+    @Test
+    void loadOrCompileRecompilesWhenGraphChanges() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Path directory = Files.createTempDirectory("compiled");
+        Files.write(directory.resolve("edges.bin"), new byte[]{1, 2, 3});
+        CompiledCostFunction.loadOrCompile(directory, graph, "test", new EdgeCostFunction(), 1);
+
+        Files.write(directory.resolve("edges.bin"), new byte[]{1, 2, 3, 4});
+        EdgeCostFunction cf = new EdgeCostFunction();
+        CompiledCostFunction compiled =
+                CompiledCostFunction.loadOrCompile(directory, graph, "test", cf, 1);
+        assertEquals(12, cf.evaluations.get());
+        assertSameFactors(graph, cf, compiled);
+    }
+
+    @Test
+    void loadOrCompileKeepsTheTableInMemoryWhenTheFileCannotBeWritten() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Path directory = Files.createTempDirectory("compiled").resolve("missing");
+        EdgeCostFunction cf = new EdgeCostFunction();
+        CompiledCostFunction compiled =
+                CompiledCostFunction.loadOrCompile(directory, graph, "test", cf, 1);
+        assertFalse(Files.exists(directory));
+        assertSameFactors(graph, cf, compiled);
+    }
+
+    @Test
+    void routeComputerGivesSameRoutesWithCompiledCostFunction() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        EdgeCostFunction cf = new EdgeCostFunction();
+        RouteComputer rc = new RouteComputer(graph, cf);
+        RouteComputer compiledRc = new RouteComputer(graph, CompiledCostFunction.of(graph, cf, 1));
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start == end) continue;
+                Route expected = rc.bestRouteBetween(start, end);
+                Route actual = compiledRc.bestRouteBetween(start, end);
+                if (expected == null)
+                    assertNull(actual);
+                else
+                    assertEquals(expected.points(), actual.points());
+            }
+        }
+    }
+}
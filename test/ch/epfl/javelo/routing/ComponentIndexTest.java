@@ -0,0 +1,142 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComponentIndexTest {
+
+    @Test
+    void weakComponentsAreSeparatedByInfiniteEdges() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        // Les arêtes 0 -> 5, 1 -> 4, 2 -> 3 et 3 -> 2 séparent {0, 1, 2} de {3, 4, 5}
+        Set<Integer> cut = Set.of(1, 4, 6, 7);
+        CostFunction cf = (nodeId, edgeId) -> cut.contains(edgeId) ? Double.POSITIVE_INFINITY : 1;
+        ComponentIndex index = ComponentIndex.of(graph, cf, 2);
+        assertEquals(index.weakComponent(0), index.weakComponent(2));
+        assertEquals(index.weakComponent(3), index.weakComponent(5));
+        assertNotEquals(index.weakComponent(0), index.weakComponent(3));
+        assertFalse(index.mayReach(0, 5));
+        assertFalse(index.mayReach(4, 1));
+        assertTrue(index.mayReach(3, 5));
+    }
+
+    @Test
+    void strongComponentsAreTopologicallyOrdered() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        // Sans les arêtes 0 -> 5 et 5 -> 4, le noeud 5 n'est accessible que
+        // depuis 4 et n'a plus d'issue.
+        Set<Integer> cut = Set.of(1, 11);
+        CostFunction cf = (nodeId, edgeId) -> cut.contains(edgeId) ? Double.POSITIVE_INFINITY : 1;
+        ComponentIndex index = ComponentIndex.of(graph, cf, 1);
+        for (int nodeId = 1; nodeId < 5; nodeId++) {
+            assertEquals(index.weakComponent(0), index.weakComponent(nodeId));
+            assertEquals(index.strongComponent(0), index.strongComponent(nodeId));
+        }
+        assertEquals(index.weakComponent(0), index.weakComponent(5));
+        assertTrue(index.strongComponent(0) < index.strongComponent(5));
+        assertTrue(index.mayReach(0, 5));
+        assertFalse(index.mayReach(5, 0));
+    }
+
+    @Test
+    void mayReachIsConsistentWithRouteComputer() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        var rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS / 100; i++) {
+            boolean[] forbidden = new boolean[12];
+            for (int edgeId = 0; edgeId < forbidden.length; edgeId++)
+                forbidden[edgeId] = rng.nextInt(4) == 0;
+            CostFunction cf = (nodeId, edgeId) -> forbidden[edgeId] ? Double.POSITIVE_INFINITY : 1;
+            ComponentIndex index = ComponentIndex.of(graph, cf, 1);
+            RouteComputer rc = new RouteComputer(graph, cf);
+            for (int from = 0; from < graph.nodeCount(); from++) {
+                for (int to = 0; to < graph.nodeCount(); to++) {
+                    if (from == to) continue;
+                    Route route = rc.bestRouteBetween(from, to);
+                    if (!index.mayReach(from, to))
+                        assertNull(route);
+                    if (index.weakComponent(from) == index.weakComponent(to)
+                            && index.strongComponent(from) == index.strongComponent(to))
+                        assertNotNull(route);
+                }
+            }
+        }
+    }
+
+    @Test
+    void routeComputerRejectsUnreachableQueries() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Set<Integer> cut = Set.of(1, 4, 6, 7);
+        CostFunction cf = (nodeId, edgeId) -> cut.contains(edgeId) ? Double.POSITIVE_INFINITY : 1;
+        RouteComputer rc = new RouteComputer(graph, cf, SearchMode.BIDIRECTIONAL, null,
+                ComponentIndex.of(graph, cf, 1));
+        assertNull(rc.bestRouteBetween(0, 4));
+        assertEquals(200, rc.bestRouteBetween(0, 2).length());
+        assertThrows(IllegalArgumentException.class, () -> rc.bestRouteBetween(3, 3));
+    }
+
+    @Test
+    void writeToAndLoadFromRoundTrip() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Set<Integer> cut = Set.of(1, 11);
+        CostFunction cf = (nodeId, edgeId) -> cut.contains(edgeId) ? Double.POSITIVE_INFINITY : 1;
+        ComponentIndex index = ComponentIndex.of(graph, cf, 1);
+        Path directory = Files.createTempDirectory("components");
+        index.writeTo(directory, "cut");
+        ComponentIndex loaded = ComponentIndex.loadFrom(directory, graph, "cut");
+        assertEquals(graph.nodeCount(), loaded.nodeCount());
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            assertEquals(index.weakComponent(nodeId), loaded.weakComponent(nodeId));
+            assertEquals(index.strongComponent(nodeId), loaded.strongComponent(nodeId));
+        }
+    }
+
+    @Test
+    void loadFromRejectsStaleIndexes() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        ComponentIndex index = ComponentIndex.of(graph, (nodeId, edgeId) -> 1, 1);
+        Path directory = Files.createTempDirectory("components");
+        index.writeTo(directory, "unit");
+        assertThrows(IOException.class, () -> ComponentIndex.loadFrom(directory, graph, "cut"));
+
+        Graph oneNodeGraph = new Graph(new GraphNodes(IntBuffer.allocate(3)),
+                new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(ByteBuffer.allocate(0), IntBuffer.allocate(0), ShortBuffer.allocate(0)),
+                List.of());
+        assertThrows(IOException.class,
+                () -> ComponentIndex.loadFrom(directory, oneNodeGraph, "unit"));
+
+        // Remplacement des fichiers du graphe
+        Files.write(directory.resolve("nodes.bin"), new byte[3 * Integer.BYTES]);
+        assertThrows(IOException.class, () -> ComponentIndex.loadFrom(directory, graph, "unit"));
+    }
+
+    @Test
+    void componentIndexIsConsistentOnLausanne() throws IOException {
+        Graph graph = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(graph);
+        ComponentIndex index = ComponentIndex.of(graph, cf, Runtime.getRuntime().availableProcessors());
+        RouteComputer rc = new RouteComputer(graph, cf);
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            int from = rng.nextInt(graph.nodeCount());
+            int to = rng.nextInt(graph.nodeCount());
+            if (from == to) continue;
+            if (!index.mayReach(from, to))
+                assertNull(rc.bestRouteBetween(from, to));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static ch.epfl.javelo.routing.RouteComputerBenchmark.measure;
+import static ch.epfl.javelo.routing.RouteComputerBenchmark.randomPairs;
+
+/**
+ * Mesure le temps de prétraitement d'une hiérarchie de contraction et compare
+ * la latence de ses requêtes à celle de RouteComputer.
+ * Usage : ContractionHierarchyBenchmark [répertoire du graphe] [requêtes] [threads]
+ */
+public final class ContractionHierarchyBenchmark {
+    private static final int WARMUP_QUERIES = 50;
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int parallelism = args.length > 2
+                ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        CostFunction cf = new CityBikeCF(graph);
+
+        long t0 = System.nanoTime();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, cf, parallelism).build();
+        System.out.printf("Prétraitement : %.1f s (%d threads), %d arcs pour %d noeuds%n",
+                (System.nanoTime() - t0) / 1e9, parallelism, ch.arcCount(), graph.nodeCount());
+
+        RouteComputer rc = new RouteComputer(graph, cf);
+        RouteComputer bidirectionalRc = new RouteComputer(graph, cf, SearchMode.BIDIRECTIONAL);
+        ContractionHierarchyRouteComputer chRc = new ContractionHierarchyRouteComputer(graph, ch);
+
+        int[][] pairs = randomPairs(graph, queries);
+        int[][] warmup = randomPairs(graph, WARMUP_QUERIES);
+
+        measure("RouteComputer", warmup, pairs,
+                p -> rc.bestRouteBetween(p[0], p[1]));
+        measure("RouteComputer bidirectionnel", warmup, pairs,
+                p -> bidirectionalRc.bestRouteBetween(p[0], p[1]));
+        measure("Hiérarchie de contraction", warmup, pairs,
+                p -> chRc.bestRouteBetween(p[0], p[1]));
+    }
+}
@@ -0,0 +1,192 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractionHierarchyTest {
+    private static final CostFunction UNIT_COST = (nodeId, edgeId) -> 1;
+
+    // Graphe de 6 noeuds alignés, reliés dans les deux sens à leurs voisins
+    // (100 m), avec en plus les arêtes 0 -> 5 (450 m) et 1 -> 4 (250 m).
+    static Graph smallGraph() {
+        return lineGraph(new int[]{0, 100, 200, 300, 400, 500}, new int[][]{
+                {0, 1, 100}, {0, 5, 450},
+                {1, 0, 100}, {1, 2, 100}, {1, 4, 250},
+                {2, 1, 100}, {2, 3, 100},
+                {3, 2, 100}, {3, 4, 100},
+                {4, 3, 100}, {4, 5, 100},
+                {5, 4, 100}
+        });
+    }
+
+    // Graphe de 6 noeuds alignés, dont les noeuds 1 à 4 sont confondus et
+    // reliés par des arêtes de longueur nulle, chaque noeud étant relié dans
+    // les deux sens à ses voisins (100 m entre noeuds distincts), avec en plus
+    // l'arête 0 -> 5 (450 m).
+    private static Graph zeroLengthGraph() {
+        return lineGraph(new int[]{0, 100, 100, 100, 100, 200}, new int[][]{
+                {0, 1, 100}, {0, 5, 450},
+                {1, 0, 100}, {1, 2, 0},
+                {2, 1, 0}, {2, 3, 0},
+                {3, 2, 0}, {3, 4, 0},
+                {4, 3, 0}, {4, 5, 100},
+                {5, 4, 100}
+        });
+    }
+
+    // Graphe de noeuds alignés, aux abscisses données (en mètres), ayant les
+    // arêtes données (source, cible, longueur en mètres), triées par source.
+    static Graph lineGraph(int[] positions, int[][] edges) {
+        int nodeCount = positions.length;
+        IntBuffer nodes = IntBuffer.allocate(3 * nodeCount);
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(10 * edges.length);
+        int[] degrees = new int[nodeCount];
+        int[] firstEdges = new int[nodeCount];
+        for (int edgeId = edges.length - 1; edgeId >= 0; edgeId--) {
+            degrees[edges[edgeId][0]] += 1;
+            firstEdges[edges[edgeId][0]] = edgeId;
+            edgesBuffer.putInt(10 * edgeId, edges[edgeId][1]);
+            edgesBuffer.putShort(10 * edgeId + 4, (short) (edges[edgeId][2] << 4));
+        }
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            nodes.put(3 * nodeId, (2_600_000 + positions[nodeId]) << 4);
+            nodes.put(3 * nodeId + 1, 1_200_000 << 4);
+            nodes.put(3 * nodeId + 2, (degrees[nodeId] << 28) | firstEdges[nodeId]);
+        }
+        return new Graph(new GraphNodes(nodes), new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(edgesBuffer, IntBuffer.allocate(edges.length), ShortBuffer.allocate(0)),
+                List.of(new AttributeSet(0)));
+    }
+
+    private static void checkSameRoutes(Graph graph, CostFunction cf, ContractionHierarchy ch) {
+        RouteComputer rc = new RouteComputer(graph, cf);
+        ContractionHierarchyRouteComputer chRc = new ContractionHierarchyRouteComputer(graph, ch);
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start == end) continue;
+                Route expected = rc.bestRouteBetween(start, end);
+                Route actual = chRc.bestRouteBetween(start, end);
+                assertEquals(expected.length(), actual.length());
+                assertEquals(expected.points(), actual.points());
+            }
+        }
+    }
+
+    @Test
+    void hierarchyGivesSameRoutesAsRouteComputer() {
+        Graph graph = smallGraph();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, UNIT_COST, 2).build();
+        assertEquals(graph.nodeCount(), ch.nodeCount());
+        checkSameRoutes(graph, UNIT_COST, ch);
+    }
+
+    @Test
+    void hierarchyKeepsZeroLengthPaths() {
+        Graph graph = zeroLengthGraph();
+        for (int parallelism = 1; parallelism <= 2; parallelism++) {
+            ContractionHierarchy ch =
+                    new ContractionHierarchyBuilder(graph, UNIT_COST, parallelism).build();
+            RouteComputer rc = new RouteComputer(graph, UNIT_COST);
+            ContractionHierarchyRouteComputer chRc =
+                    new ContractionHierarchyRouteComputer(graph, ch);
+            // Seules les longueurs sont comparées, les itinéraires de coût
+            // nul pouvant être choisis différemment à coût égal.
+            for (int start = 0; start < graph.nodeCount(); start++) {
+                for (int end = 0; end < graph.nodeCount(); end++) {
+                    if (start == end) continue;
+                    Route actual = chRc.bestRouteBetween(start, end);
+                    assertNotNull(actual);
+                    assertEquals(rc.bestRouteBetween(start, end).length(), actual.length());
+                }
+            }
+        }
+    }
+
+    @Test
+    void hierarchyRanksArePermutation() {
+        Graph graph = smallGraph();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, UNIT_COST, 1).build();
+        boolean[] seen = new boolean[graph.nodeCount()];
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            assertFalse(seen[ch.rank(nodeId)]);
+            seen[ch.rank(nodeId)] = true;
+        }
+    }
+
+    @Test
+    void writeToAndLoadFromRoundTrip() throws IOException {
+        Graph graph = smallGraph();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, UNIT_COST, 1).build();
+        Path directory = Files.createTempDirectory("ch");
+        ch.writeTo(directory, "unit");
+        ContractionHierarchy loaded = ContractionHierarchy.loadFrom(directory, graph, "unit");
+        assertEquals(ch.arcCount(), loaded.arcCount());
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++)
+            assertEquals(ch.rank(nodeId), loaded.rank(nodeId));
+        checkSameRoutes(graph, UNIT_COST, loaded);
+    }
+
+    @Test
+    void loadFromRejectsStaleHierarchies() throws IOException {
+        Graph graph = smallGraph();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, UNIT_COST, 1).build();
+        Path directory = Files.createTempDirectory("ch");
+        ch.writeTo(directory, "unit");
+        assertThrows(IOException.class,
+                () -> ContractionHierarchy.loadFrom(directory, graph, "unit_v2"));
+
+        Graph oneNodeGraph = new Graph(new GraphNodes(IntBuffer.allocate(3)),
+                new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(ByteBuffer.allocate(0), IntBuffer.allocate(0), ShortBuffer.allocate(0)),
+                List.of());
+        assertThrows(IOException.class,
+                () -> ContractionHierarchy.loadFrom(directory, oneNodeGraph, "unit"));
+
+        // Remplacement des fichiers du graphe
+        Files.write(directory.resolve("nodes.bin"), new byte[3 * Integer.BYTES]);
+        assertThrows(IOException.class,
+                () -> ContractionHierarchy.loadFrom(directory, graph, "unit"));
+    }
+
+    @Test
+    void bestRouteBetweenThrowsOnIdenticalNodes() {
+        Graph graph = smallGraph();
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(graph, UNIT_COST, 1).build();
+        assertThrows(IllegalArgumentException.class, () ->
+                new ContractionHierarchyRouteComputer(graph, ch).bestRouteBetween(2, 2));
+    }
+
+    @Test
+    void hierarchyWorksOnLausanne() throws IOException {
+        Graph g = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(g);
+        ContractionHierarchy ch = new ContractionHierarchyBuilder(g, cf,
+                Runtime.getRuntime().availableProcessors()).build();
+        RouteComputer rc = new RouteComputer(g, cf);
+        ContractionHierarchyRouteComputer chRc = new ContractionHierarchyRouteComputer(g, ch);
+        assertEquals(9588.5625, chRc.bestRouteBetween(159049, 117669).length());
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            int start = rng.nextInt(g.nodeCount());
+            int end = rng.nextInt(g.nodeCount());
+            if (start == end) continue;
+            Route expected = rc.bestRouteBetween(start, end);
+            Route actual = chRc.bestRouteBetween(start, end);
+            if (expected == null)
+                assertNull(actual);
+            else
+                assertEquals(expected.length(), actual.length(), 1e-1);
+        }
+    }
+}
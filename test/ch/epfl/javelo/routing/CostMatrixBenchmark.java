@@ -0,0 +1,46 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Compare le temps de calcul d'une matrice de coûts entre des noeuds
+ * aléatoires par CostMatrixComputer à celui des appels individuels à
+ * RouteComputer. Usage : CostMatrixBenchmark [répertoire du graphe] [noeuds]
+ */
+public final class CostMatrixBenchmark {
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        CostFunction cf = new CityBikeCF(graph);
+        int[] nodes = newRandom().ints(size, 0, graph.nodeCount()).toArray();
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        CostMatrixComputer computer = new CostMatrixComputer(graph, cf, processors);
+        computer.compute(nodes, nodes);
+        long t0 = System.nanoTime();
+        CostMatrix matrix = computer.compute(nodes, nodes);
+        long t1 = System.nanoTime();
+        System.out.printf("CostMatrixComputer (%d fils) : %d x %d en %.2f s%n",
+                processors, size, size, (t1 - t0) / 1e9);
+
+        RouteComputer rc = new RouteComputer(graph, cf);
+        double maxError = 0;
+        long t2 = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (nodes[i] == nodes[j]) continue;
+                Route route = rc.bestRouteBetween(nodes[i], nodes[j]);
+                if (route != null)
+                    maxError = Math.max(maxError, Math.abs(route.length() - matrix.lengths()[i][j]));
+            }
+        }
+        long t3 = System.nanoTime();
+        System.out.printf("RouteComputer : %d x %d en %.2f s (écart de longueur max. %.3f m)%n",
+                size, size, (t3 - t2) / 1e9, maxError);
+    }
+}
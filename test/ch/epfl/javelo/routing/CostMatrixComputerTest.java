@@ -0,0 +1,91 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CostMatrixComputerTest {
+    private static final CostFunction UNIT_COST = (nodeId, edgeId) -> 1;
+
+    @Test
+    void matrixMatchesRouteComputer() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        // L'arête 0 -> 5 coûte le double, ce qui rend l'itinéraire 0 -> 5 plus
+        // long que la ligne droite.
+        CostFunction cf = (nodeId, edgeId) -> edgeId == 1 ? 2 : 1;
+        RouteComputer rc = new RouteComputer(graph, cf);
+        int[] nodes = {0, 1, 2, 3, 4, 5};
+        CostMatrix matrix = new CostMatrixComputer(graph, cf, 2).compute(nodes, nodes);
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = 0; j < nodes.length; j++) {
+                if (i == j) {
+                    assertEquals(0f, matrix.costs()[i][j]);
+                    assertEquals(0f, matrix.lengths()[i][j]);
+                } else {
+                    Route route = rc.bestRouteBetween(nodes[i], nodes[j]);
+                    assertEquals(route.length(), matrix.lengths()[i][j], 1e-3);
+                }
+            }
+        }
+        assertEquals(450f, matrix.lengths()[0][5]);
+        assertEquals(450f, matrix.costs()[0][5]);
+        assertEquals(100f, matrix.costs()[5][4]);
+    }
+
+    @Test
+    void matrixHasOneRowPerSourceAndOneColumnPerTarget() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostMatrix matrix = new CostMatrixComputer(graph, UNIT_COST, 3)
+                .compute(new int[]{0, 0, 3}, new int[]{5, 2});
+        assertEquals(3, matrix.costs().length);
+        assertEquals(2, matrix.costs()[0].length);
+        assertEquals(3, matrix.lengths().length);
+        assertArrayEquals(matrix.costs()[0], matrix.costs()[1]);
+        assertEquals(100f, matrix.costs()[2][1]);
+    }
+
+    @Test
+    void unreachableTargetsHaveInfiniteCost() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        CostFunction cf = (nodeId, edgeId) -> nodeId == 5 ? Double.POSITIVE_INFINITY : 1;
+        CostMatrix matrix = new CostMatrixComputer(graph, cf, 1)
+                .compute(new int[]{5, 0}, new int[]{0, 5});
+        assertEquals(Float.POSITIVE_INFINITY, matrix.costs()[0][0]);
+        assertEquals(Float.POSITIVE_INFINITY, matrix.lengths()[0][0]);
+        assertEquals(0f, matrix.costs()[0][1]);
+        assertEquals(450f, matrix.costs()[1][1]);
+    }
+
+    @Test
+    void constructorThrowsOnInvalidParallelism() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        assertThrows(IllegalArgumentException.class,
+                () -> new CostMatrixComputer(graph, UNIT_COST, 0));
+    }
+
+    @Test
+    void matrixMatchesRouteComputerOnLausanne() throws IOException {
+        Graph graph = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(graph);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        var rng = newRandom();
+        int[] sources = rng.ints(5, 0, graph.nodeCount()).toArray();
+        int[] targets = rng.ints(5, 0, graph.nodeCount()).toArray();
+        CostMatrix matrix = new CostMatrixComputer(graph, cf, 2).compute(sources, targets);
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                if (sources[i] == targets[j]) continue;
+                Route route = rc.bestRouteBetween(sources[i], targets[j]);
+                if (route == null)
+                    assertEquals(Float.POSITIVE_INFINITY, matrix.lengths()[i][j]);
+                else
+                    assertEquals(route.length(), matrix.lengths()[i][j], 1e-1);
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package ch.epfl.javelo.routing;
 
+import ch.epfl.javelo.data.AttributeSet;
 import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphEdges;
+import ch.epfl.javelo.data.GraphNodes;
+import ch.epfl.javelo.data.GraphSectors;
 import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.PointWebMercator;
 import ch.epfl.javelo.projection.WebMercator;
@@ -8,10 +12,14 @@ import org.junit.jupiter.api.Test;
 
 import java.awt.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.function.DoubleUnaryOperator;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EdgeTest {
 
@@ -47,4 +55,55 @@ public class EdgeTest {
         double expected = 398;
         double actual =
     }*/
+
+    // Retourne un graphe formé de deux noeuds reliés, dans les deux sens,
+    // par une arête de 4 m dont le profil non compressé commence à l'index
+    // donné des échantillons.
+    private static Graph twoNodeGraph(int firstSampleIndex, ShortBuffer elevations) {
+        IntBuffer nodes = IntBuffer.wrap(new int[]{
+                2_600_000 << 4, 1_200_000 << 4, (1 << 28),
+                2_600_004 << 4, 1_200_000 << 4, (1 << 28) | 1
+        });
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(20);
+        edgesBuffer.putInt(0, 1);
+        edgesBuffer.putShort(4, (short) (4 << 4));
+        edgesBuffer.putInt(10, ~0);
+        edgesBuffer.putShort(14, (short) (4 << 4));
+        IntBuffer profileIds = IntBuffer.wrap(new int[]{
+                (1 << 30) | firstSampleIndex, (1 << 30) | firstSampleIndex
+        });
+        return new Graph(new GraphNodes(nodes), new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(edgesBuffer, profileIds, elevations),
+                List.of(new AttributeSet(0)));
+    }
+
+    @Test
+    void edgeOfDecodesTheProfileOnlyWhenNeeded() {
+        // Le profil de l'arête se trouve hors de la mémoire tampon
+        Graph graph = twoNodeGraph(5, ShortBuffer.allocate(2));
+        Edge edge = Edge.of(graph, 0, 0, 1);
+        assertEquals(4, edge.length());
+        assertThrows(IndexOutOfBoundsException.class, () -> edge.elevationAt(0));
+
+        Route route = new RouteComputer(graph, (nodeId, edgeId) -> 1).bestRouteBetween(0, 1);
+        assertEquals(4, route.length());
+    }
+
+    @Test
+    void edgeOfGivesTheProfileOfTheGraph() {
+        ShortBuffer elevations = ShortBuffer.wrap(new short[]{
+                0, (short) (400 << 4), (short) (402 << 4), (short) (406 << 4)
+        });
+        Graph graph = twoNodeGraph(1, elevations);
+        for (int edgeId = 0; edgeId < 2; edgeId++) {
+            Edge edge = Edge.of(graph, edgeId, edgeId, 1 - edgeId);
+            DoubleUnaryOperator expected = graph.edgeProfile(edgeId);
+            for (double x = -1; x <= 5; x += 0.25)
+                assertEquals(expected.applyAsDouble(x), edge.elevationAt(x));
+            assertEquals(edge, Edge.of(graph, edgeId, edgeId, 1 - edgeId));
+        }
+        assertEquals(401, Edge.of(graph, 0, 0, 1).elevationAt(1));
+        assertEquals(404, Edge.of(graph, 1, 1, 0).elevationAt(1));
+        assertNotEquals(Edge.of(graph, 0, 0, 1).profile(), Edge.of(graph, 1, 0, 1).profile());
+    }
 }
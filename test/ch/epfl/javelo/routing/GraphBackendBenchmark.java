@@ -0,0 +1,87 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphArena;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Compare, pour chaque manière de charger un graphe, la durée du chargement,
+ * la vitesse de lecture des noeuds et des arêtes (parcours séquentiel de
+ * toutes les arêtes, puis lecture de noeuds aléatoires) ainsi que la latence
+ * des recherches A* de RouteComputer sur des requêtes aléatoires. Lorsqu'une
+ * seule variante est donnée, elle est mesurée seule, de sorte que les appels
+ * du graphe restent monomorphes comme dans une application n'en utilisant
+ * qu'une. Usage : GraphBackendBenchmark [répertoire du graphe] [requêtes]
+ * [buffers|segments|heap]
+ */
+public final class GraphBackendBenchmark {
+    private static final int WARMUP_QUERIES = 50;
+    private static final int ROUNDS = 5;
+    private static final int RANDOM_READS = 10_000_000;
+
+    public static void main(String[] args) throws IOException {
+        Path basePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        String only = args.length > 2 ? args[2] : "";
+
+        try (GraphArena arena = new GraphArena()) {
+            long t0 = System.nanoTime();
+            Graph buffers = Graph.loadFrom(basePath);
+            long t1 = System.nanoTime();
+            Graph segments = Graph.loadFrom(basePath, arena);
+            long t2 = System.nanoTime();
+            Graph heap = only.isEmpty() || only.equals("heap")
+                    ? Graph.loadFrom(basePath, Graph.Storage.HEAP)
+                    : null;
+            long t3 = System.nanoTime();
+            System.out.printf("Chargement : %.1f ms (buffers), %.1f ms (segments),"
+                            + " %.1f ms (heap)%n",
+                    (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6);
+            int[][] pairs = RouteComputerBenchmark.randomPairs(buffers, queries);
+            int[][] warmup = RouteComputerBenchmark.randomPairs(buffers, WARMUP_QUERIES);
+
+            // Les mesures sont répétées en alternance, afin que le
+            // réchauffement de la JVM ne favorise aucune des variantes
+            for (int round = 0; round < 2; round++) {
+                if (only.isEmpty() || only.equals("buffers"))
+                    measure("MappedByteBuffer", buffers, warmup, pairs);
+                if (only.isEmpty() || only.equals("segments"))
+                    measure("MappedSegment", segments, warmup, pairs);
+                if (heap != null)
+                    measure("Tableaux (heap)", heap, warmup, pairs);
+            }
+        }
+    }
+
+    private static void measure(String name, Graph graph, int[][] warmup, int[][] pairs) {
+        double checksum = 0;
+        long edgeReads = 0;
+        long t0 = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    checksum += graph.edgeLength(edgeId) + graph.edgeTargetNodeId(edgeId);
+                    edgeReads += 1;
+                }
+            }
+        }
+        long t1 = System.nanoTime();
+        RandomGenerator rng = newRandom();
+        for (int i = 0; i < RANDOM_READS; i++)
+            checksum += graph.nodePoint(rng.nextInt(graph.nodeCount())).e();
+        long t2 = System.nanoTime();
+        System.out.printf("%s : %.2f ns par arête (séquentiel), %.2f ns par noeud (aléatoire)"
+                        + " [%s]%n", name, (double) (t1 - t0) / edgeReads,
+                (double) (t2 - t1) / RANDOM_READS, checksum);
+
+        RouteComputer rc = new RouteComputer(graph, new CityBikeCF(graph));
+        RouteComputerBenchmark.measure(name, warmup, pairs,
+                p -> rc.bestRouteBetween(p[0], p[1]));
+    }
+}
@@ -0,0 +1,156 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalRouteComputerTest {
+
+    private static double cost(Graph graph, CostFunction cf, Route route) {
+        double cost = 0;
+        for (Edge edge : route.edges()) {
+            for (int i = 0; i < graph.nodeOutDegree(edge.fromNodeId()); i++) {
+                int edgeId = graph.nodeOutEdgeId(edge.fromNodeId(), i);
+                if (graph.edgeTargetNodeId(edgeId) == edge.toNodeId())
+                    cost += graph.edgeLength(edgeId) * cf.costFactor(edge.fromNodeId(), edgeId);
+            }
+        }
+        return cost;
+    }
+
+    @Test
+    void bestRouteBetweenMatchesRouteComputerOnRandomQueries() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RandomGenerator rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS / 100; i++) {
+            double[] factors = new double[12];
+            for (int edgeId = 0; edgeId < factors.length; edgeId++)
+                factors[edgeId] = rng.nextInt(5) == 0 ? Double.POSITIVE_INFINITY : 1 + rng.nextInt(3);
+            CostFunction cf = (nodeId, edgeId) -> factors[edgeId];
+            RouteComputer rc = new RouteComputer(graph, cf);
+            IncrementalRouteComputer irc = new IncrementalRouteComputer(rc, 2);
+
+            // Requêtes partageant souvent leur départ ou leur arrivée
+            int start = rng.nextInt(graph.nodeCount());
+            int end = rng.nextInt(graph.nodeCount());
+            for (int j = 0; j < 30; j++) {
+                if (rng.nextBoolean())
+                    start = rng.nextInt(graph.nodeCount());
+                else
+                    end = rng.nextInt(graph.nodeCount());
+                if (start == end) continue;
+                Route expected = rc.bestRouteBetween(start, end);
+                Route actual = irc.bestRouteBetween(start, end);
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(graph.nodePoint(start), actual.points().get(0));
+                    assertEquals(graph.nodePoint(end),
+                            actual.points().get(actual.points().size() - 1));
+                    assertEquals(cost(graph, cf, expected), cost(graph, cf, actual), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    void bestRouteBetweenReusesTreesOfDraggedWaypoint() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        IncrementalRouteComputer irc = new IncrementalRouteComputer(rc);
+        // Le point de passage central est déplacé de 2 à 3, puis à 1
+        assertEquals(200, irc.bestRouteBetween(0, 2).length());
+        assertEquals(300, irc.bestRouteBetween(2, 5).length());
+        assertEquals(300, irc.bestRouteBetween(0, 3).length());
+        assertEquals(200, irc.bestRouteBetween(3, 5).length());
+        assertEquals(100, irc.bestRouteBetween(0, 1).length());
+        assertEquals(350, irc.bestRouteBetween(1, 5).length());
+    }
+
+    @Test
+    void cancelledSearchesCanBeResumed() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        IncrementalRouteComputer irc = new IncrementalRouteComputer(rc);
+        assertThrows(CancellationException.class, () -> irc.bestRouteBetween(0, 3, () -> true));
+        assertEquals(300, irc.bestRouteBetween(0, 3, () -> false).length());
+        assertThrows(CancellationException.class, () -> irc.bestRouteBetween(0, 5, () -> true));
+        assertEquals(450, irc.bestRouteBetween(0, 5).length());
+    }
+
+    @Test
+    void retainedTreesStayBounded() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        IncrementalRouteComputer irc = new IncrementalRouteComputer(rc, 2, 3);
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start == end) continue;
+                assertEquals(rc.bestRouteBetween(start, end).length(),
+                        irc.bestRouteBetween(start, end).length());
+                assertTrue(irc.retainedNodeCount() <= 2 * 3);
+            }
+        }
+    }
+
+    @Test
+    void nonLocalQueriesDoNotRetainTrees() {
+        Graph graph = ContractionHierarchyTest.lineGraph(
+                new int[]{0, 1_000, 2_000, 3_000, 4_000, 5_000}, new int[][]{
+                        {0, 1, 1_000}, {1, 2, 1_000}, {2, 3, 1_000},
+                        {3, 4, 1_000}, {4, 5, 1_000}
+                });
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        IncrementalRouteComputer irc = new IncrementalRouteComputer(rc);
+        assertEquals(5_000, irc.bestRouteBetween(0, 5).length());
+        assertEquals(0, irc.retainedNodeCount());
+        assertEquals(1_000, irc.bestRouteBetween(0, 1).length());
+        assertTrue(irc.retainedNodeCount() > 0);
+        assertThrows(CancellationException.class, () -> irc.bestRouteBetween(0, 5, () -> true));
+    }
+
+    @Test
+    void bestRouteBetweenThrowsOnIdenticalNodes() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        IncrementalRouteComputer irc =
+                new IncrementalRouteComputer(new RouteComputer(graph, (nodeId, edgeId) -> 1));
+        assertThrows(IllegalArgumentException.class, () -> irc.bestRouteBetween(4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new IncrementalRouteComputer(
+                new RouteComputer(graph, (nodeId, edgeId) -> 1), 0));
+    }
+
+    @Test
+    void bestRouteBetweenWorksOnLausanne() throws IOException {
+        Graph graph = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(graph);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        IncrementalRouteComputer irc = new IncrementalRouteComputer(rc);
+        RandomGenerator rng = newRandom();
+        int start = rng.nextInt(graph.nodeCount());
+        int end = rng.nextInt(graph.nodeCount());
+        int waypoint = rng.nextInt(graph.nodeCount());
+        for (int i = 0; i < 10; i++) {
+            // Déplacement du point de passage le long d'une arête
+            if (graph.nodeOutDegree(waypoint) > 0)
+                waypoint = graph.edgeTargetNodeId(graph.nodeOutEdgeId(waypoint,
+                        rng.nextInt(graph.nodeOutDegree(waypoint))));
+            if (waypoint == start || waypoint == end) continue;
+            for (int[] pair : new int[][]{{start, waypoint}, {waypoint, end}}) {
+                Route expected = rc.bestRouteBetween(pair[0], pair[1]);
+                Route actual = irc.bestRouteBetween(pair[0], pair[1]);
+                if (expected == null)
+                    assertNull(actual);
+                else
+                    assertEquals(cost(graph, cf, expected), cost(graph, cf, actual), 1e-1);
+            }
+        }
+    }
+}
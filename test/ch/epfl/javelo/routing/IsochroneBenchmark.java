@@ -0,0 +1,36 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Mesure le temps de calcul d'isochrones depuis des noeuds aléatoires, pour
+ * différents coûts maximaux. Usage : IsochroneBenchmark [répertoire du graphe]
+ * [isochrones]
+ */
+public final class IsochroneBenchmark {
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        IsochroneComputer computer = new IsochroneComputer(graph, new CityBikeCF(graph));
+        int[] sources = newRandom().ints(count, 0, graph.nodeCount()).toArray();
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        for (double maxCost : new double[]{1_000, 5_000, 20_000}) {
+            computer.isochrones(sources, maxCost, processors);
+            long t0 = System.nanoTime();
+            List<Isochrone> isochrones = computer.isochrones(sources, maxCost, processors);
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            double averageSize = isochrones.stream().mapToInt(Isochrone::size).average().orElse(0);
+            double averageSectors = isochrones.stream()
+                    .mapToInt(i -> i.sectors().cardinality()).average().orElse(0);
+            System.out.printf("coût max. %6.0f : %7.2f ms/isochrone, %9.0f noeuds, %5.1f secteurs%n",
+                    maxCost, 1e3 * seconds / count, averageSize, averageSectors);
+        }
+    }
+}
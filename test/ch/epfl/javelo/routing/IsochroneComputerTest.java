@@ -0,0 +1,90 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphSectors;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsochroneComputerTest {
+    private static final CostFunction UNIT_COST = (nodeId, edgeId) -> 1;
+
+    @Test
+    void isochroneContainsNodesWithinCost() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Isochrone isochrone = new IsochroneComputer(graph, UNIT_COST).isochrone(0, 250);
+        assertEquals(0, isochrone.sourceNodeId());
+        assertArrayEquals(new int[]{0, 1, 2}, isochrone.nodeIds());
+        assertArrayEquals(new float[]{0, 100, 200}, isochrone.costs());
+        assertEquals(3, isochrone.size());
+    }
+
+    @Test
+    void isochroneIncludesNodesExactlyAtBound() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Isochrone isochrone = new IsochroneComputer(graph, UNIT_COST).isochrone(0, 350);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, isochrone.nodeIds());
+        assertArrayEquals(new float[]{0, 100, 200, 300, 350}, isochrone.costs());
+    }
+
+    @Test
+    void isochroneByLengthIgnoresCostFactorsButAvoidsForbiddenEdges() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        // L'arête 1 -> 4 (d'identité 4) est interdite, les autres coûtent le triple.
+        CostFunction cf = (nodeId, edgeId) -> edgeId == 4 ? Double.POSITIVE_INFINITY : 3;
+        IsochroneComputer computer = new IsochroneComputer(graph, cf);
+        Isochrone byLength = computer.isochroneByLength(0, 300);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, byLength.nodeIds());
+        assertArrayEquals(new float[]{0, 100, 200, 300}, byLength.costs());
+        Isochrone byCost = computer.isochrone(0, 300);
+        assertArrayEquals(new int[]{0, 1}, byCost.nodeIds());
+    }
+
+    @Test
+    void isochroneSectorsContainSectorOfEveryNode() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Isochrone isochrone = new IsochroneComputer(graph, UNIT_COST).isochrone(0, 1_000);
+        assertEquals(graph.nodeCount(), isochrone.size());
+        for (int nodeId : isochrone.nodeIds())
+            assertTrue(isochrone.sectors().get(GraphSectors.sectorIndex(graph.nodePoint(nodeId))));
+    }
+
+    @Test
+    void isochronesInParallelEqualIsochrones() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        IsochroneComputer computer = new IsochroneComputer(graph, UNIT_COST);
+        int[] sources = {0, 1, 2, 3, 4, 5, 0, 3};
+        List<Isochrone> isochrones = computer.isochrones(sources, 220, 3);
+        assertEquals(sources.length, isochrones.size());
+        for (int i = 0; i < sources.length; i++) {
+            Isochrone expected = computer.isochrone(sources[i], 220);
+            assertArrayEquals(expected.nodeIds(), isochrones.get(i).nodeIds());
+            assertArrayEquals(expected.costs(), isochrones.get(i).costs());
+        }
+    }
+
+    @Test
+    void isochroneThrowsOnNegativeBound() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        IsochroneComputer computer = new IsochroneComputer(graph, UNIT_COST);
+        assertThrows(IllegalArgumentException.class, () -> computer.isochrone(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> computer.isochroneByLength(0, -1));
+    }
+
+    @Test
+    void isochroneNodesAreReachableOnLausanne() throws IOException {
+        Graph graph = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(graph);
+        Isochrone isochrone = new IsochroneComputer(graph, cf).isochrone(159049, 3_000);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        for (int i = 1; i < isochrone.size(); i += Math.max(1, isochrone.size() / 20)) {
+            assertTrue(isochrone.costs()[i] <= 3_000);
+            Route route = rc.bestRouteBetween(159049, isochrone.nodeIds()[i]);
+            assertNotNull(route);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphEdges;
+import ch.epfl.javelo.data.GraphNodes;
+import ch.epfl.javelo.data.GraphSectors;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LandmarksTest {
+    private static final CostFunction UNIT_COST = (nodeId, edgeId) -> 1;
+
+    @Test
+    void lowerBoundNeverExceedsBestRouteCost() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Landmarks landmarks = Landmarks.of(graph, UNIT_COST, 2, 2);
+        RouteComputer rc = new RouteComputer(graph, UNIT_COST);
+        for (int from = 0; from < graph.nodeCount(); from++) {
+            assertEquals(0, landmarks.lowerBound(from, from));
+            for (int to = 0; to < graph.nodeCount(); to++) {
+                if (from == to) continue;
+                double bound = landmarks.lowerBound(from, to);
+                assertTrue(bound >= 0);
+                assertTrue(bound <= rc.bestRouteBetween(from, to).length() + 1e-3);
+            }
+        }
+    }
+
+    @Test
+    void landmarksAreDistinctNodes() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Landmarks landmarks = Landmarks.of(graph, UNIT_COST, 3, 1);
+        assertEquals(3, landmarks.count());
+        assertNotEquals(landmarks.nodeId(0), landmarks.nodeId(1));
+        assertNotEquals(landmarks.nodeId(1), landmarks.nodeId(2));
+        assertNotEquals(landmarks.nodeId(0), landmarks.nodeId(2));
+    }
+
+    @Test
+    void ofThrowsOnInvalidCount() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        assertThrows(IllegalArgumentException.class,
+                () -> Landmarks.of(graph, UNIT_COST, 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> Landmarks.of(graph, UNIT_COST, graph.nodeCount() + 1, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> Landmarks.of(graph, UNIT_COST, 2, 0));
+    }
+
+    @Test
+    void writeToAndLoadFromRoundTrip() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Landmarks landmarks = Landmarks.of(graph, UNIT_COST, 2, 1);
+        Path directory = Files.createTempDirectory("landmarks");
+        landmarks.writeTo(directory, "unit");
+        Landmarks loaded = Landmarks.loadFrom(directory, graph, "unit");
+        assertEquals(landmarks.count(), loaded.count());
+        for (int k = 0; k < landmarks.count(); k++)
+            assertEquals(landmarks.nodeId(k), loaded.nodeId(k));
+        for (int from = 0; from < graph.nodeCount(); from++) {
+            for (int to = 0; to < graph.nodeCount(); to++)
+                assertEquals(landmarks.lowerBound(from, to), loaded.lowerBound(from, to));
+        }
+    }
+
+    @Test
+    void loadFromRejectsStaleLandmarks() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        Landmarks landmarks = Landmarks.of(graph, UNIT_COST, 2, 1);
+        Path directory = Files.createTempDirectory("landmarks");
+        landmarks.writeTo(directory, "unit");
+        assertThrows(IOException.class, () -> Landmarks.loadFrom(directory, graph, "cut"));
+
+        Graph oneNodeGraph = new Graph(new GraphNodes(IntBuffer.allocate(3)),
+                new GraphSectors(ByteBuffer.allocate(0)),
+                new GraphEdges(ByteBuffer.allocate(0), IntBuffer.allocate(0), ShortBuffer.allocate(0)),
+                List.of());
+        assertThrows(IOException.class, () -> Landmarks.loadFrom(directory, oneNodeGraph, "unit"));
+
+        // Fichier tronqué
+        Path file = directory.resolve("landmarks.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - Float.BYTES));
+        assertThrows(IOException.class, () -> Landmarks.loadFrom(directory, graph, "unit"));
+
+        // Remplacement des fichiers du graphe
+        landmarks.writeTo(directory, "unit");
+        Files.write(directory.resolve("nodes.bin"), new byte[3 * Integer.BYTES]);
+        assertThrows(IOException.class, () -> Landmarks.loadFrom(directory, graph, "unit"));
+    }
+
+    @Test
+    void routeComputerWithLandmarksWorksOnLausanne() throws IOException {
+        Graph g = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(g);
+        Landmarks landmarks = Landmarks.of(g, cf, 8, Runtime.getRuntime().availableProcessors());
+        RouteComputer rc = new RouteComputer(g, cf);
+        RouteComputer altRc = new RouteComputer(g, cf, SearchMode.UNIDIRECTIONAL, landmarks);
+        RouteComputer altBidirectionalRc =
+                new RouteComputer(g, cf, SearchMode.BIDIRECTIONAL, landmarks);
+        assertEquals(9588.5625, altRc.bestRouteBetween(159049, 117669).length());
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            int start = rng.nextInt(g.nodeCount());
+            int end = rng.nextInt(g.nodeCount());
+            if (start == end) continue;
+            Route expected = rc.bestRouteBetween(start, end);
+            Route actual = altRc.bestRouteBetween(start, end);
+            Route actualBidirectional = altBidirectionalRc.bestRouteBetween(start, end);
+            if (expected == null) {
+                assertNull(actual);
+                assertNull(actualBidirectional);
+            } else {
+                assertEquals(expected.length(), actual.length(), 1e-1);
+                assertEquals(expected.length(), actualBidirectional.length(), 1e-1);
+            }
+        }
+    }
+}
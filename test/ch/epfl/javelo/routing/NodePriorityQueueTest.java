@@ -0,0 +1,106 @@
+package ch.epfl.javelo.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodePriorityQueueTest {
+
+    @Test
+    void removeMinReturnsNodesInKeyOrder() {
+        var rng = newRandom();
+        int nodeCount = 1_000;
+        NodePriorityQueue queue = new DenseSearchState(nodeCount).queue();
+        float[] keys = new float[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            keys[nodeId] = rng.nextFloat() * 1_000;
+            queue.insertOrDecrease(nodeId, keys[nodeId]);
+        }
+        assertEquals(nodeCount, queue.size());
+
+        float[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        for (float expected : sortedKeys) {
+            assertEquals(expected, queue.minKey());
+            int nodeId = queue.removeMin();
+            assertEquals(expected, keys[nodeId]);
+            assertFalse(queue.contains(nodeId));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void insertOrDecreaseOnlyDecreasesKeys() {
+        NodePriorityQueue queue = new DenseSearchState(3).queue();
+        queue.insertOrDecrease(0, 5f);
+        queue.insertOrDecrease(1, 3f);
+        queue.insertOrDecrease(2, 4f);
+        queue.insertOrDecrease(0, 1f);
+        queue.insertOrDecrease(1, 10f);
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.removeMin());
+        assertEquals(1, queue.removeMin());
+        assertEquals(2, queue.removeMin());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void queueWorksWithRandomDecreases() {
+        var rng = newRandom();
+        int nodeCount = 200;
+        NodePriorityQueue queue = new SparseSearchState().queue();
+        float[] keys = new float[nodeCount];
+        Arrays.fill(keys, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < RANDOM_ITERATIONS; i++) {
+            int nodeId = rng.nextInt(nodeCount);
+            float key = rng.nextFloat();
+            queue.insertOrDecrease(nodeId, key);
+            keys[nodeId] = Math.min(keys[nodeId], key);
+        }
+        float previous = Float.NEGATIVE_INFINITY;
+        while (!queue.isEmpty()) {
+            float key = queue.minKey();
+            int nodeId = queue.removeMin();
+            assertEquals(keys[nodeId], key);
+            assertTrue(previous <= key);
+            previous = key;
+        }
+    }
+
+    @Test
+    void clearEmptiesTheQueue() {
+        NodePriorityQueue queue = new DenseSearchState(10).queue();
+        for (int nodeId = 0; nodeId < 10; nodeId++)
+            queue.insertOrDecrease(nodeId, nodeId);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        for (int nodeId = 0; nodeId < 10; nodeId++)
+            assertFalse(queue.contains(nodeId));
+        assertThrows(IllegalStateException.class, queue::removeMin);
+    }
+
+    @Test
+    void replaceKeysRestoresHeapOrder() {
+        var rng = newRandom();
+        int nodeCount = 500;
+        NodePriorityQueue queue = new SparseSearchState().queue();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            queue.insertOrDecrease(nodeId, rng.nextFloat());
+        float[] keys = new float[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            keys[nodeId] = rng.nextFloat() * 1_000;
+        queue.replaceKeys(nodeId -> keys[nodeId]);
+
+        float[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        for (float expected : sortedKeys) {
+            assertEquals(expected, queue.minKey());
+            assertEquals(expected, keys[queue.removeMin()]);
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,74 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphEdges;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Mesure le débit, en échantillons par seconde, du décodage des profils de
+ * toutes les arêtes par GraphEdges, puis celui de Graph.edgeProfile sur un
+ * ensemble restreint d'arêtes lues de manière répétée, comme lors de
+ * l'affichage d'itinéraires voisins. Usage : ProfileDecodingBenchmark
+ * [répertoire du graphe] [arêtes de l'ensemble restreint]
+ */
+public final class ProfileDecodingBenchmark {
+    private static final int ROUNDS = 10;
+    private static final int REPEATED_READS = 2_000_000;
+
+    public static void main(String[] args) throws IOException {
+        Path basePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        int workingSetSize = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        GraphEdges edges = new GraphEdges(mappedBuffer(basePath.resolve("edges.bin")),
+                mappedBuffer(basePath.resolve("profile_ids.bin")).asIntBuffer(),
+                mappedBuffer(basePath.resolve("elevations.bin")).asShortBuffer());
+        int edgeCount = edges.profileIds().capacity();
+
+        double best = 0;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long samples = 0;
+            long t0 = System.nanoTime();
+            for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+                float[] profile = edges.profileSamples(edgeId);
+                samples += profile.length;
+                checksum += profile.length == 0 ? 0 : (long) profile[profile.length - 1];
+            }
+            best = Math.max(best, samples / ((System.nanoTime() - t0) / 1e9));
+        }
+        System.out.printf("GraphEdges.profileSamples : %.1f M échantillons/s [%d]%n",
+                best / 1e6, checksum);
+
+        Graph graph = Graph.loadFrom(basePath);
+        RandomGenerator rng = newRandom();
+        int[] workingSet = new int[workingSetSize];
+        for (int i = 0; i < workingSetSize; i++)
+            workingSet[i] = rng.nextInt(edgeCount);
+        double sum = 0;
+        double bestCalls = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < REPEATED_READS; i++) {
+                int edgeId = workingSet[rng.nextInt(workingSetSize)];
+                double elevation = graph.edgeProfile(edgeId).applyAsDouble(0);
+                if (!Double.isNaN(elevation))
+                    sum += elevation;
+            }
+            bestCalls = Math.max(bestCalls, REPEATED_READS / ((System.nanoTime() - t0) / 1e9));
+        }
+        System.out.printf("Graph.edgeProfile (%d arêtes) : %.2f M appels/s [%s]%n",
+                workingSetSize, bestCalls / 1e6, sum);
+    }
+
+    private static MappedByteBuffer mappedBuffer(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphRenumbering;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compare la latence de RouteComputer sur un graphe et sur ce même graphe
+ * renuméroté par GraphRenumbering, pour les mêmes requêtes aléatoires, et
+ * vérifie que les itinéraires obtenus ont la même longueur. Usage :
+ * RenumberingBenchmark [répertoire du graphe] [répertoire du graphe
+ * renuméroté] [requêtes]
+ */
+public final class RenumberingBenchmark {
+    private static final int WARMUP_QUERIES = 50;
+
+    public static void main(String[] args) throws IOException {
+        Path sourcePath = Path.of(args.length > 0 ? args[0] : "lausanne");
+        Path targetPath = args.length > 1
+                ? Path.of(args[1])
+                : Files.createTempDirectory("javelo-renumbered");
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        long t0 = System.nanoTime();
+        int[] newNodeIds = GraphRenumbering.renumber(sourcePath, targetPath);
+        System.out.printf("Renumérotation : %.1f s%n", (System.nanoTime() - t0) / 1e9);
+
+        Graph graph = Graph.loadFrom(sourcePath);
+        Graph renumbered = Graph.loadFrom(targetPath);
+        RouteComputer rc = new RouteComputer(graph, new CityBikeCF(graph));
+        RouteComputer renumberedRc = new RouteComputer(renumbered, new CityBikeCF(renumbered));
+
+        int[][] pairs = RouteComputerBenchmark.randomPairs(graph, queries);
+        int[][] warmup = RouteComputerBenchmark.randomPairs(graph, WARMUP_QUERIES);
+        int[][] renumberedPairs = renumber(pairs, newNodeIds);
+        int[][] renumberedWarmup = renumber(warmup, newNodeIds);
+
+        int mismatches = 0;
+        for (int i = 0; i < queries; i++) {
+            Route route = rc.bestRouteBetween(pairs[i][0], pairs[i][1]);
+            Route renumberedRoute = renumberedRc.bestRouteBetween(
+                    renumberedPairs[i][0], renumberedPairs[i][1]);
+            double length = route == null ? -1 : route.length();
+            double renumberedLength = renumberedRoute == null ? -1 : renumberedRoute.length();
+            if (Math.abs(length - renumberedLength) > 1e-6) mismatches += 1;
+        }
+        System.out.printf("Itinéraires de longueurs différentes : %d / %d%n", mismatches, queries);
+
+        // Les mesures sont répétées en alternance, afin que le
+        // réchauffement de la JVM ne favorise aucun des deux graphes
+        for (int round = 0; round < 2; round++) {
+            RouteComputerBenchmark.measure("ordre d'importation", warmup, pairs,
+                    p -> rc.bestRouteBetween(p[0], p[1]));
+            RouteComputerBenchmark.measure("ordre de Hilbert", renumberedWarmup, renumberedPairs,
+                    p -> renumberedRc.bestRouteBetween(p[0], p[1]));
+        }
+    }
+
+    private static int[][] renumber(int[][] pairs, int[] newNodeIds) {
+        int[][] renumbered = new int[pairs.length][];
+        for (int i = 0; i < pairs.length; i++)
+            renumbered[i] = new int[]{newNodeIds[pairs[i][0]], newNodeIds[pairs[i][1]]};
+        return renumbered;
+    }
+}
@@ -0,0 +1,171 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTest {
+
+    @Test
+    void getReturnsRoutesThatWerePut() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start == end) continue;
+                assertNull(cache.get(0, start, end));
+                cache.put(0, start, end, rc.bestRouteBetween(start, end));
+            }
+        }
+        assertEquals(30, cache.size());
+        assertEquals(30, cache.missCount());
+        for (int start = 0; start < graph.nodeCount(); start++) {
+            for (int end = 0; end < graph.nodeCount(); end++) {
+                if (start == end) continue;
+                Route expected = rc.bestRouteBetween(start, end);
+                Route actual = cache.get(0, start, end);
+                assertEquals(expected.points(), actual.points());
+                assertEquals(expected.length(), actual.length());
+            }
+        }
+        assertEquals(30, cache.hitCount());
+    }
+
+    @Test
+    void costFunctionIdIsPartOfTheKey() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        cache.put(1, 0, 3, rc.bestRouteBetween(0, 3));
+        assertNull(cache.get(2, 0, 3));
+        assertNull(cache.get(1, 3, 0));
+        assertNotNull(cache.get(1, 0, 3));
+    }
+
+    @Test
+    void putThrowsOnRouteNotMatchingNodes() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        Route route = rc.bestRouteBetween(0, 3);
+        assertThrows(IllegalArgumentException.class, () -> cache.put(0, 1, 3, route));
+        assertThrows(IllegalArgumentException.class, () -> cache.put(0, 0, 4, route));
+        assertThrows(IllegalArgumentException.class, () -> new RouteCache(graph, 0));
+    }
+
+    @Test
+    void cacheRespectsItsMaximalWeight() {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        // Chaque segment peut contenir quelques itinéraires seulement
+        RouteCache cache = new RouteCache(graph, 16 * 120);
+        RandomGenerator rng = newRandom();
+        for (int i = 0; i < 2_000; i++) {
+            int start = rng.nextInt(graph.nodeCount());
+            int end = rng.nextInt(graph.nodeCount());
+            if (start == end) continue;
+            cache.put(i, start, end, rc.bestRouteBetween(start, end));
+            assertTrue(cache.weight() <= cache.maxWeight());
+        }
+        assertTrue(cache.evictionCount() > 0);
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    void cacheWorksWithConcurrentAccesses() throws Exception {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 16 * 400);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    RandomGenerator rng = RandomGenerator.of("L64X128MixRandom");
+                    for (int i = 0; i < 5_000 + seed; i++) {
+                        int start = rng.nextInt(graph.nodeCount());
+                        int end = rng.nextInt(graph.nodeCount());
+                        int costFunctionId = rng.nextInt(50);
+                        if (start == end) continue;
+                        Route route = cache.get(costFunctionId, start, end);
+                        if (route == null)
+                            cache.put(costFunctionId, start, end, rc.bestRouteBetween(start, end));
+                        else
+                            assertEquals(rc.bestRouteBetween(start, end).points(), route.points());
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.weight() <= cache.maxWeight());
+        assertTrue(cache.hitCount() > 0 && cache.missCount() > 0);
+    }
+
+    @Test
+    void writeToAndLoadFromRoundTrip() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        cache.put(0, 0, 3, rc.bestRouteBetween(0, 3));
+        cache.put(0, 5, 1, rc.bestRouteBetween(5, 1));
+        cache.put(7, 2, 4, rc.bestRouteBetween(2, 4));
+        Path file = Files.createTempDirectory("routes").resolve("routes.bin");
+        cache.writeTo(file, 42);
+
+        RouteCache loaded = new RouteCache(graph, 1 << 20);
+        assertEquals(3, loaded.loadFrom(file, 42));
+        assertEquals(3, loaded.size());
+        assertEquals(rc.bestRouteBetween(5, 1).points(), loaded.get(0, 5, 1).points());
+        assertEquals(rc.bestRouteBetween(2, 4).points(), loaded.get(7, 2, 4).points());
+        assertNull(loaded.get(0, 2, 4));
+    }
+
+    @Test
+    void loadFromIgnoresRoutesThatAreNotPaths() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES + Integer.BYTES * 15);
+        // Version 2, empreinte 42, deux itinéraires : 0 -> 1 -> 2 (valide),
+        // puis 0 -> 2 (invalide)
+        bytes.putInt(2).putLong(42).putInt(2)
+                .asIntBuffer().put(new int[]{0, 0, 2, 2, 0, 3, 0, 0, 2, 1, 3, 0, 0});
+        Path file = Files.createTempDirectory("routes").resolve("routes.bin");
+        Files.write(file, bytes.array());
+
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        assertEquals(1, cache.loadFrom(file, 42));
+        assertEquals(200, cache.get(0, 0, 2).length());
+        assertNull(cache.get(0, 0, 3));
+    }
+
+    @Test
+    void loadFromIgnoresFilesWithAnotherFingerprint() throws IOException {
+        Graph graph = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        RouteCache cache = new RouteCache(graph, 1 << 20);
+        cache.put(0, 0, 3, rc.bestRouteBetween(0, 3));
+        Path file = Files.createTempDirectory("routes").resolve("routes.bin");
+        cache.writeTo(file, 42);
+
+        RouteCache loaded = new RouteCache(graph, 1 << 20);
+        assertEquals(0, loaded.loadFrom(file, 43));
+        assertEquals(0, loaded.size());
+    }
+}
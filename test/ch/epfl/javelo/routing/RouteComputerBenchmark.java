@@ -0,0 +1,144 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Compare la latence et les allocations de RouteComputer à celles de
+ * l'ancienne implémentation (PriorityQueue d'objets), sur des requêtes
+ * aléatoires. Usage : RouteComputerBenchmark [répertoire du graphe] [requêtes]
+ * [points de repère]
+ */
+public final class RouteComputerBenchmark {
+    private static final int WARMUP_QUERIES = 50;
+    private static final int DEFAULT_LANDMARKS = 16;
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        CostFunction cf = new CityBikeCF(graph);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        RouteComputer bidirectionalRc =
+                new RouteComputer(graph, cf, SearchMode.BIDIRECTIONAL);
+
+        int landmarkCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LANDMARKS;
+        long t0 = System.nanoTime();
+        Landmarks landmarks = Landmarks.of(graph, cf, landmarkCount,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("Points de repère : %d en %.1f s%n",
+                landmarkCount, (System.nanoTime() - t0) / 1e9);
+        RouteComputer altRc =
+                new RouteComputer(graph, cf, SearchMode.UNIDIRECTIONAL, landmarks);
+        RouteComputer altBidirectionalRc =
+                new RouteComputer(graph, cf, SearchMode.BIDIRECTIONAL, landmarks);
+
+        int[][] pairs = randomPairs(graph, queries);
+        int[][] warmup = randomPairs(graph, WARMUP_QUERIES);
+
+        measure("PriorityQueue<WeightedNode>", warmup, pairs,
+                p -> boxedBestRoute(graph, cf, p[0], p[1]));
+        measure("RouteComputer", warmup, pairs,
+                p -> rc.bestRouteBetween(p[0], p[1]));
+        measure("RouteComputer bidirectionnel", warmup, pairs,
+                p -> bidirectionalRc.bestRouteBetween(p[0], p[1]));
+        measure("RouteComputer ALT", warmup, pairs,
+                p -> altRc.bestRouteBetween(p[0], p[1]));
+        measure("RouteComputer ALT bidir.", warmup, pairs,
+                p -> altBidirectionalRc.bestRouteBetween(p[0], p[1]));
+    }
+
+    static int[][] randomPairs(Graph graph, int count) {
+        RandomGenerator rng = newRandom();
+        int[][] pairs = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int start = rng.nextInt(graph.nodeCount());
+            int end = rng.nextInt(graph.nodeCount());
+            pairs[i] = new int[]{start, start == end ? (end + 1) % graph.nodeCount() : end};
+        }
+        return pairs;
+    }
+
+    static void measure(String name, int[][] warmup, int[][] pairs,
+                        java.util.function.Consumer<int[]> query) {
+        for (int[] p : warmup) query.accept(p);
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[pairs.length];
+        long bytes0 = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < pairs.length; i++) {
+            long t0 = System.nanoTime();
+            query.accept(pairs[i]);
+            nanos[i] = System.nanoTime() - t0;
+        }
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytes0;
+        Arrays.sort(nanos);
+        System.out.printf("%-28s p50 %7.2f ms  p99 %7.2f ms  %8.1f kB alloués/requête%n",
+                name,
+                nanos[nanos.length / 2] / 1e6,
+                nanos[(int) (nanos.length * 0.99)] / 1e6,
+                bytes / 1024.0 / pairs.length);
+    }
+
+    // Ancienne implémentation de bestRouteBetween, conservée comme référence ;
+    // comme RouteComputer, elle reconstruit l'itinéraire trouvé.
+    private static Route boxedBestRoute(Graph graph, CostFunction cf, int start, int end) {
+        record WeightedNode(int nodeId, float distance) implements Comparable<WeightedNode> {
+            @Override
+            public int compareTo(WeightedNode that) {
+                return Float.compare(this.distance, that.distance);
+            }
+        }
+        float[] distance = new float[graph.nodeCount()];
+        // Identité du noeud précédent (28 bits) et index de l'arête (4 bits)
+        int[] predecessors = new int[distance.length];
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        PointCh endPoint = graph.nodePoint(end);
+        distance[start] = 0;
+        PriorityQueue<WeightedNode> queue = new PriorityQueue<>();
+        queue.add(new WeightedNode(start, 0));
+        while (!queue.isEmpty()) {
+            int nodeId = queue.remove().nodeId();
+            if (distance[nodeId] == Float.NEGATIVE_INFINITY) continue;
+            if (nodeId == end) return boxedItinerary(graph, start, end, predecessors);
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                int target = graph.edgeTargetNodeId(edgeId);
+                double d = distance[nodeId] + graph.edgeLength(edgeId) * cf.costFactor(nodeId, edgeId);
+                if (d < distance[target]) {
+                    predecessors[target] = (nodeId << 4) | i;
+                    distance[target] = (float) d;
+                    queue.add(new WeightedNode(target,
+                            (float) (d + endPoint.distanceTo(graph.nodePoint(target)))));
+                }
+            }
+            distance[nodeId] = Float.NEGATIVE_INFINITY;
+        }
+        return null;
+    }
+
+    // Reconstitue l'itinéraire à partir du tableau de prédécesseurs, comme le
+    // faisait l'ancienne implémentation.
+    private static Route boxedItinerary(Graph graph, int start, int end, int[] predecessors) {
+        Deque<Edge> itinerary = new ArrayDeque<>();
+        int toNodeId = end;
+        while (toNodeId != start) {
+            int fromNodeId = predecessors[toNodeId] >>> 4;
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, predecessors[toNodeId] & 0xF);
+            itinerary.offerFirst(Edge.of(graph, edgeId, fromNodeId, toNodeId));
+            toNodeId = fromNodeId;
+        }
+        return new SingleRoute(List.copyOf(itinerary));
+    }
+}
@@ -24,6 +24,124 @@ public class RouteComputerTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void bidirectionalBestRouteBetweenWorksOnLausanne() throws IOException {
+        Graph g = Graph.loadFrom(Path.of("lausanne"));
+        CostFunction cf = new CityBikeCF(g);
+        RouteComputer rc = new RouteComputer(g, cf);
+        RouteComputer bidirectionalRc = new RouteComputer(g, cf, SearchMode.BIDIRECTIONAL);
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            int startNodeId = rng.nextInt(g.nodeCount());
+            int endNodeId = rng.nextInt(g.nodeCount());
+            if (startNodeId == endNodeId)
+                continue;
+            Route expected = rc.bestRouteBetween(startNodeId, endNodeId);
+            Route actual = bidirectionalRc.bestRouteBetween(startNodeId, endNodeId);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.length(), actual.length(), 1e-1);
+                assertEquals(expected.points().get(0), actual.points().get(0));
+            }
+        }
+        Route bestRoute = bidirectionalRc.bestRouteBetween(159049, 117669);
+        assertEquals(9588.5625, bestRoute.length());
+    }
+
+    @Test
+    void approximateRouteBetweenIsExactWithUnitEpsilon() {
+        Graph g = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(g, (nodeId, edgeId) -> 1);
+        for (int start = 0; start < g.nodeCount(); start++) {
+            for (int end = 0; end < g.nodeCount(); end++) {
+                if (start == end) continue;
+                Route expected = rc.bestRouteBetween(start, end);
+                ApproximateRoute actual =
+                        rc.approximateRouteBetween(start, end, 1, SearchBudget.UNLIMITED);
+                assertTrue(actual.complete());
+                assertEquals(end, actual.reachedNodeId());
+                assertEquals(expected.points(), actual.route().points());
+            }
+        }
+    }
+
+    @Test
+    void approximateRouteBetweenRespectsEpsilonOnLausanne() throws IOException {
+        Graph g = Graph.loadFrom(Path.of("lausanne"));
+        // Avec un facteur de coût unitaire, le coût d'un itinéraire est sa longueur
+        RouteComputer rc = new RouteComputer(g, (nodeId, edgeId) -> 1);
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            int startNodeId = rng.nextInt(g.nodeCount());
+            int endNodeId = rng.nextInt(g.nodeCount());
+            if (startNodeId == endNodeId)
+                continue;
+            double epsilon = 1 + rng.nextDouble();
+            Route expected = rc.bestRouteBetween(startNodeId, endNodeId);
+            ApproximateRoute result = rc.approximateRouteBetween(startNodeId, endNodeId,
+                    epsilon, SearchBudget.UNLIMITED);
+            if (expected == null) {
+                assertNull(result);
+            } else {
+                assertTrue(result.complete());
+                Route actual = result.route();
+                assertTrue(actual.length() >= expected.length() - 1e-1);
+                assertTrue(actual.length() <= epsilon * expected.length() + 1e-1);
+            }
+        }
+    }
+
+    @Test
+    void approximateRouteBetweenReturnsPartialRouteWhenBudgetIsExhausted() {
+        Graph g = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(g, (nodeId, edgeId) -> 1);
+        ApproximateRoute empty =
+                rc.approximateRouteBetween(0, 3, 1, SearchBudget.ofSettledNodes(1));
+        assertFalse(empty.complete());
+        assertNull(empty.route());
+        assertEquals(0, empty.reachedNodeId());
+
+        ApproximateRoute partial =
+                rc.approximateRouteBetween(0, 3, 1, SearchBudget.ofSettledNodes(2));
+        assertFalse(partial.complete());
+        assertEquals(1, partial.reachedNodeId());
+        assertEquals(100, partial.route().length());
+        assertEquals(g.nodePoint(1),
+                partial.route().points().get(partial.route().points().size() - 1));
+
+        ApproximateRoute complete =
+                rc.approximateRouteBetween(0, 3, 1, SearchBudget.ofSettledNodes(4));
+        assertTrue(complete.complete());
+        assertEquals(3, complete.reachedNodeId());
+        assertEquals(300, complete.route().length());
+    }
+
+    @Test
+    void approximateRouteBetweenThrowsOnInvalidArguments() {
+        Graph g = ContractionHierarchyTest.smallGraph();
+        RouteComputer rc = new RouteComputer(g, (nodeId, edgeId) -> 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> rc.approximateRouteBetween(0, 3, 0.5, SearchBudget.UNLIMITED));
+        assertThrows(IllegalArgumentException.class,
+                () -> rc.approximateRouteBetween(2, 2, 1, SearchBudget.UNLIMITED));
+        assertThrows(IllegalArgumentException.class, () -> SearchBudget.ofSettledNodes(0));
+        assertThrows(IllegalArgumentException.class, () -> new ApproximateRoute(null, 0, true));
+    }
+
+    @Test
+    void packedPredecessorsHoldLargeNodeIdsAndEdgeIndices() {
+        int[] nodeIds = {0, 1, (1 << 28) + 3, Integer.MAX_VALUE};
+        int[] edgeIndices = {0, 15, 16, 1 << 20};
+        for (int nodeId : nodeIds) {
+            for (int edgeIndex : edgeIndices) {
+                long predecessor = RouteComputer.packPredecessor(nodeId, edgeIndex);
+                assertEquals(nodeId, RouteComputer.predecessorNodeId(predecessor));
+                assertEquals(edgeIndex, RouteComputer.predecessorEdgeIndex(predecessor));
+            }
+        }
+    }
+
     @Test
     void bestRouteBetweenWorksOnCH_West() throws IOException {
         Graph g = Graph.loadFrom(Path.of("ch_west"));
@@ -0,0 +1,78 @@
+package ch.epfl.javelo.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStateTest {
+
+    private static void checkStateStoresValues(SearchState state, int nodeCount) {
+        var rng = newRandom();
+        float[] costs = new float[nodeCount];
+        long[] predecessors = new long[nodeCount];
+        java.util.Arrays.fill(costs, SearchState.UNREACHED);
+        for (int i = 0; i < RANDOM_ITERATIONS; i++) {
+            int nodeId = rng.nextInt(nodeCount);
+            costs[nodeId] = rng.nextFloat();
+            predecessors[nodeId] = rng.nextLong();
+            state.update(nodeId, costs[nodeId], predecessors[nodeId]);
+        }
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            assertEquals(costs[nodeId], state.cost(nodeId));
+            if (costs[nodeId] != SearchState.UNREACHED)
+                assertEquals(predecessors[nodeId], state.predecessor(nodeId));
+        }
+    }
+
+    private static void checkResetForgetsEverything(SearchState state, int nodeCount) {
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            state.update(nodeId, nodeId, nodeId);
+            state.settle(nodeId);
+        }
+        state.queue().insertOrDecrease(0, 1f);
+        state.reset();
+        assertTrue(state.queue().isEmpty());
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            assertEquals(SearchState.UNREACHED, state.cost(nodeId));
+            assertFalse(state.isSettled(nodeId));
+            assertEquals(SearchState.NOT_IN_QUEUE, state.queuePosition(nodeId));
+        }
+    }
+
+    @Test
+    void denseStateStoresValues() {
+        checkStateStoresValues(new DenseSearchState(500), 500);
+    }
+
+    @Test
+    void sparseStateStoresValues() {
+        // Plus de noeuds que la capacité initiale, pour forcer l'agrandissement
+        checkStateStoresValues(new SparseSearchState(), 5_000);
+    }
+
+    @Test
+    void denseStateResetForgetsEverything() {
+        checkResetForgetsEverything(new DenseSearchState(100), 100);
+    }
+
+    @Test
+    void sparseStateResetForgetsEverything() {
+        checkResetForgetsEverything(new SparseSearchState(), 3_000);
+    }
+
+    @Test
+    void workspaceReturnsResetStates() {
+        SearchWorkspace workspace = new SearchWorkspace(10);
+        SearchState dense = workspace.state(false);
+        dense.update(3, 1f, 0);
+        assertSame(dense, workspace.state(false));
+        assertEquals(SearchState.UNREACHED, dense.cost(3));
+
+        SearchState sparse = workspace.state(true);
+        assertNotSame(dense, sparse);
+        sparse.update(3, 1f, 0);
+        assertEquals(SearchState.UNREACHED, workspace.state(true).cost(3));
+    }
+}
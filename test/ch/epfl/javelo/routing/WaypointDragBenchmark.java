@@ -0,0 +1,81 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+
+/**
+ * Simule le déplacement d'un point de passage situé entre deux autres et
+ * compare la latence du recalcul des deux segments voisins par RouteComputer
+ * et par IncrementalRouteComputer. Usage : WaypointDragBenchmark [répertoire
+ * du graphe] [déplacements] [pas par déplacement]
+ */
+public final class WaypointDragBenchmark {
+    // Nombre d'arêtes parcourues par le point de passage à chaque pas
+    private static final int EDGES_PER_STEP = 3;
+
+    public static void main(String[] args) throws IOException {
+        Graph graph = Graph.loadFrom(Path.of(args.length > 0 ? args[0] : "lausanne"));
+        int drags = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        CostFunction cf = new CityBikeCF(graph);
+        RouteComputer rc = new RouteComputer(graph, cf);
+        RandomGenerator rng = newRandom();
+
+        int[][] paths = new int[drags][];
+        for (int i = 0; i < drags; i++)
+            paths[i] = dragPath(graph, rng, steps);
+
+        for (int run = 0; run < 2; run++) {
+            boolean print = run == 1;
+            measure("RouteComputer", paths, print, rc::bestRouteBetween);
+            IncrementalRouteComputer irc = new IncrementalRouteComputer(rc);
+            measure("IncrementalRouteComputer", paths, print, irc::bestRouteBetween);
+        }
+    }
+
+    private interface Router {
+        Route route(int startNodeId, int endNodeId);
+    }
+
+    // Retourne les noeuds de départ et d'arrivée, suivis des positions
+    // successives du point de passage déplacé.
+    private static int[] dragPath(Graph graph, RandomGenerator rng, int steps) {
+        int[] path = new int[steps + 3];
+        path[0] = rng.nextInt(graph.nodeCount());
+        path[1] = rng.nextInt(graph.nodeCount());
+        int waypoint = rng.nextInt(graph.nodeCount());
+        for (int i = 0; i <= steps; i++) {
+            for (int j = 0; j < EDGES_PER_STEP && graph.nodeOutDegree(waypoint) > 0; j++)
+                waypoint = graph.edgeTargetNodeId(graph.nodeOutEdgeId(waypoint,
+                        rng.nextInt(graph.nodeOutDegree(waypoint))));
+            path[i + 2] = waypoint;
+        }
+        return path;
+    }
+
+    private static void measure(String name, int[][] paths, boolean print, Router router) {
+        int steps = paths[0].length - 2;
+        long[] nanos = new long[paths.length * steps];
+        int count = 0;
+        for (int[] path : paths) {
+            for (int i = 2; i < path.length; i++) {
+                long t0 = System.nanoTime();
+                if (path[i] != path[0]) router.route(path[0], path[i]);
+                if (path[i] != path[1]) router.route(path[i], path[1]);
+                nanos[count++] = System.nanoTime() - t0;
+            }
+        }
+        if (!print) return;
+        Arrays.sort(nanos);
+        // Le premier pas de chaque déplacement est un calcul complet
+        System.out.printf("%-26s p50 %7.2f ms  p90 %7.2f ms  p99 %7.2f ms%n", name,
+                nanos[count / 2] / 1e6, nanos[(int) (count * 0.9)] / 1e6,
+                nanos[(int) (count * 0.99)] / 1e6);
+    }
+}